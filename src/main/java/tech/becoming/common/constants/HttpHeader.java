@@ -2024,6 +2024,22 @@ public class HttpHeader {
      */
     public static final String LARGE_ALLOCATION = "Large-Allocation";
 
+    /**
+     * Other
+     * <br>Request header
+     * <br><br>
+     * A unique key, generated by the client, that makes a non idempotent request such as POST or PATCH safe to retry:
+     * the server processes the first request with a given key and answers the retries with the same response.
+     * <pre>{@code
+     * Idempotency-Key: <key>
+     *
+     * Examples
+     *
+     * Idempotency-Key: "8e03978e-40d5-43e8-bc93-6894a57f9324"
+     * }</pre>
+     */
+    public static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
     /**
      * Other
      * <br><br>
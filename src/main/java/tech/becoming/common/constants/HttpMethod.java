@@ -77,6 +77,45 @@ public class HttpMethod {
      */
     public final static String PATCH = "PATCH";
 
+    /**
+     * All the methods above, the position of a method is its ordinal, e.g. to key bit sets by method.
+     */
+    private final static String[] VALUES = {GET, HEAD, POST, PUT, DELETE, CONNECT, OPTIONS, TRACE, PATCH};
 
+    public static String[] values() {
+        return VALUES.clone();
+    }
 
+    /**
+     * A method is safe if it doesn't alter the state of the server, i.e. it leads to a read-only operation.
+     *
+     * @see <a href="https://developer.mozilla.org/en-US/docs/Glossary/Safe/HTTP">Safe</a>
+     */
+    public static boolean isSafe(String method) {
+        return GET.equals(method) || HEAD.equals(method) || OPTIONS.equals(method) || TRACE.equals(method);
+    }
+
+    /**
+     * A method is idempotent if several identical requests have the same effect on the server as a single one,
+     * all safe methods are idempotent. Idempotent requests can be retried without side effects.
+     *
+     * @see <a href="https://developer.mozilla.org/en-US/docs/Glossary/Idempotent">Idempotent</a>
+     */
+    public static boolean isIdempotent(String method) {
+        return isSafe(method) || PUT.equals(method) || DELETE.equals(method);
+    }
+
+    /**
+     * Method names are case-sensitive, <b>get</b> is not <b>GET</b>.
+     *
+     * @return the ordinal of the method or -1 when it is not one of the methods above
+     */
+    public static int ordinal(String method) {
+        for (int i = 0; i < VALUES.length; i++) {
+            if (VALUES[i].equals(method)) {
+                return i;
+            }
+        }
+        return -1;
+    }
 }
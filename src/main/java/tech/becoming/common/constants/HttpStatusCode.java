@@ -472,4 +472,48 @@ public class HttpStatusCode {
      */
     public final static int NETWORK_AUTHENTICATION_REQUIRED_511 = 511;
 
+    /**
+     * Lowest and highest status codes, codes in between can index dense arrays, e.g. {@code counts[code - MIN]}
+     */
+    public final static int MIN = 100;
+    public final static int MAX = 599;
+
+    public static boolean isValid(int code) {
+        return code >= MIN && code <= MAX;
+    }
+
+    /**
+     * @return the class of the code, 1 to 5 for 1xx to 5xx, or -1 when the code is not valid
+     */
+    public static int statusClass(int code) {
+        return isValid(code) ? code / 100 : -1;
+    }
+
+    public static boolean isInformational(int code) {
+        return statusClass(code) == 1;
+    }
+
+    public static boolean isSuccess(int code) {
+        return statusClass(code) == 2;
+    }
+
+    public static boolean isRedirection(int code) {
+        return statusClass(code) == 3;
+    }
+
+    public static boolean isClientError(int code) {
+        return statusClass(code) == 4;
+    }
+
+    public static boolean isServerError(int code) {
+        return statusClass(code) == 5;
+    }
+
+    /**
+     * @return true for 4xx and 5xx
+     */
+    public static boolean isError(int code) {
+        return statusClass(code) >= 4;
+    }
+
 }
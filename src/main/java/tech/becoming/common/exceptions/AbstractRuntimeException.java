@@ -29,6 +29,10 @@ public abstract class AbstractRuntimeException extends RuntimeException {
 
     public abstract int getHttpCode();
 
+    public List<ExceptionDetail> getDetails() {
+        return details;
+    }
+
     @Override
     public String toString() {
         var messages = details.stream().map(ExceptionDetail::getMessage).toArray();
@@ -0,0 +1,295 @@
+package tech.becoming.common.exceptions;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.ConsoleHandler;
+import java.util.logging.ErrorManager;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+/**
+ * A JUL handler queueing records in a bounded lock-free ring buffer, written in batches to the delegate handlers by
+ * a single daemon thread. The throwing thread never takes a lock nor waits for I/O: when the buffer is full the
+ * record is dropped, and the number of dropped records is logged by the drainer once it catches up.
+ * <br><br>
+ * With {@link Overflow#SAMPLE}, once the buffer is half full only one record out of {@code sampleEvery} is queued,
+ * except SEVERE records which are queued as long as there is room.
+ * <br><br>
+ * Records are not formatted nor their caller inferred in the throwing thread, a formatter printing the source shows
+ * the logger name unless the source was set on the record.
+ * <pre>{@code
+ * // replaces the handlers of AbstractRuntimeException.LOGGER, once at startup
+ * AsyncLogHandler.install();
+ * }</pre>
+ */
+public final class AsyncLogHandler extends Handler {
+
+    public static final int DEFAULT_CAPACITY = 8192;
+    public static final int DEFAULT_BATCH = 256;
+    public static final int DEFAULT_SAMPLE_EVERY = 16;
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long CLOSE_TIMEOUT_MILLIS = 1000;
+
+    public enum Overflow {
+        /**
+         * Records are queued until the buffer is full
+         */
+        DROP,
+        /**
+         * Once the buffer is half full, only a sample of the non SEVERE records is queued
+         */
+        SAMPLE
+    }
+
+    private final Handler[] delegates;
+    // false for the handlers of the root logger, which keep serving the other loggers
+    private final boolean ownsDelegates;
+    private final Overflow overflow;
+    private final int sampleEvery;
+    private final int batch;
+
+    private final int mask;
+    private final AtomicReferenceArray<LogRecord> records;
+    // Vyukov bounded queue: a slot is writable at position p when its sequence is p, readable when p + 1
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong sampled = new AtomicLong();
+    private final Thread drainer;
+    private volatile boolean idle;
+    private volatile boolean closed;
+
+    private AsyncLogHandler(int capacity, int batch, Overflow overflow, int sampleEvery, Handler[] delegates,
+                            boolean ownsDelegates) {
+        if (capacity <= 1 || batch <= 0 || sampleEvery <= 0 || delegates.length == 0) {
+            throw new IllegalArgumentException("Expected a capacity above 1, a positive batch and sampling, and a delegate");
+        }
+        int size = Integer.highestOneBit(capacity - 1) << 1;
+        this.mask = size - 1;
+        this.records = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        this.batch = batch;
+        this.overflow = Objects.requireNonNull(overflow);
+        this.sampleEvery = sampleEvery;
+        this.delegates = delegates.clone();
+        this.ownsDelegates = ownsDelegates;
+
+        this.drainer = new Thread(this::drain, "async-log-handler");
+        this.drainer.setDaemon(true);
+        this.drainer.start();
+    }
+
+    /**
+     * The delegates are closed with the handler.
+     */
+    public static AsyncLogHandler of(Handler... delegates) {
+        return new AsyncLogHandler(DEFAULT_CAPACITY, DEFAULT_BATCH, Overflow.DROP, DEFAULT_SAMPLE_EVERY, delegates,
+                true);
+    }
+
+    /**
+     * @param capacity    number of queued records, rounded up to a power of two
+     * @param batch       number of records written between two flushes of the delegates
+     * @param sampleEvery with {@link Overflow#SAMPLE}, one record out of this number is queued above half capacity
+     * @param delegates   closed with the handler
+     */
+    public static AsyncLogHandler of(int capacity, int batch, Overflow overflow, int sampleEvery, Handler... delegates) {
+        return new AsyncLogHandler(capacity, batch, overflow, sampleEvery, delegates, true);
+    }
+
+    /**
+     * Routes {@link AbstractRuntimeException#LOGGER} through a handler writing to the handlers of the root logger,
+     * or to a new {@link ConsoleHandler} when the root logger has none. The handlers of the root logger are shared
+     * with the other loggers, they are not closed with the handler.
+     */
+    public static AsyncLogHandler install() {
+        var rootHandlers = Logger.getLogger("").getHandlers();
+        if (rootHandlers.length == 0) {
+            return install(AbstractRuntimeException.LOGGER, new Handler[]{new ConsoleHandler()}, true);
+        }
+        return install(AbstractRuntimeException.LOGGER, rootHandlers, false);
+    }
+
+    /**
+     * Replaces the handlers of the logger by a handler writing to the delegates, records are no longer passed to the
+     * parent handlers. The delegates are closed with the handler.
+     */
+    public static AsyncLogHandler install(Logger logger, Handler... delegates) {
+        return install(logger, delegates, true);
+    }
+
+    private static AsyncLogHandler install(Logger logger, Handler[] delegates, boolean ownsDelegates) {
+        var handler = new AsyncLogHandler(DEFAULT_CAPACITY, DEFAULT_BATCH, Overflow.DROP, DEFAULT_SAMPLE_EVERY,
+                delegates, ownsDelegates);
+        for (var existing : logger.getHandlers()) {
+            logger.removeHandler(existing);
+        }
+        logger.addHandler(handler);
+        logger.setUseParentHandlers(false);
+        return handler;
+    }
+
+    /**
+     * Queues the record, never blocks.
+     */
+    @Override
+    public void publish(LogRecord record) {
+        if (closed || !isLoggable(record)) {
+            return;
+        }
+        if (overflow == Overflow.SAMPLE
+                && record.getLevel().intValue() < Level.SEVERE.intValue()
+                && tail.get() - head > mask >> 1
+                && sampled.incrementAndGet() % sampleEvery != 0) {
+            dropped.incrementAndGet();
+            return;
+        }
+        if (!offer(record)) {
+            dropped.incrementAndGet();
+            return;
+        }
+        if (idle) {
+            LockSupport.unpark(drainer);
+        }
+    }
+
+    /**
+     * Waits for the records queued so far to be written, at most a second.
+     */
+    @Override
+    public void flush() {
+        long target = tail.get();
+        long deadline = System.currentTimeMillis() + CLOSE_TIMEOUT_MILLIS;
+        while (head < target && drainer.isAlive() && System.currentTimeMillis() < deadline) {
+            LockSupport.unpark(drainer);
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+    }
+
+    /**
+     * Writes the queued records, then closes the delegates the handler owns, otherwise only flushes them.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(drainer);
+        try {
+            drainer.join(CLOSE_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (var delegate : delegates) {
+            if (ownsDelegates) {
+                delegate.close();
+            } else {
+                delegate.flush();
+            }
+        }
+    }
+
+    /**
+     * @return the number of records dropped or not sampled since the start
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * @return the number of records waiting to be written
+     */
+    public int size() {
+        return (int) Math.max(0, tail.get() - head);
+    }
+
+    private boolean offer(LogRecord record) {
+        while (true) {
+            long position = tail.get();
+            int index = (int) position & mask;
+            long sequence = sequences.get(index);
+            if (sequence == position) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    records.set(index, record);
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+            } else if (sequence < position) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Only called by the drainer.
+     */
+    private LogRecord poll() {
+        long position = head;
+        int index = (int) position & mask;
+        if (sequences.get(index) != position + 1) {
+            return null;
+        }
+        var record = records.get(index);
+        records.set(index, null);
+        sequences.set(index, position + mask + 1);
+        head = position + 1;
+        return record;
+    }
+
+    private void drain() {
+        long reported = 0;
+        while (true) {
+            int written = 0;
+            LogRecord record;
+            while (written < batch && (record = poll()) != null) {
+                write(record);
+                written++;
+            }
+
+            long drops = dropped.get();
+            if (drops != reported && size() < mask >> 1) {
+                var summary = new LogRecord(Level.WARNING, "{0} log records were dropped");
+                summary.setParameters(new Object[]{drops - reported});
+                summary.setLoggerName(AbstractRuntimeException.LOGGER.getName());
+                write(summary);
+                reported = drops;
+                written++;
+            }
+
+            if (written > 0) {
+                for (var delegate : delegates) {
+                    delegate.flush();
+                }
+                continue;
+            }
+            if (closed) {
+                return;
+            }
+            idle = true;
+            if (tail.get() == head && !closed) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+            idle = false;
+        }
+    }
+
+    private void write(LogRecord record) {
+        for (var delegate : delegates) {
+            try {
+                delegate.publish(record);
+            } catch (RuntimeException e) {
+                reportError("A delegate failed to publish a record", e, ErrorManager.WRITE_FAILURE);
+            }
+        }
+    }
+}
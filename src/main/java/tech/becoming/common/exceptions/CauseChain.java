@@ -0,0 +1,260 @@
+package tech.becoming.common.exceptions;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Writes a one line summary of a throwable and its causes, e.g.
+ * {@code org.hibernate.exception.JDBCConnectionException: could not prepare statement; caused by java.net.ConnectException: Connection refused}.
+ * <br><br>
+ * The chain is walked iteratively, a cause already visited ends it, so a cyclic chain can't loop. The number of
+ * causes and the size of the summary, counted in UTF-8 bytes, are bounded: a chain of 60 causes with large messages
+ * costs no more than the budget. The summary is written to the caller's {@link Appendable} or {@link ByteBuffer},
+ * the class name prefixes are computed once per exception type.
+ */
+public final class CauseChain {
+
+    public static final int DEFAULT_MAX_DEPTH = 16;
+    public static final int DEFAULT_MAX_BYTES = 2048;
+
+    /**
+     * Class names and messages, within the default budgets.
+     */
+    public static final CauseChain DEFAULT = new CauseChain(DEFAULT_MAX_DEPTH, DEFAULT_MAX_BYTES, true);
+
+    /**
+     * Messages only, within the default budgets.
+     */
+    public static final CauseChain MESSAGES = new CauseChain(DEFAULT_MAX_DEPTH, DEFAULT_MAX_BYTES, false);
+
+    private static final String SEPARATOR = "; caused by ";
+    private static final String MESSAGE_SEPARATOR = "; ";
+    private static final String TRUNCATED = "...";
+    private static final String CYCLE = " [cycle]";
+
+    private static final ClassValue<String> PREFIXES = new ClassValue<>() {
+        @Override
+        protected String computeValue(Class<?> type) {
+            return type.getName() + ": ";
+        }
+    };
+
+    private final int maxDepth;
+    private final int maxBytes;
+    private final boolean types;
+    private final String separator;
+    private final String truncatedCauses;
+
+    private CauseChain(int maxDepth, int maxBytes, boolean types) {
+        if (maxDepth <= 0 || maxBytes < TRUNCATED.length()) {
+            throw new IllegalArgumentException("Expected a positive depth and a budget of at least 3 bytes");
+        }
+        this.maxDepth = maxDepth;
+        this.maxBytes = maxBytes;
+        this.types = types;
+        this.separator = types ? SEPARATOR : MESSAGE_SEPARATOR;
+        this.truncatedCauses = separator + TRUNCATED;
+    }
+
+    /**
+     * @param maxDepth number of throwables written, the first one included
+     * @param maxBytes size of the summary in UTF-8 bytes, a truncated summary ends with "..."
+     * @param types    whether the class name is written before each message
+     */
+    public static CauseChain of(int maxDepth, int maxBytes, boolean types) {
+        return new CauseChain(maxDepth, maxBytes, types);
+    }
+
+    public String summarize(Throwable throwable) {
+        return summarize(throwable, new StringBuilder(Math.min(maxBytes, 256))).toString();
+    }
+
+    public <A extends Appendable> A summarize(Throwable throwable, A out) {
+        try {
+            write(throwable, new AppendableSink(out, maxBytes));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out;
+    }
+
+    /**
+     * Writes the summary in UTF-8 from the position of the buffer, within the budget and the remaining space.
+     *
+     * @return the number of bytes written
+     */
+    public int summarize(Throwable throwable, ByteBuffer out) {
+        int start = out.position();
+        try {
+            write(throwable, new ByteBufferSink(out, Math.min(maxBytes, out.remaining())));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.position() - start;
+    }
+
+    private void write(Throwable throwable, Sink sink) throws IOException {
+        var current = throwable;
+        for (int depth = 0; current != null; depth++) {
+            if (depth == maxDepth) {
+                sink.finish(truncatedCauses);
+                return;
+            }
+            if (depth > 0 && !sink.write(separator)) {
+                return;
+            }
+            var message = current.getMessage();
+            if (types && !sink.write(message == null ? current.getClass().getName() : PREFIXES.get(current.getClass()))) {
+                return;
+            }
+            if (message != null && !sink.write(message)) {
+                return;
+            }
+
+            var cause = current.getCause();
+            if (cause != null && isVisited(throwable, current, cause)) {
+                sink.finish(CYCLE);
+                return;
+            }
+            current = cause;
+        }
+    }
+
+    /**
+     * Walks the chain again rather than keeping a set, the depth is bounded and small.
+     */
+    private static boolean isVisited(Throwable first, Throwable last, Throwable candidate) {
+        for (var visited = first; ; visited = visited.getCause()) {
+            if (visited == candidate) {
+                return true;
+            }
+            if (visited == last) {
+                return false;
+            }
+        }
+    }
+
+    private static int utf8Length(char c) {
+        if (c < 0x80) {
+            return 1;
+        }
+        if (c < 0x800) {
+            return 2;
+        }
+        // a surrogate pair is 4 bytes, counted as 2 per half
+        return Character.isSurrogate(c) ? 2 : 3;
+    }
+
+    /**
+     * Writes within a budget, keeping room for the truncation mark.
+     */
+    private abstract static class Sink {
+
+        int remaining;
+
+        Sink(int budget) {
+            this.remaining = budget;
+        }
+
+        /**
+         * @return false when the budget was exhausted and the text truncated
+         */
+        boolean write(String s) throws IOException {
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                int size = utf8Length(c);
+                boolean pair = Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1));
+                int needed = pair ? 4 : size;
+                if (remaining - needed < TRUNCATED.length()) {
+                    put(TRUNCATED);
+                    remaining = 0;
+                    return false;
+                }
+                if (pair) {
+                    putPair(c, s.charAt(++i));
+                } else {
+                    put(c);
+                }
+                remaining -= needed;
+            }
+            return true;
+        }
+
+        /**
+         * Writes a closing mark if it fits.
+         */
+        void finish(String mark) throws IOException {
+            if (mark.length() <= remaining) {
+                put(mark);
+                remaining -= mark.length();
+            }
+        }
+
+        abstract void put(char c) throws IOException;
+
+        abstract void putPair(char high, char low) throws IOException;
+
+        void put(String ascii) throws IOException {
+            for (int i = 0; i < ascii.length(); i++) {
+                put(ascii.charAt(i));
+            }
+        }
+    }
+
+    private static final class AppendableSink extends Sink {
+
+        private final Appendable out;
+
+        AppendableSink(Appendable out, int budget) {
+            super(budget);
+            this.out = out;
+        }
+
+        @Override
+        void put(char c) throws IOException {
+            out.append(c);
+        }
+
+        @Override
+        void putPair(char high, char low) throws IOException {
+            out.append(high).append(low);
+        }
+    }
+
+    private static final class ByteBufferSink extends Sink {
+
+        private final ByteBuffer out;
+
+        ByteBufferSink(ByteBuffer out, int budget) {
+            super(budget);
+            this.out = out;
+        }
+
+        @Override
+        void put(char c) {
+            if (c < 0x80) {
+                out.put((byte) c);
+            } else if (c < 0x800) {
+                out.put((byte) (0xC0 | c >> 6));
+                out.put((byte) (0x80 | c & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                // a lone surrogate isn't valid UTF-8
+                out.put((byte) '?');
+            } else {
+                out.put((byte) (0xE0 | c >> 12));
+                out.put((byte) (0x80 | c >> 6 & 0x3F));
+                out.put((byte) (0x80 | c & 0x3F));
+            }
+        }
+
+        @Override
+        void putPair(char high, char low) {
+            int codePoint = Character.toCodePoint(high, low);
+            out.put((byte) (0xF0 | codePoint >> 18));
+            out.put((byte) (0x80 | codePoint >> 12 & 0x3F));
+            out.put((byte) (0x80 | codePoint >> 6 & 0x3F));
+            out.put((byte) (0x80 | codePoint & 0x3F));
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package tech.becoming.common.exceptions;
+
+import java.util.List;
+
+import static tech.becoming.common.constants.HttpStatusCode.CONFLICT_409;
+import static tech.becoming.common.constants.HttpStatusName.CONFLICT;
+
+public class ConflictException extends AbstractRuntimeException {
+
+    public ConflictException() {
+        super(CONFLICT);
+    }
+
+    public ConflictException(List<ExceptionDetail> details) {
+        super(CONFLICT, details);
+    }
+
+    public ConflictException(ExceptionDetail detail) {
+        super(CONFLICT, detail);
+    }
+
+    @Override
+    public int getHttpCode() {
+        return CONFLICT_409;
+    }
+}
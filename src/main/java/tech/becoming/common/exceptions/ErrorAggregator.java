@@ -0,0 +1,342 @@
+package tech.becoming.common.exceptions;
+
+import lombok.Getter;
+import tech.becoming.common.util.BloomFilter;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+/**
+ * Counts exceptions by fingerprint, their class, HTTP code, top stack frames and detail codes, and logs an
+ * exception only on the 1st, 2nd, 4th, 8th... occurrence of its fingerprint. During an incident the same stack
+ * thrown a million times is logged 21 times, with its count.
+ * <br><br>
+ * The table has a fixed capacity, a slot is claimed with a CAS and never moved. Time is split in generations of the
+ * idle duration: a fingerprint finding no free slot among its probes takes over the slot of a fingerprint not seen
+ * during the current and the previous generation, whose count starts again from 1. When every probe is in use, the
+ * fingerprint is counted as untracked, logged on its first occurrence of the generation, remembered by a Bloom
+ * filter, and with the same exponential sampling over all untracked occurrences. The first occurrence of each
+ * fingerprint is kept as a sample for {@link #snapshot()}.
+ * <pre>{@code
+ * static final ErrorAggregator ERRORS = ErrorAggregator.shared();
+ *
+ * } catch (AbstractRuntimeException e) {
+ *     ERRORS.record(e);
+ *     return respond(e);
+ * }
+ * }</pre>
+ */
+public final class ErrorAggregator {
+
+    public static final int DEFAULT_CAPACITY = 1024;
+    public static final int DEFAULT_FRAMES = 5;
+    public static final Duration DEFAULT_IDLE = Duration.ofMinutes(10);
+
+    private static final int MAX_PROBES = 16;
+    private static final int UNKNOWN_CODE = 500;
+
+    private static final ErrorAggregator SHARED = new ErrorAggregator(DEFAULT_CAPACITY, DEFAULT_FRAMES, DEFAULT_IDLE,
+            AbstractRuntimeException.LOGGER);
+
+    private final int mask;
+    private final int frames;
+    private final long idleNanos;
+    private final long startNanos = System.nanoTime();
+    private final Logger logger;
+
+    // 0 is an empty slot, fingerprints are never 0
+    private final AtomicLongArray fingerprints;
+    private final AtomicLongArray counts;
+    private final AtomicReferenceArray<Throwable> samples;
+    // generation of the last occurrence of each slot
+    private final AtomicLongArray seen;
+    private final AtomicLong untracked = new AtomicLong();
+    // replaced by a new filter on each generation rather than cleared, a put racing with a clear would be lost
+    private final AtomicReference<UntrackedSeen> untrackedSeen;
+
+    private ErrorAggregator(int capacity, int frames, Duration idle, Logger logger) {
+        if (capacity <= 0 || frames < 0 || idle.isNegative() || idle.isZero()) {
+            throw new IllegalArgumentException("Expected a positive capacity and idle duration and a number of frames");
+        }
+        int size = Integer.highestOneBit(Math.max(capacity, MAX_PROBES) - 1) << 1;
+        this.mask = size - 1;
+        this.frames = frames;
+        this.idleNanos = idle.toNanos();
+        this.logger = Objects.requireNonNull(logger);
+        this.fingerprints = new AtomicLongArray(size);
+        this.counts = new AtomicLongArray(size);
+        this.samples = new AtomicReferenceArray<>(size);
+        this.seen = new AtomicLongArray(size);
+        this.untrackedSeen = new AtomicReference<>(new UntrackedSeen(0, size));
+    }
+
+    /**
+     * @return the aggregator logging to {@link AbstractRuntimeException#LOGGER}
+     */
+    public static ErrorAggregator shared() {
+        return SHARED;
+    }
+
+    /**
+     * @param capacity number of distinct fingerprints counted, rounded up to a power of two
+     * @param frames   number of top stack frames in the fingerprint
+     */
+    public static ErrorAggregator of(int capacity, int frames, Logger logger) {
+        return new ErrorAggregator(capacity, frames, DEFAULT_IDLE, logger);
+    }
+
+    /**
+     * @param idle how long a fingerprint keeps its slot without occurrences, up to twice as long
+     */
+    public static ErrorAggregator of(int capacity, int frames, Duration idle, Logger logger) {
+        return new ErrorAggregator(capacity, frames, idle, logger);
+    }
+
+    /**
+     * Counts the exception, and logs it when its count is a power of two.
+     *
+     * @return true when the exception was logged
+     */
+    public boolean record(Throwable throwable) {
+        long fingerprint = fingerprint(throwable, frames);
+        long generation = generation();
+        int slot = claim(fingerprint, generation);
+        long count;
+        boolean first;
+        if (slot < 0) {
+            count = untracked.incrementAndGet();
+            first = firstUntracked(fingerprint, generation);
+        } else {
+            count = counts.incrementAndGet(slot);
+            if (count == 1) {
+                samples.set(slot, throwable);
+            }
+            if (seen.get(slot) != generation) {
+                seen.set(slot, generation);
+            }
+            first = false;
+        }
+        if (!first && (count & count - 1) != 0) {
+            return false;
+        }
+        log(throwable, fingerprint, count, slot < 0);
+        return true;
+    }
+
+    /**
+     * @return the number of occurrences of the fingerprint of the exception, 0 when it isn't tracked
+     */
+    public long count(Throwable throwable) {
+        long fingerprint = fingerprint(throwable, frames);
+        int index = index(fingerprint);
+        for (int probe = 0; probe < MAX_PROBES; probe++, index = index + 1 & mask) {
+            long current = fingerprints.get(index);
+            if (current == fingerprint) {
+                return counts.get(index);
+            }
+            if (current == 0) {
+                return 0;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @return the number of occurrences not tracked because every probe of their fingerprint was in use
+     */
+    public long untracked() {
+        return untracked.get();
+    }
+
+    /**
+     * @return the tracked fingerprints, in table order
+     */
+    public List<Entry> snapshot() {
+        var entries = new ArrayList<Entry>();
+        for (int i = 0; i <= mask; i++) {
+            long fingerprint = fingerprints.get(i);
+            if (fingerprint != 0) {
+                entries.add(new Entry(fingerprint, counts.get(i), samples.get(i)));
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Empties the table, occurrences recorded concurrently may be lost or counted again from 1.
+     */
+    public void reset() {
+        for (int i = 0; i <= mask; i++) {
+            samples.set(i, null);
+            counts.set(i, 0);
+            seen.set(i, 0);
+            fingerprints.set(i, 0);
+        }
+        untracked.set(0);
+        untrackedSeen.set(new UntrackedSeen(generation(), mask + 1));
+    }
+
+    /**
+     * Hashes the class, the HTTP code, the top frames and the codes of the details of an exception, never 0.
+     * Details created from an {@link ErrorCode} are hashed by id, the others by code id.
+     *
+     * @param frames number of top stack frames hashed
+     */
+    public static long fingerprint(Throwable throwable, int frames) {
+        long hash = throwable.getClass().getName().hashCode();
+        int code = UNKNOWN_CODE;
+        List<ExceptionDetail> details = null;
+        if (throwable instanceof AbstractRuntimeException) {
+            var exception = (AbstractRuntimeException) throwable;
+            code = exception.getHttpCode();
+            details = exception.getDetails();
+        }
+        hash = hash * 31 + code;
+
+        if (frames > 0) {
+            var stack = throwable.getStackTrace();
+            for (int i = 0, n = Math.min(frames, stack.length); i < n; i++) {
+                var frame = stack[i];
+                hash = hash * 31 + frame.getClassName().hashCode();
+                hash = hash * 31 + frame.getMethodName().hashCode();
+                hash = hash * 31 + frame.getLineNumber();
+            }
+        }
+
+        if (details != null) {
+            for (var detail : details) {
+                if (detail == null) {
+                    continue;
+                }
+                var definition = detail.definition();
+                hash = hash * 31 + (definition != null ? definition.getId() : Objects.hashCode(detail.getCodeId()));
+            }
+        }
+
+        hash = mix(hash);
+        return hash == 0 ? 1 : hash;
+    }
+
+    /**
+     * Takes over the first idle probe when none is free, occurrences of the previous fingerprint recorded
+     * concurrently may be counted for the new one.
+     *
+     * @return the slot of the fingerprint, or -1 when every probe is in use
+     */
+    private int claim(long fingerprint, long generation) {
+        int index = index(fingerprint);
+        int idle = -1;
+        long idleFingerprint = 0;
+        for (int probe = 0; probe < MAX_PROBES; probe++, index = index + 1 & mask) {
+            long current = fingerprints.get(index);
+            if (current == fingerprint) {
+                return index;
+            }
+            if (current == 0) {
+                if (fingerprints.compareAndSet(index, 0, fingerprint)) {
+                    seen.set(index, generation);
+                    return index;
+                }
+                if (fingerprints.get(index) == fingerprint) {
+                    return index;
+                }
+            } else if (idle < 0 && seen.get(index) < generation - 1) {
+                idle = index;
+                idleFingerprint = current;
+            }
+        }
+        if (idle >= 0 && fingerprints.compareAndSet(idle, idleFingerprint, fingerprint)) {
+            seen.set(idle, generation);
+            samples.set(idle, null);
+            counts.set(idle, 0);
+            return idle;
+        }
+        return -1;
+    }
+
+    /**
+     * @return true on the first untracked occurrence of the fingerprint in the generation, false for a repeated one
+     * or a false positive of the filter
+     */
+    private boolean firstUntracked(long fingerprint, long generation) {
+        var current = untrackedSeen.get();
+        if (current.generation < generation) {
+            var next = new UntrackedSeen(generation, mask + 1);
+            current = untrackedSeen.compareAndSet(current, next) ? next : untrackedSeen.get();
+        }
+        return current.filter.put(fingerprint);
+    }
+
+    private long generation() {
+        return (System.nanoTime() - startNanos) / idleNanos;
+    }
+
+    private int index(long fingerprint) {
+        return (int) fingerprint & mask;
+    }
+
+    private void log(Throwable throwable, long fingerprint, long count, boolean isUntracked) {
+        int code = throwable instanceof AbstractRuntimeException
+                ? ((AbstractRuntimeException) throwable).getHttpCode()
+                : UNKNOWN_CODE;
+        var level = code >= 500 ? Level.SEVERE : Level.WARNING;
+        if (!logger.isLoggable(level)) {
+            return;
+        }
+        var record = new LogRecord(level, isUntracked
+                ? "{0} ({1}) fingerprint {3} untracked, {2} untracked occurrences"
+                : "{0} ({1}) fingerprint {3}, {2} occurrences");
+        record.setParameters(new Object[]{throwable.getClass().getName(), code, count, Long.toHexString(fingerprint)});
+        record.setThrown(throwable);
+        record.setLoggerName(logger.getName());
+        logger.log(record);
+    }
+
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        return hash ^ hash >>> 33;
+    }
+
+    /**
+     * The untracked fingerprints seen during a generation.
+     */
+    private static final class UntrackedSeen {
+
+        final long generation;
+        final BloomFilter filter;
+
+        UntrackedSeen(long generation, int expectedItems) {
+            this.generation = generation;
+            this.filter = BloomFilter.of(expectedItems, 0.01);
+        }
+    }
+
+    @Getter
+    public static final class Entry {
+
+        private final long fingerprint;
+        private final long count;
+        /**
+         * The first occurrence, null when read while being recorded
+         */
+        private final Throwable sample;
+
+        private Entry(long fingerprint, long count, Throwable sample) {
+            this.fingerprint = fingerprint;
+            this.count = count;
+            this.sample = sample;
+        }
+    }
+}
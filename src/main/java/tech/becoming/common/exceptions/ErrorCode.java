@@ -0,0 +1,149 @@
+package tech.becoming.common.exceptions;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Definition of an error code, registered once and referenced by its dense int id from every
+ * {@link ExceptionDetail} reporting it, which only stores the arguments of the message.
+ * <br><br>
+ * The message template uses {@code {}} placeholders, split once at registration. The start of the JSON object of
+ * a detail, everything before the message, is encoded to bytes upfront. Ids are dense, aggregations can count
+ * occurrences in an array indexed by id.
+ * <pre>{@code
+ * static final ErrorCode USER_NOT_FOUND = ErrorCode.define("1001", "USER_NOT_FOUND", "id", "User {} was not found");
+ *
+ * throw new NotFoundException(USER_NOT_FOUND.detail(id));
+ * }</pre>
+ */
+@Getter
+public final class ErrorCode {
+
+    private static final Object LOCK = new Object();
+    private static final Map<String, ErrorCode> BY_CODE_ID = new ConcurrentHashMap<>();
+    private static volatile ErrorCode[] byId = new ErrorCode[64];
+    private static int count;
+
+    private final int id;
+    private final String codeNumber;
+    private final String codeId;
+    private final String name;
+    private final String template;
+
+    @Getter(AccessLevel.NONE)
+    private final String[] parts;
+
+    @Getter(AccessLevel.NONE)
+    private final byte[] jsonPrefix;
+
+    private ErrorCode(int id, String codeNumber, String codeId, String name, String template) {
+        this.id = id;
+        this.codeNumber = intern(codeNumber);
+        this.codeId = intern(codeId);
+        this.name = intern(name);
+        this.template = intern(template);
+        this.parts = template.split("\\{}", -1);
+        this.jsonPrefix = ("{\"codeNumber\":" + Json.quote(codeNumber)
+                + ",\"codeId\":" + Json.quote(codeId)
+                + ",\"name\":" + Json.quote(name)
+                + ",\"message\":").getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Registers a definition, or returns the one already registered with the same code id and the same values.
+     *
+     * @param template the message, with a {@code {}} placeholder per argument
+     * @throws IllegalArgumentException when the code id or the template is null
+     * @throws IllegalStateException when the code id is already defined with another number, name or template
+     */
+    public static ErrorCode define(String codeNumber, String codeId, String name, String template) {
+        if (codeId == null || template == null) {
+            throw new IllegalArgumentException("Expected a code id and a template");
+        }
+        var existing = BY_CODE_ID.get(codeId);
+        if (existing != null) {
+            return existing.requireSame(codeNumber, name, template);
+        }
+        synchronized (LOCK) {
+            existing = BY_CODE_ID.get(codeId);
+            if (existing != null) {
+                return existing.requireSame(codeNumber, name, template);
+            }
+            var code = new ErrorCode(count, codeNumber, codeId, name, template);
+            var table = byId;
+            if (count == table.length) {
+                table = Arrays.copyOf(table, count * 2);
+            }
+            table[count++] = code;
+            byId = table;
+            BY_CODE_ID.put(codeId, code);
+            return code;
+        }
+    }
+
+    /**
+     * @return the definition, or null when no definition has this id
+     */
+    public static ErrorCode byId(int id) {
+        var table = byId;
+        return id >= 0 && id < table.length ? table[id] : null;
+    }
+
+    public static ErrorCode byCodeId(String codeId) {
+        return BY_CODE_ID.get(codeId);
+    }
+
+    /**
+     * @return the number of definitions, ids go from 0 to this number excluded
+     */
+    public static int count() {
+        synchronized (LOCK) {
+            return count;
+        }
+    }
+
+    /**
+     * @param args the values of the placeholders, kept as is by the detail until its message is read
+     */
+    public ExceptionDetail detail(Object... args) {
+        return new ExceptionDetail(this, args);
+    }
+
+    public String format(Object[] args) {
+        if (parts.length == 1) {
+            return template;
+        }
+        var message = new StringBuilder(template.length() + 16 * parts.length);
+        message.append(parts[0]);
+        for (int i = 1; i < parts.length; i++) {
+            message.append(args != null && i - 1 < args.length ? args[i - 1] : "{}").append(parts[i]);
+        }
+        return message.toString();
+    }
+
+    /**
+     * The JSON object of a detail up to its message, e.g. {@code {"codeNumber":"1001",...,"message":}}
+     */
+    byte[] jsonPrefix() {
+        return jsonPrefix;
+    }
+
+    private ErrorCode requireSame(String codeNumber, String name, String template) {
+        if (!Objects.equals(this.codeNumber, codeNumber) || !Objects.equals(this.name, name)
+                || !this.template.equals(template)) {
+            throw new IllegalStateException("Error code " + codeId + " is already defined as "
+                    + this.codeNumber + " " + this.name + " \"" + this.template + "\"");
+        }
+        return this;
+    }
+
+    private static String intern(String s) {
+        return s == null ? null : s.intern();
+    }
+}
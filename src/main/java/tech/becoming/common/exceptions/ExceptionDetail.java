@@ -2,9 +2,11 @@ package tech.becoming.common.exceptions;
 
 import lombok.*;
 
-@AllArgsConstructor
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
 @NoArgsConstructor
-@Builder
 @Getter
 @Setter
 public class ExceptionDetail {
@@ -17,6 +19,34 @@ public class ExceptionDetail {
     @Getter(AccessLevel.NONE)
     private Throwable throwable;
 
+    /**
+     * Id of the {@link ErrorCode} the detail was created from, -1 for a free form detail
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private int codeRef = -1;
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private Object[] args;
+
+    @Builder
+    public ExceptionDetail(String codeNumber, String codeId, String message, String name, Throwable throwable) {
+        this.codeNumber = codeNumber;
+        this.codeId = codeId;
+        this.message = message;
+        this.name = name;
+        this.throwable = throwable;
+    }
+
+    /**
+     * Only the reference to the definition and the arguments are stored, the strings come from the definition.
+     */
+    ExceptionDetail(ErrorCode code, Object[] args) {
+        this.codeRef = code.getId();
+        this.args = args;
+    }
+
     public static ExceptionDetail ofNameAndMessage(String name, String message) {
         return ExceptionDetail
                 .builder()
@@ -25,21 +55,69 @@ public class ExceptionDetail {
                 .build();
     }
 
-    public String getThrowableMessage() {
-        return getMessage(throwable, new StringBuilder())
-                .delete(0, 2) // delete last space and semi column
-                .reverse() // reverse, because of recursion the messages will be in the wrong order
-                .toString();
+    /**
+     * @return the definition the detail was created from, or null for a free form detail
+     */
+    public ErrorCode definition() {
+        return codeRef < 0 ? null : ErrorCode.byId(codeRef);
+    }
+
+    /**
+     * @return the arguments of the message of a detail created from an {@link ErrorCode}, or null
+     */
+    public Object[] arguments() {
+        return args;
     }
 
-    private StringBuilder getMessage(Throwable t, StringBuilder b) {
-        b.append(" ;").append(t.getMessage());
+    // a value set on the detail takes precedence over its definition
 
-        if(t.getCause() != null) {
-            return getMessage(t.getCause(), b);
+    public String getCodeNumber() {
+        return codeNumber != null || codeRef < 0 ? codeNumber : definition().getCodeNumber();
+    }
+
+    public String getCodeId() {
+        return codeId != null || codeRef < 0 ? codeId : definition().getCodeId();
+    }
+
+    public String getName() {
+        return name != null || codeRef < 0 ? name : definition().getName();
+    }
+
+    public String getMessage() {
+        return message != null || codeRef < 0 ? message : definition().format(args);
+    }
+
+    /**
+     * Writes the detail as a JSON object, the part before the message is copied as is from the definition.
+     */
+    public void writeJson(OutputStream out) throws IOException {
+        var definition = definition();
+        if (definition != null && codeNumber == null && codeId == null && name == null) {
+            out.write(definition.jsonPrefix());
+        } else {
+            var prefix = new StringBuilder(64).append("{\"codeNumber\":");
+            appendJsonValue(prefix, getCodeNumber()).append(",\"codeId\":");
+            appendJsonValue(prefix, getCodeId()).append(",\"name\":");
+            appendJsonValue(prefix, getName()).append(",\"message\":");
+            out.write(prefix.toString().getBytes(StandardCharsets.UTF_8));
         }
+        var message = getMessage();
+        out.write(appendJsonValue(new StringBuilder(message == null ? 5 : message.length() + 3), message)
+                .append('}')
+                .toString()
+                .getBytes(StandardCharsets.UTF_8));
+    }
 
-        return b;
+    private static StringBuilder appendJsonValue(StringBuilder out, String value) {
+        return value == null ? out.append("null") : Json.appendQuoted(out, value);
+    }
+
+    /**
+     * @return the messages of the throwable and its causes, outermost first and separated by "; ",
+     * bounded by {@link CauseChain#MESSAGES}, or null without throwable
+     */
+    public String getThrowableMessage() {
+        return throwable == null ? null : CauseChain.MESSAGES.summarize(throwable);
     }
 
 }
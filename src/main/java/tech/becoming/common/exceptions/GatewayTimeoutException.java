@@ -0,0 +1,26 @@
+package tech.becoming.common.exceptions;
+
+import java.util.List;
+
+import static tech.becoming.common.constants.HttpStatusCode.GATEWAY_TIMEOUT_504;
+import static tech.becoming.common.constants.HttpStatusName.GATEWAY_TIMEOUT;
+
+public class GatewayTimeoutException extends AbstractRuntimeException {
+
+    public GatewayTimeoutException() {
+        super(GATEWAY_TIMEOUT);
+    }
+
+    public GatewayTimeoutException(List<ExceptionDetail> details) {
+        super(GATEWAY_TIMEOUT, details);
+    }
+
+    public GatewayTimeoutException(ExceptionDetail detail) {
+        super(GATEWAY_TIMEOUT, detail);
+    }
+
+    @Override
+    public int getHttpCode() {
+        return GATEWAY_TIMEOUT_504;
+    }
+}
@@ -0,0 +1,32 @@
+package tech.becoming.common.exceptions;
+
+import java.util.List;
+
+/**
+ * An error with any http status code, for the codes without a dedicated exception,
+ * e.g. when a {@link Result} failure is turned into an exception.
+ */
+public class HttpStatusException extends AbstractRuntimeException {
+
+    private final int httpCode;
+
+    public HttpStatusException(int httpCode) {
+        super(String.valueOf(httpCode));
+        this.httpCode = httpCode;
+    }
+
+    public HttpStatusException(int httpCode, List<ExceptionDetail> details) {
+        super(String.valueOf(httpCode), details);
+        this.httpCode = httpCode;
+    }
+
+    public HttpStatusException(int httpCode, ExceptionDetail detail) {
+        super(String.valueOf(httpCode), detail);
+        this.httpCode = httpCode;
+    }
+
+    @Override
+    public int getHttpCode() {
+        return httpCode;
+    }
+}
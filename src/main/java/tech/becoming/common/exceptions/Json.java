@@ -0,0 +1,40 @@
+package tech.becoming.common.exceptions;
+
+/**
+ * Minimal JSON string encoding, for the pre-encoded fragments of {@link ErrorCode}.
+ */
+final class Json {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private Json() {
+    }
+
+    static String quote(String s) {
+        if (s == null) {
+            return "null";
+        }
+        return appendQuoted(new StringBuilder(s.length() + 2), s).toString();
+    }
+
+    static StringBuilder appendQuoted(StringBuilder out, String s) {
+        out.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.append('\\').append(c);
+            } else if (c == '\n') {
+                out.append("\\n");
+            } else if (c == '\r') {
+                out.append("\\r");
+            } else if (c == '\t') {
+                out.append("\\t");
+            } else if (c < 0x20) {
+                out.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 0xF]);
+            } else {
+                out.append(c);
+            }
+        }
+        return out.append('"');
+    }
+}
@@ -1,13 +1,23 @@
 package tech.becoming.common.exceptions;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 
 import static tech.becoming.common.constants.HttpStatusCode.NOT_FOUND_404;
 import static tech.becoming.common.constants.HttpStatusName.NOT_FOUND;
 
 public class NotFoundException extends AbstractRuntimeException {
 
+    /**
+     * Name of the details listing the missing ids in batch checks, their message is the id
+     */
+    public static final String ID = "id";
+
     public NotFoundException() {
         super(NOT_FOUND);
     }
@@ -41,4 +51,56 @@ public class NotFoundException extends AbstractRuntimeException {
 
         throw new NotFoundException();
     }
+
+    /**
+     * Batch version of {@link #throwIfEmpty(Optional)}: one bulk query, e.g. Spring Data's <b>findAllById</b>,
+     * instead of one per id.
+     * @param ids     the ids that must all exist
+     * @param findAll loads the entities of the ids in one query
+     * @param idOf    id of a loaded entity
+     * @return the loaded entities, or throw a single NotFoundException with one detail per missing id
+     */
+    public static <I, T> Collection<T> throwIfEmpty(Set<I> ids,
+                                                    Function<Set<I>, ? extends Collection<T>> findAll,
+                                                    Function<T, I> idOf) {
+        var entities = findAll.apply(ids);
+        var found = new HashSet<I>(entities.size() * 4 / 3 + 1);
+        for (var entity : entities) {
+            found.add(idOf.apply(entity));
+        }
+        throwIfMissing(ids, found);
+        return entities;
+    }
+
+    /**
+     * Batch version of {@link #throwIfFalse(Boolean)}.
+     * @param ids            the ids that must all exist
+     * @param findExistingIds returns which of the ids exist, in one query
+     * @return true or throw a single NotFoundException with one detail per missing id
+     */
+    public static <I> Boolean throwIfFalse(Set<I> ids, Function<Set<I>, ? extends Collection<I>> findExistingIds) {
+        var existing = findExistingIds.apply(ids);
+        throwIfMissing(ids, existing instanceof Set ? (Set<I>) existing : new HashSet<>(existing));
+        return true;
+    }
+
+    private static <I> void throwIfMissing(Set<I> ids, Set<I> found) {
+        int missing = 0;
+        for (var id : ids) {
+            if (!found.contains(id)) {
+                missing++;
+            }
+        }
+        if (missing == 0) {
+            return;
+        }
+
+        var details = new ArrayList<ExceptionDetail>(missing);
+        for (var id : ids) {
+            if (!found.contains(id)) {
+                details.add(ExceptionDetail.ofNameAndMessage(ID, String.valueOf(id)));
+            }
+        }
+        throw new NotFoundException(details);
+    }
 }
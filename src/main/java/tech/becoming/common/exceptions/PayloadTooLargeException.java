@@ -0,0 +1,26 @@
+package tech.becoming.common.exceptions;
+
+import java.util.List;
+
+import static tech.becoming.common.constants.HttpStatusCode.PAYLOAD_TOO_LARGE_413;
+import static tech.becoming.common.constants.HttpStatusName.PAYLOAD_TOO_LARGE;
+
+public class PayloadTooLargeException extends AbstractRuntimeException {
+
+    public PayloadTooLargeException() {
+        super(PAYLOAD_TOO_LARGE);
+    }
+
+    public PayloadTooLargeException(List<ExceptionDetail> details) {
+        super(PAYLOAD_TOO_LARGE, details);
+    }
+
+    public PayloadTooLargeException(ExceptionDetail detail) {
+        super(PAYLOAD_TOO_LARGE, detail);
+    }
+
+    @Override
+    public int getHttpCode() {
+        return PAYLOAD_TOO_LARGE_413;
+    }
+}
@@ -0,0 +1,26 @@
+package tech.becoming.common.exceptions;
+
+import java.util.List;
+
+import static tech.becoming.common.constants.HttpStatusCode.REQUEST_TIMEOUT_408;
+import static tech.becoming.common.constants.HttpStatusName.REQUEST_TIMEOUT;
+
+public class RequestTimeoutException extends AbstractRuntimeException {
+
+    public RequestTimeoutException() {
+        super(REQUEST_TIMEOUT);
+    }
+
+    public RequestTimeoutException(List<ExceptionDetail> details) {
+        super(REQUEST_TIMEOUT, details);
+    }
+
+    public RequestTimeoutException(ExceptionDetail detail) {
+        super(REQUEST_TIMEOUT, detail);
+    }
+
+    @Override
+    public int getHttpCode() {
+        return REQUEST_TIMEOUT_408;
+    }
+}
@@ -0,0 +1,227 @@
+package tech.becoming.common.exceptions;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static tech.becoming.common.constants.HttpStatusCode.BAD_REQUEST_400;
+import static tech.becoming.common.constants.HttpStatusCode.CONFLICT_409;
+import static tech.becoming.common.constants.HttpStatusCode.GATEWAY_TIMEOUT_504;
+import static tech.becoming.common.constants.HttpStatusCode.INTERNAL_SERVER_ERROR_500;
+import static tech.becoming.common.constants.HttpStatusCode.NOT_FOUND_404;
+import static tech.becoming.common.constants.HttpStatusCode.OK_200;
+import static tech.becoming.common.constants.HttpStatusCode.PAYLOAD_TOO_LARGE_413;
+import static tech.becoming.common.constants.HttpStatusCode.REQUEST_TIMEOUT_408;
+import static tech.becoming.common.constants.HttpStatusCode.SERVICE_UNAVAILABLE_503;
+import static tech.becoming.common.constants.HttpStatusCode.TOO_EARLY_425;
+import static tech.becoming.common.constants.HttpStatusCode.TOO_MANY_REQUESTS_429;
+import static tech.becoming.common.constants.HttpStatusCode.UNAUTHORIZED_401;
+
+/**
+ * Either a value or an error made of an http code and its details: the outcome of an operation that fails often,
+ * e.g. a validation or a lookup, without the cost of creating and throwing an exception.
+ * <br><br>
+ * A failure converts to and from the library's exceptions: {@link #orElseThrow()} throws the exception it was
+ * created from, or the exception matching its http code. A failure holds an immutable copy of its details, a list
+ * changed afterwards by its owner doesn't change the result.
+ * <pre>{@code
+ * Result<User> user = Result.ofOptional(repository.findById(id));
+ * Result<Order> order = user.flatMap(u -> orders.create(u, request)); // a failure is passed along as is
+ * return order.orElseThrow();
+ * }</pre>
+ */
+public final class Result<T> {
+
+    private static final Result<?> NOT_FOUND = new Result<>(null, NOT_FOUND_404, Collections.emptyList(), null);
+    private static final Result<?> BAD_REQUEST = new Result<>(null, BAD_REQUEST_400, Collections.emptyList(), null);
+
+    private final T value;
+    // 0 for a success
+    private final int httpCode;
+    private final List<ExceptionDetail> details;
+    private final AbstractRuntimeException exception;
+
+    private Result(T value, int httpCode, List<ExceptionDetail> details, AbstractRuntimeException exception) {
+        this.value = value;
+        this.httpCode = httpCode;
+        this.details = details;
+        this.exception = exception;
+    }
+
+    public static <T> Result<T> success(T value) {
+        return new Result<>(value, 0, Collections.emptyList(), null);
+    }
+
+    public static <T> Result<T> failure(int httpCode) {
+        return failure(httpCode, Collections.emptyList());
+    }
+
+    public static <T> Result<T> failure(int httpCode, List<ExceptionDetail> details) {
+        if (httpCode < 400 || httpCode > 599) {
+            throw new IllegalArgumentException("A failure has a 4xx or 5xx http code");
+        }
+        return new Result<>(null, httpCode, List.copyOf(details), null);
+    }
+
+    public static <T> Result<T> failure(int httpCode, ExceptionDetail detail) {
+        return failure(httpCode, List.of(detail));
+    }
+
+    /**
+     * @return a failure with the http code and details of the exception, which {@link #orElseThrow()} throws again
+     */
+    public static <T> Result<T> failure(AbstractRuntimeException exception) {
+        var details = exception.getDetails();
+        return new Result<>(null, exception.getHttpCode(), details == null ? List.of() : List.copyOf(details),
+                exception);
+    }
+
+    /**
+     * Runs code that reports errors with the library's exceptions.
+     */
+    public static <T> Result<T> of(Supplier<T> supplier) {
+        try {
+            return success(supplier.get());
+        } catch (AbstractRuntimeException e) {
+            return failure(e);
+        }
+    }
+
+    /**
+     * Non throwing {@link NotFoundException#throwIfEmpty(Optional)}.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> Result<T> ofOptional(Optional<T> optional) {
+        return optional.isPresent() ? success(optional.get()) : (Result<T>) NOT_FOUND;
+    }
+
+    /**
+     * Non throwing {@link NotFoundException#throwIfFalse(Boolean)}.
+     */
+    @SuppressWarnings("unchecked")
+    public static Result<Boolean> ofExists(Boolean exists) {
+        return exists ? success(true) : (Result<Boolean>) NOT_FOUND;
+    }
+
+    /**
+     * Non throwing {@link BadRequestException#throwIfHasDetails(List)}.
+     *
+     * @return the value, or a 400 with the details when there are any
+     */
+    public static <T> Result<T> ofDetails(T value, List<ExceptionDetail> details) {
+        return details.isEmpty() ? success(value) : failure(BAD_REQUEST_400, details);
+    }
+
+    /**
+     * Non throwing {@link BadRequestException#throwIfFalse(Boolean)}.
+     */
+    @SuppressWarnings("unchecked")
+    public static Result<Boolean> ofValid(Boolean valid) {
+        return valid ? success(true) : (Result<Boolean>) BAD_REQUEST;
+    }
+
+    public boolean isSuccess() {
+        return httpCode == 0;
+    }
+
+    public boolean isFailure() {
+        return httpCode != 0;
+    }
+
+    /**
+     * @return 200 for a success, the error code for a failure
+     */
+    public int getHttpCode() {
+        return httpCode == 0 ? OK_200 : httpCode;
+    }
+
+    /**
+     * @return the error details, empty for a success
+     */
+    public List<ExceptionDetail> getDetails() {
+        return details;
+    }
+
+    public <R> Result<R> map(Function<? super T, ? extends R> mapper) {
+        return isSuccess() ? success(mapper.apply(value)) : castFailure();
+    }
+
+    public <R> Result<R> flatMap(Function<? super T, Result<R>> mapper) {
+        return isSuccess() ? mapper.apply(value) : castFailure();
+    }
+
+    public T orElse(T other) {
+        return isSuccess() ? value : other;
+    }
+
+    public T orElseGet(Supplier<? extends T> other) {
+        return isSuccess() ? value : other.get();
+    }
+
+    /**
+     * @return the value of a success
+     * @throws AbstractRuntimeException the exception of a failure
+     */
+    public T orElseThrow() {
+        if (isSuccess()) {
+            return value;
+        }
+        throw toException();
+    }
+
+    /**
+     * @return the exception the failure was created from, or a new one matching its http code, with a copy of the
+     * details
+     * @throws IllegalStateException on a success
+     */
+    public AbstractRuntimeException toException() {
+        if (isSuccess()) {
+            throw new IllegalStateException("A success has no exception");
+        }
+        if (exception != null) {
+            return exception;
+        }
+        // the exception owns a mutable list, the details of a result may be immutable or shared
+        var details = new ArrayList<>(this.details);
+        switch (httpCode) {
+            case BAD_REQUEST_400:
+                return new BadRequestException(details);
+            case UNAUTHORIZED_401:
+                // UnauthorizedException shares the code, a missing or invalid authentication is the common case
+                return new UnauthenticatedException(details);
+            case NOT_FOUND_404:
+                return new NotFoundException(details);
+            case REQUEST_TIMEOUT_408:
+                return new RequestTimeoutException(details);
+            case CONFLICT_409:
+                return new ConflictException(details);
+            case PAYLOAD_TOO_LARGE_413:
+                return new PayloadTooLargeException(details);
+            case TOO_EARLY_425:
+                return new TooEarlyException(details);
+            case TOO_MANY_REQUESTS_429:
+                return new TooManyRequestsException(details);
+            case SERVICE_UNAVAILABLE_503:
+                return new ServiceUnavailableException(details);
+            case INTERNAL_SERVER_ERROR_500:
+                return new NotImplementedException(details);
+            case GATEWAY_TIMEOUT_504:
+                return new GatewayTimeoutException(details);
+            default:
+                return new HttpStatusException(httpCode, details);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <R> Result<R> castFailure() {
+        return (Result<R>) this;
+    }
+
+    @Override
+    public String toString() {
+        return isSuccess() ? "Success[" + value + "]" : "Failure[" + httpCode + ", " + details.size() + " details]";
+    }
+}
@@ -0,0 +1,39 @@
+package tech.becoming.common.exceptions;
+
+import lombok.Getter;
+
+import java.util.List;
+
+import static tech.becoming.common.constants.HttpStatusCode.SERVICE_UNAVAILABLE_503;
+import static tech.becoming.common.constants.HttpStatusName.SERVICE_UNAVAILABLE;
+
+@Getter
+public class ServiceUnavailableException extends AbstractRuntimeException {
+
+    /**
+     * Value for the <b>Retry-After</b> header, 0 when unknown
+     */
+    private long retryAfterSeconds;
+
+    public ServiceUnavailableException() {
+        super(SERVICE_UNAVAILABLE);
+    }
+
+    public ServiceUnavailableException(long retryAfterSeconds) {
+        super(SERVICE_UNAVAILABLE);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public ServiceUnavailableException(List<ExceptionDetail> details) {
+        super(SERVICE_UNAVAILABLE, details);
+    }
+
+    public ServiceUnavailableException(ExceptionDetail detail) {
+        super(SERVICE_UNAVAILABLE, detail);
+    }
+
+    @Override
+    public int getHttpCode() {
+        return SERVICE_UNAVAILABLE_503;
+    }
+}
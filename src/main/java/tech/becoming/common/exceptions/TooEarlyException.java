@@ -0,0 +1,26 @@
+package tech.becoming.common.exceptions;
+
+import java.util.List;
+
+import static tech.becoming.common.constants.HttpStatusCode.TOO_EARLY_425;
+import static tech.becoming.common.constants.HttpStatusName.TOO_EARLY;
+
+public class TooEarlyException extends AbstractRuntimeException {
+
+    public TooEarlyException() {
+        super(TOO_EARLY);
+    }
+
+    public TooEarlyException(List<ExceptionDetail> details) {
+        super(TOO_EARLY, details);
+    }
+
+    public TooEarlyException(ExceptionDetail detail) {
+        super(TOO_EARLY, detail);
+    }
+
+    @Override
+    public int getHttpCode() {
+        return TOO_EARLY_425;
+    }
+}
@@ -0,0 +1,39 @@
+package tech.becoming.common.exceptions;
+
+import lombok.Getter;
+
+import java.util.List;
+
+import static tech.becoming.common.constants.HttpStatusCode.TOO_MANY_REQUESTS_429;
+import static tech.becoming.common.constants.HttpStatusName.TOO_MANY_REQUESTS;
+
+@Getter
+public class TooManyRequestsException extends AbstractRuntimeException {
+
+    /**
+     * Value for the <b>Retry-After</b> header, 0 when unknown
+     */
+    private long retryAfterSeconds;
+
+    public TooManyRequestsException() {
+        super(TOO_MANY_REQUESTS);
+    }
+
+    public TooManyRequestsException(long retryAfterSeconds) {
+        super(TOO_MANY_REQUESTS);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public TooManyRequestsException(List<ExceptionDetail> details) {
+        super(TOO_MANY_REQUESTS, details);
+    }
+
+    public TooManyRequestsException(ExceptionDetail detail) {
+        super(TOO_MANY_REQUESTS, detail);
+    }
+
+    @Override
+    public int getHttpCode() {
+        return TOO_MANY_REQUESTS_429;
+    }
+}
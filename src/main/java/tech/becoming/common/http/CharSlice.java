@@ -0,0 +1,54 @@
+package tech.becoming.common.http;
+
+/**
+ * A window over a part of a header value, used to hand out tokens without creating Strings.
+ * <br>
+ * Slices handed out by a cursor are reused on each step, call {@link #toString()} to keep the content.
+ */
+public final class CharSlice implements CharSequence {
+
+    private String source = "";
+    private int start;
+    private int end;
+
+    public CharSlice() {
+    }
+
+    public CharSlice(String source, int start, int end) {
+        set(source, start, end);
+    }
+
+    void set(String source, int start, int end) {
+        this.source = source;
+        this.start = start;
+        this.end = end;
+    }
+
+    @Override
+    public int length() {
+        return end - start;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return source.charAt(start + index);
+    }
+
+    @Override
+    public CharSequence subSequence(int from, int to) {
+        return new CharSlice(source, start + from, start + to);
+    }
+
+    public boolean contentEquals(String value) {
+        return length() == value.length() && source.regionMatches(start, value, 0, value.length());
+    }
+
+    public boolean contentEqualsIgnoreCase(String value) {
+        return length() == value.length() && source.regionMatches(true, start, value, 0, value.length());
+    }
+
+    @Override
+    public String toString() {
+        return source.substring(start, end);
+    }
+}
@@ -0,0 +1,233 @@
+package tech.becoming.common.http;
+
+import tech.becoming.common.exceptions.BadRequestException;
+import tech.becoming.common.exceptions.ExceptionDetail;
+import tech.becoming.common.exceptions.PayloadTooLargeException;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Incremental <b>Transfer-Encoding: chunked</b> decoder over {@link ByteBuffer}s.
+ * <br><br>
+ * Input can be fed in arbitrary slices as it arrives, chunk data is handed to the {@link Listener}
+ * as views over the input buffer, without copying. The body size limit is checked as soon as a chunk
+ * size line is read, before any of its data is accepted, and surfaces as a {@link PayloadTooLargeException},
+ * as do size lines, chunk extensions included, longer than {@link #MAX_SIZE_LINE}.
+ * Malformed input surfaces as a {@link BadRequestException}: lines must end with CRLF, a bare CR or LF is rejected
+ * so that the framing can't be read differently by a proxy in front.
+ * <br>
+ * Instances are not thread safe, there is one per request.
+ */
+public class ChunkedDecoder {
+
+    public static final int DEFAULT_MAX_TRAILER_SIZE = 8 * 1024;
+
+    public static final int MAX_SIZE_LINE = 4 * 1024;
+
+    private static final int MAX_SIZE_DIGITS = 16;
+
+    /**
+     * Receives the decoded body and trailer fields.
+     */
+    public interface Listener {
+
+        /**
+         * @param data view over the input, only valid during the call
+         */
+        void onData(ByteBuffer data);
+
+        default void onTrailer(String name, String value) {
+        }
+    }
+
+    private enum State {
+        SIZE, EXTENSION, SIZE_LF, DATA, DATA_CR, DATA_LF, TRAILER, TRAILER_LF, DONE
+    }
+
+    private final Listener listener;
+    private final long maxBodySize;
+    private final int maxTrailerSize;
+
+    private State state = State.SIZE;
+    private long chunkRemaining;
+    private int sizeDigits;
+    private int sizeLineLength;
+    private long bodySize;
+    private int trailerSize;
+    private StringBuilder trailerLine;
+
+    /**
+     * @param maxBodySize maximum sum of all chunk sizes, in bytes
+     */
+    public ChunkedDecoder(Listener listener, long maxBodySize) {
+        this(listener, maxBodySize, DEFAULT_MAX_TRAILER_SIZE);
+    }
+
+    public ChunkedDecoder(Listener listener, long maxBodySize, int maxTrailerSize) {
+        this.listener = listener;
+        this.maxBodySize = maxBodySize;
+        this.maxTrailerSize = maxTrailerSize;
+    }
+
+    /**
+     * Consumes as much of the input as possible.
+     *
+     * @return true once the last chunk and the trailer section were read, remaining input belongs to the next message
+     */
+    public boolean decode(ByteBuffer input) {
+        while (state != State.DONE && input.hasRemaining()) {
+            switch (state) {
+                case SIZE:
+                    countSizeLine();
+                    readSize(input.get());
+                    break;
+                case EXTENSION:
+                    countSizeLine();
+                    readExtension(input.get());
+                    break;
+                case SIZE_LF:
+                    expect(input.get(), '\n', "The chunk size line must end with CRLF");
+                    endSizeLine();
+                    break;
+                case DATA:
+                    readData(input);
+                    break;
+                case DATA_CR:
+                    expect(input.get(), '\r', "Missing CRLF after the chunk");
+                    state = State.DATA_LF;
+                    break;
+                case DATA_LF:
+                    expect(input.get(), '\n', "Missing CRLF after the chunk");
+                    state = State.SIZE;
+                    break;
+                case TRAILER:
+                    countTrailer();
+                    readTrailer(input.get());
+                    break;
+                case TRAILER_LF:
+                    countTrailer();
+                    expect(input.get(), '\n', "The trailer lines must end with CRLF");
+                    endTrailerLine();
+                    break;
+                default:
+                    throw new IllegalStateException(state.name());
+            }
+        }
+        return state == State.DONE;
+    }
+
+    public boolean isDone() {
+        return state == State.DONE;
+    }
+
+    public long getBodySize() {
+        return bodySize;
+    }
+
+    private void readSize(byte b) {
+        int digit = Character.digit(b, 16);
+        if (digit >= 0) {
+            if (++sizeDigits > MAX_SIZE_DIGITS - 1) {
+                throw malformed("The chunk size is too long");
+            }
+            chunkRemaining = chunkRemaining << 4 | digit;
+        } else if (sizeDigits == 0) {
+            throw malformed("The chunk size is missing");
+        } else if (b == '\r') {
+            state = State.SIZE_LF;
+        } else if (b == ';' || b == ' ' || b == '\t') {
+            state = State.EXTENSION;
+        } else if (b == '\n') {
+            throw malformed("The chunk size line must end with CRLF");
+        } else {
+            throw malformed("Unexpected character in the chunk size");
+        }
+    }
+
+    private void readExtension(byte b) {
+        if (b == '\r') {
+            state = State.SIZE_LF;
+        } else if (b == '\n') {
+            throw malformed("The chunk size line must end with CRLF");
+        }
+    }
+
+    private void countSizeLine() {
+        if (++sizeLineLength > MAX_SIZE_LINE) {
+            throw new PayloadTooLargeException(ExceptionDetail.ofNameAndMessage("body",
+                    "The chunk size line exceeds " + MAX_SIZE_LINE + " bytes"));
+        }
+    }
+
+    private void endSizeLine() {
+        bodySize += chunkRemaining;
+        if (bodySize > maxBodySize) {
+            throw new PayloadTooLargeException(ExceptionDetail.ofNameAndMessage("body",
+                    "The chunked body exceeds " + maxBodySize + " bytes"));
+        }
+        sizeDigits = 0;
+        sizeLineLength = 0;
+        if (chunkRemaining == 0) {
+            trailerLine = new StringBuilder();
+            state = State.TRAILER;
+        } else {
+            state = State.DATA;
+        }
+    }
+
+    private void readData(ByteBuffer input) {
+        int length = (int) Math.min(chunkRemaining, input.remaining());
+        var data = input.slice();
+        data.limit(length);
+        input.position(input.position() + length);
+        chunkRemaining -= length;
+        if (chunkRemaining == 0) {
+            state = State.DATA_CR;
+        }
+        listener.onData(data);
+    }
+
+    private void countTrailer() {
+        if (++trailerSize > maxTrailerSize) {
+            throw new PayloadTooLargeException(ExceptionDetail.ofNameAndMessage("trailer",
+                    "The trailer section exceeds " + maxTrailerSize + " bytes"));
+        }
+    }
+
+    private void readTrailer(byte b) {
+        if (b == '\r') {
+            state = State.TRAILER_LF;
+            return;
+        }
+        if (b == '\n') {
+            throw malformed("The trailer lines must end with CRLF");
+        }
+        trailerLine.append((char) (b & 0xff));
+    }
+
+    private void endTrailerLine() {
+        state = State.TRAILER;
+        if (trailerLine.length() == 0) {
+            trailerLine = null;
+            state = State.DONE;
+            return;
+        }
+
+        int colon = trailerLine.indexOf(":");
+        if (colon <= 0) {
+            throw malformed("Malformed trailer field");
+        }
+        listener.onTrailer(trailerLine.substring(0, colon).trim(), trailerLine.substring(colon + 1).trim());
+        trailerLine.setLength(0);
+    }
+
+    private static void expect(byte actual, char expected, String message) {
+        if (actual != expected) {
+            throw malformed(message);
+        }
+    }
+
+    private static BadRequestException malformed(String message) {
+        return new BadRequestException(ExceptionDetail.ofNameAndMessage("body", message));
+    }
+}
@@ -0,0 +1,198 @@
+package tech.becoming.common.http;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Streaming <b>Transfer-Encoding: chunked</b> encoder over {@link ByteBuffer}s.
+ * <br><br>
+ * Each chunk is written with a single gathering write of the hex length prefix, the data and the closing CRLF,
+ * so the body is never copied nor buffered to compute a <b>Content-Length</b>.
+ * Prefixes of the usual power of two chunk sizes are computed once, others are written into a reused buffer.
+ * Trailers, e.g. <b>Server-Timing</b>, are written after the last chunk when the client sent <b>TE: trailers</b>.
+ * <pre>{@code
+ * response.setHeader(TRANSFER_ENCODING, ChunkedEncoder.CHUNKED);
+ * response.setHeader(TRAILER, ChunkedEncoder.trailerHeader(SERVER_TIMING));
+ * var encoder = new ChunkedEncoder(channel);
+ * encoder.write(buffer);
+ * encoder.finish(Map.of(SERVER_TIMING, "db;dur=53"));
+ * }</pre>
+ * Instances are not thread safe, there is one per response.
+ */
+public class ChunkedEncoder {
+
+    public static final String CHUNKED = "chunked";
+    public static final String TRAILERS = "trailers";
+
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CRLF = {'\r', '\n'};
+    private static final byte[] LAST_CHUNK = {'0', '\r', '\n'};
+    private static final int MIN_CACHED_SHIFT = 8;
+    private static final int MAX_CACHED_SHIFT = 20;
+    private static final byte[][] CACHED_PREFIXES = new byte[MAX_CACHED_SHIFT + 1][];
+    private static final long MIN_PAUSE_NANOS = TimeUnit.MICROSECONDS.toNanos(10);
+    private static final long MAX_PAUSE_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long WRITE_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    static {
+        for (int shift = MIN_CACHED_SHIFT; shift <= MAX_CACHED_SHIFT; shift++) {
+            var prefix = ByteBuffer.allocate(18);
+            writePrefix(prefix, 1L << shift);
+            CACHED_PREFIXES[shift] = Arrays.copyOf(prefix.array(), prefix.position());
+        }
+    }
+
+    private final GatheringByteChannel channel;
+    private final ByteBuffer prefix = ByteBuffer.allocate(18);
+    private final ByteBuffer crlf = ByteBuffer.wrap(CRLF);
+    private final ByteBuffer[] gather = new ByteBuffer[3];
+    private boolean finished;
+
+    public ChunkedEncoder(GatheringByteChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Writes the remaining bytes of the buffer as one chunk, empty buffers are skipped
+     * since a zero sized chunk would end the body.
+     */
+    public void write(ByteBuffer data) throws IOException {
+        if (finished) {
+            throw new IllegalStateException("The chunked body is already finished");
+        }
+        if (!data.hasRemaining()) {
+            return;
+        }
+
+        gather[0] = prefix(data.remaining());
+        gather[1] = data;
+        gather[2] = crlf.rewind();
+        writeFully(gather);
+    }
+
+    public void finish() throws IOException {
+        finish(Map.of());
+    }
+
+    /**
+     * Writes the last chunk followed by the trailer fields, which should have been announced in the <b>Trailer</b> header.
+     *
+     * @throws IllegalArgumentException when a name is not a token or a value holds a CR, LF or NUL, nothing is written
+     */
+    public void finish(Map<String, String> trailers) throws IOException {
+        if (finished) {
+            return;
+        }
+        for (var field : trailers.entrySet()) {
+            if (field.getKey() == null || field.getKey().isEmpty() || !HeaderValues.isToken(field.getKey())
+                    || field.getValue() == null || !HeaderValues.isFieldValue(field.getValue())) {
+                throw new IllegalArgumentException("Invalid trailer field " + field.getKey());
+            }
+        }
+        finished = true;
+
+        var trailer = new StringBuilder();
+        for (var field : trailers.entrySet()) {
+            trailer.append(field.getKey()).append(": ").append(field.getValue()).append("\r\n");
+        }
+        trailer.append("\r\n");
+
+        gather[0] = ByteBuffer.wrap(LAST_CHUNK);
+        gather[1] = ByteBuffer.wrap(trailer.toString().getBytes(StandardCharsets.ISO_8859_1));
+        gather[2] = ByteBuffer.allocate(0);
+        writeFully(gather);
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * @param te raw <b>TE</b> request header, may be null
+     * @return true when the client accepts trailer fields
+     */
+    public static boolean acceptsTrailers(String te) {
+        if (te == null) {
+            return false;
+        }
+        int length = te.length();
+        int start = 0;
+        while (start < length) {
+            int end = HeaderValues.indexOf(te, ',', start, length);
+            int tokenStart = HeaderValues.skipWhitespace(te, start, end);
+            int tokenEnd = HeaderValues.trimEnd(te, tokenStart, HeaderValues.indexOf(te, ';', tokenStart, end));
+            if (HeaderValues.regionEquals(te, tokenStart, tokenEnd, TRAILERS)) {
+                return true;
+            }
+            start = end + 1;
+        }
+        return false;
+    }
+
+    /**
+     * @return the value of the <b>Trailer</b> header announcing the given fields
+     */
+    public static String trailerHeader(String... fields) {
+        return String.join(", ", fields);
+    }
+
+    private ByteBuffer prefix(int size) {
+        prefix.clear();
+        int shift = Integer.numberOfTrailingZeros(size);
+        if (Integer.bitCount(size) == 1 && shift >= MIN_CACHED_SHIFT && shift <= MAX_CACHED_SHIFT) {
+            prefix.put(CACHED_PREFIXES[shift]);
+        } else {
+            writePrefix(prefix, size);
+        }
+        return prefix.flip();
+    }
+
+    private static void writePrefix(ByteBuffer buffer, long size) {
+        int digits = Math.max(1, (Long.SIZE - Long.numberOfLeadingZeros(size) + 3) / 4);
+        for (int i = digits - 1; i >= 0; i--) {
+            buffer.put(HEX[(int) (size >>> (i * 4)) & 0xf]);
+        }
+        buffer.put(CRLF);
+    }
+
+    /**
+     * A non-blocking channel that accepts nothing is waited for with a growing pause instead of a busy spin, and
+     * given up on after {@link #WRITE_TIMEOUT_NANOS}.
+     */
+    private void writeFully(ByteBuffer[] buffers) throws IOException {
+        long remaining = 0;
+        for (var buffer : buffers) {
+            remaining += buffer.remaining();
+        }
+        long pause = MIN_PAUSE_NANOS;
+        long stalledSince = 0;
+        while (remaining > 0) {
+            long written = channel.write(buffers);
+            if (written > 0) {
+                remaining -= written;
+                pause = MIN_PAUSE_NANOS;
+                stalledSince = 0;
+                continue;
+            }
+            long now = System.nanoTime();
+            if (stalledSince == 0) {
+                stalledSince = now;
+            } else if (now - stalledSince > WRITE_TIMEOUT_NANOS) {
+                throw new IOException("The channel accepted no data for " + WRITE_TIMEOUT_NANOS / 1_000_000 + " ms");
+            }
+            LockSupport.parkNanos(pause);
+            if (Thread.interrupted()) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the channel");
+            }
+            pause = Math.min(pause * 2, MAX_PAUSE_NANOS);
+        }
+    }
+}
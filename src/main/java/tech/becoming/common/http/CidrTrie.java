@@ -0,0 +1,105 @@
+package tech.becoming.common.http;
+
+import java.util.Arrays;
+
+/**
+ * Binary trie of IPv4 and IPv6 CIDR blocks, e.g. <b>10.0.0.0/8</b> or <b>2001:db8::/32</b>.
+ * <br><br>
+ * Nodes are stored in flat int arrays, one trie per address family. Lookups parse the textual address
+ * into a per-thread scratch buffer and walk one bit per level, so they neither allocate nor resolve names.
+ * The trie is filled at startup, lookups may then run from any thread.
+ */
+public class CidrTrie {
+
+    private static final int ROOT_V4 = 0;
+    private static final int ROOT_V6 = 1;
+    private static final int NONE = 0;
+
+    private static final ThreadLocal<byte[]> SCRATCH = ThreadLocal.withInitial(() -> new byte[IpAddresses.IPV6]);
+
+    private int[] zero = new int[64];
+    private int[] one = new int[64];
+    private boolean[] terminal = new boolean[64];
+    private int size = 2;
+
+    /**
+     * @param cidr an address with an optional prefix length, a plain address is a single host
+     * @throws IllegalArgumentException when the block can't be parsed
+     */
+    public CidrTrie add(String cidr) {
+        var address = new byte[IpAddresses.IPV6];
+        int slash = cidr.indexOf('/');
+        int end = slash < 0 ? cidr.length() : slash;
+        int length = IpAddresses.parse(cidr, 0, end, address);
+        if (length == IpAddresses.INVALID) {
+            throw new IllegalArgumentException("Invalid address: " + cidr);
+        }
+
+        int bits = length * 8;
+        int prefix = bits;
+        if (slash >= 0) {
+            long parsed = HeaderValues.parseLong(cidr, slash + 1, cidr.length());
+            prefix = parsed > IpAddresses.IPV6 * 8 ? -1 : (int) parsed;
+            if (length == IpAddresses.IPV4 && cidr.indexOf(':') >= 0) {
+                // ::ffff:10.0.0.0/104 was normalized to IPv4
+                prefix -= 96;
+            }
+            if (prefix < 0 || prefix > bits) {
+                throw new IllegalArgumentException("Invalid prefix length: " + cidr);
+            }
+        }
+
+        int node = length == IpAddresses.IPV4 ? ROOT_V4 : ROOT_V6;
+        for (int i = 0; i < prefix && !terminal[node]; i++) {
+            int child = bit(address, i) == 0 ? zero[node] : one[node];
+            if (child == NONE) {
+                child = allocate();
+                (bit(address, i) == 0 ? zero : one)[node] = child;
+            }
+            node = child;
+        }
+        terminal[node] = true;
+        return this;
+    }
+
+    /**
+     * @return true when the address belongs to one of the blocks, false when it doesn't, is malformed or null
+     */
+    public boolean contains(CharSequence address) {
+        return address != null && contains(address, 0, address.length());
+    }
+
+    public boolean contains(CharSequence s, int from, int to) {
+        var address = SCRATCH.get();
+        int length = IpAddresses.parse(s, from, to, address);
+        if (length == IpAddresses.INVALID) {
+            return false;
+        }
+
+        int node = length == IpAddresses.IPV4 ? ROOT_V4 : ROOT_V6;
+        int bits = length * 8;
+        for (int i = 0; i < bits; i++) {
+            if (terminal[node]) {
+                return true;
+            }
+            node = bit(address, i) == 0 ? zero[node] : one[node];
+            if (node == NONE) {
+                return false;
+            }
+        }
+        return terminal[node];
+    }
+
+    private int allocate() {
+        if (size == terminal.length) {
+            zero = Arrays.copyOf(zero, size * 2);
+            one = Arrays.copyOf(one, size * 2);
+            terminal = Arrays.copyOf(terminal, size * 2);
+        }
+        return size++;
+    }
+
+    private static int bit(byte[] address, int index) {
+        return (address[index >>> 3] >>> (7 - (index & 7))) & 1;
+    }
+}
@@ -0,0 +1,42 @@
+package tech.becoming.common.http;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * The original client of a request, as resolved by {@link TrustedProxyResolver}.
+ */
+@Getter
+@AllArgsConstructor
+public class ClientAddress {
+
+    /**
+     * The client address, or the node identifier as sent by the last trusted proxy, e.g. <b>unknown</b> or <b>_hidden</b>
+     */
+    private final String address;
+
+    /**
+     * Scheme used by the client, from <b>Forwarded: proto</b> or <b>X-Forwarded-Proto</b>, null when not forwarded
+     */
+    private final String proto;
+
+    /**
+     * Host requested by the client, from <b>Forwarded: host</b> or <b>X-Forwarded-Host</b>, null when not forwarded
+     */
+    private final String host;
+
+    /**
+     * Number of trusted proxies the request went through
+     */
+    private final int trustedHops;
+
+    /**
+     * Number of intermediaries listed in <b>Via</b>, trusted or not
+     */
+    private final int viaHops;
+
+    @Override
+    public String toString() {
+        return address;
+    }
+}
@@ -0,0 +1,32 @@
+package tech.becoming.common.http;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import tech.becoming.common.constants.HttpHeader;
+
+/**
+ * A response body together with the coding that was applied to it by {@link CompressionStage}.
+ */
+@Getter
+@AllArgsConstructor
+public class CompressedBody {
+
+    /**
+     * Value of the <b>Vary</b> header for any response that went through negotiation, compressed or not
+     */
+    public static final String VARY_VALUE = HttpHeader.ACCEPT_ENCODING;
+
+    private final ContentCoding coding;
+    private final byte[] body;
+
+    public boolean isCompressed() {
+        return coding != ContentCoding.IDENTITY;
+    }
+
+    /**
+     * @return the value for {@link HttpHeader#CONTENT_ENCODING} or null when the body is sent as is
+     */
+    public String getContentEncoding() {
+        return isCompressed() ? coding.getToken() : null;
+    }
+}
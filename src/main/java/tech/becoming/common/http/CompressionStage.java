@@ -0,0 +1,367 @@
+package tech.becoming.common.http;
+
+import tech.becoming.common.exceptions.BadRequestException;
+import tech.becoming.common.exceptions.ExceptionDetail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Response compression stage, applies gzip or deflate according to <b>Accept-Encoding</b>.
+ * <br><br>
+ * Deflaters, inflaters and chunk buffers are taken from a bounded pool and given back after each body, bodies are
+ * streamed in fixed size chunks. {@link #close()} ends the native zlib streams of the pool.
+ * Bodies smaller than the minimum size, bodies with a media type that is already compressed
+ * and bodies that already have a <b>Content-Encoding</b> are passed through untouched.
+ * The caller sets {@link tech.becoming.common.constants.HttpHeader#CONTENT_ENCODING} from
+ * {@link CompressedBody#getContentEncoding()} and {@link tech.becoming.common.constants.HttpHeader#VARY}
+ * to {@link CompressedBody#VARY_VALUE}.
+ * <pre>{@code
+ * var stage = CompressionStage.of();
+ * var compressed = stage.apply(request.getHeader(ACCEPT_ENCODING), "application/json", null, body);
+ * }</pre>
+ */
+public class CompressionStage implements AutoCloseable {
+
+    public static final int DEFAULT_MIN_SIZE = 1024;
+    public static final int DEFAULT_CHUNK_SIZE = 8 * 1024;
+    public static final int DEFAULT_MAX_IDLE = 2 * Runtime.getRuntime().availableProcessors();
+
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+    private static final int GZIP_TRAILER_SIZE = 8;
+    private static final int FHCRC = 2;
+    private static final int FEXTRA = 4;
+    private static final int FNAME = 8;
+    private static final int FCOMMENT = 16;
+
+    private static final List<String> COMPRESSED_MEDIA_TYPES = List.of(
+            "image/png", "image/jpeg", "image/gif", "image/webp", "image/avif",
+            "video/", "audio/", "font/woff",
+            "application/zip", "application/gzip", "application/x-gzip", "application/x-7z-compressed",
+            "application/x-bzip2", "application/x-rar-compressed", "application/pdf"
+    );
+
+    private final int minSize;
+    private final ZlibPool pool;
+    private final ContentNegotiator negotiator = ContentNegotiator.of(ContentNegotiator.Type.ENCODING,
+            List.of(ContentCoding.GZIP.getToken(), ContentCoding.DEFLATE.getToken(), ContentCoding.IDENTITY.getToken()));
+
+    private CompressionStage(int level, int minSize, int chunkSize, int maxIdle) {
+        this.minSize = minSize;
+        this.pool = new ZlibPool(level, chunkSize, maxIdle);
+    }
+
+    public static CompressionStage of() {
+        return new CompressionStage(Deflater.DEFAULT_COMPRESSION, DEFAULT_MIN_SIZE, DEFAULT_CHUNK_SIZE, DEFAULT_MAX_IDLE);
+    }
+
+    /**
+     * @param level     zlib level, from {@link Deflater#BEST_SPEED} to {@link Deflater#BEST_COMPRESSION}
+     * @param minSize   bodies smaller than this are not compressed
+     * @param chunkSize size of the buffers used to stream through zlib
+     */
+    public static CompressionStage of(int level, int minSize, int chunkSize) {
+        return new CompressionStage(level, minSize, chunkSize, DEFAULT_MAX_IDLE);
+    }
+
+    /**
+     * @param maxIdle number of deflaters, and of inflaters, of each kind kept for reuse, the others are ended
+     */
+    public static CompressionStage of(int level, int minSize, int chunkSize, int maxIdle) {
+        return new CompressionStage(level, minSize, chunkSize, maxIdle);
+    }
+
+    /**
+     * Selects the coding for a response, use it before streaming a body of unknown length.
+     *
+     * @param acceptEncoding  raw request <b>Accept-Encoding</b>, may be null
+     * @param contentType     response <b>Content-Type</b>, may be null
+     * @param contentEncoding response <b>Content-Encoding</b> if one is already set, may be null
+     * @param length          body length, or -1 when unknown
+     * @return the coding to apply, {@link ContentCoding#IDENTITY} when the body should be sent as is
+     */
+    public ContentCoding select(String acceptEncoding, String contentType, String contentEncoding, long length) {
+        if (acceptEncoding == null
+                || (length >= 0 && length < minSize)
+                || (contentEncoding != null && !ContentCoding.IDENTITY.getToken().equalsIgnoreCase(contentEncoding))
+                || isCompressedMediaType(contentType)) {
+            return ContentCoding.IDENTITY;
+        }
+
+        var negotiation = negotiator.negotiate(acceptEncoding);
+        return negotiation.isAcceptable() ? ContentCoding.of(negotiation.getValue()) : ContentCoding.IDENTITY;
+    }
+
+    /**
+     * Negotiates and compresses a whole body.
+     */
+    public CompressedBody apply(String acceptEncoding, String contentType, String contentEncoding, byte[] body) {
+        var coding = select(acceptEncoding, contentType, contentEncoding, body.length);
+        if (coding == ContentCoding.IDENTITY) {
+            return new CompressedBody(coding, body);
+        }
+
+        var compressed = compress(coding, body);
+        return compressed.length < body.length
+                ? new CompressedBody(coding, compressed)
+                : new CompressedBody(ContentCoding.IDENTITY, body);
+    }
+
+    /**
+     * @return the compressed body, the body itself for {@link ContentCoding#IDENTITY}
+     */
+    public byte[] compress(ContentCoding coding, byte[] body) {
+        if (coding == ContentCoding.IDENTITY) {
+            return body;
+        }
+        var out = new ByteArrayOutputStream(Math.max(64, body.length / 2));
+        try {
+            compress(coding, body, 0, body.length, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Streams the input through zlib in chunks, the input stream is read to its end but not closed.
+     */
+    public void compress(ContentCoding coding, InputStream in, OutputStream out) throws IOException {
+        if (coding == ContentCoding.IDENTITY) {
+            in.transferTo(out);
+            return;
+        }
+
+        var gzip = coding == ContentCoding.GZIP;
+        var deflater = pool.deflater(gzip);
+        var input = pool.buffer();
+        var output = pool.buffer();
+        try {
+            var crc = gzip ? new CRC32() : null;
+            if (gzip) {
+                out.write(GZIP_HEADER);
+            }
+
+            int read;
+            while ((read = in.read(input)) != -1) {
+                if (crc != null) {
+                    crc.update(input, 0, read);
+                }
+                deflater.setInput(input, 0, read);
+                drain(deflater, output, out);
+            }
+            finish(deflater, crc, output, out);
+        } finally {
+            pool.release(input);
+            pool.release(output);
+            pool.release(deflater, gzip);
+        }
+    }
+
+    private void compress(ContentCoding coding, byte[] body, int offset, int length, OutputStream out) throws IOException {
+        var gzip = coding == ContentCoding.GZIP;
+        var deflater = pool.deflater(gzip);
+        var output = pool.buffer();
+        try {
+            CRC32 crc = null;
+            if (gzip) {
+                crc = new CRC32();
+                crc.update(body, offset, length);
+                out.write(GZIP_HEADER);
+            }
+
+            int chunk = pool.getChunkSize();
+            for (int position = offset; position < offset + length; position += chunk) {
+                deflater.setInput(body, position, Math.min(chunk, offset + length - position));
+                drain(deflater, output, out);
+            }
+            finish(deflater, crc, output, out);
+        } finally {
+            pool.release(output);
+            pool.release(deflater, gzip);
+        }
+    }
+
+    private static void drain(Deflater deflater, byte[] output, OutputStream out) throws IOException {
+        while (!deflater.needsInput()) {
+            int written = deflater.deflate(output);
+            out.write(output, 0, written);
+        }
+    }
+
+    private static void finish(Deflater deflater, CRC32 crc, byte[] output, OutputStream out) throws IOException {
+        deflater.finish();
+        while (!deflater.finished()) {
+            int written = deflater.deflate(output);
+            out.write(output, 0, written);
+        }
+
+        if (crc != null) {
+            writeIntLE(out, (int) crc.getValue());
+            writeIntLE(out, (int) deflater.getBytesRead());
+        }
+    }
+
+    /**
+     * Decompresses a request body, with a limit on the produced size to guard against compression bombs.
+     *
+     * @throws BadRequestException when the body is malformed or inflates beyond maxLength
+     */
+    public byte[] decompress(ContentCoding coding, byte[] body, int maxLength) {
+        if (coding == ContentCoding.IDENTITY) {
+            return body;
+        }
+
+        var gzip = coding == ContentCoding.GZIP;
+        int offset = gzip ? skipGzipHeader(body) : 0;
+        var inflater = pool.inflater(gzip);
+        var output = pool.buffer();
+        try {
+            return inflate(coding, body, offset, maxLength, inflater, output);
+        } finally {
+            pool.release(output);
+            pool.release(inflater, gzip);
+        }
+    }
+
+    private static byte[] inflate(ContentCoding coding, byte[] body, int offset, int maxLength,
+                                  Inflater inflater, byte[] output) {
+        var out = new ByteArrayOutputStream((int) Math.min(maxLength, body.length * 4L));
+        var crc = coding == ContentCoding.GZIP ? new CRC32() : null;
+
+        inflater.setInput(body, offset, body.length - offset);
+        try {
+            while (!inflater.finished()) {
+                int written = inflater.inflate(output);
+                if (written == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw malformed("The " + coding.getToken() + " body is truncated");
+                }
+                if (out.size() + written > maxLength) {
+                    throw new BadRequestException(ExceptionDetail.ofNameAndMessage("body",
+                            "The decompressed body exceeds " + maxLength + " bytes"));
+                }
+                if (crc != null) {
+                    crc.update(output, 0, written);
+                }
+                out.write(output, 0, written);
+            }
+        } catch (DataFormatException e) {
+            throw malformed(e.getMessage());
+        }
+
+        if (crc != null) {
+            int trailer = body.length - inflater.getRemaining();
+            if (inflater.getRemaining() < GZIP_TRAILER_SIZE
+                    || readIntLE(body, trailer) != (int) crc.getValue()
+                    || readIntLE(body, trailer + 4) != (int) inflater.getBytesWritten()) {
+                throw malformed("The gzip trailer does not match the body");
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Compresses static assets once, at startup, with the best compression level.
+     *
+     * @param assets       asset body by path
+     * @param contentTypes asset media type by path, paths without one are compressed
+     */
+    public PrecompressedAssets precompress(Map<String, byte[]> assets, Map<String, String> contentTypes) {
+        // used once, its zlib streams are ended right after
+        try (var precompressor = new CompressionStage(Deflater.BEST_COMPRESSION, minSize, pool.getChunkSize(), 1)) {
+            return new PrecompressedAssets(this, precompressor, assets, contentTypes);
+        }
+    }
+
+    /**
+     * Ends the pooled zlib streams, a compression still running ends its own when done.
+     */
+    @Override
+    public void close() {
+        pool.close();
+    }
+
+    boolean isCompressible(String contentType, int length) {
+        return length >= minSize && !isCompressedMediaType(contentType);
+    }
+
+    private static boolean isCompressedMediaType(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        for (var type : COMPRESSED_MEDIA_TYPES) {
+            if (contentType.regionMatches(true, 0, type, 0, type.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int skipGzipHeader(byte[] body) {
+        if (body.length < GZIP_HEADER.length || body[0] != GZIP_HEADER[0] || body[1] != GZIP_HEADER[1]
+                || body[2] != Deflater.DEFLATED) {
+            throw malformed("The body does not start with a gzip header");
+        }
+
+        int flags = body[3];
+        int position = GZIP_HEADER.length;
+        // every field is bounds checked, a truncated header is a 400 and not an index out of bounds
+        if ((flags & FEXTRA) != 0) {
+            requireHeaderBytes(body, position, 2);
+            position += 2 + ((body[position] & 0xff) | (body[position + 1] & 0xff) << 8);
+            requireHeaderBytes(body, position, 0);
+        }
+        if ((flags & FNAME) != 0) {
+            position = skipZeroTerminated(body, position);
+        }
+        if ((flags & FCOMMENT) != 0) {
+            position = skipZeroTerminated(body, position);
+        }
+        if ((flags & FHCRC) != 0) {
+            requireHeaderBytes(body, position, 2);
+            position += 2;
+        }
+        return position;
+    }
+
+    private static int skipZeroTerminated(byte[] body, int position) {
+        while (position < body.length && body[position] != 0) {
+            position++;
+        }
+        requireHeaderBytes(body, position, 1);
+        return position + 1;
+    }
+
+    private static void requireHeaderBytes(byte[] body, int position, int count) {
+        if (position + count > body.length) {
+            throw malformed("The gzip header is truncated");
+        }
+    }
+
+    private static BadRequestException malformed(String message) {
+        return new BadRequestException(ExceptionDetail.ofNameAndMessage("body", message));
+    }
+
+    private static void writeIntLE(OutputStream out, int value) throws IOException {
+        out.write(value);
+        out.write(value >>> 8);
+        out.write(value >>> 16);
+        out.write(value >>> 24);
+    }
+
+    private static int readIntLE(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xff)
+                | (bytes[offset + 1] & 0xff) << 8
+                | (bytes[offset + 2] & 0xff) << 16
+                | (bytes[offset + 3] & 0xff) << 24;
+    }
+}
@@ -0,0 +1,31 @@
+package tech.becoming.common.http;
+
+import lombok.Getter;
+
+/**
+ * Content codings supported by {@link CompressionStage}, as written in <b>Content-Encoding</b>.
+ */
+@Getter
+public enum ContentCoding {
+    GZIP("gzip"),
+    DEFLATE("deflate"),
+    IDENTITY("identity");
+
+    private final String token;
+
+    ContentCoding(String token) {
+        this.token = token;
+    }
+
+    /**
+     * @return the coding for the token or null when it is not supported
+     */
+    public static ContentCoding of(String token) {
+        for (var coding : values()) {
+            if (coding.token.equalsIgnoreCase(token)) {
+                return coding;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,223 @@
+package tech.becoming.common.http;
+
+import lombok.Getter;
+import tech.becoming.common.constants.HttpHeader;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static tech.becoming.common.http.HeaderValues.Q_MAX;
+import static tech.becoming.common.http.HeaderValues.indexOf;
+import static tech.becoming.common.http.HeaderValues.parseQuality;
+import static tech.becoming.common.http.HeaderValues.regionEquals;
+import static tech.becoming.common.http.HeaderValues.sameIgnoreCase;
+import static tech.becoming.common.http.HeaderValues.skipWhitespace;
+import static tech.becoming.common.http.HeaderValues.trimEnd;
+
+/**
+ * Server-driven content negotiation over one of the <b>Accept*</b> headers, honoring quality values.
+ * <br><br>
+ * The negotiator is created once with the values the server can produce, ordered by preference,
+ * and then selects the best one for a raw header value. Results are cached by the raw header value in a bounded
+ * cache, real traffic only has a few hundred distinct values so almost every lookup is a map hit.
+ * The parser walks the header by index and does not allocate.
+ * <pre>{@code
+ * var negotiator = ContentNegotiator.of(ContentNegotiator.Type.MEDIA_TYPE, List.of("application/json", "text/html"));
+ * var result = negotiator.negotiate("text/html;q=0.9, * / *;q=0.1");
+ * result.getValue(); // text/html
+ * }</pre>
+ *
+ * @see <a href="https://developer.mozilla.org/en-US/docs/Web/HTTP/Content_negotiation">Content negotiation</a>
+ */
+public class ContentNegotiator {
+
+    public static final int DEFAULT_CACHE_SIZE = 1024;
+
+    private static final String IDENTITY = "identity";
+    private static final int NO_MATCH = -1;
+
+    /**
+     * The negotiated dimension, with the request header it is read from.
+     */
+    @Getter
+    public enum Type {
+        MEDIA_TYPE(HttpHeader.Accept),
+        ENCODING(HttpHeader.ACCEPT_ENCODING),
+        LANGUAGE(HttpHeader.ACCEPT_LANGUAGE),
+        CHARSET(HttpHeader.ACCEPT_CHARSET);
+
+        private final String header;
+
+        Type(String header) {
+            this.header = header;
+        }
+    }
+
+    @Getter
+    private final Type type;
+    private final String[] offered;
+    private final Negotiation[] results;
+    private final Map<String, Negotiation> cache = new ConcurrentHashMap<>();
+    private final int cacheSize;
+
+    private ContentNegotiator(Type type, List<String> offered, int cacheSize) {
+        if (offered.isEmpty()) {
+            throw new IllegalArgumentException("At least one offered value is required");
+        }
+        this.type = type;
+        this.offered = offered.toArray(new String[0]);
+        this.results = new Negotiation[this.offered.length];
+        for (int i = 0; i < this.offered.length; i++) {
+            results[i] = Negotiation.of(this.offered[i]);
+        }
+        this.cacheSize = cacheSize;
+    }
+
+    /**
+     * @param type    what is being negotiated
+     * @param offered the values the server can produce, most preferred first
+     */
+    public static ContentNegotiator of(Type type, List<String> offered) {
+        return new ContentNegotiator(type, offered, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * @param cacheSize maximum number of distinct header values remembered, once full a new value evicts an arbitrary one
+     */
+    public static ContentNegotiator of(Type type, List<String> offered, int cacheSize) {
+        return new ContentNegotiator(type, offered, cacheSize);
+    }
+
+    /**
+     * @param header raw value of the {@link Type#getHeader()} request header, may be null
+     * @return the selected value or {@link Negotiation#NOT_ACCEPTABLE_RESULT}
+     */
+    public Negotiation negotiate(String header) {
+        if (header == null) {
+            return results[0];
+        }
+        if (header.isEmpty()) {
+            // an empty Accept-Encoding only accepts identity, the other headers accept anything
+            return type == Type.ENCODING ? select(header) : results[0];
+        }
+
+        var cached = cache.get(header);
+        if (cached != null) {
+            return cached;
+        }
+
+        var result = select(header);
+        if (cacheSize > 0) {
+            // values chosen by clients must not fill the cache for good, an arbitrary entry makes room
+            var keys = cache.keySet().iterator();
+            while (cache.size() >= cacheSize && keys.hasNext()) {
+                cache.remove(keys.next());
+            }
+            cache.putIfAbsent(header, result);
+        }
+        return result;
+    }
+
+    public int cachedEntries() {
+        return cache.size();
+    }
+
+    private Negotiation select(String header) {
+        int best = NO_MATCH;
+        int bestQuality = 0;
+
+        for (int i = 0; i < offered.length; i++) {
+            int quality = quality(header, offered[i]);
+            if (quality > bestQuality) {
+                best = i;
+                bestQuality = quality;
+            }
+        }
+
+        return best == NO_MATCH ? Negotiation.NOT_ACCEPTABLE_RESULT : results[best];
+    }
+
+    /**
+     * Quality of the most specific range in the header that matches the offered value.
+     */
+    private int quality(String header, String value) {
+        int bestSpecificity = NO_MATCH;
+        int quality = 0;
+        int length = header.length();
+        int start = 0;
+
+        while (start < length) {
+            int end = indexOf(header, ',', start, length);
+            int rangeStart = skipWhitespace(header, start, end);
+            int paramsStart = indexOf(header, ';', rangeStart, end);
+            int rangeEnd = trimEnd(header, rangeStart, paramsStart);
+
+            if (rangeStart < rangeEnd) {
+                int specificity = specificity(header, rangeStart, rangeEnd, value);
+                if (specificity > bestSpecificity) {
+                    bestSpecificity = specificity;
+                    quality = qualityParameter(header, paramsStart, end);
+                }
+            }
+            start = end + 1;
+        }
+
+        if (bestSpecificity == NO_MATCH && type == Type.ENCODING && IDENTITY.equalsIgnoreCase(value)) {
+            // identity is always acceptable unless explicitly refused, but explicit choices win over it
+            return 1;
+        }
+        return quality;
+    }
+
+    private int specificity(String header, int from, int to, String value) {
+        if (to - from == 1 && header.charAt(from) == '*') {
+            return 0;
+        }
+        if (type == Type.MEDIA_TYPE && to - from == 3 && header.charAt(from) == '*' && header.charAt(from + 2) == '*') {
+            return 0;
+        }
+        if (regionEquals(header, from, to, value)) {
+            return 2;
+        }
+
+        switch (type) {
+            case MEDIA_TYPE:
+                // type/* matches type/subtype
+                return to - from > 2 && header.charAt(to - 1) == '*' && header.charAt(to - 2) == '/'
+                        && isPrefix(header, from, to - 1, value) ? 1 : NO_MATCH;
+            case LANGUAGE:
+                // en matches en-US
+                return to - from < value.length() && value.charAt(to - from) == '-'
+                        && isPrefix(header, from, to, value) ? 1 : NO_MATCH;
+            default:
+                return NO_MATCH;
+        }
+    }
+
+    private static boolean isPrefix(String header, int from, int to, String value) {
+        if (to - from > value.length()) {
+            return false;
+        }
+        for (int i = from; i < to; i++) {
+            if (!sameIgnoreCase(header.charAt(i), value.charAt(i - from))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int qualityParameter(String header, int from, int to) {
+        while (from < to) {
+            int paramStart = skipWhitespace(header, from + 1, to);
+            int paramEnd = indexOf(header, ';', paramStart, to);
+            if (paramEnd - paramStart >= 2
+                    && sameIgnoreCase(header.charAt(paramStart), 'q')
+                    && header.charAt(paramStart + 1) == '=') {
+                return parseQuality(header, paramStart + 2, trimEnd(header, paramStart + 2, paramEnd));
+            }
+            from = paramEnd;
+        }
+        return Q_MAX;
+    }
+}
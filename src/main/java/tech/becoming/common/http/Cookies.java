@@ -0,0 +1,134 @@
+package tech.becoming.common.http;
+
+import static tech.becoming.common.http.HeaderValues.indexOf;
+import static tech.becoming.common.http.HeaderValues.skipWhitespace;
+import static tech.becoming.common.http.HeaderValues.trimEnd;
+
+/**
+ * Parser for the <b>Cookie</b> request header that works on the original header value.
+ * <br><br>
+ * Lookups scan the header by index and only create the String of the found value,
+ * iteration goes through a {@link Cursor} that exposes names and values as {@link CharSlice} views.
+ * <pre>{@code
+ * var session = Cookies.get(request.getHeader(COOKIE), "SESSION");
+ *
+ * var cursor = Cookies.cursor(request.getHeader(COOKIE));
+ * while (cursor.next()) {
+ *     if (cursor.name().contentEquals("theme")) { ... cursor.value() ... }
+ * }
+ * }</pre>
+ *
+ * @see <a href="https://developer.mozilla.org/en-US/docs/Web/HTTP/Headers/Cookie">Cookie</a>
+ */
+public class Cookies {
+
+    private static final long NOT_FOUND = -1;
+
+    private Cookies() {
+    }
+
+    /**
+     * @param header raw <b>Cookie</b> header, may be null
+     * @return the value of the first cookie with this name, or null
+     */
+    public static String get(String header, String name) {
+        long value = find(header, name);
+        return value == NOT_FOUND ? null : header.substring((int) (value >>> 32), (int) value);
+    }
+
+    public static boolean contains(String header, String name) {
+        return find(header, name) != NOT_FOUND;
+    }
+
+    /**
+     * @param header raw <b>Cookie</b> header, may be null
+     */
+    public static Cursor cursor(String header) {
+        return new Cursor(header == null ? "" : header);
+    }
+
+    /**
+     * Walks the name / value pairs of a <b>Cookie</b> header, the slices are reused on each step.
+     */
+    public static final class Cursor {
+
+        private final String header;
+        private final CharSlice name = new CharSlice();
+        private final CharSlice value = new CharSlice();
+        private int position;
+
+        private Cursor(String header) {
+            this.header = header;
+        }
+
+        /**
+         * Moves to the next pair, pairs without a name are skipped.
+         *
+         * @return false when there are no more pairs
+         */
+        public boolean next() {
+            long pair = NOT_FOUND;
+            while (position < header.length() && (pair = pair(header, position)) == NOT_FOUND) {
+                position = indexOf(header, ';', position, header.length()) + 1;
+            }
+            if (pair == NOT_FOUND) {
+                return false;
+            }
+
+            int end = indexOf(header, ';', position, header.length());
+            int nameStart = skipWhitespace(header, position, end);
+            name.set(header, nameStart, trimEnd(header, nameStart, indexOf(header, '=', nameStart, end)));
+            value.set(header, (int) (pair >>> 32), (int) pair);
+            position = end + 1;
+            return true;
+        }
+
+        public CharSlice name() {
+            return name;
+        }
+
+        public CharSlice value() {
+            return value;
+        }
+    }
+
+    private static long find(String header, String name) {
+        if (header == null) {
+            return NOT_FOUND;
+        }
+        int length = header.length();
+        int position = 0;
+        while (position < length) {
+            int end = indexOf(header, ';', position, length);
+            int nameStart = skipWhitespace(header, position, end);
+            int nameEnd = trimEnd(header, nameStart, indexOf(header, '=', nameStart, end));
+            if (nameEnd - nameStart == name.length() && header.regionMatches(nameStart, name, 0, name.length())) {
+                return pair(header, position);
+            }
+            position = end + 1;
+        }
+        return NOT_FOUND;
+    }
+
+    /**
+     * Value bounds of the pair starting at the position, packed as start &lt;&lt; 32 | end, surrounding quotes excluded.
+     *
+     * @return the packed bounds or {@link #NOT_FOUND} when the pair has no name
+     */
+    private static long pair(String header, int position) {
+        int end = indexOf(header, ';', position, header.length());
+        int nameStart = skipWhitespace(header, position, end);
+        int equals = indexOf(header, '=', nameStart, end);
+        if (trimEnd(header, nameStart, equals) == nameStart) {
+            return NOT_FOUND;
+        }
+
+        int valueStart = equals < end ? skipWhitespace(header, equals + 1, end) : end;
+        int valueEnd = trimEnd(header, valueStart, end);
+        if (valueEnd - valueStart >= 2 && header.charAt(valueStart) == '"' && header.charAt(valueEnd - 1) == '"') {
+            valueStart++;
+            valueEnd--;
+        }
+        return (long) valueStart << 32 | valueEnd;
+    }
+}
@@ -0,0 +1,273 @@
+package tech.becoming.common.http;
+
+import lombok.Builder;
+import lombok.Singular;
+import tech.becoming.common.constants.HttpMethod;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static tech.becoming.common.constants.HttpHeader.ACCESS_CONTROL_ALLOW_CREDENTIALS;
+import static tech.becoming.common.constants.HttpHeader.ACCESS_CONTROL_ALLOW_HEADERS;
+import static tech.becoming.common.constants.HttpHeader.ACCESS_CONTROL_ALLOW_METHODS;
+import static tech.becoming.common.constants.HttpHeader.ACCESS_CONTROL_ALLOW_ORIGIN;
+import static tech.becoming.common.constants.HttpHeader.ACCESS_CONTROL_EXPOSE_HEADERS;
+import static tech.becoming.common.constants.HttpHeader.ACCESS_CONTROL_MAX_AGE;
+import static tech.becoming.common.constants.HttpHeader.ORIGIN;
+import static tech.becoming.common.constants.HttpHeader.VARY;
+import static tech.becoming.common.constants.HttpStatusCode.NO_CONTENT_204;
+import static tech.becoming.common.constants.HttpStatusCode.OK_200;
+import static tech.becoming.common.http.HeaderValues.indexOf;
+import static tech.becoming.common.http.HeaderValues.skipWhitespace;
+import static tech.becoming.common.http.HeaderValues.trimEnd;
+
+/**
+ * A CORS policy compiled once, then evaluated per request without parsing nor string building.
+ * <br><br>
+ * Exact origins are kept in a hash map and wildcard origins such as <b>https://*.example.com</b> in a suffix trie.
+ * Allowed methods are a bit set keyed by {@link HttpMethod#ordinal(String)}. Response headers are serialized
+ * when the policy is built, for exact origins the whole preflight answer is a prebuilt object.
+ * Allowed request headers are a hash set of lower case names rather than a bit set: header names are open ended,
+ * unlike methods they have no closed list of ordinals. The check of <b>Access-Control-Request-Headers</b> values is
+ * cached by raw value.
+ * <pre>{@code
+ * static final CorsPolicy CORS = CorsPolicy.builder()
+ *         .allowedOrigin("https://app.example.com")
+ *         .allowedOrigin("https://*.example.com")
+ *         .allowedMethod(GET).allowedMethod(POST)
+ *         .allowedHeader(CONTENT_TYPE).allowedHeader(AUTHORIZATION)
+ *         .allowCredentials(true)
+ *         .maxAge(600L)
+ *         .build();
+ *
+ * var cors = CORS.preflight(origin, requestMethod, requestHeaders);
+ * cors.forEachHeader(response::setHeader);
+ * response.setStatus(cors.getStatus());
+ * }</pre>
+ *
+ * @see <a href="https://developer.mozilla.org/en-US/docs/Web/HTTP/CORS">CORS</a>
+ */
+public class CorsPolicy {
+
+    public static final String ANY = "*";
+
+    private static final int CACHE_SIZE = 1024;
+
+    private final boolean anyOrigin;
+    private final boolean anyHeader;
+    private final int methods;
+    private final Set<String> allowedHeaders;
+    private final OriginTrie patterns = new OriginTrie();
+
+    private final String[] preflightHeaders;
+    private final String[] actualHeaders;
+    private final Map<String, CorsResponse[]> exact = new HashMap<>();
+    private final CorsResponse[] wildcard;
+    private final Map<String, CorsResponse[]> matched = new ConcurrentHashMap<>();
+    private final Map<String, Boolean> requestHeaders = new ConcurrentHashMap<>();
+
+    /**
+     * @param allowedOrigins exact origins, <b>*</b> for any origin or patterns with a <b>*</b> subdomain wildcard
+     * @param allowedMethods methods from {@link HttpMethod}
+     * @param allowedHeaders request headers, <b>*</b> for any header
+     * @param exposedHeaders response headers readable by scripts
+     * @param maxAge         seconds a preflight result may be cached by the user agent, negative to omit
+     * @throws IllegalArgumentException when any origin is allowed with credentials, any site could then read
+     *                                  credentialed responses
+     */
+    @Builder
+    private CorsPolicy(@Singular Set<String> allowedOrigins,
+                       @Singular List<String> allowedMethods,
+                       @Singular List<String> allowedHeaders,
+                       @Singular List<String> exposedHeaders,
+                       boolean allowCredentials,
+                       Long maxAge) {
+        if (allowedOrigins.contains(ANY) && allowCredentials) {
+            throw new IllegalArgumentException("Credentials can't be allowed for any origin, list the origins instead");
+        }
+        this.anyOrigin = allowedOrigins.contains(ANY);
+        this.anyHeader = allowedHeaders.contains(ANY);
+        var headers = new HashSet<String>();
+        for (var header : allowedHeaders) {
+            headers.add(header.toLowerCase(Locale.ROOT));
+        }
+        this.allowedHeaders = Set.copyOf(headers);
+
+        int mask = 0;
+        for (var method : allowedMethods) {
+            int ordinal = HttpMethod.ordinal(method);
+            if (ordinal < 0) {
+                throw new IllegalArgumentException("Unknown method: " + method);
+            }
+            mask |= 1 << ordinal;
+        }
+        this.methods = mask;
+
+        var preflight = new ArrayList<String>();
+        if (!allowedMethods.isEmpty()) {
+            preflight.add(ACCESS_CONTROL_ALLOW_METHODS);
+            preflight.add(String.join(", ", allowedMethods));
+        }
+        if (!allowedHeaders.isEmpty()) {
+            preflight.add(ACCESS_CONTROL_ALLOW_HEADERS);
+            preflight.add(String.join(", ", allowedHeaders));
+        }
+        if (maxAge != null && maxAge >= 0) {
+            preflight.add(ACCESS_CONTROL_MAX_AGE);
+            preflight.add(String.valueOf(maxAge));
+        }
+        var actual = new ArrayList<String>();
+        if (!exposedHeaders.isEmpty()) {
+            actual.add(ACCESS_CONTROL_EXPOSE_HEADERS);
+            actual.add(String.join(", ", exposedHeaders));
+        }
+        if (allowCredentials) {
+            preflight.add(ACCESS_CONTROL_ALLOW_CREDENTIALS);
+            preflight.add("true");
+            actual.add(ACCESS_CONTROL_ALLOW_CREDENTIALS);
+            actual.add("true");
+        }
+        this.preflightHeaders = preflight.toArray(new String[0]);
+        this.actualHeaders = actual.toArray(new String[0]);
+
+        for (var origin : allowedOrigins) {
+            if (OriginTrie.isPattern(origin) && !ANY.equals(origin)) {
+                patterns.add(origin);
+            } else if (!ANY.equals(origin)) {
+                exact.put(normalize(origin), responses(normalize(origin)));
+            }
+        }
+        this.wildcard = anyOrigin ? responses(ANY) : null;
+    }
+
+    /**
+     * Evaluates a preflight <b>OPTIONS</b> request.
+     *
+     * @param origin         the <b>Origin</b> request header
+     * @param requestMethod  the <b>Access-Control-Request-Method</b> request header
+     * @param requestHeaders the <b>Access-Control-Request-Headers</b> request header, may be null
+     */
+    public CorsResponse preflight(String origin, String requestMethod, String requestHeaders) {
+        var responses = responsesFor(origin);
+        if (responses == null || !isMethodAllowed(requestMethod) || !areHeadersAllowed(requestHeaders)) {
+            return CorsResponse.DENIED;
+        }
+        return responses[0];
+    }
+
+    /**
+     * Evaluates an actual (non preflight) cross-origin request.
+     *
+     * @param origin the <b>Origin</b> request header, null for same-origin requests
+     */
+    public CorsResponse actual(String origin) {
+        var responses = responsesFor(origin);
+        return responses == null ? CorsResponse.DENIED : responses[1];
+    }
+
+    public boolean isOriginAllowed(String origin) {
+        return responsesFor(origin) != null;
+    }
+
+    public boolean isMethodAllowed(String method) {
+        int ordinal = HttpMethod.ordinal(method);
+        return ordinal >= 0 && (methods & 1 << ordinal) != 0;
+    }
+
+    public boolean areHeadersAllowed(String requestHeaders) {
+        if (anyHeader || requestHeaders == null || requestHeaders.isEmpty()) {
+            return true;
+        }
+        var cached = this.requestHeaders.get(requestHeaders);
+        if (cached != null) {
+            return cached;
+        }
+
+        var allowed = scanHeaders(requestHeaders);
+        if (this.requestHeaders.size() < CACHE_SIZE) {
+            this.requestHeaders.put(requestHeaders, allowed);
+        }
+        return allowed;
+    }
+
+    private CorsResponse[] responsesFor(String origin) {
+        if (origin == null) {
+            return null;
+        }
+        origin = normalize(origin);
+        var responses = exact.get(origin);
+        if (responses != null) {
+            return responses;
+        }
+        if (wildcard != null) {
+            return wildcard;
+        }
+        responses = matched.get(origin);
+        if (responses != null) {
+            return responses;
+        }
+        if (patterns.matches(origin)) {
+            responses = responses(origin);
+            if (matched.size() < CACHE_SIZE) {
+                matched.put(origin, responses);
+            }
+            return responses;
+        }
+        return null;
+    }
+
+    /**
+     * Origins are compared case-insensitively, an origin already in lower case is returned as is.
+     */
+    private static String normalize(String origin) {
+        return origin.toLowerCase(Locale.ROOT);
+    }
+
+    private boolean scanHeaders(String requestHeaders) {
+        int length = requestHeaders.length();
+        int start = 0;
+        while (start < length) {
+            int end = indexOf(requestHeaders, ',', start, length);
+            int nameStart = skipWhitespace(requestHeaders, start, end);
+            int nameEnd = trimEnd(requestHeaders, nameStart, end);
+            if (nameStart < nameEnd && !isHeaderAllowed(requestHeaders, nameStart, nameEnd)) {
+                return false;
+            }
+            start = end + 1;
+        }
+        return true;
+    }
+
+    private boolean isHeaderAllowed(String requestHeaders, int from, int to) {
+        return allowedHeaders.contains(requestHeaders.substring(from, to).toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * @return the preflight and the actual response for the origin
+     */
+    private CorsResponse[] responses(String origin) {
+        return new CorsResponse[]{
+                new CorsResponse(true, NO_CONTENT_204, withOrigin(origin, preflightHeaders)),
+                new CorsResponse(true, OK_200, withOrigin(origin, actualHeaders))
+        };
+    }
+
+    private static String[] withOrigin(String origin, String[] headers) {
+        var vary = !ANY.equals(origin);
+        var result = new String[headers.length + (vary ? 4 : 2)];
+        result[0] = ACCESS_CONTROL_ALLOW_ORIGIN;
+        result[1] = origin;
+        System.arraycopy(headers, 0, result, 2, headers.length);
+        if (vary) {
+            result[result.length - 2] = VARY;
+            result[result.length - 1] = ORIGIN;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,60 @@
+package tech.becoming.common.http;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.util.function.BiConsumer;
+
+import static tech.becoming.common.constants.HttpHeader.ORIGIN;
+import static tech.becoming.common.constants.HttpHeader.VARY;
+import static tech.becoming.common.constants.HttpStatusCode.FORBIDDEN_403;
+
+/**
+ * Outcome of a {@link CorsPolicy} evaluation, with the response headers already serialized as name / value pairs.
+ */
+@Getter
+public class CorsResponse {
+
+    /**
+     * Varies on the origin too, a cache must not serve a denial to an allowed origin
+     */
+    public static final CorsResponse DENIED = new CorsResponse(false, FORBIDDEN_403, new String[]{VARY, ORIGIN});
+
+    private final boolean allowed;
+
+    /**
+     * Status to answer a preflight request with, {@link tech.becoming.common.constants.HttpStatusCode#NO_CONTENT_204}
+     * when allowed and {@link tech.becoming.common.constants.HttpStatusCode#FORBIDDEN_403} otherwise
+     */
+    private final int status;
+
+    @Getter(AccessLevel.NONE)
+    private final String[] headers;
+
+    CorsResponse(boolean allowed, int status, String[] headers) {
+        this.allowed = allowed;
+        this.status = status;
+        this.headers = headers;
+    }
+
+    public int headerCount() {
+        return headers.length / 2;
+    }
+
+    public String headerName(int index) {
+        return headers[index * 2];
+    }
+
+    public String headerValue(int index) {
+        return headers[index * 2 + 1];
+    }
+
+    /**
+     * Hands every header to the consumer, typically <b>response::setHeader</b>.
+     */
+    public void forEachHeader(BiConsumer<String, String> consumer) {
+        for (int i = 0; i < headers.length; i += 2) {
+            consumer.accept(headers[i], headers[i + 1]);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package tech.becoming.common.http;
+
+/**
+ * Allocation free helpers used to scan raw header values by index, instead of splitting them into Strings.
+ */
+final class HeaderValues {
+
+    /**
+     * Quality values are kept as thousandths, <b>q=0.8</b> becomes 800
+     */
+    static final int Q_MAX = 1000;
+
+    private HeaderValues() {
+    }
+
+    static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t';
+    }
+
+    static int skipWhitespace(CharSequence s, int from, int to) {
+        while (from < to && isWhitespace(s.charAt(from))) {
+            from++;
+        }
+        return from;
+    }
+
+    static int trimEnd(CharSequence s, int from, int to) {
+        while (to > from && isWhitespace(s.charAt(to - 1))) {
+            to--;
+        }
+        return to;
+    }
+
+    static int indexOf(CharSequence s, char c, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (s.charAt(i) == c) {
+                return i;
+            }
+        }
+        return to;
+    }
+
+    /**
+     * Same as {@link #indexOf(CharSequence, char, int, int)} but skips quoted-strings, a <b>,</b> or <b>;</b> within
+     * <b>"..."</b> is part of the value, and so is a quote escaped by a backslash.
+     */
+    static int indexOfUnquoted(CharSequence s, char c, int from, int to) {
+        boolean quoted = false;
+        for (int i = from; i < to; i++) {
+            char ch = s.charAt(i);
+            if (quoted) {
+                if (ch == '\\') {
+                    i++;
+                } else if (ch == '"') {
+                    quoted = false;
+                }
+            } else if (ch == '"') {
+                quoted = true;
+            } else if (ch == c) {
+                return i;
+            }
+        }
+        return to;
+    }
+
+    /**
+     * Case-insensitive comparison of the region [from, to) with the given token.
+     */
+    static boolean regionEquals(CharSequence s, int from, int to, String token) {
+        int length = to - from;
+        if (length != token.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (!sameIgnoreCase(s.charAt(from + i), token.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static boolean sameIgnoreCase(char a, char b) {
+        if (a == b) {
+            return true;
+        }
+        if (a >= 'A' && a <= 'Z') {
+            a += 32;
+        }
+        if (b >= 'A' && b <= 'Z') {
+            b += 32;
+        }
+        return a == b;
+    }
+
+    /**
+     * Parses a quality value such as <b>1</b>, <b>0.5</b> or <b>0.125</b> into thousandths.
+     *
+     * @return the value in [0, 1000] or {@link #Q_MAX} when the value is malformed
+     */
+    static int parseQuality(CharSequence s, int from, int to) {
+        if (from >= to) {
+            return Q_MAX;
+        }
+        char first = s.charAt(from);
+        if (first != '0' && first != '1') {
+            return Q_MAX;
+        }
+        int value = (first - '0') * Q_MAX;
+        if (from + 1 == to) {
+            return value;
+        }
+        if (s.charAt(from + 1) != '.') {
+            return Q_MAX;
+        }
+        int scale = 100;
+        for (int i = from + 2; i < to && scale > 0; i++, scale /= 10) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                return Q_MAX;
+            }
+            value += (c - '0') * scale;
+        }
+        return Math.min(value, Q_MAX);
+    }
+
+    /**
+     * Parses a non-negative decimal number from the region, returns -1 when malformed or overflowing.
+     */
+    static long parseLong(CharSequence s, int from, int to) {
+        if (from >= to) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9' || value > (Long.MAX_VALUE - 9) / 10) {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /**
+     * A token, e.g. a header or cookie name: visible ASCII characters except the separators.
+     */
+    static boolean isToken(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c <= ' ' || c >= 0x7f || "()<>@,;:\\\"/[]?={}".indexOf(c) >= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * A field value that can't end the field early: no CR, LF nor NUL.
+     */
+    static boolean isFieldValue(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '\r' || c == '\n' || c == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
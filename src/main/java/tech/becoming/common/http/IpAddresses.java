@@ -0,0 +1,135 @@
+package tech.becoming.common.http;
+
+/**
+ * Parses textual IPv4 and IPv6 addresses into bytes, without {@link java.net.InetAddress} and without allocating.
+ */
+final class IpAddresses {
+
+    static final int INVALID = -1;
+    static final int IPV4 = 4;
+    static final int IPV6 = 16;
+
+    private IpAddresses() {
+    }
+
+    /**
+     * @param out at least 16 bytes, receives the address
+     * @return {@link #IPV4} or {@link #IPV6} as the number of bytes written, {@link #INVALID} when malformed.
+     * IPv4-mapped IPv6 addresses are written as IPv4.
+     */
+    static int parse(CharSequence s, int from, int to, byte[] out) {
+        if (from >= to) {
+            return INVALID;
+        }
+        if (HeaderValues.indexOf(s, ':', from, to) == to) {
+            return parseV4(s, from, to, out, 0) ? IPV4 : INVALID;
+        }
+
+        int zone = HeaderValues.indexOf(s, '%', from, to);
+        int length = parseV6(s, from, zone, out);
+        if (length == IPV6 && isV4Mapped(out)) {
+            System.arraycopy(out, 12, out, 0, 4);
+            return IPV4;
+        }
+        return length;
+    }
+
+    private static boolean isV4Mapped(byte[] out) {
+        for (int i = 0; i < 10; i++) {
+            if (out[i] != 0) {
+                return false;
+            }
+        }
+        return out[10] == (byte) 0xff && out[11] == (byte) 0xff;
+    }
+
+    private static boolean parseV4(CharSequence s, int from, int to, byte[] out, int offset) {
+        int octets = 0;
+        int value = 0;
+        int digits = 0;
+        for (int i = from; i <= to; i++) {
+            char c = i < to ? s.charAt(i) : '.';
+            if (c >= '0' && c <= '9') {
+                value = value * 10 + (c - '0');
+                if (++digits > 3 || value > 255) {
+                    return false;
+                }
+            } else if (c == '.' && digits > 0 && octets < 4) {
+                out[offset + octets++] = (byte) value;
+                value = 0;
+                digits = 0;
+            } else {
+                return false;
+            }
+        }
+        return octets == 4;
+    }
+
+    private static int parseV6(CharSequence s, int from, int to, byte[] out) {
+        int groups = 0;
+        int compressed = -1;
+        int i = from;
+
+        if (to - from >= 2 && s.charAt(from) == ':' && s.charAt(from + 1) == ':') {
+            compressed = 0;
+            i += 2;
+        } else if (s.charAt(from) == ':') {
+            return INVALID;
+        }
+
+        while (i < to) {
+            int end = HeaderValues.indexOf(s, ':', i, to);
+            if (end == i) {
+                if (compressed >= 0) {
+                    return INVALID;
+                }
+                compressed = groups;
+                i++;
+                continue;
+            }
+
+            if (end == to && HeaderValues.indexOf(s, '.', i, to) < to) {
+                if (groups > 6 || !parseV4(s, i, to, out, groups * 2)) {
+                    return INVALID;
+                }
+                groups += 2;
+                break;
+            }
+
+            int value = 0;
+            if (end - i > 4 || groups == 8) {
+                return INVALID;
+            }
+            for (int j = i; j < end; j++) {
+                int digit = Character.digit(s.charAt(j), 16);
+                if (digit < 0) {
+                    return INVALID;
+                }
+                value = value << 4 | digit;
+            }
+            out[groups * 2] = (byte) (value >>> 8);
+            out[groups * 2 + 1] = (byte) value;
+            groups++;
+
+            if (end == to - 1) {
+                // a trailing single colon is only valid as part of ::
+                return INVALID;
+            }
+            i = end + 1;
+        }
+
+        if (compressed < 0) {
+            return groups == 8 ? IPV6 : INVALID;
+        }
+        if (groups == 8) {
+            return INVALID;
+        }
+
+        int tail = (groups - compressed) * 2;
+        System.arraycopy(out, compressed * 2, out, IPV6 - tail, tail);
+        for (int z = compressed * 2; z < IPV6 - tail; z++) {
+            out[z] = 0;
+        }
+        return IPV6;
+    }
+}
@@ -0,0 +1,43 @@
+package tech.becoming.common.http;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import static tech.becoming.common.constants.HttpStatusCode.NOT_ACCEPTABLE;
+import static tech.becoming.common.constants.HttpStatusCode.OK_200;
+
+/**
+ * Outcome of a {@link ContentNegotiator} run: either the selected representation value or a 406.
+ * <br>
+ * Instances are created once per negotiator, so cached lookups do not allocate.
+ */
+@Getter
+@AllArgsConstructor(access = AccessLevel.PACKAGE)
+public class Negotiation {
+
+    public static final Negotiation NOT_ACCEPTABLE_RESULT = new Negotiation(null, NOT_ACCEPTABLE);
+
+    /**
+     * The selected value, e.g. <b>application/json</b>, <b>gzip</b>, <b>en-US</b> or <b>utf-8</b>, null when not acceptable
+     */
+    private final String value;
+
+    /**
+     * {@link tech.becoming.common.constants.HttpStatusCode#OK_200} or {@link tech.becoming.common.constants.HttpStatusCode#NOT_ACCEPTABLE}
+     */
+    private final int status;
+
+    static Negotiation of(String value) {
+        return new Negotiation(value, OK_200);
+    }
+
+    public boolean isAcceptable() {
+        return status == OK_200;
+    }
+
+    @Override
+    public String toString() {
+        return isAcceptable() ? value : String.valueOf(status);
+    }
+}
@@ -0,0 +1,106 @@
+package tech.becoming.common.http;
+
+import java.util.Arrays;
+
+/**
+ * Suffix trie of wildcard origins such as <b>https://*.example.com</b>.
+ * <br>
+ * Suffixes are stored reversed, so an origin is matched by walking it from its last character,
+ * each terminal node keeps the scheme prefixes that were registered with that suffix.
+ */
+final class OriginTrie {
+
+    private static final String WILDCARD = "*";
+
+    private static final class Node {
+        private char[] keys = new char[0];
+        private Node[] children = new Node[0];
+        private String[] prefixes;
+
+        private Node child(char c) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] == c) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        private Node addChild(char c) {
+            var existing = child(c);
+            if (existing != null) {
+                return existing;
+            }
+            keys = Arrays.copyOf(keys, keys.length + 1);
+            children = Arrays.copyOf(children, children.length + 1);
+            keys[keys.length - 1] = c;
+            return children[children.length - 1] = new Node();
+        }
+    }
+
+    private final Node root = new Node();
+    private boolean empty = true;
+
+    static boolean isPattern(String origin) {
+        return origin.contains(WILDCARD);
+    }
+
+    /**
+     * @param pattern an origin with a single <b>*</b> standing for one or more subdomain labels
+     */
+    void add(String pattern) {
+        int star = pattern.indexOf(WILDCARD);
+        if (star != pattern.lastIndexOf(WILDCARD) || star + 1 >= pattern.length() || pattern.charAt(star + 1) != '.') {
+            throw new IllegalArgumentException("Unsupported origin pattern: " + pattern);
+        }
+
+        var prefix = pattern.substring(0, star).toLowerCase();
+        var suffix = pattern.substring(star + 1).toLowerCase();
+        var node = root;
+        for (int i = suffix.length() - 1; i >= 0; i--) {
+            node = node.addChild(suffix.charAt(i));
+        }
+        node.prefixes = node.prefixes == null
+                ? new String[]{prefix}
+                : Arrays.copyOf(node.prefixes, node.prefixes.length + 1);
+        node.prefixes[node.prefixes.length - 1] = prefix;
+        empty = false;
+    }
+
+    boolean matches(String origin) {
+        if (empty) {
+            return false;
+        }
+        var node = root;
+        for (int i = origin.length() - 1; i >= 0 && node != null; i--) {
+            node = node.child(Character.toLowerCase(origin.charAt(i)));
+            if (node != null && node.prefixes != null && matchesPrefix(origin, i, node.prefixes)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The part covered by the wildcard, between the prefix and the suffix start, must be a non empty host part.
+     */
+    private static boolean matchesPrefix(String origin, int suffixStart, String[] prefixes) {
+        for (var prefix : prefixes) {
+            if (prefix.length() < suffixStart && origin.regionMatches(true, 0, prefix, 0, prefix.length())
+                    && isHostPart(origin, prefix.length(), suffixStart)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isHostPart(String origin, int from, int to) {
+        for (int i = from; i < to; i++) {
+            char c = origin.charAt(i);
+            if (c == '/' || c == ':' || c == '@') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
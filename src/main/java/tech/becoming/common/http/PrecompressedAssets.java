@@ -0,0 +1,95 @@
+package tech.becoming.common.http;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Static assets compressed once at startup, so they are not recompressed on every request.
+ * <br>
+ * A coded variant is only kept when it is smaller than the original body, a client is then sent the best variant it
+ * accepts among the ones kept for the asset.
+ *
+ * @see CompressionStage#precompress(Map, Map)
+ */
+public class PrecompressedAssets {
+
+    private final Map<String, CompressedBody[]> assets;
+    // by the bit set of the codings kept for an asset, ordinals as bits
+    private final ContentNegotiator[] negotiators = new ContentNegotiator[1 << ContentCoding.values().length];
+
+    PrecompressedAssets(CompressionStage stage, CompressionStage precompressor,
+                        Map<String, byte[]> assets, Map<String, String> contentTypes) {
+        this.assets = new HashMap<>(assets.size() * 2);
+
+        var codings = ContentCoding.values();
+        for (var asset : assets.entrySet()) {
+            var body = asset.getValue();
+            var variants = new CompressedBody[codings.length];
+            variants[ContentCoding.IDENTITY.ordinal()] = new CompressedBody(ContentCoding.IDENTITY, body);
+
+            if (stage.isCompressible(contentTypes.get(asset.getKey()), body.length)) {
+                for (var coding : codings) {
+                    if (coding != ContentCoding.IDENTITY) {
+                        var compressed = precompressor.compress(coding, body);
+                        if (compressed.length < body.length) {
+                            variants[coding.ordinal()] = new CompressedBody(coding, compressed);
+                        }
+                    }
+                }
+            }
+            this.assets.put(asset.getKey(), variants);
+            int kept = kept(variants);
+            if (negotiators[kept] == null) {
+                negotiators[kept] = negotiator(variants);
+            }
+        }
+    }
+
+    /**
+     * @param path           asset path as given at startup
+     * @param acceptEncoding raw request <b>Accept-Encoding</b>, may be null
+     * @return the best variant for the client or null when the path is unknown
+     */
+    public CompressedBody get(String path, String acceptEncoding) {
+        var variants = assets.get(path);
+        if (variants == null) {
+            return null;
+        }
+
+        if (acceptEncoding == null) {
+            return variants[ContentCoding.IDENTITY.ordinal()];
+        }
+        var negotiation = negotiators[kept(variants)].negotiate(acceptEncoding);
+        return negotiation.isAcceptable()
+                ? variants[ContentCoding.of(negotiation.getValue()).ordinal()]
+                : variants[ContentCoding.IDENTITY.ordinal()];
+    }
+
+    public boolean contains(String path) {
+        return assets.containsKey(path);
+    }
+
+    private static int kept(CompressedBody[] variants) {
+        int kept = 0;
+        for (int i = 0; i < variants.length; i++) {
+            if (variants[i] != null) {
+                kept |= 1 << i;
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * @return a negotiator offering the kept codings, in the order of {@link ContentCoding}, identity last
+     */
+    private static ContentNegotiator negotiator(CompressedBody[] variants) {
+        var offered = new ArrayList<String>(variants.length);
+        for (var variant : variants) {
+            if (variant != null) {
+                offered.add(variant.getCoding().getToken());
+            }
+        }
+        return ContentNegotiator.of(ContentNegotiator.Type.ENCODING, offered);
+    }
+}
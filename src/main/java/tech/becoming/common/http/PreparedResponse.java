@@ -0,0 +1,84 @@
+package tech.becoming.common.http;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.function.BiConsumer;
+
+import static tech.becoming.common.constants.HttpHeader.CONTENT_TYPE;
+
+/**
+ * A response that is serialized once and then written as is, e.g. a 429 with its <b>Retry-After</b>.
+ * <br>
+ * Error responses have a small JSON body with the status and its name, encoded to bytes when the response is created.
+ */
+@Getter
+public class PreparedResponse {
+
+    public static final String JSON = "application/json";
+
+    private final int status;
+
+    @Getter(AccessLevel.NONE)
+    private final String[] headers;
+
+    private final byte[] body;
+
+    private PreparedResponse(int status, String[] headers, byte[] body) {
+        this.status = status;
+        this.headers = headers;
+        this.body = body;
+    }
+
+    /**
+     * @param status  the http status code
+     * @param error   the status name, from {@link tech.becoming.common.constants.HttpStatusName}
+     * @param headers extra header name / value pairs
+     */
+    public static PreparedResponse of(int status, String error, String... headers) {
+        if (headers.length % 2 != 0) {
+            throw new IllegalArgumentException("Headers must be name / value pairs");
+        }
+        var all = new String[headers.length + 2];
+        all[0] = CONTENT_TYPE;
+        all[1] = JSON;
+        System.arraycopy(headers, 0, all, 2, headers.length);
+
+        var body = "{\"status\":" + status + ",\"error\":\"" + error + "\"}";
+        return new PreparedResponse(status, all, body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * A response with any body, e.g. one recorded to be replayed.
+     *
+     * @param headers header name / value pairs, the <b>Content-Type</b> included
+     */
+    public static PreparedResponse of(int status, byte[] body, String... headers) {
+        if (headers.length % 2 != 0) {
+            throw new IllegalArgumentException("Headers must be name / value pairs");
+        }
+        return new PreparedResponse(status, headers.clone(), body);
+    }
+
+    public int headerCount() {
+        return headers.length / 2;
+    }
+
+    public String headerName(int index) {
+        return headers[index * 2];
+    }
+
+    public String headerValue(int index) {
+        return headers[index * 2 + 1];
+    }
+
+    /**
+     * Hands every header to the consumer, typically <b>response::setHeader</b>.
+     */
+    public void forEachHeader(BiConsumer<String, String> consumer) {
+        for (int i = 0; i < headers.length; i += 2) {
+            consumer.accept(headers[i], headers[i + 1]);
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package tech.becoming.common.http;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.function.Function;
+
+import static tech.becoming.common.constants.HttpHeader.AUTHORIZATION;
+import static tech.becoming.common.constants.HttpHeader.COOKIE;
+import static tech.becoming.common.constants.HttpHeader.PROXY_AUTHORIZATION;
+
+/**
+ * Identity of a request for coalescing and caching: the method, the normalized URI and the request headers
+ * the response varies on.
+ * <br><br>
+ * The URI is normalized so that equivalent spellings share a key: the scheme and host are lower-cased,
+ * the default port, the fragment and the dot segments are removed, percent-encodings are upper-cased and
+ * unreserved characters decoded, and the query parameters are sorted by their normalized name, keeping the order of
+ * repeated ones.
+ * <br><br>
+ * Credentials are not part of the key unless listed in the vary headers: two users asking for the same URI get the
+ * same key. Check {@link #hasCredentials(Function)} before sharing a response between requests.
+ * <pre>{@code
+ * RequestKey.of(GET, "HTTP://Example.com:80/a/./b?y=2&x=1", headers::get, ACCEPT, ACCEPT_ENCODING)
+ * // GET http://example.com/a/b?x=1&y=2
+ * // accept:application/json
+ * // accept-encoding:gzip
+ * }</pre>
+ */
+public final class RequestKey {
+
+    private static final Comparator<String> BY_NAME = Comparator.comparing(RequestKey::parameterName);
+
+    private RequestKey() {
+    }
+
+    /**
+     * @param headers    reads a request header by name, returns null when absent
+     * @param varyHeaders the headers the response varies on, as listed in its <b>Vary</b>
+     */
+    public static String of(String method, String uri, Function<String, String> headers, String... varyHeaders) {
+        var key = new StringBuilder(method.length() + uri.length() + 32 * varyHeaders.length);
+        key.append(method).append(' ').append(normalizeUri(uri));
+        for (var name : varyHeaders) {
+            var value = headers.apply(name);
+            key.append('\n').append(name.toLowerCase(Locale.ROOT)).append(':');
+            if (value != null) {
+                key.append(value.trim());
+            }
+        }
+        return key.toString();
+    }
+
+    /**
+     * @return true when the request carries <b>Authorization</b>, <b>Proxy-Authorization</b> or <b>Cookie</b>, its
+     * response may then be personal
+     */
+    public static boolean hasCredentials(Function<String, String> headers) {
+        return headers.apply(AUTHORIZATION) != null
+                || headers.apply(COOKIE) != null
+                || headers.apply(PROXY_AUTHORIZATION) != null;
+    }
+
+    public static String normalizeUri(String uri) {
+        int end = uri.indexOf('#');
+        if (end < 0) {
+            end = uri.length();
+        }
+        var out = new StringBuilder(end);
+
+        int pathStart = 0;
+        int schemeEnd = uri.indexOf("://");
+        if (schemeEnd > 0 && schemeEnd < end) {
+            var scheme = uri.substring(0, schemeEnd).toLowerCase(Locale.ROOT);
+            int authorityEnd = firstOf(uri, schemeEnd + 3, end, "/?");
+            var authority = uri.substring(schemeEnd + 3, authorityEnd).toLowerCase(Locale.ROOT);
+            if (scheme.equals("http") && authority.endsWith(":80")) {
+                authority = authority.substring(0, authority.length() - 3);
+            } else if (scheme.equals("https") && authority.endsWith(":443")) {
+                authority = authority.substring(0, authority.length() - 4);
+            }
+            out.append(scheme).append("://").append(authority);
+            pathStart = authorityEnd;
+        }
+
+        int queryStart = firstOf(uri, pathStart, end, "?");
+        if (queryStart == pathStart) {
+            out.append('/');
+        } else {
+            appendPath(out, uri, pathStart, queryStart);
+        }
+
+        if (queryStart < end - 1) {
+            out.append('?');
+            appendQuery(out, uri.substring(queryStart + 1, end));
+        }
+        return out.toString();
+    }
+
+    private static void appendPath(StringBuilder out, String uri, int from, int to) {
+        var path = new StringBuilder(to - from);
+        appendEncoded(path, uri, from, to);
+        if (path.indexOf("/.") < 0) {
+            out.append(path);
+            return;
+        }
+
+        boolean absolute = path.charAt(0) == '/';
+        var parts = path.toString().split("/", -1);
+        var segments = new ArrayList<String>(parts.length);
+        for (int i = absolute ? 1 : 0; i < parts.length; i++) {
+            boolean last = i == parts.length - 1;
+            if (parts[i].equals("..")) {
+                if (!segments.isEmpty()) {
+                    segments.remove(segments.size() - 1);
+                }
+            } else if (!parts[i].equals(".")) {
+                segments.add(parts[i]);
+                continue;
+            }
+            if (last) {
+                // "/a/b/.." is the directory "/a/"
+                segments.add("");
+            }
+        }
+        if (absolute) {
+            out.append('/');
+        }
+        out.append(String.join("/", segments));
+    }
+
+    private static void appendQuery(StringBuilder out, String query) {
+        // normalized before sorting, so that %61=1 sorts as a=1
+        var parameters = Arrays.stream(query.split("&"))
+                .filter(parameter -> !parameter.isEmpty())
+                .map(RequestKey::normalizeParameter)
+                .sorted(BY_NAME)
+                .toArray(String[]::new);
+        out.append(String.join("&", parameters));
+    }
+
+    private static String normalizeParameter(String parameter) {
+        var out = new StringBuilder(parameter.length());
+        appendEncoded(out, parameter, 0, parameter.length());
+        return out.toString();
+    }
+
+    /**
+     * Upper-cases the percent-encodings and decodes the unreserved characters.
+     */
+    private static void appendEncoded(StringBuilder out, String s, int from, int to) {
+        for (int i = from; i < to; i++) {
+            char c = s.charAt(i);
+            if (c == '%' && i + 2 < to && isHex(s.charAt(i + 1)) && isHex(s.charAt(i + 2))) {
+                char decoded = (char) (Character.digit(s.charAt(i + 1), 16) << 4 | Character.digit(s.charAt(i + 2), 16));
+                if (isUnreserved(decoded)) {
+                    out.append(decoded);
+                } else {
+                    out.append('%')
+                            .append(Character.toUpperCase(s.charAt(i + 1)))
+                            .append(Character.toUpperCase(s.charAt(i + 2)));
+                }
+                i += 2;
+            } else {
+                out.append(c);
+            }
+        }
+    }
+
+    private static String parameterName(String parameter) {
+        int equals = parameter.indexOf('=');
+        return equals < 0 ? parameter : parameter.substring(0, equals);
+    }
+
+    private static int firstOf(String s, int from, int to, String chars) {
+        for (int i = from; i < to; i++) {
+            if (chars.indexOf(s.charAt(i)) >= 0) {
+                return i;
+            }
+        }
+        return to;
+    }
+
+    private static boolean isHex(char c) {
+        return c >= '0' && c <= '9' || c >= 'a' && c <= 'f' || c >= 'A' && c <= 'F';
+    }
+
+    private static boolean isUnreserved(char c) {
+        return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9'
+                || c == '-' || c == '.' || c == '_' || c == '~';
+    }
+}
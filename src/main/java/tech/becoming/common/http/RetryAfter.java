@@ -0,0 +1,56 @@
+package tech.becoming.common.http;
+
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Reads the <b>Retry-After</b> header of a 429 or 503 response, in both of its forms.
+ * <pre>{@code
+ * Retry-After: 120
+ * Retry-After: Wed, 21 Oct 2015 07:28:00 GMT
+ * }</pre>
+ */
+public final class RetryAfter {
+
+    public static final long ABSENT = -1;
+
+    private RetryAfter() {
+    }
+
+    /**
+     * @return the delay in milliseconds, 0 for a date in the past, or {@link #ABSENT} when the value is missing or invalid
+     */
+    public static long toMillis(String header) {
+        return toMillis(header, System.currentTimeMillis());
+    }
+
+    /**
+     * @param nowMillis current time the http-date form is compared to
+     */
+    public static long toMillis(String header, long nowMillis) {
+        if (header == null) {
+            return ABSENT;
+        }
+        int from = HeaderValues.skipWhitespace(header, 0, header.length());
+        int to = HeaderValues.trimEnd(header, from, header.length());
+        if (from == to) {
+            return ABSENT;
+        }
+
+        // delta-seconds is the common form and is parsed without allocating
+        if (header.charAt(from) >= '0' && header.charAt(from) <= '9') {
+            long seconds = HeaderValues.parseLong(header, from, to);
+            return seconds < 0 || seconds > Long.MAX_VALUE / 1000 ? ABSENT : seconds * 1000;
+        }
+
+        try {
+            long at = ZonedDateTime.parse(header.substring(from, to), DateTimeFormatter.RFC_1123_DATE_TIME)
+                    .toInstant()
+                    .toEpochMilli();
+            return Math.max(0, at - nowMillis);
+        } catch (DateTimeParseException e) {
+            return ABSENT;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package tech.becoming.common.http;
+
+import static tech.becoming.common.constants.HttpHeader.RETRY_AFTER;
+
+/**
+ * Prepared responses of one status, e.g. 429 or 503, for each <b>Retry-After</b> delay in seconds.
+ * <br>
+ * Delays up to the cached maximum are served from an array built upfront, longer ones are prepared on demand.
+ */
+public class RetryAfterResponses {
+
+    public static final int DEFAULT_CACHED_SECONDS = 300;
+
+    private final int status;
+    private final String error;
+    private final PreparedResponse[] responses;
+
+    public RetryAfterResponses(int status, String error) {
+        this(status, error, DEFAULT_CACHED_SECONDS);
+    }
+
+    public RetryAfterResponses(int status, String error, int cachedSeconds) {
+        this.status = status;
+        this.error = error;
+        this.responses = new PreparedResponse[cachedSeconds + 1];
+        for (int seconds = 0; seconds <= cachedSeconds; seconds++) {
+            responses[seconds] = PreparedResponse.of(status, error, RETRY_AFTER, String.valueOf(seconds));
+        }
+    }
+
+    public PreparedResponse get(long seconds) {
+        if (seconds < 0) {
+            seconds = 0;
+        }
+        return seconds < responses.length
+                ? responses[(int) seconds]
+                : PreparedResponse.of(status, error, RETRY_AFTER, String.valueOf(seconds));
+    }
+
+    /**
+     * Rounds up, a client told to retry after 0 seconds while the limit still holds would be rejected again.
+     */
+    public PreparedResponse forMillis(long millis) {
+        return get((millis + 999) / 1000);
+    }
+}
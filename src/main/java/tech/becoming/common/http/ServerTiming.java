@@ -0,0 +1,179 @@
+package tech.becoming.common.http;
+
+import tech.becoming.common.metrics.RouteMetrics;
+
+import java.util.Map;
+
+import static tech.becoming.common.constants.HttpHeader.SERVER_TIMING;
+
+/**
+ * Durations of the phases of a request, e.g. parse, auth, handler, serialize, sent in the <b>Server-Timing</b>
+ * header, shown by the browser devtools, and recorded in {@link RouteMetrics}.
+ * <br><br>
+ * Spans are stored in a {@code long[]} allocated once, the start and the duration of each, measured with
+ * {@link System#nanoTime()}. Names are not copied, they should be constants and valid header tokens. Spans past the
+ * capacity are ignored, an instance can be reused after {@link #reset()}, e.g. one per thread.
+ * <pre>{@code
+ * var timing = ServerTiming.of(8);
+ * int auth = timing.start("auth");
+ * ...
+ * timing.stop(auth);
+ *
+ * response.setHeader(SERVER_TIMING, timing.toHeaderValue()); // auth;dur=1.204, handler;dur=12.5
+ * timing.recordTo(METRICS.route("/users/{id}"));
+ * }</pre>
+ * When the body is streamed with {@link ChunkedEncoder}, the header can be sent as a trailer with
+ * {@link #trailers()}, announced with {@code ChunkedEncoder.trailerHeader(SERVER_TIMING)}.
+ * <br><br>
+ * Instances are not thread safe, there is one per request.
+ */
+public final class ServerTiming {
+
+    public static final int DEFAULT_CAPACITY = 16;
+
+    private static final long NOT_STOPPED = -1;
+    private static final long NANOS_PER_MICRO = 1_000;
+
+    private final String[] names;
+    // per span: start, duration
+    private final long[] slab;
+    private int size;
+
+    private ServerTiming(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Expected a positive capacity");
+        }
+        this.names = new String[capacity];
+        this.slab = new long[capacity * 2];
+    }
+
+    public static ServerTiming of() {
+        return new ServerTiming(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity maximum number of spans
+     */
+    public static ServerTiming of(int capacity) {
+        return new ServerTiming(capacity);
+    }
+
+    /**
+     * @return the span, to pass to {@link #stop(int)}, or -1 when the capacity is reached
+     */
+    public int start(String name) {
+        if (size == names.length) {
+            return -1;
+        }
+        int span = size++;
+        names[span] = name;
+        slab[span * 2] = System.nanoTime();
+        slab[span * 2 + 1] = NOT_STOPPED;
+        return span;
+    }
+
+    /**
+     * Ends the span, a span that was not started or already stopped is ignored.
+     */
+    public void stop(int span) {
+        if (span >= 0 && span < size && slab[span * 2 + 1] == NOT_STOPPED) {
+            slab[span * 2 + 1] = System.nanoTime() - slab[span * 2];
+        }
+    }
+
+    /**
+     * Adds a span measured elsewhere, e.g. the time spent queued before the request was handled.
+     */
+    public void record(String name, long nanos) {
+        if (size == names.length) {
+            return;
+        }
+        int span = size++;
+        names[span] = name;
+        slab[span * 2] = 0;
+        slab[span * 2 + 1] = Math.max(0, nanos);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the duration of the span, or -1 when it is not stopped
+     */
+    public long duration(int span) {
+        return span >= 0 && span < size ? slab[span * 2 + 1] : NOT_STOPPED;
+    }
+
+    public void reset() {
+        for (int i = 0; i < size; i++) {
+            names[i] = null;
+        }
+        size = 0;
+    }
+
+    /**
+     * Writes the stopped spans, durations in milliseconds with up to 3 decimals, e.g. {@code db;dur=53.021, app;dur=4}
+     */
+    public StringBuilder appendTo(StringBuilder out) {
+        boolean first = true;
+        for (int i = 0; i < size; i++) {
+            long nanos = slab[i * 2 + 1];
+            if (nanos == NOT_STOPPED) {
+                continue;
+            }
+            if (!first) {
+                out.append(", ");
+            }
+            first = false;
+            out.append(names[i]).append(";dur=");
+            appendMillis(out, nanos);
+        }
+        return out;
+    }
+
+    public String toHeaderValue() {
+        return appendTo(new StringBuilder(size * 24)).toString();
+    }
+
+    /**
+     * @return the <b>Server-Timing</b> trailer, for {@link ChunkedEncoder#finish(Map)}, empty without stopped spans
+     */
+    public Map<String, String> trailers() {
+        var value = toHeaderValue();
+        return value.isEmpty() ? Map.of() : Map.of(SERVER_TIMING, value);
+    }
+
+    /**
+     * Records the duration of each stopped span as a phase of the route.
+     */
+    public void recordTo(RouteMetrics metrics) {
+        for (int i = 0; i < size; i++) {
+            long nanos = slab[i * 2 + 1];
+            if (nanos != NOT_STOPPED) {
+                metrics.recordPhase(names[i], nanos);
+            }
+        }
+    }
+
+    private static void appendMillis(StringBuilder out, long nanos) {
+        long micros = (nanos + NANOS_PER_MICRO / 2) / NANOS_PER_MICRO;
+        out.append(micros / 1000);
+        int fraction = (int) (micros % 1000);
+        if (fraction == 0) {
+            return;
+        }
+        out.append('.');
+        if (fraction < 100) {
+            out.append('0');
+        }
+        if (fraction < 10) {
+            out.append('0');
+        }
+        // trailing zeros are dropped, 1.250 is 1.25
+        while (fraction % 10 == 0) {
+            fraction /= 10;
+        }
+        out.append(fraction);
+    }
+}
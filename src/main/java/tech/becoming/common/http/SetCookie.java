@@ -0,0 +1,168 @@
+package tech.becoming.common.http;
+
+import lombok.AccessLevel;
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * A <b>Set-Cookie</b> definition whose attribute part is encoded once, when the definition is built.
+ * <br><br>
+ * Definitions are meant to be built at startup and shared, writing a header only appends the name, the value
+ * and the pre-encoded attributes. <b>Expires</b> is not supported since it would be fixed at build time,
+ * <b>Max-Age</b> takes precedence over it in every current user agent.
+ * <pre>{@code
+ * static final SetCookie SESSION = SetCookie.builder()
+ *         .name("SESSION").path("/").maxAge(1800L)
+ *         .secure(true).httpOnly(true).sameSite(SetCookie.SameSite.LAX)
+ *         .build();
+ *
+ * response.addHeader(SET_COOKIE, SESSION.format(sessionId));
+ * }</pre>
+ *
+ * @see <a href="https://developer.mozilla.org/en-US/docs/Web/HTTP/Headers/Set-Cookie">Set-Cookie</a>
+ */
+@Getter
+public class SetCookie {
+
+    public static final String SECURE = "; Secure";
+    public static final String HTTP_ONLY = "; HttpOnly";
+    public static final long SESSION = -1;
+
+    /**
+     * Values of the <b>SameSite</b> attribute, with their encoded fragment.
+     */
+    @Getter
+    public enum SameSite {
+        STRICT("; SameSite=Strict"),
+        LAX("; SameSite=Lax"),
+        NONE("; SameSite=None");
+
+        private final String fragment;
+
+        SameSite(String fragment) {
+            this.fragment = fragment;
+        }
+    }
+
+    private final String name;
+    private final String domain;
+    private final String path;
+    private final long maxAge;
+    private final boolean secure;
+    private final boolean httpOnly;
+    private final SameSite sameSite;
+
+    @Getter(AccessLevel.NONE)
+    private final String prefix;
+
+    @Getter(AccessLevel.NONE)
+    private final String attributes;
+
+    /**
+     * @param maxAge seconds until the cookie expires, 0 removes it, {@link #SESSION} (the default) for a session cookie
+     */
+    @Builder
+    private SetCookie(String name, String domain, String path, Long maxAge, boolean secure, boolean httpOnly, SameSite sameSite) {
+        if (name == null || name.isEmpty() || !HeaderValues.isToken(name)) {
+            throw new IllegalArgumentException("Invalid cookie name: " + name);
+        }
+        if (domain != null && !isAttributeValue(domain)) {
+            throw new IllegalArgumentException("Invalid cookie domain: " + domain);
+        }
+        if (path != null && !isAttributeValue(path)) {
+            throw new IllegalArgumentException("Invalid cookie path: " + path);
+        }
+        if (sameSite == SameSite.NONE && !secure) {
+            throw new IllegalArgumentException("SameSite=None requires the Secure attribute");
+        }
+
+        this.name = name;
+        this.domain = domain;
+        this.path = path;
+        this.maxAge = maxAge == null ? SESSION : maxAge;
+        this.secure = secure;
+        this.httpOnly = httpOnly;
+        this.sameSite = sameSite;
+        this.prefix = name + "=";
+
+        var b = new StringBuilder();
+        if (this.maxAge != SESSION) {
+            b.append("; Max-Age=").append(this.maxAge);
+        }
+        if (domain != null) {
+            b.append("; Domain=").append(domain);
+        }
+        if (path != null) {
+            b.append("; Path=").append(path);
+        }
+        if (secure) {
+            b.append(SECURE);
+        }
+        if (httpOnly) {
+            b.append(HTTP_ONLY);
+        }
+        if (sameSite != null) {
+            b.append(sameSite.getFragment());
+        }
+        this.attributes = b.toString();
+    }
+
+    /**
+     * @return the <b>Set-Cookie</b> header value for this cookie with the given value
+     * @throws IllegalArgumentException when the value contains characters not allowed in a cookie value
+     */
+    public String format(String value) {
+        return appendTo(new StringBuilder(prefix.length() + value.length() + attributes.length()), value).toString();
+    }
+
+    public StringBuilder appendTo(StringBuilder b, String value) {
+        if (!isCookieValue(value)) {
+            throw new IllegalArgumentException("Invalid value for cookie " + name);
+        }
+        return b.append(prefix).append(value).append(attributes);
+    }
+
+    /**
+     * @return the <b>Set-Cookie</b> header value that removes this cookie from the user agent
+     */
+    public String expire() {
+        return toBuilder().maxAge(0L).build().format("");
+    }
+
+    public SetCookieBuilder toBuilder() {
+        return builder()
+                .name(name)
+                .domain(domain)
+                .path(path)
+                .maxAge(maxAge)
+                .secure(secure)
+                .httpOnly(httpOnly)
+                .sameSite(sameSite);
+    }
+
+    /**
+     * An attribute value is written as is, a ';' would add an attribute and a CR or LF split the header.
+     */
+    private static boolean isAttributeValue(String s) {
+        if (s.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < ' ' || c >= 0x7f || c == ';') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isCookieValue(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c <= ' ' || c >= 0x7f || c == '"' || c == ',' || c == ';' || c == '\\') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
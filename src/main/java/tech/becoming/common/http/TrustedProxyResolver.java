@@ -0,0 +1,276 @@
+package tech.becoming.common.http;
+
+import java.util.function.Function;
+
+import static tech.becoming.common.constants.HttpHeader.FORWARDED;
+import static tech.becoming.common.constants.HttpHeader.VIA;
+import static tech.becoming.common.constants.HttpHeader.X_FORWARDED_FOR;
+import static tech.becoming.common.constants.HttpHeader.X_FORWARDED_HOST;
+import static tech.becoming.common.constants.HttpHeader.X_FORWARDED_PROTO;
+import static tech.becoming.common.http.HeaderValues.indexOf;
+import static tech.becoming.common.http.HeaderValues.indexOfUnquoted;
+import static tech.becoming.common.http.HeaderValues.regionEquals;
+import static tech.becoming.common.http.HeaderValues.skipWhitespace;
+import static tech.becoming.common.http.HeaderValues.trimEnd;
+
+/**
+ * Finds the real client of a request that went through reverse proxies.
+ * <br><br>
+ * Forwarding headers are only believed when the direct peer is a trusted proxy. The hops of <b>Forwarded</b>,
+ * or of <b>X-Forwarded-For</b> when there is no <b>Forwarded</b>, are then walked from right to left and the
+ * first address that is not a trusted proxy is the client. Trusted proxies are CIDR blocks kept in a {@link CidrTrie},
+ * addresses are parsed in place, no name is ever resolved. <b>Forwarded</b> is split on the separators outside of
+ * quoted-strings only, as a quoted value such as <b>host="a,b"</b> may contain them.
+ * <pre>{@code
+ * static final TrustedProxyResolver PROXIES = TrustedProxyResolver.of("10.0.0.0/8", "fd00::/8");
+ *
+ * var client = PROXIES.resolve(request.getRemoteAddr(), request::getHeader);
+ * }</pre>
+ *
+ * @see <a href="https://developer.mozilla.org/en-US/docs/Web/HTTP/Headers/Forwarded">Forwarded</a>
+ */
+public class TrustedProxyResolver {
+
+    private static final String FOR = "for";
+    private static final String PROTO = "proto";
+    private static final String HOST = "host";
+    private static final long NOT_FOUND = -1;
+
+    private final CidrTrie trusted;
+
+    public TrustedProxyResolver(CidrTrie trusted) {
+        this.trusted = trusted;
+    }
+
+    /**
+     * @param cidrs trusted proxy blocks such as <b>10.0.0.0/8</b>, <b>192.168.1.10</b> or <b>fd00::/8</b>
+     */
+    public static TrustedProxyResolver of(String... cidrs) {
+        var trie = new CidrTrie();
+        for (var cidr : cidrs) {
+            trie.add(cidr);
+        }
+        return new TrustedProxyResolver(trie);
+    }
+
+    public boolean isTrusted(CharSequence address) {
+        return trusted.contains(address);
+    }
+
+    /**
+     * @param remoteAddress address of the direct peer of the connection, null when unknown (e.g. a Unix domain
+     *                      socket), an unknown peer is never trusted
+     * @param headers       request header lookup by name, e.g. <b>request::getHeader</b>
+     */
+    public ClientAddress resolve(String remoteAddress, Function<String, String> headers) {
+        int via = countElements(headers.apply(VIA));
+        if (!trusted.contains(remoteAddress)) {
+            return new ClientAddress(remoteAddress, null, null, 0, via);
+        }
+
+        var forwarded = headers.apply(FORWARDED);
+        if (forwarded != null && !forwarded.isEmpty()) {
+            return fromForwarded(remoteAddress, forwarded, via);
+        }
+
+        var forwardedFor = headers.apply(X_FORWARDED_FOR);
+        if (forwardedFor != null && !forwardedFor.isEmpty()) {
+            return fromForwardedFor(remoteAddress, forwardedFor,
+                    headers.apply(X_FORWARDED_PROTO), headers.apply(X_FORWARDED_HOST), via);
+        }
+
+        return new ClientAddress(remoteAddress, null, null, 1, via);
+    }
+
+    private ClientAddress fromForwarded(String remoteAddress, String forwarded, int via) {
+        int hops = 1;
+        int end = forwarded.length();
+        int elementStart = 0;
+        int elementEnd = end;
+        long client = NOT_FOUND;
+        long lastTrusted = NOT_FOUND;
+
+        while (end > 0) {
+            elementStart = lastIndexOfUnquoted(forwarded, ',', end) + 1;
+            elementEnd = end;
+            client = unquote(forwarded, param(forwarded, elementStart, elementEnd, FOR));
+            if (client == NOT_FOUND || !isTrusted(forwarded, client)) {
+                break;
+            }
+            lastTrusted = client;
+            hops++;
+            end = elementStart - 1;
+        }
+
+        return new ClientAddress(address(remoteAddress, forwarded, client, lastTrusted),
+                value(forwarded, param(forwarded, elementStart, elementEnd, PROTO)),
+                value(forwarded, param(forwarded, elementStart, elementEnd, HOST)),
+                hops, via);
+    }
+
+    private ClientAddress fromForwardedFor(String remoteAddress, String forwardedFor, String proto, String host, int via) {
+        int hops = 1;
+        int end = forwardedFor.length();
+        long client = NOT_FOUND;
+        long lastTrusted = NOT_FOUND;
+
+        while (end > 0) {
+            int start = lastIndexOf(forwardedFor, ',', end) + 1;
+            int from = skipWhitespace(forwardedFor, start, end);
+            int to = trimEnd(forwardedFor, from, end);
+            client = from == to ? NOT_FOUND : (long) from << 32 | to;
+            if (client == NOT_FOUND || !isTrusted(forwardedFor, client)) {
+                break;
+            }
+            lastTrusted = client;
+            hops++;
+            end = start - 1;
+        }
+
+        // the matching X-Forwarded-Proto and X-Forwarded-Host entries sit at the same distance from the right
+        int index = hops - 1;
+        return new ClientAddress(
+                address(remoteAddress, forwardedFor, client, lastTrusted),
+                elementFromRight(proto, index),
+                elementFromRight(host, index),
+                hops, via);
+    }
+
+    /**
+     * The client hop, or the closest trusted hop when the client hop carries no address.
+     */
+    private static String address(String remoteAddress, String s, long client, long lastTrusted) {
+        if (client != NOT_FOUND) {
+            return hostPart(s, client);
+        }
+        return lastTrusted != NOT_FOUND ? hostPart(s, lastTrusted) : remoteAddress;
+    }
+
+    private boolean isTrusted(String s, long bounds) {
+        long host = hostBounds(s, bounds);
+        return trusted.contains(s, (int) (host >>> 32), (int) host);
+    }
+
+    /**
+     * Strips brackets and port from <b>[2001:db8::1]:4711</b> or <b>192.0.2.43:47011</b>.
+     */
+    private static long hostBounds(String s, long bounds) {
+        int from = (int) (bounds >>> 32);
+        int to = (int) bounds;
+        if (from < to && s.charAt(from) == '[') {
+            int close = indexOf(s, ']', from, to);
+            return (long) (from + 1) << 32 | close;
+        }
+        int colon = indexOf(s, ':', from, to);
+        if (colon < to && indexOf(s, ':', colon + 1, to) == to) {
+            return (long) from << 32 | colon;
+        }
+        return bounds;
+    }
+
+    private static String hostPart(String s, long bounds) {
+        long host = hostBounds(s, bounds);
+        return s.substring((int) (host >>> 32), (int) host);
+    }
+
+    /**
+     * @return the bounds of the named parameter value within the element, packed as start &lt;&lt; 32 | end
+     */
+    private static long param(String s, int from, int to, String name) {
+        while (from < to) {
+            int end = indexOfUnquoted(s, ';', from, to);
+            int nameStart = skipWhitespace(s, from, end);
+            int equals = indexOf(s, '=', nameStart, end);
+            if (equals < end && regionEquals(s, nameStart, trimEnd(s, nameStart, equals), name)) {
+                int valueStart = skipWhitespace(s, equals + 1, end);
+                return (long) valueStart << 32 | trimEnd(s, valueStart, end);
+            }
+            from = end + 1;
+        }
+        return NOT_FOUND;
+    }
+
+    private static long unquote(String s, long bounds) {
+        if (bounds == NOT_FOUND) {
+            return NOT_FOUND;
+        }
+        int from = (int) (bounds >>> 32);
+        int to = (int) bounds;
+        if (to - from >= 2 && s.charAt(from) == '"' && s.charAt(to - 1) == '"') {
+            return (long) (from + 1) << 32 | (to - 1);
+        }
+        return bounds;
+    }
+
+    private static String value(String s, long bounds) {
+        long unquoted = unquote(s, bounds);
+        if (unquoted == NOT_FOUND) {
+            return null;
+        }
+        int from = (int) (unquoted >>> 32);
+        int to = (int) unquoted;
+        if (unquoted == bounds || indexOf(s, '\\', from, to) == to) {
+            return s.substring(from, to);
+        }
+        // quoted-pairs, a backslash escapes the next character
+        var value = new StringBuilder(to - from);
+        for (int i = from; i < to; i++) {
+            char c = s.charAt(i);
+            if (c == '\\' && i + 1 < to) {
+                c = s.charAt(++i);
+            }
+            value.append(c);
+        }
+        return value.toString();
+    }
+
+    /**
+     * @return the entry at the index counted from the right, or the leftmost one when the list is shorter
+     */
+    private static String elementFromRight(String s, int index) {
+        if (s == null || s.isEmpty()) {
+            return null;
+        }
+        int end = s.length();
+        int start = lastIndexOf(s, ',', end) + 1;
+        for (int i = 0; i < index && start > 0; i++) {
+            end = start - 1;
+            start = lastIndexOf(s, ',', end) + 1;
+        }
+        int from = skipWhitespace(s, start, end);
+        return s.substring(from, trimEnd(s, from, end));
+    }
+
+    private static int lastIndexOf(String s, char c, int before) {
+        for (int i = before - 1; i >= 0; i--) {
+            if (s.charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the last separator before the index that is outside of a quoted-string, or -1
+     */
+    private static int lastIndexOfUnquoted(String s, char c, int before) {
+        int last = -1;
+        for (int i = indexOfUnquoted(s, c, 0, before); i < before; i = indexOfUnquoted(s, c, i + 1, before)) {
+            last = i;
+        }
+        return last;
+    }
+
+    private static int countElements(String s) {
+        if (s == null || s.isEmpty()) {
+            return 0;
+        }
+        int count = 1;
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) == ',') {
+                count++;
+            }
+        }
+        return count;
+    }
+}
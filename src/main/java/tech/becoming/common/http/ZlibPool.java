@@ -0,0 +1,136 @@
+package tech.becoming.common.http;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Bounded pool of {@link Deflater} and {@link Inflater} instances and chunk buffers, shared by the threads of a
+ * {@link CompressionStage}.
+ * <br>
+ * Each of them holds a native zlib stream that is expensive to create and is only released by
+ * <b>end()</b>, so they are reset and reused instead of created per body. At most {@code maxIdle} instances of each
+ * kind are kept: one given back to a full pool, or after {@link #close()}, is ended right away, so the native memory
+ * doesn't grow with the number of threads.
+ */
+final class ZlibPool implements AutoCloseable {
+
+    private final int level;
+    private final int chunkSize;
+
+    private final Idle<Deflater> rawDeflaters;
+    private final Idle<Deflater> zlibDeflaters;
+    private final Idle<Inflater> rawInflaters;
+    private final Idle<Inflater> zlibInflaters;
+    private final Idle<byte[]> buffers;
+    private volatile boolean closed;
+
+    ZlibPool(int level, int chunkSize, int maxIdle) {
+        if (maxIdle <= 0) {
+            throw new IllegalArgumentException("Expected a positive number of idle instances");
+        }
+        this.level = level;
+        this.chunkSize = chunkSize;
+        this.rawDeflaters = new Idle<>(maxIdle, () -> new Deflater(level, true), Deflater::end);
+        this.zlibDeflaters = new Idle<>(maxIdle, () -> new Deflater(level, false), Deflater::end);
+        this.rawInflaters = new Idle<>(maxIdle, () -> new Inflater(true), Inflater::end);
+        this.zlibInflaters = new Idle<>(maxIdle, Inflater::new, Inflater::end);
+        // two buffers per compression, input and output
+        this.buffers = new Idle<>(maxIdle * 2, () -> new byte[chunkSize], buffer -> {
+        });
+    }
+
+    /**
+     * @param raw true for gzip (header and trailer written by the caller), false for zlib wrapped deflate
+     * @return a reset deflater, to give back with {@link #release(Deflater, boolean)}
+     */
+    Deflater deflater(boolean raw) {
+        var deflater = (raw ? rawDeflaters : zlibDeflaters).borrow();
+        deflater.reset();
+        return deflater;
+    }
+
+    void release(Deflater deflater, boolean raw) {
+        (raw ? rawDeflaters : zlibDeflaters).release(deflater);
+    }
+
+    Inflater inflater(boolean raw) {
+        var inflater = (raw ? rawInflaters : zlibInflaters).borrow();
+        inflater.reset();
+        return inflater;
+    }
+
+    void release(Inflater inflater, boolean raw) {
+        (raw ? rawInflaters : zlibInflaters).release(inflater);
+    }
+
+    /**
+     * @return a chunk sized scratch buffer, to give back with {@link #release(byte[])}
+     */
+    byte[] buffer() {
+        return buffers.borrow();
+    }
+
+    void release(byte[] buffer) {
+        buffers.release(buffer);
+    }
+
+    int getLevel() {
+        return level;
+    }
+
+    int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Ends the idle instances, the ones in use are ended when given back.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        rawDeflaters.clear();
+        zlibDeflaters.clear();
+        rawInflaters.clear();
+        zlibInflaters.clear();
+        buffers.clear();
+    }
+
+    private final class Idle<T> {
+
+        private final ArrayBlockingQueue<T> instances;
+        private final Supplier<T> factory;
+        private final Consumer<T> end;
+
+        Idle(int capacity, Supplier<T> factory, Consumer<T> end) {
+            this.instances = new ArrayBlockingQueue<>(capacity);
+            this.factory = factory;
+            this.end = end;
+        }
+
+        T borrow() {
+            var instance = instances.poll();
+            return instance != null ? instance : factory.get();
+        }
+
+        void release(T instance) {
+            if (closed || !instances.offer(instance)) {
+                end.accept(instance);
+                return;
+            }
+            if (closed) {
+                // closed while given back, the instance may have missed the clearing
+                clear();
+            }
+        }
+
+        void clear() {
+            T instance;
+            while ((instance = instances.poll()) != null) {
+                end.accept(instance);
+            }
+        }
+    }
+}
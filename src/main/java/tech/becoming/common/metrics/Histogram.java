@@ -0,0 +1,229 @@
+package tech.becoming.common.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histogram with log-linear buckets, like HdrHistogram: each power of two is split in 16 buckets, a value is
+ * reported with a relative error under 6.25%. Values go from 0 to 2^42 nanoseconds, about 73 minutes, larger values
+ * are counted in the last bucket.
+ * <br><br>
+ * Recording is an atomic increment of one of 624 counters: concurrent threads recording different latencies don't
+ * contend. Threads recording the same latency do, a route answering in a steady 2 ms hits the same few buckets from
+ * every core, so like a {@link LongAdder} the first failed increment allocates stripes of counters, one per core up
+ * to {@link #MAX_STRIPES}, and each thread then counts in the stripe picked by its id. Histograms never contended,
+ * most of them, keep a single set of counters.
+ */
+public final class Histogram {
+
+    static final int SUB_BITS = 4;
+    static final int SUB_COUNT = 1 << SUB_BITS;
+    static final int MAX_EXPONENT = 41;
+    static final int BUCKETS = SUB_COUNT + (MAX_EXPONENT - SUB_BITS + 1) * SUB_COUNT;
+    static final int MAX_STRIPES = 8;
+
+    private static final int STRIPES = stripes(Runtime.getRuntime().availableProcessors());
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    // null until an increment of the buckets fails
+    private final AtomicReference<AtomicLongArray[]> stripes = new AtomicReference<>();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        increment(index(value));
+        sum.add(value);
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+
+    public Snapshot snapshot() {
+        var counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets.get(i);
+        }
+        var striped = stripes.get();
+        if (striped != null) {
+            for (var stripe : striped) {
+                for (int i = 0; i < BUCKETS; i++) {
+                    counts[i] += stripe.get(i);
+                }
+            }
+        }
+        return new Snapshot(counts, sum.sum(), max.get());
+    }
+
+    /**
+     * Takes a snapshot and starts again from zero, a value recorded concurrently is in this snapshot or the next.
+     */
+    public Snapshot snapshotAndReset() {
+        var counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets.getAndSet(i, 0);
+        }
+        var striped = stripes.get();
+        if (striped != null) {
+            for (var stripe : striped) {
+                for (int i = 0; i < BUCKETS; i++) {
+                    counts[i] += stripe.getAndSet(i, 0);
+                }
+            }
+        }
+        return new Snapshot(counts, sum.sumThenReset(), max.getAndSet(0));
+    }
+
+    /**
+     * @return whether the counters were striped after a contended increment
+     */
+    boolean isStriped() {
+        return stripes.get() != null;
+    }
+
+    private void increment(int index) {
+        var striped = stripes.get();
+        if (striped != null) {
+            striped[stripe(striped.length)].incrementAndGet(index);
+            return;
+        }
+        long current = buckets.get(index);
+        if (buckets.compareAndSet(index, current, current + 1)) {
+            return;
+        }
+        if (STRIPES == 1) {
+            buckets.incrementAndGet(index);
+            return;
+        }
+        var created = new AtomicLongArray[STRIPES];
+        for (int i = 0; i < created.length; i++) {
+            created[i] = new AtomicLongArray(BUCKETS);
+        }
+        striped = stripes.compareAndSet(null, created) ? created : stripes.get();
+        striped[stripe(striped.length)].incrementAndGet(index);
+    }
+
+    /**
+     * @return the number of cores rounded up to a power of two, at most {@link #MAX_STRIPES}
+     */
+    static int stripes(int cores) {
+        return cores <= 1 ? 1 : Math.min(MAX_STRIPES, Integer.highestOneBit(cores - 1) << 1);
+    }
+
+    private static int stripe(int count) {
+        long id = Thread.currentThread().getId() * 0x9E3779B97F4A7C15L;
+        return (int) (id >>> 32) & count - 1;
+    }
+
+    static int index(long value) {
+        if (value < SUB_COUNT) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKETS - 1;
+        }
+        int sub = (int) (value >>> exponent - SUB_BITS) - SUB_COUNT;
+        return SUB_COUNT + (exponent - SUB_BITS) * SUB_COUNT + sub;
+    }
+
+    /**
+     * @return the highest value counted in the bucket
+     */
+    static long highestValue(int index) {
+        if (index < SUB_COUNT) {
+            return index;
+        }
+        int shift = (index - SUB_COUNT) / SUB_COUNT;
+        long lowest = (long) (SUB_COUNT + (index - SUB_COUNT) % SUB_COUNT) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+    /**
+     * Counts of a histogram at a point in time, can be merged with other snapshots.
+     */
+    public static final class Snapshot {
+
+        public static final Snapshot EMPTY = new Snapshot(new long[BUCKETS], 0, 0);
+
+        private final long[] counts;
+        private final long sum;
+        private final long max;
+        private final long count;
+
+        Snapshot(long[] counts, long sum, long max) {
+            this.counts = counts;
+            this.sum = sum;
+            this.max = max;
+            long total = 0;
+            for (long c : counts) {
+                total += c;
+            }
+            this.count = total;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getSum() {
+            return sum;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        public double getMean() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+
+        /**
+         * @param quantile from 0 to 1, e.g. 0.99
+         * @return the highest value of the bucket holding the quantile, capped by the max, 0 when empty
+         */
+        public long percentile(double quantile) {
+            if (quantile < 0 || quantile > 1) {
+                throw new IllegalArgumentException("Expected a quantile between 0 and 1");
+            }
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(quantile * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(highestValue(i), max);
+                }
+            }
+            return max;
+        }
+
+        public Snapshot merge(Snapshot other) {
+            if (other.count == 0) {
+                return this;
+            }
+            if (count == 0) {
+                return other;
+            }
+            var merged = counts.clone();
+            for (int i = 0; i < merged.length; i++) {
+                merged[i] += other.counts[i];
+            }
+            return new Snapshot(merged, sum + other.sum, Math.max(max, other.max));
+        }
+
+        /**
+         * @return the count of the bucket, for exporters
+         */
+        long bucket(int index) {
+            return counts[index];
+        }
+    }
+}
@@ -0,0 +1,295 @@
+package tech.becoming.common.metrics;
+
+import tech.becoming.common.constants.HttpStatusCode;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Request latencies by route, method and status, without a metrics framework. Routes are templates, e.g.
+ * {@code /users/{id}}, not raw paths: past the maximum number of routes, requests are recorded on {@link #OTHER}.
+ * <pre>{@code
+ * static final HttpMetrics METRICS = HttpMetrics.of(256);
+ *
+ * long start = System.nanoTime();
+ * ...
+ * METRICS.record("/users/{id}", method, status, System.nanoTime() - start);
+ *
+ * long p99 = METRICS.route("/users/{id}").histogram(200).percentile(0.99);
+ * }</pre>
+ * Exported as text, in the Prometheus exposition format, or in a compact binary format, see
+ * {@link #writeBinary(DataOutput, boolean)}.
+ */
+public final class HttpMetrics {
+
+    public static final String OTHER = "other";
+
+    static final int BINARY_MAGIC = 0x48545450; // HTTP
+    // 2 added the phases of each route
+    static final int BINARY_VERSION = 2;
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    private static final String[] CLASSES = {null, "1xx", "2xx", "3xx", "4xx", "5xx"};
+
+    private final int maxRoutes;
+    private final Map<String, RouteMetrics> routes = new ConcurrentHashMap<>();
+    private final RouteMetrics other = new RouteMetrics(OTHER);
+
+    private HttpMetrics(int maxRoutes) {
+        if (maxRoutes <= 0) {
+            throw new IllegalArgumentException("Expected a positive number of routes");
+        }
+        this.maxRoutes = maxRoutes;
+    }
+
+    public static HttpMetrics of(int maxRoutes) {
+        return new HttpMetrics(maxRoutes);
+    }
+
+    /**
+     * @return the metrics of the route, or of {@link #OTHER} past the maximum number of routes
+     */
+    public RouteMetrics route(String route) {
+        var metrics = routes.get(route);
+        if (metrics != null) {
+            return metrics;
+        }
+        if (routes.size() >= maxRoutes) {
+            return other;
+        }
+        return routes.computeIfAbsent(route, RouteMetrics::new);
+    }
+
+    public void record(String route, String method, int status, long nanos) {
+        route(route).record(method, status, nanos);
+    }
+
+    /**
+     * @return the series of every route, {@link #OTHER} last when it was recorded
+     */
+    public Map<String, List<RouteMetrics.Series>> snapshot(boolean reset) {
+        var snapshot = new LinkedHashMap<String, List<RouteMetrics.Series>>();
+        for (var metrics : all()) {
+            var series = metrics.snapshot(reset);
+            if (metrics != other || !series.isEmpty()) {
+                snapshot.put(metrics.getRoute(), series);
+            }
+        }
+        return snapshot;
+    }
+
+    public void reset() {
+        for (var metrics : all()) {
+            metrics.reset();
+        }
+    }
+
+    /**
+     * Writes counters, quantiles in seconds, counts by status class and the quantiles of the phases, one family after
+     * the other, each one after its {@code # TYPE} line, e.g.
+     * <pre>
+     * # TYPE http_requests_total counter
+     * http_requests_total{route="/users/{id}",method="GET",status="200"} 1027
+     * # TYPE http_request_duration_seconds summary
+     * http_request_duration_seconds{route="/users/{id}",method="GET",status="200",quantile="0.99"} 0.012582911
+     * http_request_duration_seconds_sum{route="/users/{id}",method="GET",status="200"} 3.180120005
+     * http_request_duration_seconds_count{route="/users/{id}",method="GET",status="200"} 1027
+     * # TYPE http_requests_class_total counter
+     * http_requests_class_total{route="/users/{id}",class="2xx"} 1027
+     * # TYPE http_request_phase_seconds summary
+     * http_request_phase_seconds{route="/users/{id}",phase="db",quantile="0.99"} 0.008388607
+     * # TYPE http_requests_invalid_status_total counter
+     * http_requests_invalid_status_total{route="/users/{id}"} 2
+     * </pre>
+     * A family without samples is left out, e.g. the last one unless requests were recorded with a status outside of
+     * 100 to 599. The routes are snapshot once, before writing.
+     */
+    public <A extends Appendable> A writeText(A out, boolean reset) {
+        var all = all();
+        var routes = new ArrayList<RouteSnapshot>(all.size());
+        for (var metrics : all) {
+            routes.add(new RouteSnapshot(metrics, reset));
+        }
+        try {
+            writeType(out, "http_requests_total", "counter", routes, route -> !route.series.isEmpty());
+            for (var route : routes) {
+                for (int i = 0; i < route.series.size(); i++) {
+                    out.append("http_requests_total{").append(route.labels[i]).append("} ")
+                            .append(Long.toString(route.series.get(i).getHistogram().getCount())).append('\n');
+                }
+            }
+
+            writeType(out, "http_request_duration_seconds", "summary", routes, route -> !route.series.isEmpty());
+            for (var route : routes) {
+                for (int i = 0; i < route.series.size(); i++) {
+                    writeQuantiles(out, "http_request_duration_seconds", route.labels[i],
+                            route.series.get(i).getHistogram());
+                }
+            }
+
+            writeType(out, "http_requests_class_total", "counter", routes, route -> route.requests != 0);
+            for (var route : routes) {
+                for (int c = 1; c < CLASSES.length; c++) {
+                    if (route.classes[c] != 0) {
+                        out.append("http_requests_class_total{route=\"").append(route.name)
+                                .append("\",class=\"").append(CLASSES[c]).append("\"} ")
+                                .append(Long.toString(route.classes[c])).append('\n');
+                    }
+                }
+            }
+
+            writeType(out, "http_request_phase_seconds", "summary", routes, route -> !route.phases.isEmpty());
+            for (var route : routes) {
+                for (var phase : route.phases.entrySet()) {
+                    var labels = "route=\"" + route.name + "\",phase=\"" + escape(phase.getKey()) + "\"";
+                    writeQuantiles(out, "http_request_phase_seconds", labels, phase.getValue());
+                }
+            }
+
+            writeType(out, "http_requests_invalid_status_total", "counter", routes, route -> route.invalid != 0);
+            for (var route : routes) {
+                if (route.invalid != 0) {
+                    out.append("http_requests_invalid_status_total{route=\"").append(route.name).append("\"} ")
+                            .append(Long.toString(route.invalid)).append('\n');
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out;
+    }
+
+    /**
+     * Writes the full histograms, to be merged by a collector:
+     * <pre>
+     * int magic "HTTP", byte version, int route count, then per route:
+     *   UTF route, int series count, then per series:
+     *     UTF method, short status, histogram
+     *   int phase count, then per phase:
+     *     UTF phase, histogram
+     * histogram: long sum, long max, short non empty buckets, then per bucket:
+     *   short index, long count
+     * </pre>
+     * Bucket {@code i} holds the values up to {@code Histogram.highestValue(i)}, in nanoseconds. The version is 2,
+     * version 1 had no phases.
+     */
+    public void writeBinary(DataOutput out, boolean reset) throws IOException {
+        var all = all();
+        out.writeInt(BINARY_MAGIC);
+        out.writeByte(BINARY_VERSION);
+        out.writeInt(all.size());
+        for (var metrics : all) {
+            out.writeUTF(metrics.getRoute());
+            var series = metrics.snapshot(reset);
+            out.writeInt(series.size());
+            for (var s : series) {
+                out.writeUTF(s.getMethod());
+                out.writeShort(s.getStatus());
+                writeHistogram(out, s.getHistogram());
+            }
+            var phases = metrics.phases(reset);
+            out.writeInt(phases.size());
+            for (var phase : phases.entrySet()) {
+                out.writeUTF(phase.getKey());
+                writeHistogram(out, phase.getValue());
+            }
+        }
+    }
+
+    /**
+     * @return the routes, {@link #OTHER} last
+     */
+    private List<RouteMetrics> all() {
+        var all = new ArrayList<RouteMetrics>(routes.size() + 1);
+        all.addAll(routes.values());
+        all.add(other);
+        return all;
+    }
+
+    private static void writeType(Appendable out, String name, String type, List<RouteSnapshot> routes,
+                                  Predicate<RouteSnapshot> hasSamples) throws IOException {
+        for (var route : routes) {
+            if (hasSamples.test(route)) {
+                out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+                return;
+            }
+        }
+    }
+
+    private static void writeQuantiles(Appendable out, String name, String labels, Histogram.Snapshot histogram)
+            throws IOException {
+        for (double quantile : QUANTILES) {
+            out.append(name).append('{').append(labels)
+                    .append(",quantile=\"").append(Double.toString(quantile)).append("\"} ")
+                    .append(seconds(histogram.percentile(quantile))).append('\n');
+        }
+        out.append(name).append("_sum{").append(labels).append("} ")
+                .append(seconds(histogram.getSum())).append('\n');
+        out.append(name).append("_count{").append(labels).append("} ")
+                .append(Long.toString(histogram.getCount())).append('\n');
+    }
+
+    private static void writeHistogram(DataOutput out, Histogram.Snapshot histogram) throws IOException {
+        out.writeLong(histogram.getSum());
+        out.writeLong(histogram.getMax());
+        int buckets = 0;
+        for (int i = 0; i < Histogram.BUCKETS; i++) {
+            if (histogram.bucket(i) != 0) {
+                buckets++;
+            }
+        }
+        out.writeShort(buckets);
+        for (int i = 0; i < Histogram.BUCKETS; i++) {
+            if (histogram.bucket(i) != 0) {
+                out.writeShort(i);
+                out.writeLong(histogram.bucket(i));
+            }
+        }
+    }
+
+    private static String seconds(long nanos) {
+        return Double.toString(nanos / 1e9);
+    }
+
+    private static String escape(String label) {
+        return label.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    /**
+     * The series, phases and invalid statuses of a route, read once for all the families.
+     */
+    private static final class RouteSnapshot {
+
+        final String name;
+        final List<RouteMetrics.Series> series;
+        final String[] labels;
+        final long[] classes = new long[CLASSES.length];
+        // the sum of the classes, nothing to write by class when 0
+        final long requests;
+        final Map<String, Histogram.Snapshot> phases;
+        final long invalid;
+
+        RouteSnapshot(RouteMetrics metrics, boolean reset) {
+            this.name = escape(metrics.getRoute());
+            this.series = metrics.snapshot(reset);
+            this.labels = new String[series.size()];
+            long requests = 0;
+            for (int i = 0; i < labels.length; i++) {
+                var s = series.get(i);
+                labels[i] = "route=\"" + name + "\",method=\"" + s.getMethod() + "\",status=\"" + s.getStatus() + "\"";
+                classes[HttpStatusCode.statusClass(s.getStatus())] += s.getHistogram().getCount();
+                requests += s.getHistogram().getCount();
+            }
+            this.requests = requests;
+            this.phases = metrics.phases(reset);
+            this.invalid = metrics.invalid(reset);
+        }
+    }
+}
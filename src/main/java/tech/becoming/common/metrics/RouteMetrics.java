@@ -0,0 +1,224 @@
+package tech.becoming.common.metrics;
+
+import lombok.Getter;
+import tech.becoming.common.constants.HttpMethod;
+import tech.becoming.common.constants.HttpStatusCode;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencies of a route by method and status, in a dense table indexed by {@link HttpMethod#ordinal(String)} and
+ * status code from 100 to 599. The {@link Histogram} of a method and status is allocated the first time it is
+ * recorded, a route only pays for the combinations it answers.
+ * <br><br>
+ * Counts are the counts of the histograms: recording a request is a single atomic increment, without locks.
+ * <br><br>
+ * The phases of the requests, e.g. parse, auth, handler, have their own histograms, up to {@link #MAX_PHASES} names.
+ * <br><br>
+ * A status outside of 100 to 599, e.g. from a buggy handler, is not recorded in a histogram but counted apart, see
+ * {@link #invalid()}: metrics never fail the request being measured.
+ */
+public final class RouteMetrics {
+
+    static final int METHODS = HttpMethod.values().length + 1;
+    // methods not in HttpMethod, e.g. PROPFIND
+    static final int OTHER_METHOD = METHODS - 1;
+    static final int STATUSES = HttpStatusCode.MAX - HttpStatusCode.MIN + 1;
+
+    public static final int MAX_PHASES = 32;
+
+    private static final String[] METHOD_NAMES = methodNames();
+
+    @Getter
+    private final String route;
+    private final AtomicReferenceArray<Histogram> histograms = new AtomicReferenceArray<>(METHODS * STATUSES);
+    private final Map<String, Histogram> phases = new ConcurrentHashMap<>();
+    private final LongAdder invalid = new LongAdder();
+
+    RouteMetrics(String route) {
+        this.route = route;
+    }
+
+    /**
+     * @param nanos latency, e.g. from {@link System#nanoTime()}
+     */
+    public void record(String method, int status, long nanos) {
+        record(methodIndex(method), status, nanos);
+    }
+
+    /**
+     * @param methodOrdinal {@link HttpMethod#ordinal(String)}, -1 for another method
+     */
+    public void record(int methodOrdinal, int status, long nanos) {
+        if (!HttpStatusCode.isValid(status)) {
+            invalid.increment();
+            return;
+        }
+        int index = (methodOrdinal < 0 || methodOrdinal >= OTHER_METHOD ? OTHER_METHOD : methodOrdinal) * STATUSES
+                + status - HttpStatusCode.MIN;
+        var histogram = histograms.get(index);
+        if (histogram == null) {
+            histograms.compareAndSet(index, null, new Histogram());
+            histogram = histograms.get(index);
+        }
+        histogram.record(nanos);
+    }
+
+    /**
+     * Records the duration of a phase of a request, phases past the first {@link #MAX_PHASES} names are ignored.
+     */
+    public void recordPhase(String phase, long nanos) {
+        var histogram = phases.get(phase);
+        if (histogram == null) {
+            if (phases.size() >= MAX_PHASES) {
+                return;
+            }
+            histogram = phases.computeIfAbsent(phase, name -> new Histogram());
+        }
+        histogram.record(nanos);
+    }
+
+    public Histogram.Snapshot phase(String phase) {
+        var histogram = phases.get(phase);
+        return histogram == null ? Histogram.Snapshot.EMPTY : histogram.snapshot();
+    }
+
+    /**
+     * @param reset whether the histograms start again from zero
+     * @return the durations of the phases recorded at least once, by name
+     */
+    public Map<String, Histogram.Snapshot> phases(boolean reset) {
+        var snapshot = new LinkedHashMap<String, Histogram.Snapshot>();
+        for (var phase : phases.entrySet()) {
+            var histogram = phase.getValue();
+            snapshot.put(phase.getKey(), reset ? histogram.snapshotAndReset() : histogram.snapshot());
+        }
+        return snapshot;
+    }
+
+    public Histogram.Snapshot histogram(String method, int status) {
+        if (!HttpStatusCode.isValid(status)) {
+            return Histogram.Snapshot.EMPTY;
+        }
+        var histogram = histograms.get(methodIndex(method) * STATUSES + status - HttpStatusCode.MIN);
+        return histogram == null ? Histogram.Snapshot.EMPTY : histogram.snapshot();
+    }
+
+    /**
+     * @return the latencies of the status, all methods merged
+     */
+    public Histogram.Snapshot histogram(int status) {
+        var merged = Histogram.Snapshot.EMPTY;
+        if (!HttpStatusCode.isValid(status)) {
+            return merged;
+        }
+        for (int method = 0; method < METHODS; method++) {
+            var histogram = histograms.get(method * STATUSES + status - HttpStatusCode.MIN);
+            if (histogram != null) {
+                merged = merged.merge(histogram.snapshot());
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * @param statusClass 1 to 5, see {@link HttpStatusCode#statusClass(int)}
+     * @return the latencies of the statuses of the class, e.g. 5xx, all methods merged
+     */
+    public Histogram.Snapshot histogramByClass(int statusClass) {
+        var merged = Histogram.Snapshot.EMPTY;
+        for (var series : snapshot(false)) {
+            if (HttpStatusCode.statusClass(series.getStatus()) == statusClass) {
+                merged = merged.merge(series.getHistogram());
+            }
+        }
+        return merged;
+    }
+
+    public long count(String method, int status) {
+        return histogram(method, status).getCount();
+    }
+
+    public long count(int status) {
+        return histogram(status).getCount();
+    }
+
+    public long countByClass(int statusClass) {
+        return histogramByClass(statusClass).getCount();
+    }
+
+    /**
+     * @return the number of requests recorded with a status outside of 100 to 599
+     */
+    public long invalid() {
+        return invalid.sum();
+    }
+
+    long invalid(boolean reset) {
+        return reset ? invalid.sumThenReset() : invalid.sum();
+    }
+
+    /**
+     * @param reset whether the histograms start again from zero, a histogram stays allocated once recorded
+     * @return the method and status combinations recorded at least once
+     */
+    public List<Series> snapshot(boolean reset) {
+        var series = new ArrayList<Series>();
+        for (int i = 0; i < METHODS * STATUSES; i++) {
+            var histogram = histograms.get(i);
+            if (histogram != null) {
+                var snapshot = reset ? histogram.snapshotAndReset() : histogram.snapshot();
+                series.add(new Series(METHOD_NAMES[i / STATUSES], i % STATUSES + HttpStatusCode.MIN, snapshot));
+            }
+        }
+        return series;
+    }
+
+    /**
+     * Starts every histogram again from zero, the phases and the invalid statuses included.
+     */
+    public void reset() {
+        snapshot(true);
+        phases(true);
+        invalid.reset();
+    }
+
+    static int methodIndex(String method) {
+        int ordinal = HttpMethod.ordinal(method);
+        return ordinal < 0 ? OTHER_METHOD : ordinal;
+    }
+
+    static String methodName(int index) {
+        return METHOD_NAMES[index];
+    }
+
+    private static String[] methodNames() {
+        var names = new String[METHODS];
+        System.arraycopy(HttpMethod.values(), 0, names, 0, METHODS - 1);
+        names[OTHER_METHOD] = "OTHER";
+        return names;
+    }
+
+    @Getter
+    public static final class Series {
+
+        /**
+         * One of {@link HttpMethod}, or OTHER
+         */
+        private final String method;
+        private final int status;
+        private final Histogram.Snapshot histogram;
+
+        private Series(String method, int status, Histogram.Snapshot histogram) {
+            this.method = method;
+            this.status = status;
+            this.histogram = histogram;
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package tech.becoming.common.metrics;
+
+import tech.becoming.common.constants.HttpStatusCode;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Availability objective tracked in process, e.g. 99.9% of the requests answered without a 5xx, with the error
+ * rate and burn rate of any window up to 30 days computed in O(1), so an instance can shed load or flip a feature
+ * flag within seconds instead of waiting for an alert from its time series database.
+ * <pre>{@code
+ * static final SloTracker AVAILABILITY = SloTracker.of(0.999);
+ *
+ * AVAILABILITY.record(status);
+ *
+ * // 14.4 times the sustainable rate over 1h and 5m: 2% of the monthly budget in an hour
+ * if (AVAILABILITY.isBurning(Duration.ofHours(1), Duration.ofMinutes(5), 14.4)) { ... }
+ * }</pre>
+ * The counts are cumulative, recording is two striped increments. Each ring, 3600 slices of 1 second and 43200
+ * slices of 1 minute, about 1 MB in total, stores the cumulative counts at the start of each slice: the counts of a
+ * window are the counts now minus the counts at its first slice. The slices skipped while idle are filled by the
+ * next request, once. A window up to 1 hour has a 1 second resolution, a longer window a 1 minute one. A window is
+ * read from its first slice still held, or from the first slice ever started: only a slice being started while the
+ * window is read is waited for, a little, then the window starts at the next slice.
+ */
+public final class SloTracker {
+
+    private static final long SECOND = 1000;
+    private static final long MINUTE = 60 * SECOND;
+    private static final int SECONDS = 3600;
+    private static final int MINUTES = 30 * 24 * 60;
+    private static final int MAX_RETRIES = 16;
+
+    private final double objective;
+    private final LongSupplier clock;
+    private final LongAdder successes = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder invalid = new LongAdder();
+    private final Ring seconds = new Ring(SECOND, SECONDS);
+    private final Ring minutes = new Ring(MINUTE, MINUTES);
+
+    private SloTracker(double objective, LongSupplier clock) {
+        if (!(objective > 0 && objective < 1)) {
+            throw new IllegalArgumentException("Expected an objective between 0 and 1 excluded, e.g. 0.999");
+        }
+        this.objective = objective;
+        this.clock = clock;
+    }
+
+    /**
+     * @param objective share of successful requests, e.g. 0.999
+     */
+    public static SloTracker of(double objective) {
+        return new SloTracker(objective, System::currentTimeMillis);
+    }
+
+    /**
+     * @param clock current time in milliseconds
+     */
+    public static SloTracker of(double objective, LongSupplier clock) {
+        return new SloTracker(objective, clock);
+    }
+
+    /**
+     * A 5xx is a failure, any other status a success. A status outside of 100 to 599 is not recorded but counted
+     * apart, see {@link #invalid()}.
+     */
+    public void record(int status) {
+        if (!HttpStatusCode.isValid(status)) {
+            invalid.increment();
+            return;
+        }
+        record(!HttpStatusCode.isServerError(status));
+    }
+
+    public void record(boolean success) {
+        long now = clock.getAsLong();
+        seconds.advance(now);
+        minutes.advance(now);
+        (success ? successes : failures).increment();
+    }
+
+    public double getObjective() {
+        return objective;
+    }
+
+    /**
+     * @return the number of statuses outside of 100 to 599 passed to {@link #record(int)}
+     */
+    public long invalid() {
+        return invalid.sum();
+    }
+
+    public long successes(Duration window) {
+        return ring(window).count(clock.getAsLong(), window, successes.sum(), true);
+    }
+
+    public long failures(Duration window) {
+        return ring(window).count(clock.getAsLong(), window, failures.sum(), false);
+    }
+
+    /**
+     * @return the share of failed requests in the window, 0 without requests
+     */
+    public double errorRate(Duration window) {
+        long now = clock.getAsLong();
+        var ring = ring(window);
+        long failed = ring.count(now, window, failures.sum(), false);
+        long total = failed + ring.count(now, window, successes.sum(), true);
+        return total == 0 ? 0 : (double) failed / total;
+    }
+
+    /**
+     * @return the error rate relative to the error budget, 1 spends the budget exactly over the period of the
+     * objective, 10 spends it 10 times faster
+     */
+    public double burnRate(Duration window) {
+        return errorRate(window) / (1 - objective);
+    }
+
+    /**
+     * Multi-window check: the long window shows a significant burn, the short one that it is still happening.
+     */
+    public boolean isBurning(Duration longWindow, Duration shortWindow, double threshold) {
+        return burnRate(shortWindow) >= threshold && burnRate(longWindow) >= threshold;
+    }
+
+    /**
+     * @return the share of the error budget left over the period, negative once exceeded, 1 without requests
+     */
+    public double remainingBudget(Duration period) {
+        long now = clock.getAsLong();
+        var ring = ring(period);
+        long failed = ring.count(now, period, failures.sum(), false);
+        long total = failed + ring.count(now, period, successes.sum(), true);
+        return total == 0 ? 1 : 1 - failed / ((1 - objective) * total);
+    }
+
+    private Ring ring(Duration window) {
+        if (window.isNegative() || window.isZero()) {
+            throw new IllegalArgumentException("Expected a positive window");
+        }
+        if (window.toMillis() <= SECONDS * SECOND) {
+            return seconds;
+        }
+        if (window.toMillis() <= MINUTES * MINUTE) {
+            return minutes;
+        }
+        throw new IllegalArgumentException("Expected a window up to 30 days");
+    }
+
+    private final class Ring {
+
+        private final long sliceMillis;
+        private final int length;
+        // the last slice claimed by a request, and the last one fully started, published once its counts are written
+        private final AtomicLong claimed = new AtomicLong(-1);
+        private final AtomicLong last = new AtomicLong(-1);
+        // the first slice ever started, older slices have no counts
+        private final AtomicLong first = new AtomicLong(-1);
+        // per slice: its number, -1 while being started, and the cumulative counts at its start
+        private final AtomicLongArray slices;
+        private final AtomicLongArray successStarts;
+        private final AtomicLongArray failureStarts;
+
+        Ring(long sliceMillis, int length) {
+            this.sliceMillis = sliceMillis;
+            this.length = length;
+            this.slices = new AtomicLongArray(length);
+            this.successStarts = new AtomicLongArray(length);
+            this.failureStarts = new AtomicLongArray(length);
+            for (int i = 0; i < length; i++) {
+                slices.set(i, -1);
+            }
+        }
+
+        /**
+         * Starts the slices from the last one started to the current one, a request recorded concurrently may be
+         * counted in the previous slice.
+         */
+        void advance(long now) {
+            long slice = now / sliceMillis;
+            long previous = claimed.get();
+            if (slice <= previous || !claimed.compareAndSet(previous, slice)) {
+                return;
+            }
+            long succeeded = successes.sum();
+            long failed = failures.sum();
+            long from = Math.max(previous + 1, slice - length + 1);
+            first.compareAndSet(-1, from);
+            for (long s = from; s <= slice; s++) {
+                int index = (int) Math.floorMod(s, (long) length);
+                slices.set(index, -1);
+                successStarts.set(index, succeeded);
+                failureStarts.set(index, failed);
+                slices.set(index, s);
+            }
+            last.accumulateAndGet(slice, Math::max);
+        }
+
+        /**
+         * Reads the start of the first slice of the window still held, only a slice being started is waited for.
+         */
+        long count(long now, Duration window, long total, boolean success) {
+            long newest = last.get();
+            if (newest < 0) {
+                // nothing recorded yet
+                return 0;
+            }
+            long slice = now / sliceMillis;
+            long s = slice - (window.toMillis() + sliceMillis - 1) / sliceMillis + 1;
+            s = Math.max(s, Math.max(first.get(), newest - length + 1));
+            var starts = success ? successStarts : failureStarts;
+            int retries = 0;
+            while (s <= newest) {
+                int index = (int) Math.floorMod(s, (long) length);
+                long held = slices.get(index);
+                if (held == s) {
+                    long start = starts.get(index);
+                    // unchanged, the start wasn't overwritten while read
+                    if (slices.get(index) == s) {
+                        return Math.max(0, total - start);
+                    }
+                } else if (held != -1) {
+                    // overwritten by a newer slice, or not started yet by an older advance still running
+                    s++;
+                    retries = 0;
+                    continue;
+                }
+                // being started, waited for a little, then the window starts at the next slice
+                if (++retries < MAX_RETRIES) {
+                    Thread.onSpinWait();
+                } else {
+                    s++;
+                    retries = 0;
+                }
+            }
+            // nothing recorded since the start of the window
+            return 0;
+        }
+    }
+}
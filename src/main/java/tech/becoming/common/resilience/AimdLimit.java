@@ -0,0 +1,24 @@
+package tech.becoming.common.resilience;
+
+class AimdLimit implements LimitAlgorithm {
+
+    private final long timeoutNanos;
+    private final double backoffRatio;
+
+    AimdLimit(long timeoutNanos, double backoffRatio) {
+        if (backoffRatio <= 0 || backoffRatio >= 1) {
+            throw new IllegalArgumentException("The backoff ratio must be between 0 and 1");
+        }
+        this.timeoutNanos = timeoutNanos;
+        this.backoffRatio = backoffRatio;
+    }
+
+    @Override
+    public int update(int limit, long rttNanos, int inFlight, boolean dropped) {
+        if (dropped || rttNanos > timeoutNanos) {
+            return (int) (limit * backoffRatio);
+        }
+        // only grow a limit that is actually used, otherwise it drifts up during quiet periods
+        return inFlight * 2 >= limit ? limit + 1 : limit;
+    }
+}
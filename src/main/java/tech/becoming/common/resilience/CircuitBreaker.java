@@ -0,0 +1,300 @@
+package tech.becoming.common.resilience;
+
+import tech.becoming.common.exceptions.AbstractRuntimeException;
+import tech.becoming.common.exceptions.ServiceUnavailableException;
+import tech.becoming.common.http.PreparedResponse;
+import tech.becoming.common.http.RetryAfterResponses;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.IntPredicate;
+
+import static tech.becoming.common.constants.HttpStatusCode.BAD_GATEWAY_502;
+import static tech.becoming.common.constants.HttpStatusCode.GATEWAY_TIMEOUT_504;
+import static tech.becoming.common.constants.HttpStatusCode.REQUEST_TIMEOUT_408;
+import static tech.becoming.common.constants.HttpStatusCode.SERVICE_UNAVAILABLE_503;
+import static tech.becoming.common.constants.HttpStatusName.SERVICE_UNAVAILABLE;
+
+/**
+ * Circuit breaker in front of a dependency, classifying outcomes by http status code.
+ * <br><br>
+ * By default 408, 502, 503, 504 and timeouts are failures, anything else, 4xx included, is a success:
+ * a client error says nothing about the health of the dependency.
+ * The last outcomes are kept in a ring buffer written with atomic swaps, the failure count is maintained
+ * along the way so the failure rate is read without scanning. When the rate reaches the threshold the breaker
+ * opens and rejects calls for the open duration, then lets a bounded number of probes through: if they all
+ * succeed it closes, the first failure opens it again, as do probes not all answered within the open duration.
+ * Only these rare state transitions take a lock, reading the state is a volatile read.
+ * <br><br>
+ * A permit carries the generation of the state it was acquired in, incremented by every transition: the outcome of
+ * a call admitted before the breaker opened, or by a previous probing round, is ignored.
+ * <pre>{@code
+ * static final CircuitBreaker PAYMENTS = CircuitBreaker.of(100, 0.5, Duration.ofSeconds(30));
+ *
+ * long permit = PAYMENTS.tryAcquire();
+ * if (permit == CircuitBreaker.REJECTED) {
+ *     return PAYMENTS.rejection(); // 503 with Retry-After
+ * }
+ * var response = client.send(request);
+ * PAYMENTS.onResult(permit, response.statusCode());
+ * }</pre>
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    public static final int DEFAULT_HALF_OPEN_PROBES = 5;
+    public static final long REJECTED = -1;
+
+    private static final State[] STATES = State.values();
+    private static final int STATE_BITS = 2;
+
+    private static final int EMPTY = 0;
+    private static final int SUCCESS = 1;
+    private static final int FAILURE = 2;
+
+    private final int windowSize;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long openNanos;
+    private final int halfOpenProbes;
+    private final IntPredicate isFailure;
+
+    private final AtomicIntegerArray window;
+    private final AtomicInteger cursor = new AtomicInteger();
+    private final AtomicInteger recorded = new AtomicInteger();
+    private final AtomicInteger failures = new AtomicInteger();
+    private final AtomicInteger probes = new AtomicInteger();
+    private final AtomicInteger probeSuccesses = new AtomicInteger();
+    private final RetryAfterResponses rejections = new RetryAfterResponses(SERVICE_UNAVAILABLE_503, SERVICE_UNAVAILABLE);
+
+    // generation of the state in the high bits, the ordinal of the state in the low ones
+    private volatile long epoch = State.CLOSED.ordinal();
+    // start of the current open or half open state
+    private volatile long changedAt;
+
+    private CircuitBreaker(int windowSize, double failureRateThreshold, Duration openDuration,
+                           int halfOpenProbes, IntPredicate isFailure) {
+        if (windowSize <= 0 || halfOpenProbes <= 0 || failureRateThreshold <= 0 || failureRateThreshold > 1) {
+            throw new IllegalArgumentException("Expected a positive window and probes and a threshold in (0, 1]");
+        }
+        this.windowSize = windowSize;
+        this.minimumCalls = Math.max(1, windowSize / 2);
+        this.failureRateThreshold = failureRateThreshold;
+        this.openNanos = openDuration.toNanos();
+        this.halfOpenProbes = halfOpenProbes;
+        this.isFailure = isFailure;
+        this.window = new AtomicIntegerArray(windowSize);
+    }
+
+    /**
+     * @param windowSize           number of last outcomes the failure rate is computed on,
+     *                             the breaker doesn't open before half of them were recorded
+     * @param failureRateThreshold failure rate in (0, 1] that opens the breaker
+     * @param openDuration         time the breaker stays open before probing
+     */
+    public static CircuitBreaker of(int windowSize, double failureRateThreshold, Duration openDuration) {
+        return new CircuitBreaker(windowSize, failureRateThreshold, openDuration,
+                DEFAULT_HALF_OPEN_PROBES, CircuitBreaker::isFailureStatus);
+    }
+
+    /**
+     * @param isFailure classifies a status code as a failure
+     */
+    public static CircuitBreaker of(int windowSize, double failureRateThreshold, Duration openDuration,
+                                    int halfOpenProbes, IntPredicate isFailure) {
+        return new CircuitBreaker(windowSize, failureRateThreshold, openDuration, halfOpenProbes, isFailure);
+    }
+
+    /**
+     * The default classification: the dependency is failing or too slow to answer.
+     */
+    public static boolean isFailureStatus(int status) {
+        return status == BAD_GATEWAY_502
+                || status == SERVICE_UNAVAILABLE_503
+                || status == GATEWAY_TIMEOUT_504
+                || status == REQUEST_TIMEOUT_408;
+    }
+
+    /**
+     * @return a permit when the call may proceed, its outcome must then be reported with it, or {@link #REJECTED}
+     */
+    public long tryAcquire() {
+        long current = epoch;
+        var state = stateOf(current);
+        if (state == State.CLOSED) {
+            return current;
+        }
+        if (state == State.OPEN) {
+            if (System.nanoTime() - changedAt < openNanos) {
+                return REJECTED;
+            }
+            halfOpen(current);
+        }
+        // bounded probing, a permit is taken with a CAS so no more than the configured probes get through
+        while (true) {
+            current = epoch;
+            state = stateOf(current);
+            if (state != State.HALF_OPEN) {
+                return state == State.CLOSED ? current : REJECTED;
+            }
+            int available = probes.get();
+            if (available <= 0) {
+                // probes lost or hung, e.g. their outcome was never reported
+                if (System.nanoTime() - changedAt >= openNanos) {
+                    open(current);
+                }
+                return REJECTED;
+            }
+            if (probes.compareAndSet(available, available - 1)) {
+                if (epoch == current) {
+                    return current;
+                }
+                // taken from the next round, given back
+                probes.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * @return the permit
+     * @throws ServiceUnavailableException with the remaining open time as <b>Retry-After</b>
+     */
+    public long acquireOrThrow() {
+        long permit = tryAcquire();
+        if (permit == REJECTED) {
+            throw new ServiceUnavailableException(retryAfterSeconds());
+        }
+        return permit;
+    }
+
+    /**
+     * @return the prepared 503 response with the remaining open time as <b>Retry-After</b>
+     */
+    public PreparedResponse rejection() {
+        return rejections.get(retryAfterSeconds());
+    }
+
+    /**
+     * @param permit the value returned by {@link #tryAcquire()}
+     */
+    public void onResult(long permit, int status) {
+        record(permit, isFailure.test(status));
+    }
+
+    /**
+     * Timeouts and connection errors are failures, the library's exceptions are classified by their http code.
+     */
+    public void onError(long permit, Throwable error) {
+        if (error instanceof AbstractRuntimeException) {
+            onResult(permit, ((AbstractRuntimeException) error).getHttpCode());
+        } else {
+            record(permit, true);
+        }
+    }
+
+    public void onSuccess(long permit) {
+        record(permit, false);
+    }
+
+    public void onFailure(long permit) {
+        record(permit, true);
+    }
+
+    public State getState() {
+        return stateOf(epoch);
+    }
+
+    /**
+     * @return the failure rate over the recorded outcomes of the window, 0 when nothing was recorded
+     */
+    public double getFailureRate() {
+        int total = recorded.get();
+        return total == 0 ? 0 : (double) failures.get() / total;
+    }
+
+    private void record(long permit, boolean failure) {
+        long current = epoch;
+        if (permit != current) {
+            // rejected, or admitted in a previous state
+            return;
+        }
+        if (stateOf(current) == State.HALF_OPEN) {
+            if (failure) {
+                open(current);
+            } else if (probeSuccesses.incrementAndGet() >= halfOpenProbes) {
+                close(current);
+            }
+            return;
+        }
+
+        int slot = Math.floorMod(cursor.getAndIncrement(), windowSize);
+        int previous = window.getAndSet(slot, failure ? FAILURE : SUCCESS);
+        if (previous == EMPTY) {
+            recorded.incrementAndGet();
+        }
+        int delta = (failure ? 1 : 0) - (previous == FAILURE ? 1 : 0);
+        int failed = delta == 0 ? failures.get() : failures.addAndGet(delta);
+
+        int total = recorded.get();
+        if (total >= minimumCalls && failed >= failureRateThreshold * total) {
+            open(current);
+        }
+    }
+
+    private void open(long from) {
+        synchronized (this) {
+            if (epoch != from) {
+                return;
+            }
+            probes.set(0);
+            changedAt = System.nanoTime();
+            epoch = next(from, State.OPEN);
+        }
+    }
+
+    private void halfOpen(long from) {
+        synchronized (this) {
+            if (epoch != from) {
+                return;
+            }
+            probeSuccesses.set(0);
+            probes.set(halfOpenProbes);
+            changedAt = System.nanoTime();
+            epoch = next(from, State.HALF_OPEN);
+        }
+    }
+
+    private void close(long from) {
+        synchronized (this) {
+            if (epoch != from) {
+                return;
+            }
+            for (int i = 0; i < windowSize; i++) {
+                window.set(i, EMPTY);
+            }
+            recorded.set(0);
+            failures.set(0);
+            epoch = next(from, State.CLOSED);
+        }
+    }
+
+    /**
+     * @return the remaining open time, or the time left to the probes when half open, at least 1 second
+     */
+    private long retryAfterSeconds() {
+        long remaining = openNanos - (System.nanoTime() - changedAt);
+        return Math.max(1, (remaining + 999_999_999) / 1_000_000_000);
+    }
+
+    private static State stateOf(long epoch) {
+        return STATES[(int) (epoch & (1 << STATE_BITS) - 1)];
+    }
+
+    private static long next(long epoch, State state) {
+        return ((epoch >>> STATE_BITS) + 1) << STATE_BITS | state.ordinal();
+    }
+}
@@ -0,0 +1,174 @@
+package tech.becoming.common.resilience;
+
+import tech.becoming.common.exceptions.ServiceUnavailableException;
+import tech.becoming.common.http.PreparedResponse;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static tech.becoming.common.constants.HttpHeader.RETRY_AFTER;
+import static tech.becoming.common.constants.HttpStatusCode.SERVICE_UNAVAILABLE_503;
+import static tech.becoming.common.constants.HttpStatusName.SERVICE_UNAVAILABLE;
+
+/**
+ * Adaptive concurrency limiter that sheds excess load fast with a 503 instead of queueing it.
+ * <br><br>
+ * The number of requests in flight is capped by a limit that a {@link LimitAlgorithm} moves up or down from the
+ * latency of completed requests. Admission is a CAS on the in-flight counter. Each {@link Priority} may only fill a
+ * share of the limit, so lower priorities are shed first and {@link Priority#CRITICAL} is never shed.
+ * Latency samples are folded into the limit by whichever thread gets the lock, the others skip theirs rather than
+ * wait. Drops are never skipped: they are queued in a counter and applied by the thread holding the lock, which
+ * checks for queued drops again after releasing it, so the limit always backs off under overload.
+ * <pre>{@code
+ * static final ConcurrencyLimiter LIMITER = ConcurrencyLimiter.of(LimitAlgorithm.gradient(), 10, 1000);
+ *
+ * long permit = LIMITER.tryAcquire(Priority.NORMAL);
+ * if (permit == ConcurrencyLimiter.REJECTED) {
+ *     return LIMITER.rejection(); // 503 with Retry-After
+ * }
+ * try {
+ *     handle(request);
+ *     LIMITER.release(permit, false);
+ * } catch (TimeoutException e) {
+ *     LIMITER.release(permit, true);
+ * }
+ * }</pre>
+ */
+public class ConcurrencyLimiter {
+
+    public static final long REJECTED = Long.MIN_VALUE;
+
+    private final LimitAlgorithm algorithm;
+    private final int minLimit;
+    private final int maxLimit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final ReentrantLock updates = new ReentrantLock();
+    private final AtomicInteger pendingDrops = new AtomicInteger();
+    private final PreparedResponse rejection;
+    private final long retryAfterSeconds;
+    private volatile int limit;
+
+    private ConcurrencyLimiter(LimitAlgorithm algorithm, int minLimit, int maxLimit, Duration retryAfter) {
+        if (minLimit <= 0 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("Expected 0 < minLimit <= maxLimit");
+        }
+        this.algorithm = algorithm;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = minLimit;
+        // Retry-After holds whole seconds, a fraction is rounded up so clients never come back early nor at once
+        this.retryAfterSeconds = Math.max(1, retryAfter.getSeconds() + (retryAfter.getNano() > 0 ? 1 : 0));
+        this.rejection = PreparedResponse.of(SERVICE_UNAVAILABLE_503, SERVICE_UNAVAILABLE,
+                RETRY_AFTER, String.valueOf(retryAfterSeconds));
+    }
+
+    /**
+     * @param minLimit initial and minimum limit
+     */
+    public static ConcurrencyLimiter of(LimitAlgorithm algorithm, int minLimit, int maxLimit) {
+        return new ConcurrencyLimiter(algorithm, minLimit, maxLimit, Duration.ofSeconds(1));
+    }
+
+    /**
+     * @param retryAfter value of <b>Retry-After</b> on rejections, rounded up to whole seconds, at least 1
+     */
+    public static ConcurrencyLimiter of(LimitAlgorithm algorithm, int minLimit, int maxLimit, Duration retryAfter) {
+        return new ConcurrencyLimiter(algorithm, minLimit, maxLimit, retryAfter);
+    }
+
+    /**
+     * @return a permit to hand back to {@link #release(long, boolean)}, or {@link #REJECTED}
+     */
+    public long tryAcquire(Priority priority) {
+        if (priority == Priority.CRITICAL) {
+            inFlight.incrementAndGet();
+            return System.nanoTime();
+        }
+
+        int allowed = Math.max(1, (int) (limit * priority.getShare()));
+        while (true) {
+            int current = inFlight.get();
+            if (current >= allowed) {
+                return REJECTED;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return System.nanoTime();
+            }
+        }
+    }
+
+    /**
+     * @throws ServiceUnavailableException with the <b>Retry-After</b> delay when the request is shed
+     */
+    public long acquireOrThrow(Priority priority) {
+        long permit = tryAcquire(priority);
+        if (permit == REJECTED) {
+            throw new ServiceUnavailableException(retryAfterSeconds);
+        }
+        return permit;
+    }
+
+    /**
+     * @param permit  the value returned by {@link #tryAcquire(Priority)}
+     * @param dropped true when the request timed out or was rejected downstream, the limit backs off
+     */
+    public void release(long permit, boolean dropped) {
+        if (permit == REJECTED) {
+            return;
+        }
+        long rtt = System.nanoTime() - permit;
+        int current = inFlight.getAndDecrement();
+
+        boolean sample = !dropped;
+        if (dropped) {
+            pendingDrops.incrementAndGet();
+        }
+        while (updates.tryLock()) {
+            try {
+                if (sample) {
+                    update(rtt, current, false);
+                    sample = false;
+                }
+                for (int drops = pendingDrops.getAndSet(0); drops > 0; drops--) {
+                    update(rtt, current, true);
+                }
+            } finally {
+                updates.unlock();
+            }
+            // a drop queued while the lock was held, after the last check, is applied by this thread
+            if (pendingDrops.get() == 0) {
+                return;
+            }
+        }
+    }
+
+    private void update(long rtt, int inFlight, boolean dropped) {
+        int next = algorithm.update(limit, rtt, inFlight, dropped);
+        limit = Math.max(minLimit, Math.min(maxLimit, next));
+    }
+
+    /**
+     * Releases a permit without feeding its latency to the algorithm, e.g. when the request failed before doing work.
+     */
+    public void ignore(long permit) {
+        if (permit != REJECTED) {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    /**
+     * @return the prepared 503 response with its <b>Retry-After</b>
+     */
+    public PreparedResponse rejection() {
+        return rejection;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+}
@@ -0,0 +1,247 @@
+package tech.becoming.common.resilience;
+
+import tech.becoming.common.exceptions.GatewayTimeoutException;
+import tech.becoming.common.exceptions.RequestTimeoutException;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Time left to serve a request, created at ingress and passed to every downstream call and subtask.
+ * <br><br>
+ * The expiry is one timeout on a shared {@link TimerWheel}, not a scheduled future per call. When it fires, the work
+ * bound to the deadline is cancelled so that nothing keeps running for a client that already gave up:
+ * downstream calls fail with a {@link GatewayTimeoutException} (504) and local subtasks are interrupted and fail with a
+ * {@link RequestTimeoutException} (408). A child deadline, e.g. the timeout of one call, never outlives its parent.
+ * Listeners are pushed on a lock-free stack, closing the deadline when the request completes drops them at once.
+ * <pre>{@code
+ * try (var deadline = Deadline.after(Duration.ofSeconds(2))) {
+ *     var user = deadline.bind(users.find(id));
+ *     var orders = deadline.child(Duration.ofMillis(500)).bind(orders.find(id));
+ *     var page = deadline.supplyAsync(() -> render(user.join(), orders.join()), executor);
+ *     return page.join();
+ * }
+ * }</pre>
+ */
+public final class Deadline implements AutoCloseable {
+
+    private static final Node EXPIRED = new Node(null, null, null);
+    private static final Node CLOSED = new Node(null, null, null);
+
+    private final long deadlineNanos;
+    private final AtomicReference<Node> listeners = new AtomicReference<>();
+    private final TimerWheel timer;
+    private final TimerWheel.Timeout timeout;
+
+    private Deadline(long deadlineNanos, TimerWheel timer, boolean schedule) {
+        this.deadlineNanos = deadlineNanos;
+        this.timer = timer;
+        this.timeout = schedule
+                ? timer.schedule(this::expire, Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS)
+                : null;
+    }
+
+    public static Deadline after(Duration timeout) {
+        return after(timeout, TimerWheel.shared());
+    }
+
+    public static Deadline after(Duration timeout, TimerWheel timer) {
+        return new Deadline(System.nanoTime() + timeout.toNanos(), timer, true);
+    }
+
+    /**
+     * @return a deadline expiring after the timeout, or with this one if it is earlier, closed with this one
+     */
+    public Deadline child(Duration timeout) {
+        long requested = System.nanoTime() + timeout.toNanos();
+        boolean earlier = requested - deadlineNanos < 0;
+        var child = new Deadline(earlier ? requested : deadlineNanos, timer, earlier);
+        if (!push(new Node(child::expire, null, child))) {
+            child.close();
+        }
+        return child;
+    }
+
+    public boolean isExpired() {
+        return listeners.get() == EXPIRED || System.nanoTime() - deadlineNanos >= 0;
+    }
+
+    /**
+     * @return the time left, never negative, e.g. for the timeout of an http client call
+     */
+    public Duration remaining() {
+        return Duration.ofNanos(Math.max(0, deadlineNanos - System.nanoTime()));
+    }
+
+    public long remaining(TimeUnit unit) {
+        return unit.convert(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * A checkpoint for long local work.
+     *
+     * @throws RequestTimeoutException when the deadline has passed
+     */
+    public void throwIfExpired() {
+        if (isExpired()) {
+            throw new RequestTimeoutException();
+        }
+    }
+
+    /**
+     * Runs the action on the timer thread when the deadline expires, right away if it already has.
+     * It is never run once the deadline is closed.
+     */
+    public void onExpiry(Runnable action) {
+        push(new Node(action, null, null));
+    }
+
+    /**
+     * Binds a downstream call: on expiry it is cancelled and the returned future fails with a
+     * {@link GatewayTimeoutException}.
+     */
+    public <T> CompletableFuture<T> bind(CompletableFuture<T> call) {
+        var result = new CompletableFuture<T>();
+        call.whenComplete((value, error) -> {
+            if (error == null) {
+                result.complete(value);
+            } else {
+                result.completeExceptionally(error);
+            }
+        });
+        onExpiry(() -> {
+            if (result.completeExceptionally(new GatewayTimeoutException())) {
+                call.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Runs a subtask bound to the deadline: on expiry the thread running it is interrupted and the returned future
+     * fails with a {@link RequestTimeoutException}, a subtask still queued never starts.
+     */
+    public <T> CompletableFuture<T> supplyAsync(Supplier<T> task, Executor executor) {
+        var subtask = new Subtask<>(task);
+        onExpiry(subtask::expire);
+        executor.execute(subtask);
+        return subtask.result;
+    }
+
+    /**
+     * Cancels the timeout and drops the listeners, to be called when the request completes.
+     */
+    @Override
+    public void close() {
+        var head = listeners.getAndUpdate(current -> current == EXPIRED ? EXPIRED : CLOSED);
+        if (head == EXPIRED || head == CLOSED) {
+            return;
+        }
+        if (timeout != null) {
+            timeout.cancel();
+        }
+        for (var node = head; node != null; node = node.next) {
+            if (node.child != null) {
+                node.child.close();
+            }
+        }
+    }
+
+    /**
+     * @return false when the deadline is closed
+     */
+    private boolean push(Node node) {
+        while (true) {
+            var head = listeners.get();
+            if (head == CLOSED) {
+                return false;
+            }
+            if (head == EXPIRED) {
+                node.action.run();
+                return true;
+            }
+            node.next = head;
+            if (listeners.compareAndSet(head, node)) {
+                return true;
+            }
+        }
+    }
+
+    private void expire() {
+        var head = listeners.getAndUpdate(current -> current == CLOSED ? CLOSED : EXPIRED);
+        if (head == CLOSED || head == EXPIRED) {
+            return;
+        }
+        if (timeout != null) {
+            timeout.cancel();
+        }
+        // the stack is in reverse registration order, run the listeners in the order they were added
+        Node reversed = null;
+        for (var node = head; node != null; node = node.next) {
+            reversed = new Node(node.action, reversed, null);
+        }
+        for (var node = reversed; node != null; node = node.next) {
+            node.action.run();
+        }
+    }
+
+    private static final class Node {
+
+        final Runnable action;
+        final Deadline child;
+        Node next;
+
+        Node(Runnable action, Node next, Deadline child) {
+            this.action = action;
+            this.next = next;
+            this.child = child;
+        }
+    }
+
+    private static final class Subtask<T> implements Runnable {
+
+        final Supplier<T> task;
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        Thread runner;
+
+        Subtask(Supplier<T> task) {
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            synchronized (this) {
+                if (result.isDone()) {
+                    return;
+                }
+                runner = Thread.currentThread();
+            }
+            try {
+                result.complete(task.get());
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            } finally {
+                synchronized (this) {
+                    runner = null;
+                    // an interrupt meant for this subtask must not leak to the next task of the pooled thread
+                    Thread.interrupted();
+                }
+            }
+        }
+
+        void expire() {
+            if (!result.completeExceptionally(new RequestTimeoutException())) {
+                return;
+            }
+            synchronized (this) {
+                if (runner != null) {
+                    runner.interrupt();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package tech.becoming.common.resilience;
+
+import tech.becoming.common.constants.HttpMethod;
+import tech.becoming.common.exceptions.TooEarlyException;
+import tech.becoming.common.http.PreparedResponse;
+import tech.becoming.common.util.BloomFilter;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static tech.becoming.common.constants.HttpStatusCode.TOO_EARLY_425;
+import static tech.becoming.common.constants.HttpStatusName.TOO_EARLY;
+
+/**
+ * Decides which requests received in TLS 1.3 early data (0-RTT), marked with <b>Early-Data: 1</b>, may be processed
+ * before the handshake completes, and answers the others with a prepared 425 so that the client sends them again
+ * after the handshake.
+ * <br><br>
+ * Only safe methods may be processed early, and only once: early data can be replayed by an attacker, so a request
+ * seen during the replay window is refused. Seen requests are kept in three Bloom filters rotated by time: the current
+ * and the previous one are checked, the third one is cleared ahead of its turn. Memory is fixed and lookups are
+ * lock-free, the first request of an epoch that finds its filter stale clears it before publishing the epoch, the
+ * requests arriving meanwhile wait for it. Epochs are measured with {@link System#nanoTime()}, a wall clock step
+ * doesn't reopen the window. A false positive only costs the client a round trip, as does a legitimate repetition of the same request.
+ * <pre>{@code
+ * static final EarlyDataGuard GUARD = EarlyDataGuard.of(5_000, Duration.ofSeconds(10));
+ *
+ * long fingerprint = IdempotencyStore.fingerprint(method, uri, body);
+ * PreparedResponse tooEarly = GUARD.check(method, request.getHeader(EARLY_DATA), fingerprint);
+ * if (tooEarly != null) {
+ *     return tooEarly;
+ * }
+ * }</pre>
+ */
+public final class EarlyDataGuard {
+
+    public static final double DEFAULT_FALSE_POSITIVE_RATE = 0.001;
+
+    private static final PreparedResponse REJECTED = PreparedResponse.of(TOO_EARLY_425, TOO_EARLY);
+    private static final int GENERATIONS = 3;
+    private static final long CLEAN = -1;
+    private static final long CLEARING = -2;
+
+    private final long periodNanos;
+    private final long startNanos = System.nanoTime();
+    private final BloomFilter[] filters = new BloomFilter[GENERATIONS];
+    // the epoch each filter records, CLEAN once cleared ahead of its turn
+    private final AtomicLongArray epochs = new AtomicLongArray(GENERATIONS);
+
+    private EarlyDataGuard(long requestsPerSecond, Duration replayWindow, double falsePositiveRate) {
+        if (requestsPerSecond <= 0 || replayWindow.isNegative() || replayWindow.isZero()) {
+            throw new IllegalArgumentException("Expected a positive request rate and replay window");
+        }
+        this.periodNanos = replayWindow.toNanos();
+        long perGeneration = Math.max(1, requestsPerSecond * Math.max(1, replayWindow.toMillis()) / 1000);
+        for (int i = 0; i < GENERATIONS; i++) {
+            filters[i] = BloomFilter.of(perGeneration, falsePositiveRate);
+            epochs.set(i, CLEAN);
+        }
+    }
+
+    /**
+     * @param requestsPerSecond peak rate of early data requests the filters are sized for
+     * @param replayWindow      how long a request is remembered, at least the lifetime of the session tickets
+     *                          accepting early data
+     */
+    public static EarlyDataGuard of(long requestsPerSecond, Duration replayWindow) {
+        return new EarlyDataGuard(requestsPerSecond, replayWindow, DEFAULT_FALSE_POSITIVE_RATE);
+    }
+
+    public static EarlyDataGuard of(long requestsPerSecond, Duration replayWindow, double falsePositiveRate) {
+        return new EarlyDataGuard(requestsPerSecond, replayWindow, falsePositiveRate);
+    }
+
+    /**
+     * @param earlyData value of the <b>Early-Data</b> header, or null
+     */
+    public static boolean isEarlyData(String earlyData) {
+        return earlyData != null && earlyData.trim().equals("1");
+    }
+
+    /**
+     * Only safe methods may be processed from early data, a replayed POST would run twice.
+     */
+    public static boolean mayProcessEarly(String method) {
+        return HttpMethod.isSafe(method);
+    }
+
+    /**
+     * @param earlyData       value of the <b>Early-Data</b> header, or null
+     * @param requestHash     identity of the request, e.g. {@link IdempotencyStore#fingerprint(String, String, byte[])}
+     * @return null when the request may be processed, otherwise the prepared 425 response
+     */
+    public PreparedResponse check(String method, String earlyData, long requestHash) {
+        if (!isEarlyData(earlyData)) {
+            return null;
+        }
+        return !mayProcessEarly(method) || isReplay(requestHash) ? REJECTED : null;
+    }
+
+    /**
+     * @throws TooEarlyException when an early data request can't be processed before the handshake completes
+     */
+    public void checkOrThrow(String method, String earlyData, long requestHash) {
+        if (check(method, earlyData, requestHash) != null) {
+            throw new TooEarlyException();
+        }
+    }
+
+    /**
+     * Records the request and tells whether it was already seen during the replay window.
+     */
+    public boolean isReplay(long requestHash) {
+        // from 1, the epoch before the first one is never recorded
+        long epoch = (System.nanoTime() - startNanos) / periodNanos + 1;
+        var current = filters[advance(epoch)];
+
+        int previous = (int) ((epoch - 1) % GENERATIONS);
+        boolean seen = epochs.get(previous) == epoch - 1 && filters[previous].mightContain(requestHash);
+        return !current.put(requestHash) || seen;
+    }
+
+    public PreparedResponse rejection() {
+        return REJECTED;
+    }
+
+    /**
+     * @return the filter of the epoch, claimed by the first request of the epoch and published once clean
+     */
+    private int advance(long epoch) {
+        int slot = (int) (epoch % GENERATIONS);
+        while (true) {
+            long tagged = epochs.get(slot);
+            if (tagged >= epoch) {
+                return slot;
+            }
+            if (tagged == CLEARING) {
+                // being cleared, by the first request of the epoch or ahead of its turn
+                Thread.onSpinWait();
+                continue;
+            }
+            if (tagged == CLEAN) {
+                if (epochs.compareAndSet(slot, CLEAN, epoch)) {
+                    break;
+                }
+                continue;
+            }
+            // nothing was recorded for a while, the filter wasn't cleared ahead
+            if (epochs.compareAndSet(slot, tagged, CLEARING)) {
+                filters[slot].clear();
+                epochs.set(slot, epoch);
+                break;
+            }
+        }
+        // the filter two epochs back isn't read anymore, it is cleared now rather than when its turn comes
+        int next = (int) ((epoch + 1) % GENERATIONS);
+        long stale = epochs.get(next);
+        if (stale >= 0 && stale < epoch && epochs.compareAndSet(next, stale, CLEARING)) {
+            filters[next].clear();
+            epochs.compareAndSet(next, CLEARING, CLEAN);
+        }
+        return slot;
+    }
+}
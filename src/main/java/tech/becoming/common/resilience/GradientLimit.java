@@ -0,0 +1,45 @@
+package tech.becoming.common.resilience;
+
+class GradientLimit implements LimitAlgorithm {
+
+    private static final double SHORT_SMOOTHING = 0.1;
+    private static final double LONG_SMOOTHING = 0.005;
+    private static final double LIMIT_SMOOTHING = 0.2;
+    private static final double MIN_GRADIENT = 0.5;
+
+    private double shortRtt;
+    private double longRtt;
+    private double estimate;
+
+    @Override
+    public int update(int limit, long rttNanos, int inFlight, boolean dropped) {
+        if (longRtt == 0) {
+            shortRtt = rttNanos;
+            longRtt = rttNanos;
+        }
+        if (Math.abs(estimate - limit) >= 1) {
+            // the fraction is kept between samples, unless the limiter clamped the limit
+            estimate = limit;
+        }
+        shortRtt += (rttNanos - shortRtt) * SHORT_SMOOTHING;
+        longRtt += (rttNanos - longRtt) * LONG_SMOOTHING;
+
+        // after a recovery the long term average lags far above the current latency, bring it down faster
+        if (longRtt / shortRtt > 2) {
+            longRtt *= 0.95;
+        }
+
+        // an idle limiter has no information about a higher limit
+        if (inFlight < estimate / 2 && !dropped) {
+            return limit;
+        }
+
+        double gradient = Math.max(MIN_GRADIENT, Math.min(1.0, longRtt / shortRtt));
+        if (dropped) {
+            gradient = MIN_GRADIENT;
+        }
+        double target = estimate * gradient + Math.sqrt(estimate);
+        estimate = estimate * (1 - LIMIT_SMOOTHING) + target * LIMIT_SMOOTHING;
+        return (int) estimate;
+    }
+}
@@ -0,0 +1,374 @@
+package tech.becoming.common.resilience;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import tech.becoming.common.exceptions.BadRequestException;
+import tech.becoming.common.exceptions.ConflictException;
+import tech.becoming.common.exceptions.ExceptionDetail;
+import tech.becoming.common.exceptions.ServiceUnavailableException;
+import tech.becoming.common.http.PreparedResponse;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static tech.becoming.common.constants.HttpHeader.IDEMPOTENCY_KEY;
+import static tech.becoming.common.constants.HttpStatusCode.BAD_REQUEST_400;
+import static tech.becoming.common.constants.HttpStatusCode.CONFLICT_409;
+import static tech.becoming.common.constants.HttpStatusCode.SERVICE_UNAVAILABLE_503;
+import static tech.becoming.common.constants.HttpStatusName.BAD_REQUEST;
+import static tech.becoming.common.constants.HttpStatusName.CONFLICT;
+import static tech.becoming.common.constants.HttpStatusName.SERVICE_UNAVAILABLE;
+
+/**
+ * Deduplicates POST and PATCH requests carrying an <b>Idempotency-Key</b>, so that a client retrying after a timeout
+ * gets the response of its first request instead of running the operation twice.
+ * <br><br>
+ * The first request of a key reserves it with the fingerprint of its content, then records its final response,
+ * which is replayed to the retries until the TTL passes. A reservation carries a token: only the request holding it
+ * may complete or release the key, so a request whose reservation expired can't overwrite or drop the one of the
+ * retry that took the key over. A duplicate arriving while the first request is in flight
+ * gets a 409, a key reused for a different request a 400. Entries live in lock-striped segments, each one a plain
+ * hash map behind its own lock. Expired entries are swept by the writes of their segment from time buckets,
+ * so no thread scans the whole store.
+ * <br><br>
+ * The number of entries is bounded: past the capacity of its segment, a new key evicts the recorded responses
+ * closest to their expiry. Reservations of requests in flight are never evicted, a segment full of them answers
+ * a 503 until one completes.
+ * <pre>{@code
+ * static final IdempotencyStore STORE = IdempotencyStore.of(Duration.ofHours(24));
+ *
+ * long fingerprint = IdempotencyStore.fingerprint(method, uri, body);
+ * IdempotencyStore.Reservation reservation = STORE.begin(key, fingerprint);
+ * if (!reservation.isReserved()) {
+ *     return reservation.getResponse(); // the recorded response, or a 409 / 400 / 503
+ * }
+ * try {
+ *     PreparedResponse response = handle(request);
+ *     STORE.complete(reservation, response);
+ *     return response;
+ * } catch (RuntimeException e) {
+ *     STORE.release(reservation);
+ *     throw e;
+ * }
+ * }</pre>
+ */
+public final class IdempotencyStore {
+
+    public static final Duration DEFAULT_LOCK_TIMEOUT = Duration.ofMinutes(1);
+    public static final int DEFAULT_SEGMENTS = 64;
+    public static final int DEFAULT_MAX_ENTRIES = 100_000;
+
+    private static final int BUCKETS = 64;
+    private static final long NO_TOKEN = 0;
+    private static final PreparedResponse IN_FLIGHT = PreparedResponse.of(CONFLICT_409, CONFLICT);
+    private static final PreparedResponse MISMATCH = PreparedResponse.of(BAD_REQUEST_400, BAD_REQUEST);
+    private static final PreparedResponse FULL = PreparedResponse.of(SERVICE_UNAVAILABLE_503, SERVICE_UNAVAILABLE);
+
+    private final long ttlMillis;
+    private final long lockMillis;
+    private final long bucketMillis;
+    private final int segmentCapacity;
+    private final Segment[] segments;
+
+    private IdempotencyStore(Duration ttl, Duration lockTimeout, int segments, int maxEntries) {
+        if (ttl.isNegative() || ttl.isZero() || lockTimeout.isNegative() || lockTimeout.isZero() || segments <= 0
+                || maxEntries <= 0) {
+            throw new IllegalArgumentException("Expected a positive ttl, lock timeout, number of segments and entries");
+        }
+        this.ttlMillis = ttl.toMillis();
+        this.lockMillis = lockTimeout.toMillis();
+        // the ring of buckets spans the longest expiry, with two spare buckets for the one being filled and swept
+        this.bucketMillis = Math.max(1, (Math.max(ttlMillis, lockMillis) + BUCKETS - 3) / (BUCKETS - 2));
+        int size = segments == 1 ? 1 : Integer.highestOneBit(segments - 1) << 1;
+        this.segmentCapacity = Math.max(1, maxEntries / size);
+        this.segments = new Segment[size];
+        for (int i = 0; i < size; i++) {
+            this.segments[i] = new Segment();
+        }
+    }
+
+    /**
+     * @param ttl how long a recorded response is replayed
+     */
+    public static IdempotencyStore of(Duration ttl) {
+        return new IdempotencyStore(ttl, DEFAULT_LOCK_TIMEOUT, DEFAULT_SEGMENTS, DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * @param lockTimeout how long a key stays reserved by a request that never completes, e.g. after a crash
+     * @param segments    number of lock stripes, rounded up to a power of two
+     */
+    public static IdempotencyStore of(Duration ttl, Duration lockTimeout, int segments) {
+        return new IdempotencyStore(ttl, lockTimeout, segments, DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * @param maxEntries capacity of the store, split evenly between the segments
+     */
+    public static IdempotencyStore of(Duration ttl, Duration lockTimeout, int segments, int maxEntries) {
+        return new IdempotencyStore(ttl, lockTimeout, segments, maxEntries);
+    }
+
+    /**
+     * FNV-1a of the method, the URI and the body: a key reused for another request is detected by its fingerprint.
+     */
+    public static long fingerprint(String method, String uri, byte[] body) {
+        long hash = RateLimiter.hash(method);
+        hash = (hash ^ ' ') * 0x100000001b3L;
+        for (int i = 0; i < uri.length(); i++) {
+            hash = (hash ^ uri.charAt(i)) * 0x100000001b3L;
+        }
+        hash = (hash ^ ' ') * 0x100000001b3L;
+        for (byte b : body) {
+            hash = (hash ^ (b & 0xff)) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * @return a reservation of the key for this request, which must then be completed or released with it,
+     * otherwise the response to send: the recorded one, a 409 while the first request is in flight,
+     * a 400 when the key was used for a different request, or a 503 when the store is full of requests in flight
+     */
+    public Reservation begin(String key, long fingerprint) {
+        var segment = segmentFor(key);
+        long now = System.currentTimeMillis();
+        segment.lock();
+        try {
+            segment.sweep(now);
+            var entry = segment.entries.get(key);
+            if (entry != null && entry.expiresAt > now) {
+                if (entry.fingerprint != fingerprint) {
+                    return new Reservation(key, NO_TOKEN, MISMATCH);
+                }
+                return new Reservation(key, NO_TOKEN, entry.response == null ? IN_FLIGHT : entry.response);
+            }
+            if (entry == null && segment.entries.size() >= segmentCapacity && !segment.evict(now)) {
+                return new Reservation(key, NO_TOKEN, FULL);
+            }
+            long token = ++segment.tokens;
+            segment.put(key, new Entry(fingerprint, token, now + lockMillis, null));
+            return new Reservation(key, token, null);
+        } finally {
+            segment.unlock();
+        }
+    }
+
+    /**
+     * Same as {@link #begin(String, long)} for handlers reporting errors with exceptions.
+     *
+     * @return a reservation of the key for this request, or one holding the recorded response
+     * @throws ConflictException   while the first request with this key is in flight
+     * @throws BadRequestException when the key was used for a different request
+     * @throws ServiceUnavailableException when the store is full of requests in flight
+     */
+    public Reservation beginOrThrow(String key, long fingerprint) {
+        var reservation = begin(key, fingerprint);
+        var response = reservation.response;
+        if (response == IN_FLIGHT) {
+            throw new ConflictException(ExceptionDetail.ofNameAndMessage(IDEMPOTENCY_KEY,
+                    "A request with the same key is in progress"));
+        }
+        if (response == MISMATCH) {
+            throw new BadRequestException(ExceptionDetail.ofNameAndMessage(IDEMPOTENCY_KEY,
+                    "The key was already used for a different request"));
+        }
+        if (response == FULL) {
+            throw new ServiceUnavailableException(ExceptionDetail.ofNameAndMessage(IDEMPOTENCY_KEY,
+                    "Too many requests in progress"));
+        }
+        return reservation;
+    }
+
+    /**
+     * Records the final response of the request holding the reservation. A 5xx is not recorded, the key is released
+     * so that the client may try again. Nothing is recorded once the reservation expired, the key may have been
+     * reserved again by a retry.
+     *
+     * @return true when the response was recorded
+     */
+    public boolean complete(Reservation reservation, PreparedResponse response) {
+        if (response.getStatus() >= 500) {
+            release(reservation);
+            return false;
+        }
+        if (!reservation.isReserved()) {
+            return false;
+        }
+        var segment = segmentFor(reservation.key);
+        long now = System.currentTimeMillis();
+        segment.lock();
+        try {
+            var entry = segment.entries.get(reservation.key);
+            if (!isHeld(entry, reservation, now)) {
+                return false;
+            }
+            segment.put(reservation.key, new Entry(entry.fingerprint, NO_TOKEN, now + ttlMillis, response));
+            return true;
+        } finally {
+            segment.unlock();
+        }
+    }
+
+    /**
+     * Forgets a key whose request failed before producing a response worth replaying, when the reservation still
+     * holds it.
+     */
+    public void release(Reservation reservation) {
+        if (!reservation.isReserved()) {
+            return;
+        }
+        var segment = segmentFor(reservation.key);
+        segment.lock();
+        try {
+            var entry = segment.entries.get(reservation.key);
+            if (isHeld(entry, reservation, System.currentTimeMillis())) {
+                segment.entries.remove(reservation.key);
+            }
+        } finally {
+            segment.unlock();
+        }
+    }
+
+    private static boolean isHeld(Entry entry, Reservation reservation, long now) {
+        return entry != null && entry.response == null && entry.token == reservation.token && entry.expiresAt > now;
+    }
+
+    public int size() {
+        int size = 0;
+        for (var segment : segments) {
+            segment.lock();
+            try {
+                size += segment.entries.size();
+            } finally {
+                segment.unlock();
+            }
+        }
+        return size;
+    }
+
+    private Segment segmentFor(String key) {
+        int h = key.hashCode();
+        return segments[(h ^ h >>> 16) & segments.length - 1];
+    }
+
+    /**
+     * Outcome of {@link #begin(String, long)}: either the key is reserved for the request, or the response to send.
+     */
+    @Getter
+    public static final class Reservation {
+
+        private final String key;
+        @Getter(AccessLevel.NONE)
+        private final long token;
+        /**
+         * null when the key is reserved, otherwise the recorded response or a 409 / 400 / 503
+         */
+        private final PreparedResponse response;
+
+        private Reservation(String key, long token, PreparedResponse response) {
+            this.key = key;
+            this.token = token;
+            this.response = response;
+        }
+
+        public boolean isReserved() {
+            return response == null;
+        }
+    }
+
+    private static final class Entry {
+
+        final long fingerprint;
+        // of the reservation while in flight, NO_TOKEN once the response is recorded
+        final long token;
+        final long expiresAt;
+        // null while the first request is in flight
+        final PreparedResponse response;
+
+        Entry(long fingerprint, long token, long expiresAt, PreparedResponse response) {
+            this.fingerprint = fingerprint;
+            this.token = token;
+            this.expiresAt = expiresAt;
+            this.response = response;
+        }
+    }
+
+    private final class Segment extends ReentrantLock {
+
+        private static final long serialVersionUID = 1L;
+
+        final HashMap<String, Entry> entries = new HashMap<>();
+        // tokens of the reservations of this segment, a key always maps to the same segment
+        long tokens;
+        // keys by expiry time bucket, a key may be listed in several buckets after its expiry moved
+        final List<List<String>> buckets = new ArrayList<>(Collections.nCopies(BUCKETS, null));
+        long sweptUpTo = System.currentTimeMillis() / bucketMillis;
+
+        void put(String key, Entry entry) {
+            entries.put(key, entry);
+            int index = (int) (entry.expiresAt / bucketMillis % BUCKETS);
+            var keys = buckets.get(index);
+            if (keys == null) {
+                keys = new ArrayList<>();
+                buckets.set(index, keys);
+            }
+            keys.add(key);
+        }
+
+        /**
+         * Visits the buckets whose time has passed since the last sweep, at most one round of the ring.
+         */
+        void sweep(long now) {
+            long current = now / bucketMillis;
+            long from = Math.max(sweptUpTo, current - BUCKETS + 1);
+            for (long time = from; time < current; time++) {
+                var keys = buckets.get((int) (time % BUCKETS));
+                if (keys == null) {
+                    continue;
+                }
+                // a bucket also holds the keys of the next round of the ring, those stay
+                keys.removeIf(key -> {
+                    var entry = entries.get(key);
+                    if (entry != null && entry.expiresAt > now) {
+                        return false;
+                    }
+                    entries.remove(key);
+                    return true;
+                });
+            }
+            sweptUpTo = Math.max(sweptUpTo, current);
+        }
+
+        /**
+         * Removes one recorded response, from the buckets closest to their expiry.
+         *
+         * @return false when every entry is in flight
+         */
+        boolean evict(long now) {
+            long current = now / bucketMillis;
+            for (long time = current; time < current + BUCKETS; time++) {
+                var keys = buckets.get((int) (time % BUCKETS));
+                if (keys == null) {
+                    continue;
+                }
+                for (var iterator = keys.iterator(); iterator.hasNext(); ) {
+                    var key = iterator.next();
+                    var entry = entries.get(key);
+                    if (entry == null) {
+                        iterator.remove();
+                    } else if (entry.response != null) {
+                        iterator.remove();
+                        entries.remove(key);
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+    }
+}
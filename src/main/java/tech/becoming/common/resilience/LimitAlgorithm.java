@@ -0,0 +1,36 @@
+package tech.becoming.common.resilience;
+
+import java.time.Duration;
+
+/**
+ * Computes the next concurrency limit of a {@link ConcurrencyLimiter} from a latency sample.
+ * <br>
+ * Calls are serialized by the limiter, implementations don't need to be thread safe.
+ */
+public interface LimitAlgorithm {
+
+    /**
+     * @param limit     the current limit
+     * @param rttNanos  latency of the request that just completed
+     * @param inFlight  requests in flight when it completed, itself included
+     * @param dropped   true when the request timed out or was rejected downstream
+     * @return the new limit, the limiter keeps it between its minimum and maximum
+     */
+    int update(int limit, long rttNanos, int inFlight, boolean dropped);
+
+    /**
+     * Additive increase, multiplicative decrease: the limit grows by one while requests are fast and
+     * the limit is in use, and is cut by the backoff ratio on a drop or a request slower than the timeout.
+     */
+    static LimitAlgorithm aimd(Duration timeout, double backoffRatio) {
+        return new AimdLimit(timeout.toNanos(), backoffRatio);
+    }
+
+    /**
+     * Gradient: the limit follows the ratio between the long term and the short term latency,
+     * growing by a queue allowance of about the square root of the limit while latency stays flat.
+     */
+    static LimitAlgorithm gradient() {
+        return new GradientLimit();
+    }
+}
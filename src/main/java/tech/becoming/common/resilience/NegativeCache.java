@@ -0,0 +1,149 @@
+package tech.becoming.common.resilience;
+
+import tech.becoming.common.exceptions.NotFoundException;
+import tech.becoming.common.http.PreparedResponse;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+import static tech.becoming.common.constants.HttpStatusCode.NOT_FOUND_404;
+import static tech.becoming.common.constants.HttpStatusName.NOT_FOUND;
+
+/**
+ * Remembers the keys a lookup didn't find, so that clients asking again and again for the same missing id,
+ * e.g. scrapers, get a 404 without a query.
+ * <br><br>
+ * Wraps {@link NotFoundException#throwIfEmpty(Optional)} and {@link NotFoundException#throwIfFalse(Boolean)}:
+ * a miss is cached for the TTL, up to a maximum number of keys. Once full, expired keys are swept at most every
+ * quarter of the TTL, new misses are not cached until there is room again. Inserting a key must be reported with
+ * {@link #onInsert(Object)}, which removes it from the cache.
+ * <br>
+ * A key is only ever answered without a query from a miss confirmed by a lookup within the TTL. There is deliberately
+ * no filter of the existing keys answering the keys it doesn't hold: a key inserted by another instance, or missing
+ * from the filter when it was loaded, would then get a 404 forever.
+ * <pre>{@code
+ * static final NegativeCache<Long> MISSING_USERS = NegativeCache.of(100_000, Duration.ofMinutes(5));
+ *
+ * User user = MISSING_USERS.throwIfEmpty(id, () -> repository.findById(id));
+ * }</pre>
+ */
+public final class NegativeCache<K> {
+
+    private static final PreparedResponse NOT_FOUND_RESPONSE = PreparedResponse.of(NOT_FOUND_404, NOT_FOUND);
+
+    private final int maxSize;
+    private final long ttlMillis;
+    private final ConcurrentHashMap<K, Long> missing;
+    private final AtomicLong lastSweep = new AtomicLong();
+    // a miss is not cached when an insert happened during its lookup, it may be the key that was inserted
+    private final AtomicLong inserts = new AtomicLong();
+
+    private NegativeCache(int maxSize, Duration ttl) {
+        if (maxSize <= 0 || ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("Expected a positive size and ttl");
+        }
+        this.maxSize = maxSize;
+        this.ttlMillis = ttl.toMillis();
+        this.missing = new ConcurrentHashMap<>(Math.min(maxSize, 1024));
+    }
+
+    public static <K> NegativeCache<K> of(int maxSize, Duration ttl) {
+        return new NegativeCache<>(maxSize, ttl);
+    }
+
+    /**
+     * @return the value found by the lookup
+     * @throws NotFoundException when the key is known to be missing, or the lookup doesn't find it
+     */
+    public <T> T throwIfEmpty(K key, Supplier<Optional<T>> lookup) {
+        if (isKnownMissing(key)) {
+            throw new NotFoundException();
+        }
+        long version = inserts.get();
+        var value = lookup.get();
+        if (value.isEmpty()) {
+            markMissing(key, version);
+        }
+        return NotFoundException.throwIfEmpty(value);
+    }
+
+    /**
+     * @param exists e.g. Spring Data's <b>existsById</b>
+     * @throws NotFoundException when the key is known to be missing, or doesn't exist
+     */
+    public Boolean throwIfFalse(K key, BooleanSupplier exists) {
+        if (isKnownMissing(key)) {
+            throw new NotFoundException();
+        }
+        long version = inserts.get();
+        boolean found = exists.getAsBoolean();
+        if (!found) {
+            markMissing(key, version);
+        }
+        return NotFoundException.throwIfFalse(found);
+    }
+
+    public boolean isKnownMissing(K key) {
+        var expiresAt = missing.get(key);
+        if (expiresAt == null) {
+            return false;
+        }
+        if (expiresAt > System.currentTimeMillis()) {
+            return true;
+        }
+        missing.remove(key, expiresAt);
+        return false;
+    }
+
+    /**
+     * Caches a miss found outside of the helpers, e.g. by a query returning several rows.
+     */
+    public void markMissing(K key) {
+        markMissing(key, inserts.get());
+    }
+
+    /**
+     * To be called when the key is created, so that it isn't answered with a 404 anymore.
+     */
+    public void onInsert(K key) {
+        inserts.incrementAndGet();
+        missing.remove(key);
+    }
+
+    private void markMissing(K key, long version) {
+        long now = System.currentTimeMillis();
+        if (missing.size() >= maxSize) {
+            sweep(now);
+            if (missing.size() >= maxSize) {
+                return;
+            }
+        }
+        missing.put(key, now + ttlMillis);
+        if (inserts.get() != version) {
+            missing.remove(key);
+        }
+    }
+
+    /**
+     * @return the prepared 404 response, for handlers writing responses rather than throwing
+     */
+    public PreparedResponse notFound() {
+        return NOT_FOUND_RESPONSE;
+    }
+
+    public int size() {
+        return missing.size();
+    }
+
+    private void sweep(long now) {
+        long last = lastSweep.get();
+        if (now - last < ttlMillis / 4 || !lastSweep.compareAndSet(last, now)) {
+            return;
+        }
+        missing.values().removeIf(expiresAt -> expiresAt <= now);
+    }
+}
@@ -0,0 +1,27 @@
+package tech.becoming.common.resilience;
+
+import lombok.Getter;
+
+/**
+ * Partitions of the {@link ConcurrencyLimiter}, lower priorities are shed first.
+ */
+@Getter
+public enum Priority {
+
+    /**
+     * Never shed, e.g. health checks and payments. Still counted, so it pushes the other partitions out.
+     */
+    CRITICAL(Double.MAX_VALUE),
+    HIGH(1.0),
+    NORMAL(0.9),
+    LOW(0.5);
+
+    /**
+     * Share of the current limit this partition may fill
+     */
+    private final double share;
+
+    Priority(double share) {
+        this.share = share;
+    }
+}
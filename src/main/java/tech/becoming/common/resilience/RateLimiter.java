@@ -0,0 +1,303 @@
+package tech.becoming.common.resilience;
+
+import tech.becoming.common.exceptions.TooManyRequestsException;
+import tech.becoming.common.http.PreparedResponse;
+import tech.becoming.common.http.RetryAfterResponses;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static tech.becoming.common.constants.HttpStatusCode.TOO_MANY_REQUESTS_429;
+import static tech.becoming.common.constants.HttpStatusName.TOO_MANY_REQUESTS;
+
+/**
+ * In-process rate limiter keyed by client, tenant or any other string, with a fixed memory footprint.
+ * <br><br>
+ * The state of every key is packed in one long of a fixed size table and updated with CAS, there are no locks.
+ * A key is hashed to 64 bits and looked up in a short probe window, a slot is reclaimed when its key is idle,
+ * i.e. when its state is the same as a fresh one: a full bucket, or no request in the last two windows. A slot is
+ * never taken from a key that still has requests counted, so a throttled key can't get a fresh budget by being
+ * evicted. When the whole probe window is busy the new key is counted in one of a few shared overflow buckets, picked
+ * by hash, until a slot becomes idle: under table pressure the limit becomes coarser for the keys that don't fit,
+ * instead of rejecting new clients that sent nothing yet. Size the table above the number of keys active within the
+ * idle delay to keep overflow rare.
+ * <br><br>
+ * Two algorithms are available:
+ * <br><strong>Token bucket</strong>, up to 65535 tokens, refilled continuously. The state holds the tokens with 8
+ * fraction bits and the last refill time in milliseconds.
+ * <br><strong>Sliding window</strong>, up to 1048575 requests per window. The state holds the counts of the current
+ * and the previous window, the previous one is weighted by how much of it still overlaps the sliding window.
+ * <pre>{@code
+ * static final RateLimiter LIMITER = RateLimiter.tokenBucket(100, 10, Duration.ofSeconds(1));
+ *
+ * long wait = LIMITER.tryAcquire(client.getAddress());
+ * if (wait != RateLimiter.ALLOWED) {
+ *     var rejection = LIMITER.rejection(wait); // 429 with Retry-After
+ * }
+ * }</pre>
+ */
+public class RateLimiter {
+
+    public static final long ALLOWED = 0;
+    public static final int DEFAULT_SLOTS = 1 << 16;
+
+    private static final int PROBES = 8;
+    private static final int OVERFLOW_SLOTS = 64;
+    private static final long EMPTY = 0;
+
+    private static final int TIME_BITS = 40;
+    private static final long TIME_MASK = (1L << TIME_BITS) - 1;
+    private static final int TOKEN_SCALE = 256;
+    private static final long MAX_CAPACITY = ((1L << (Long.SIZE - TIME_BITS)) - 1) / TOKEN_SCALE;
+
+    private static final int COUNT_BITS = 20;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+    private static final long WINDOW_MASK = (1L << (Long.SIZE - 2 * COUNT_BITS)) - 1;
+
+    private enum Algorithm {
+        TOKEN_BUCKET, SLIDING_WINDOW
+    }
+
+    private final Algorithm algorithm;
+    private final long limit;
+    private final long tokens;
+    private final long periodMillis;
+    private final long idleMillis;
+    private final int mask;
+    private final int overflowMask;
+    private final AtomicLongArray keys;
+    private final AtomicLongArray states;
+    private final long epoch = System.nanoTime();
+    private final RetryAfterResponses rejections = new RetryAfterResponses(TOO_MANY_REQUESTS_429, TOO_MANY_REQUESTS);
+
+    private RateLimiter(Algorithm algorithm, long limit, long tokens, long periodMillis, int slots) {
+        if (periodMillis <= 0 || tokens <= 0 || limit <= 0) {
+            throw new IllegalArgumentException("The limit, the refill and the period must be positive");
+        }
+        if (Integer.bitCount(slots) != 1) {
+            throw new IllegalArgumentException("The number of slots must be a power of two");
+        }
+        this.algorithm = algorithm;
+        this.limit = limit;
+        this.tokens = tokens;
+        this.periodMillis = periodMillis;
+        // a bucket is back to full after capacity / rate, a window count is forgotten after two windows
+        this.idleMillis = algorithm == Algorithm.TOKEN_BUCKET
+                ? (limit * periodMillis + tokens - 1) / tokens
+                : 2 * periodMillis;
+        this.mask = slots - 1;
+        this.overflowMask = Math.min(OVERFLOW_SLOTS, slots) - 1;
+        this.keys = new AtomicLongArray(slots);
+        // the overflow buckets follow the slots, they have no key
+        this.states = new AtomicLongArray(slots + overflowMask + 1);
+    }
+
+    /**
+     * @param capacity maximum burst, up to 65535
+     * @param tokens   tokens added to the bucket every period
+     * @param period   refill period
+     */
+    public static RateLimiter tokenBucket(int capacity, int tokens, Duration period) {
+        return tokenBucket(capacity, tokens, period, DEFAULT_SLOTS);
+    }
+
+    /**
+     * @param slots number of keys tracked at once, a power of two
+     */
+    public static RateLimiter tokenBucket(int capacity, int tokens, Duration period, int slots) {
+        if (capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("The capacity can't exceed " + MAX_CAPACITY);
+        }
+        return new RateLimiter(Algorithm.TOKEN_BUCKET, capacity, tokens, period.toMillis(), slots);
+    }
+
+    /**
+     * @param limit  maximum number of requests in any window, up to 1048575
+     * @param window length of the sliding window
+     */
+    public static RateLimiter slidingWindow(int limit, Duration window) {
+        return slidingWindow(limit, window, DEFAULT_SLOTS);
+    }
+
+    public static RateLimiter slidingWindow(int limit, Duration window, int slots) {
+        if (limit > COUNT_MASK) {
+            throw new IllegalArgumentException("The limit can't exceed " + COUNT_MASK);
+        }
+        return new RateLimiter(Algorithm.SLIDING_WINDOW, limit, limit, window.toMillis(), slots);
+    }
+
+    public long tryAcquire(CharSequence key) {
+        return tryAcquire(hash(key), 1);
+    }
+
+    public long tryAcquire(CharSequence key, int permits) {
+        return tryAcquire(hash(key), permits);
+    }
+
+    /**
+     * @param keyHash 64-bit hash of the key, see {@link #hash(CharSequence)}
+     * @return {@link #ALLOWED} or the number of milliseconds after which the same request would be allowed
+     */
+    public long tryAcquire(long keyHash, int permits) {
+        if (permits <= 0 || permits > limit) {
+            throw new IllegalArgumentException("Permits must be between 1 and " + limit);
+        }
+        long now = now();
+        int slot = slot(keyHash == EMPTY ? 1 : keyHash, now);
+        if (slot < 0) {
+            slot = mask + 1 + ((int) (keyHash >>> 32) & overflowMask);
+        }
+        return algorithm == Algorithm.TOKEN_BUCKET
+                ? acquireToken(slot, permits, now)
+                : acquireWindow(slot, permits, now);
+    }
+
+    /**
+     * @throws TooManyRequestsException with the <b>Retry-After</b> delay when the key is over its limit
+     */
+    public void acquireOrThrow(CharSequence key) {
+        long wait = tryAcquire(key);
+        if (wait != ALLOWED) {
+            throw new TooManyRequestsException((wait + 999) / 1000);
+        }
+    }
+
+    /**
+     * @param waitMillis the value returned by a rejected {@link #tryAcquire(long, int)}
+     * @return the prepared 429 response with its <b>Retry-After</b>
+     */
+    public PreparedResponse rejection(long waitMillis) {
+        return rejections.forMillis(waitMillis);
+    }
+
+    /**
+     * 64-bit FNV-1a hash, 32-bit hash codes collide too often with millions of keys.
+     */
+    public static long hash(CharSequence key) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private long acquireToken(int slot, int permits, long now) {
+        long need = (long) permits * TOKEN_SCALE;
+        while (true) {
+            long state = states.get(slot);
+            long available = refill(state, now);
+            if (available >= need) {
+                if (states.compareAndSet(slot, state, packTokens(available - need, now))) {
+                    return ALLOWED;
+                }
+                continue;
+            }
+            long missing = need - available;
+            long scaledTokens = tokens * TOKEN_SCALE;
+            return Math.max(1, (missing * periodMillis + scaledTokens - 1) / scaledTokens);
+        }
+    }
+
+    private long refill(long state, long now) {
+        long time = state & TIME_MASK;
+        long available = state >>> TIME_BITS;
+        long elapsed = Math.min(Math.max(0, now - time), idleMillis);
+        return Math.min(limit * TOKEN_SCALE, available + elapsed * tokens * TOKEN_SCALE / periodMillis);
+    }
+
+    private long acquireWindow(int slot, int permits, long now) {
+        long window = now / periodMillis;
+        long elapsed = now % periodMillis;
+        while (true) {
+            long state = states.get(slot);
+            long stored = state >>> (2 * COUNT_BITS);
+            long previous = state >>> COUNT_BITS & COUNT_MASK;
+            long current = state & COUNT_MASK;
+
+            if (stored != (window & WINDOW_MASK)) {
+                previous = stored == ((window - 1) & WINDOW_MASK) ? current : 0;
+                current = 0;
+            }
+
+            long estimate = previous * (periodMillis - elapsed) / periodMillis + current;
+            if (estimate + permits <= limit) {
+                if (states.compareAndSet(slot, state, packWindow(window, previous, current + permits))) {
+                    return ALLOWED;
+                }
+                continue;
+            }
+
+            if (current + permits > limit) {
+                // wait for the next window, then until this window's weight has decayed enough
+                long decay = periodMillis - (limit - permits) * periodMillis / current;
+                return periodMillis - elapsed + Math.max(0, decay);
+            }
+            long decayed = periodMillis - (limit - current - permits) * periodMillis / previous;
+            return Math.max(1, decayed - elapsed);
+        }
+    }
+
+    /**
+     * Finds the slot of the key, claiming a free or idle one when the key is not tracked.
+     * <br>
+     * The state of a free or idle slot already behaves as a fresh one, only the key is swapped, with a CAS: there is
+     * no window where a fresh state could overwrite a concurrent acquire. A lost CAS probes again.
+     *
+     * @return the slot, or -1 when every slot of the probe window is used by a key that is not idle
+     */
+    private int slot(long keyHash, long now) {
+        int start = (int) (keyHash ^ keyHash >>> 32) & mask;
+        for (int attempt = 0; attempt < PROBES; attempt++) {
+            boolean contended = false;
+            for (int i = 0; i < PROBES; i++) {
+                int slot = (start + i) & mask;
+                long key = keys.get(slot);
+                if (key == keyHash) {
+                    return slot;
+                }
+                if (key == EMPTY || isIdle(states.get(slot), now)) {
+                    if (keys.compareAndSet(slot, key, keyHash)) {
+                        return slot;
+                    }
+                    contended = true;
+                }
+            }
+            if (!contended) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * A state equivalent to a fresh one, an empty slot holds 0 which is idle since {@link #now()} starts after the
+     * idle delay.
+     */
+    private boolean isIdle(long state, long now) {
+        if (algorithm == Algorithm.TOKEN_BUCKET) {
+            return refill(state, now) == limit * TOKEN_SCALE;
+        }
+        long window = now / periodMillis;
+        long stored = state >>> (2 * COUNT_BITS);
+        if (stored == (window & WINDOW_MASK)) {
+            return state == packWindow(window, 0, 0);
+        }
+        return stored != ((window - 1) & WINDOW_MASK) || (state & COUNT_MASK) == 0;
+    }
+
+    private static long packTokens(long scaledTokens, long now) {
+        return scaledTokens << TIME_BITS | (now & TIME_MASK);
+    }
+
+    private static long packWindow(long window, long previous, long current) {
+        return (window & WINDOW_MASK) << (2 * COUNT_BITS) | previous << COUNT_BITS | current;
+    }
+
+    /**
+     * Milliseconds since the creation of the limiter plus the idle delay, so the zero state of an unused slot is idle.
+     */
+    private long now() {
+        return (System.nanoTime() - epoch) / 1_000_000 + idleMillis;
+    }
+}
@@ -0,0 +1,92 @@
+package tech.becoming.common.resilience;
+
+import tech.becoming.common.constants.HttpMethod;
+import tech.becoming.common.http.RequestKey;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Single flight: concurrent identical safe requests share one upstream call instead of stampeding the origin,
+ * e.g. when a hot key misses the cache.
+ * <br><br>
+ * The first request of a {@link RequestKey} runs the call, the others wait on a copy of its future and are completed
+ * with the same result, or the same exception instance when it fails, a call throwing or returning no future included.
+ * Cancelling a copy doesn't cancel the shared call.
+ * The key is removed with a conditional remove when the call completes, which only locks its bin of the map,
+ * so a request arriving afterwards starts a fresh call. Unsafe methods are never coalesced, nor are requests carrying
+ * credentials (<b>Authorization</b>, <b>Proxy-Authorization</b> or <b>Cookie</b>): their response may be personal and
+ * the key doesn't tell users apart, so one user's response would be handed to another.
+ * <pre>{@code
+ * static final RequestCoalescer<Product> PRODUCTS = new RequestCoalescer<>();
+ *
+ * CompletableFuture<Product> product = PRODUCTS.execute(GET, uri, headers::get, new String[]{ACCEPT_LANGUAGE},
+ *         () -> origin.fetch(uri));
+ * }</pre>
+ */
+public final class RequestCoalescer<T> {
+
+    private final ConcurrentHashMap<String, CompletableFuture<T>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * @param varyHeaders the request headers the response varies on
+     * @param call        the upstream call, run once per key at a time
+     */
+    public CompletableFuture<T> execute(String method, String uri, Function<String, String> headers,
+                                        String[] varyHeaders, Supplier<CompletableFuture<T>> call) {
+        if (!HttpMethod.isSafe(method) || RequestKey.hasCredentials(headers)) {
+            return call.get();
+        }
+        return execute(RequestKey.of(method, uri, headers, varyHeaders), call);
+    }
+
+    /**
+     * @param key a key built with {@link RequestKey#of(String, String, Function, String...)} or any other identity,
+     *            the caller makes sure the response is not personal
+     */
+    public CompletableFuture<T> execute(String key, Supplier<CompletableFuture<T>> call) {
+        var existing = inFlight.get(key);
+        if (existing != null) {
+            return existing.copy();
+        }
+
+        var shared = new CompletableFuture<T>();
+        existing = inFlight.putIfAbsent(key, shared);
+        if (existing != null) {
+            return existing.copy();
+        }
+
+        // the call runs outside of the map, only the leader runs it
+        CompletableFuture<T> upstream;
+        try {
+            upstream = call.get();
+            if (upstream == null) {
+                upstream = CompletableFuture.failedFuture(new IllegalStateException("The call returned no future"));
+            }
+        } catch (Throwable e) {
+            // the key must not stay in flight, the followers would wait forever
+            upstream = CompletableFuture.failedFuture(e);
+        }
+        upstream.whenComplete((value, error) -> {
+            inFlight.remove(key, shared);
+            if (error == null) {
+                shared.complete(value);
+            } else {
+                shared.completeExceptionally(error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause()
+                        : error);
+            }
+        });
+        return shared.copy();
+    }
+
+    /**
+     * @return the number of keys with a call in flight
+     */
+    public int size() {
+        return inFlight.size();
+    }
+}
@@ -0,0 +1,98 @@
+package tech.becoming.common.resilience;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caps retries to a share of the requests, so that retries can't multiply the load on a failing dependency.
+ * <br><br>
+ * Each request deposits a fraction of a token, each retry withdraws a whole one. A small number of retries per second
+ * is always allowed so that a low traffic client still gets its retries. Both counters are updated with CAS loops.
+ */
+public final class RetryBudget {
+
+    public static final double DEFAULT_RATIO = 0.1;
+    public static final int DEFAULT_MIN_PER_SECOND = 10;
+
+    private static final long TOKEN = 1000;
+
+    private final long deposit;
+    private final long maxBalance;
+    private final int minPerSecond;
+    private final AtomicLong balance = new AtomicLong();
+    // epoch second in the high bits, retries taken from the floor during that second in the low 20 bits
+    private final AtomicLong floor = new AtomicLong();
+
+    private RetryBudget(double ratio, int minPerSecond) {
+        if (ratio < 0 || ratio > 1 || minPerSecond < 0 || minPerSecond >= 1 << 20) {
+            throw new IllegalArgumentException("Expected a ratio in [0, 1] and a non-negative minimum");
+        }
+        this.deposit = (long) (ratio * TOKEN);
+        // bounds what a burst of failures can spend from the budget saved during a healthy period
+        this.maxBalance = Math.max(100 * TOKEN, 10L * minPerSecond * TOKEN);
+        this.minPerSecond = minPerSecond;
+    }
+
+    /**
+     * 10% of the requests plus 10 retries per second.
+     */
+    public static RetryBudget of() {
+        return new RetryBudget(DEFAULT_RATIO, DEFAULT_MIN_PER_SECOND);
+    }
+
+    /**
+     * @param ratio        retries allowed per request, e.g. 0.2 for one retry every five requests
+     * @param minPerSecond retries allowed per second whatever the traffic
+     */
+    public static RetryBudget of(double ratio, int minPerSecond) {
+        return new RetryBudget(ratio, minPerSecond);
+    }
+
+    /**
+     * Records a first attempt.
+     */
+    public void onRequest() {
+        while (true) {
+            long current = balance.get();
+            long next = Math.min(maxBalance, current + deposit);
+            if (next == current || balance.compareAndSet(current, next)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return true when a retry may be sent
+     */
+    public boolean tryRetry() {
+        while (true) {
+            long current = balance.get();
+            if (current < TOKEN) {
+                return tryFloor();
+            }
+            if (balance.compareAndSet(current, current - TOKEN)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @return the number of retries currently allowed on top of the per second minimum
+     */
+    public long getAvailable() {
+        return balance.get() / TOKEN;
+    }
+
+    private boolean tryFloor() {
+        long second = System.currentTimeMillis() / 1000;
+        while (true) {
+            long current = floor.get();
+            long used = current >>> 20 == second ? current & 0xFFFFF : 0;
+            if (used >= minPerSecond) {
+                return false;
+            }
+            if (floor.compareAndSet(current, second << 20 | used + 1)) {
+                return true;
+            }
+        }
+    }
+}
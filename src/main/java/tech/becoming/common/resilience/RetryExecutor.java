@@ -0,0 +1,274 @@
+package tech.becoming.common.resilience;
+
+import tech.becoming.common.constants.HttpMethod;
+import tech.becoming.common.exceptions.AbstractRuntimeException;
+import tech.becoming.common.exceptions.ServiceUnavailableException;
+import tech.becoming.common.exceptions.TooManyRequestsException;
+import tech.becoming.common.http.RetryAfter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+import static tech.becoming.common.constants.HttpStatusCode.BAD_GATEWAY_502;
+import static tech.becoming.common.constants.HttpStatusCode.GATEWAY_TIMEOUT_504;
+import static tech.becoming.common.constants.HttpStatusCode.REQUEST_TIMEOUT_408;
+import static tech.becoming.common.constants.HttpStatusCode.SERVICE_UNAVAILABLE_503;
+import static tech.becoming.common.constants.HttpStatusCode.TOO_MANY_REQUESTS_429;
+
+/**
+ * Retries the calls to a dependency that are safe to repeat: idempotent methods, and POST or PATCH carrying an
+ * <b>Idempotency-Key</b>.
+ * <br><br>
+ * 408, 429, 502, 503, 504, {@link IOException} and {@link TimeoutException} are retried, any other exception is
+ * returned as is. A retry waits for the <b>Retry-After</b> of the response when there is one, otherwise for a
+ * decorrelated jitter backoff: a random delay between the base delay and three times the previous one, capped.
+ * The delays are scheduled on a {@link TimerWheel}, no thread waits for them, and the attempts are handed off to an
+ * {@link Executor} so that the wheel only keeps time. Every retry is taken from a {@link RetryBudget} shared by the
+ * executor, when it runs out the last outcome is returned as is.
+ * <pre>{@code
+ * static final RetryExecutor RETRIES = RetryExecutor.of(3, Duration.ofMillis(50), Duration.ofSeconds(2));
+ *
+ * CompletableFuture<HttpResponse<String>> response = RETRIES.execute(GET, null,
+ *         () -> client.sendAsync(request, BodyHandlers.ofString()),
+ *         Outcome.of(HttpResponse::statusCode, r -> r.headers().firstValue(RETRY_AFTER).orElse(null)));
+ * }</pre>
+ */
+public final class RetryExecutor {
+
+    /**
+     * How the executor reads the responses of the dependency.
+     */
+    public interface Outcome<T> {
+
+        int status(T response);
+
+        /**
+         * @return the <b>Retry-After</b> header of the response, or null
+         */
+        default String retryAfter(T response) {
+            return null;
+        }
+
+        static <T> Outcome<T> of(ToIntFunction<T> status, Function<T, String> retryAfter) {
+            return new Outcome<>() {
+                @Override
+                public int status(T response) {
+                    return status.applyAsInt(response);
+                }
+
+                @Override
+                public String retryAfter(T response) {
+                    return retryAfter.apply(response);
+                }
+            };
+        }
+    }
+
+    private final int maxAttempts;
+    private final long baseMillis;
+    private final long maxMillis;
+    private final RetryBudget budget;
+    private final TimerWheel timer;
+    private final Executor executor;
+
+    private RetryExecutor(int maxAttempts, Duration baseDelay, Duration maxDelay, RetryBudget budget, TimerWheel timer,
+                          Executor executor) {
+        if (maxAttempts <= 0 || baseDelay.isNegative() || maxDelay.compareTo(baseDelay) < 0) {
+            throw new IllegalArgumentException("Expected a positive number of attempts and 0 <= baseDelay <= maxDelay");
+        }
+        this.maxAttempts = maxAttempts;
+        this.baseMillis = Math.max(1, baseDelay.toMillis());
+        this.maxMillis = Math.max(baseMillis, maxDelay.toMillis());
+        this.budget = budget;
+        this.timer = timer;
+        this.executor = executor;
+    }
+
+    /**
+     * With the default {@link RetryBudget}, the shared {@link TimerWheel} and the common pool.
+     *
+     * @param maxAttempts the first attempt included
+     * @param maxDelay    cap of the backoff, a longer <b>Retry-After</b> isn't waited for
+     */
+    public static RetryExecutor of(int maxAttempts, Duration baseDelay, Duration maxDelay) {
+        return of(maxAttempts, baseDelay, maxDelay, RetryBudget.of(), TimerWheel.shared());
+    }
+
+    public static RetryExecutor of(int maxAttempts, Duration baseDelay, Duration maxDelay,
+                                   RetryBudget budget, TimerWheel timer) {
+        return of(maxAttempts, baseDelay, maxDelay, budget, timer, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param executor runs the retried attempts, e.g. the executor of the http client
+     */
+    public static RetryExecutor of(int maxAttempts, Duration baseDelay, Duration maxDelay,
+                                   RetryBudget budget, TimerWheel timer, Executor executor) {
+        return new RetryExecutor(maxAttempts, baseDelay, maxDelay, budget, timer, executor);
+    }
+
+    /**
+     * @return true when a request may be sent again without risking a duplicated side effect
+     */
+    public static boolean isRetryable(String method, String idempotencyKey) {
+        if (HttpMethod.isIdempotent(method)) {
+            return true;
+        }
+        return (HttpMethod.POST.equals(method) || HttpMethod.PATCH.equals(method))
+                && idempotencyKey != null
+                && !idempotencyKey.isBlank();
+    }
+
+    /**
+     * The statuses telling that the same request may succeed later.
+     */
+    public static boolean isRetryableStatus(int status) {
+        return status == SERVICE_UNAVAILABLE_503
+                || status == TOO_MANY_REQUESTS_429
+                || status == BAD_GATEWAY_502
+                || status == GATEWAY_TIMEOUT_504
+                || status == REQUEST_TIMEOUT_408;
+    }
+
+    /**
+     * The exceptions telling that the same request may succeed later: connection errors and timeouts, unwrapped
+     * from {@link CompletionException} and {@link ExecutionException}. Bugs, e.g. a {@link NullPointerException},
+     * and cancellations are not retried.
+     */
+    public static boolean isRetryableError(Throwable error) {
+        error = unwrap(error);
+        return error instanceof IOException || error instanceof TimeoutException;
+    }
+
+    /**
+     * @param idempotencyKey value of the <b>Idempotency-Key</b> header of the request, or null
+     * @param attempt        sends the request without blocking, called once per attempt
+     */
+    public <T> CompletableFuture<T> execute(String method, String idempotencyKey,
+                                            Supplier<CompletableFuture<T>> attempt, Outcome<T> outcome) {
+        var result = new CompletableFuture<T>();
+        budget.onRequest();
+        run(new Call<>(isRetryable(method, idempotencyKey) ? maxAttempts : 1, attempt, outcome, result), 1, baseMillis);
+        return result;
+    }
+
+    /**
+     * For calls reporting their failures as exceptions: the library's exceptions are classified by their http code,
+     * the <b>Retry-After</b> of {@link TooManyRequestsException} and {@link ServiceUnavailableException} is honored.
+     * See {@link #isRetryableError(Throwable)} for the other exceptions.
+     */
+    public <T> CompletableFuture<T> execute(String method, String idempotencyKey, Supplier<CompletableFuture<T>> attempt) {
+        return execute(method, idempotencyKey, attempt, response -> 0);
+    }
+
+    private <T> void run(Call<T> call, int attempt, long previousDelay) {
+        if (call.result.isDone()) {
+            // cancelled by the caller
+            return;
+        }
+        CompletableFuture<T> future;
+        try {
+            future = call.attempt.get();
+        } catch (Throwable e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        future.whenComplete((response, error) -> {
+            if (error == null) {
+                onResponse(call, attempt, previousDelay, response);
+            } else {
+                onError(call, attempt, previousDelay, unwrap(error));
+            }
+        });
+    }
+
+    private <T> void onResponse(Call<T> call, int attempt, long previousDelay, T response) {
+        if (!isRetryableStatus(call.outcome.status(response))) {
+            call.result.complete(response);
+            return;
+        }
+        long retryAfter = RetryAfter.toMillis(call.outcome.retryAfter(response));
+        if (!retry(call, attempt, previousDelay, retryAfter)) {
+            call.result.complete(response);
+        }
+    }
+
+    private <T> void onError(Call<T> call, int attempt, long previousDelay, Throwable error) {
+        long retryAfter = RetryAfter.ABSENT;
+        boolean retryable;
+        if (error instanceof AbstractRuntimeException) {
+            retryable = isRetryableStatus(((AbstractRuntimeException) error).getHttpCode());
+            retryAfter = retryAfterMillis(error);
+        } else {
+            retryable = isRetryableError(error);
+        }
+        if (!retryable || !retry(call, attempt, previousDelay, retryAfter)) {
+            call.result.completeExceptionally(error);
+        }
+    }
+
+    private <T> boolean retry(Call<T> call, int attempt, long previousDelay, long retryAfterMillis) {
+        if (attempt >= call.maxAttempts || retryAfterMillis > maxMillis || !budget.tryRetry()) {
+            return false;
+        }
+        long bound = Math.min(maxMillis, previousDelay * 3);
+        long delay = bound <= baseMillis ? baseMillis : ThreadLocalRandom.current().nextLong(baseMillis, bound + 1);
+        long wait = Math.max(delay, retryAfterMillis);
+        timer.schedule(() -> submit(call, attempt + 1, delay), wait, TimeUnit.MILLISECONDS);
+        return true;
+    }
+
+    /**
+     * Called on the timer thread, the attempt runs on the executor.
+     */
+    private <T> void submit(Call<T> call, int attempt, long previousDelay) {
+        try {
+            executor.execute(() -> run(call, attempt, previousDelay));
+        } catch (RejectedExecutionException e) {
+            call.result.completeExceptionally(e);
+        }
+    }
+
+    private static long retryAfterMillis(Throwable error) {
+        long seconds = 0;
+        if (error instanceof TooManyRequestsException) {
+            seconds = ((TooManyRequestsException) error).getRetryAfterSeconds();
+        } else if (error instanceof ServiceUnavailableException) {
+            seconds = ((ServiceUnavailableException) error).getRetryAfterSeconds();
+        }
+        return seconds > 0 ? seconds * 1000 : RetryAfter.ABSENT;
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        while ((error instanceof CompletionException || error instanceof ExecutionException) && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+
+    private static final class Call<T> {
+
+        final int maxAttempts;
+        final Supplier<CompletableFuture<T>> attempt;
+        final Outcome<T> outcome;
+        final CompletableFuture<T> result;
+
+        Call(int maxAttempts, Supplier<CompletableFuture<T>> attempt, Outcome<T> outcome, CompletableFuture<T> result) {
+            this.maxAttempts = maxAttempts;
+            this.attempt = attempt;
+            this.outcome = outcome;
+            this.result = result;
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package tech.becoming.common.resilience;
+
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Hashed timing wheel: one daemon thread serves every timeout instead of a scheduled future or a sleeping thread each.
+ * <br><br>
+ * Scheduling and cancelling are a CAS and a lock-free queue offer, the worker moves new timeouts into their bucket,
+ * unlinks the cancelled ones and runs the expired ones once per tick. Timeouts fire up to one tick late, which is
+ * what retries and deadlines need. Tasks run on the worker thread, they must be short, e.g. completing a future or
+ * submitting to an executor. A task that throws is logged, the others still run.
+ * <pre>{@code
+ * var timeout = TimerWheel.shared().schedule(() -> future.cancel(true), 2, TimeUnit.SECONDS);
+ * ...
+ * timeout.cancel();
+ * }</pre>
+ */
+public final class TimerWheel {
+
+    public static final Duration DEFAULT_TICK = Duration.ofMillis(10);
+    public static final int DEFAULT_BUCKETS = 512;
+
+    private static final Logger LOGGER = Logger.getLogger(TimerWheel.class.getName());
+
+    private static final int PENDING = 0;
+    private static final int CANCELLED = 1;
+    private static final int EXPIRED = 2;
+
+    private final long tickNanos;
+    private final int mask;
+    private final Bucket[] wheel;
+    private final long startNanos = System.nanoTime();
+    private final Queue<Timeout> scheduled = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> cancelled = new ConcurrentLinkedQueue<>();
+    private final Thread worker;
+    private volatile boolean running = true;
+    private long tick;
+
+    /**
+     * @param buckets rounded up to a power of two
+     */
+    public TimerWheel(Duration tick, int buckets, String threadName) {
+        if (tick.isNegative() || tick.isZero() || buckets <= 0 || buckets > 1 << 16) {
+            throw new IllegalArgumentException("Expected a positive tick and between 1 and 65536 buckets");
+        }
+        int size = buckets == 1 ? 1 : Integer.highestOneBit(buckets - 1) << 1;
+        this.tickNanos = tick.toNanos();
+        this.mask = size - 1;
+        this.wheel = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.worker = new Thread(this::run, threadName);
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * The wheel shared by the library's retries and deadlines, started on first use.
+     */
+    public static TimerWheel shared() {
+        return Shared.INSTANCE;
+    }
+
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        if (!running) {
+            throw new IllegalStateException("The timer wheel is stopped");
+        }
+        long deadline = System.nanoTime() - startNanos + Math.max(0, unit.toNanos(delay));
+        var timeout = new Timeout(this, task, deadline);
+        scheduled.offer(timeout);
+        return timeout;
+    }
+
+    public Timeout schedule(Runnable task, Duration delay) {
+        return schedule(task, delay.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Stops the worker, the timeouts still pending never fire.
+     */
+    public void stop() {
+        running = false;
+        worker.interrupt();
+    }
+
+    private void run() {
+        long next = tickNanos;
+        while (running) {
+            long sleep = next - (System.nanoTime() - startNanos);
+            if (sleep > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleep);
+                } catch (InterruptedException e) {
+                    if (!running) {
+                        return;
+                    }
+                }
+                continue;
+            }
+            unlinkCancelled();
+            transferScheduled();
+            expire(wheel[(int) (tick & mask)]);
+            tick++;
+            next += tickNanos;
+        }
+    }
+
+    private void transferScheduled() {
+        // bounded so that a flood of new timeouts doesn't delay the tick
+        for (int i = 0; i < 100_000; i++) {
+            var timeout = scheduled.poll();
+            if (timeout == null) {
+                return;
+            }
+            if (timeout.state.get() != PENDING) {
+                continue;
+            }
+            long ticks = Math.max(tick, timeout.deadline / tickNanos);
+            timeout.rounds = (ticks - tick) / wheel.length;
+            wheel[(int) (ticks & mask)].add(timeout);
+        }
+    }
+
+    private void unlinkCancelled() {
+        Timeout timeout;
+        while ((timeout = cancelled.poll()) != null) {
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+            }
+        }
+    }
+
+    private void expire(Bucket bucket) {
+        var timeout = bucket.head;
+        while (timeout != null) {
+            var next = timeout.next;
+            if (timeout.rounds > 0) {
+                timeout.rounds--;
+            } else {
+                bucket.remove(timeout);
+                if (timeout.state.compareAndSet(PENDING, EXPIRED)) {
+                    try {
+                        timeout.task.run();
+                    } catch (Throwable e) {
+                        LOGGER.log(Level.WARNING, "A timer task failed", e);
+                    }
+                }
+            }
+            timeout = next;
+        }
+    }
+
+    /**
+     * Handle on a scheduled task.
+     */
+    public static final class Timeout {
+
+        private final TimerWheel timer;
+        private final Runnable task;
+        private final long deadline;
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+
+        // owned by the worker thread
+        private long rounds;
+        private Bucket bucket;
+        private Timeout prev;
+        private Timeout next;
+
+        private Timeout(TimerWheel timer, Runnable task, long deadline) {
+            this.timer = timer;
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * @return true when the task was prevented from running, false when it already ran or was cancelled
+         */
+        public boolean cancel() {
+            if (!state.compareAndSet(PENDING, CANCELLED)) {
+                return false;
+            }
+            timer.cancelled.offer(this);
+            return true;
+        }
+
+        public boolean isCancelled() {
+            return state.get() == CANCELLED;
+        }
+
+        public boolean isExpired() {
+            return state.get() == EXPIRED;
+        }
+    }
+
+    private static final class Bucket {
+
+        private Timeout head;
+        private Timeout tail;
+
+        void add(Timeout timeout) {
+            timeout.bucket = this;
+            timeout.prev = tail;
+            if (tail == null) {
+                head = timeout;
+            } else {
+                tail.next = timeout;
+            }
+            tail = timeout;
+        }
+
+        void remove(Timeout timeout) {
+            if (timeout.bucket != this) {
+                return;
+            }
+            if (timeout.prev == null) {
+                head = timeout.next;
+            } else {
+                timeout.prev.next = timeout.next;
+            }
+            if (timeout.next == null) {
+                tail = timeout.prev;
+            } else {
+                timeout.next.prev = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+    }
+
+    private static final class Shared {
+        static final TimerWheel INSTANCE = new TimerWheel(DEFAULT_TICK, DEFAULT_BUCKETS, "timer-wheel");
+    }
+}
@@ -0,0 +1,87 @@
+package tech.becoming.common.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free Bloom filter over 64 bit hashes, with a fixed memory footprint.
+ * <br><br>
+ * Bits are set with CAS on an {@link AtomicLongArray}, the probe positions are derived from the two halves of the
+ * hash (double hashing), so the caller hashes its key once. It may answer that an absent key is present,
+ * at the configured false positive rate, never the opposite.
+ */
+public final class BloomFilter {
+
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashes;
+
+    private BloomFilter(long expectedItems, double falsePositiveRate) {
+        if (expectedItems <= 0 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("Expected a positive number of items and a rate in (0, 1)");
+        }
+        double ln2 = Math.log(2);
+        long optimal = (long) Math.ceil(-expectedItems * Math.log(falsePositiveRate) / (ln2 * ln2));
+        int words = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, (optimal + 63) / 64));
+        this.bits = new AtomicLongArray(words);
+        this.bitCount = words * 64L;
+        this.hashes = Math.max(1, Math.min(16, (int) Math.round((double) bitCount / expectedItems * ln2)));
+    }
+
+    /**
+     * @param expectedItems     number of items the rate holds for, more items raise it
+     * @param falsePositiveRate e.g. 0.001
+     */
+    public static BloomFilter of(long expectedItems, double falsePositiveRate) {
+        return new BloomFilter(expectedItems, falsePositiveRate);
+    }
+
+    public boolean mightContain(long hash) {
+        long h1 = hash;
+        long h2 = hash >>> 32 | hash << 32;
+        for (int i = 0; i < hashes; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            if ((bits.get((int) (bit >>> 6)) & 1L << bit) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return true when the hash was absent, i.e. at least one of its bits was not set yet
+     */
+    public boolean put(long hash) {
+        long h1 = hash;
+        long h2 = hash >>> 32 | hash << 32;
+        boolean added = false;
+        for (int i = 0; i < hashes; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            while (true) {
+                long current = bits.get(word);
+                if ((current & mask) != 0) {
+                    break;
+                }
+                if (bits.compareAndSet(word, current, current | mask)) {
+                    added = true;
+                    break;
+                }
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Not atomic: keys put while clearing may be lost. A caller that can't afford it swaps in a new filter instead.
+     */
+    public void clear() {
+        for (int i = 0; i < bits.length(); i++) {
+            bits.set(i, 0);
+        }
+    }
+
+    public long bitSize() {
+        return bitCount;
+    }
+}
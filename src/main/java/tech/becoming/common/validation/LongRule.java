@@ -0,0 +1,45 @@
+package tech.becoming.common.validation;
+
+import lombok.Getter;
+
+import java.util.function.LongPredicate;
+
+/**
+ * A check on a primitive integral field, {@code int}, {@code long}, {@code short}, {@code byte} or {@code char},
+ * read without boxing.
+ */
+@Getter
+public final class LongRule {
+
+    private final LongPredicate predicate;
+    private final String message;
+
+    private LongRule(LongPredicate predicate, String message) {
+        this.predicate = predicate;
+        this.message = message;
+    }
+
+    public static LongRule of(LongPredicate predicate, String message) {
+        return new LongRule(predicate, message);
+    }
+
+    public static LongRule min(long min) {
+        return new LongRule(value -> value >= min, "must be greater than or equal to " + min);
+    }
+
+    public static LongRule max(long max) {
+        return new LongRule(value -> value <= max, "must be less than or equal to " + max);
+    }
+
+    public static LongRule range(long min, long max) {
+        return new LongRule(value -> value >= min && value <= max, "must be between " + min + " and " + max);
+    }
+
+    public static LongRule positive() {
+        return new LongRule(value -> value > 0, "must be positive");
+    }
+
+    boolean test(long value) {
+        return predicate.test(value);
+    }
+}
@@ -0,0 +1,89 @@
+package tech.becoming.common.validation;
+
+import lombok.Getter;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * A check on the value of a field, with the message of the {@link tech.becoming.common.exceptions.ExceptionDetail}
+ * reported when it fails. Except for {@link #notNull()}, a null value passes: combine with {@link #notNull()}
+ * when the field is required.
+ * <br><br>
+ * The rule knows the type of the values it accepts, the {@link Validator.Builder} rejects a field of another type
+ * when the rule is added rather than failing with a {@link ClassCastException} on the first validation.
+ */
+@Getter
+public final class Rule<V> {
+
+    private final Class<?> valueType;
+    private final Predicate<? super V> predicate;
+    private final String message;
+
+    private Rule(Class<?> valueType, Predicate<? super V> predicate, String message) {
+        this.valueType = valueType;
+        this.predicate = predicate;
+        this.message = message;
+    }
+
+    /**
+     * A rule on values of any type, the predicate must accept whatever the field holds.
+     */
+    public static <V> Rule<V> of(Predicate<? super V> predicate, String message) {
+        return new Rule<>(Object.class, predicate, message);
+    }
+
+    /**
+     * A rule on values of the given type, checked against the type of the field by the {@link Validator.Builder}.
+     */
+    public static <V> Rule<V> of(Class<V> valueType, Predicate<? super V> predicate, String message) {
+        if (valueType == null) {
+            throw new IllegalArgumentException("Expected the type of the values");
+        }
+        return new Rule<>(valueType, predicate, message);
+    }
+
+    public static <V> Rule<V> notNull() {
+        return new Rule<>(Object.class, value -> value != null, "must not be null");
+    }
+
+    public static Rule<CharSequence> notBlank() {
+        return new Rule<>(CharSequence.class, value -> value != null && !isBlank(value), "must not be blank");
+    }
+
+    public static Rule<CharSequence> length(int min, int max) {
+        return new Rule<>(CharSequence.class, value -> value == null || value.length() >= min && value.length() <= max,
+                "length must be between " + min + " and " + max);
+    }
+
+    public static Rule<CharSequence> pattern(String regex) {
+        var compiled = Pattern.compile(regex);
+        return new Rule<>(CharSequence.class, value -> value == null || compiled.matcher(value).matches(),
+                "must match " + regex);
+    }
+
+    public static Rule<Collection<?>> size(int min, int max) {
+        return new Rule<>(Collection.class, value -> value == null || value.size() >= min && value.size() <= max,
+                "size must be between " + min + " and " + max);
+    }
+
+    public static Rule<Map<?, ?>> entries(int min, int max) {
+        return new Rule<>(Map.class, value -> value == null || value.size() >= min && value.size() <= max,
+                "size must be between " + min + " and " + max);
+    }
+
+    boolean test(V value) {
+        return predicate.test(value);
+    }
+
+    private static boolean isBlank(CharSequence value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (!Character.isWhitespace(value.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
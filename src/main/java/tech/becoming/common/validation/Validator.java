@@ -0,0 +1,488 @@
+package tech.becoming.common.validation;
+
+import tech.becoming.common.exceptions.BadRequestException;
+import tech.becoming.common.exceptions.ExceptionDetail;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Validates objects of one class against rules compiled once, when the validator is built, into a flat array of
+ * checks: each one a {@link MethodHandle} reading a field, through its getter or directly, and a predicate.
+ * No reflection happens per call and primitive fields are read without boxing.
+ * <br><br>
+ * The {@link ExceptionDetail} list is only created on the first failure, validating a valid object allocates nothing.
+ * Lists of at least {@link #PARALLEL_THRESHOLD} objects are split in fork-join tasks, the details are merged
+ * in the order of the list and named after the index, e.g. {@code [12].email}.
+ * <pre>{@code
+ * static final Validator<Line> LINE = Validator.of(Line.class)
+ *         .field("sku", Rule.notBlank())
+ *         .field("quantity", LongRule.range(1, 1000))
+ *         .build();
+ *
+ * static final Validator<Order> ORDER = Validator.of(Order.class)
+ *         .field("customer", Rule.notNull())
+ *         .field("lines", Rule.size(1, 10_000))
+ *         .each("lines", LINE)
+ *         .build();
+ *
+ * ORDER.validateOrThrow(order); // BadRequestException with a detail per failure, e.g. lines[3].quantity
+ * }</pre>
+ */
+public final class Validator<T> {
+
+    public static final int PARALLEL_THRESHOLD = 4096;
+
+    private static final ThreadLocal<Path> PATHS = ThreadLocal.withInitial(Path::new);
+
+    private final Class<T> type;
+    private final Check[] checks;
+
+    private Validator(Class<T> type, Check[] checks) {
+        this.type = type;
+        this.checks = checks;
+    }
+
+    public static <T> Builder<T> of(Class<T> type) {
+        return new Builder<>(type);
+    }
+
+    /**
+     * @return the details of the failed rules, an immutable empty list when the object is valid
+     */
+    public List<ExceptionDetail> validate(T target) {
+        var path = PATHS.get();
+        path.reset();
+        var details = validate(target, path, null);
+        return details == null ? Collections.emptyList() : details;
+    }
+
+    /**
+     * @throws BadRequestException with the details of the failed rules
+     */
+    public void validateOrThrow(T target) {
+        BadRequestException.throwIfHasDetails(validate(target));
+    }
+
+    /**
+     * Validates every object of the list, in parallel for large lists.
+     *
+     * @return the details in the order of the list, named after the index of the object
+     */
+    public List<ExceptionDetail> validateAll(List<? extends T> targets) {
+        List<ExceptionDetail> details;
+        if (targets.size() < PARALLEL_THRESHOLD) {
+            var path = PATHS.get();
+            path.reset();
+            details = validateRange(targets, path, 0, targets.size(), null);
+        } else {
+            details = ForkJoinPool.commonPool().invoke(new RangeTask<>(this, targets, 0, targets.size(), new Path()));
+        }
+        return details == null ? Collections.emptyList() : details;
+    }
+
+    /**
+     * @throws BadRequestException with the details of every failed rule of every object
+     */
+    public void validateAllOrThrow(List<? extends T> targets) {
+        BadRequestException.throwIfHasDetails(validateAll(targets));
+    }
+
+    public Class<T> getType() {
+        return type;
+    }
+
+    List<ExceptionDetail> validate(Object target, Path path, List<ExceptionDetail> details) {
+        for (var check : checks) {
+            try {
+                details = check.run(target, path, details);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException("Couldn't read " + check.name + " of " + type.getName(), e);
+            }
+        }
+        return details;
+    }
+
+    /**
+     * The objects are indexed in the last segment of the path.
+     */
+    List<ExceptionDetail> validateRange(List<?> targets, Path path, int from, int to, List<ExceptionDetail> details) {
+        for (int i = from; i < to; i++) {
+            var target = targets.get(i);
+            if (target != null) {
+                path.index(i);
+                details = validate(target, path, details);
+            }
+        }
+        return details;
+    }
+
+    private static List<ExceptionDetail> add(List<ExceptionDetail> details, Path path, String name, String message) {
+        if (details == null) {
+            details = new ArrayList<>();
+        }
+        details.add(ExceptionDetail.ofNameAndMessage(path.name(name), message));
+        return details;
+    }
+
+    public static final class Builder<T> {
+
+        private static final MethodType OBJECT_GETTER = MethodType.methodType(Object.class, Object.class);
+        private static final MethodType LONG_GETTER = MethodType.methodType(long.class, Object.class);
+
+        private final Class<T> type;
+        private final List<Check> checks = new ArrayList<>();
+
+        private Builder(Class<T> type) {
+            this.type = type;
+        }
+
+        /**
+         * @throws IllegalArgumentException when the field can't hold a value of the type accepted by the rule
+         */
+        public <V> Builder<T> field(String name, Rule<V> rule) {
+            var getter = getter(name);
+            requireCompatible(name, getter.type().wrap().returnType(), rule.getValueType());
+            checks.add(new ObjectCheck(name, getter.asType(OBJECT_GETTER), rule));
+            return this;
+        }
+
+        public Builder<T> field(String name, LongRule rule) {
+            var getter = getter(name);
+            var fieldType = getter.type().returnType();
+            if (fieldType != int.class && fieldType != long.class && fieldType != short.class
+                    && fieldType != byte.class && fieldType != char.class) {
+                throw new IllegalArgumentException(name + " of " + type.getName() + " is not a primitive integral");
+            }
+            checks.add(new LongCheck(name, getter.asType(LONG_GETTER), rule));
+            return this;
+        }
+
+        /**
+         * Validates the object held by the field, the details are prefixed by the field name, e.g. address.street
+         */
+        public Builder<T> nested(String name, Validator<?> validator) {
+            var getter = getter(name);
+            requireCompatible(name, getter.type().returnType(), validator.getType());
+            checks.add(new NestedCheck(name, getter.asType(OBJECT_GETTER), validator));
+            return this;
+        }
+
+        /**
+         * Validates every object of the list held by the field, e.g. lines[3].quantity
+         */
+        public Builder<T> each(String name, Validator<?> validator) {
+            var getter = getter(name);
+            if (!List.class.isAssignableFrom(getter.type().returnType())) {
+                throw new IllegalArgumentException(name + " of " + type.getName() + " is not a List");
+            }
+            var elementType = elementType(name);
+            if (elementType != null) {
+                requireCompatible(name, elementType, validator.getType());
+            }
+            checks.add(new EachCheck(name, getter.asType(OBJECT_GETTER), validator));
+            return this;
+        }
+
+        public Validator<T> build() {
+            return new Validator<>(type, checks.toArray(new Check[0]));
+        }
+
+        /**
+         * Resolves the getter, {@code getName()}, {@code isName()} or {@code name()}, otherwise the field itself.
+         */
+        private MethodHandle getter(String name) {
+            MethodHandle handle;
+            try {
+                var lookup = MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+                var method = findGetter(name);
+                if (method != null) {
+                    handle = lookup.unreflect(method);
+                } else {
+                    handle = lookup.unreflectGetter(findField(name));
+                }
+            } catch (IllegalAccessException e) {
+                throw new IllegalArgumentException("Can't access " + name + " of " + type.getName(), e);
+            }
+            return handle.asType(handle.type().changeParameterType(0, Object.class));
+        }
+
+        /**
+         * A field declared with a supertype may still hold values of the expected type, only unrelated types fail.
+         */
+        private void requireCompatible(String name, Class<?> fieldType, Class<?> expected) {
+            if (!expected.isAssignableFrom(fieldType) && !fieldType.isAssignableFrom(expected)) {
+                throw new IllegalArgumentException(name + " of " + type.getName() + " is a " + fieldType.getName()
+                        + ", not a " + expected.getName());
+            }
+        }
+
+        /**
+         * @return the class of the elements of the list, null when it isn't declared, e.g. a raw List or a wildcard
+         */
+        private Class<?> elementType(String name) {
+            var method = findGetter(name);
+            var generic = method != null ? method.getGenericReturnType() : findField(name).getGenericType();
+            if (generic instanceof ParameterizedType) {
+                var argument = ((ParameterizedType) generic).getActualTypeArguments()[0];
+                if (argument instanceof Class) {
+                    return (Class<?>) argument;
+                }
+                if (argument instanceof ParameterizedType) {
+                    return (Class<?>) ((ParameterizedType) argument).getRawType();
+                }
+            }
+            return null;
+        }
+
+        private Method findGetter(String name) {
+            var capitalized = name.substring(0, 1).toUpperCase(Locale.ROOT) + name.substring(1);
+            for (var candidate : new String[]{"get" + capitalized, "is" + capitalized, name}) {
+                try {
+                    var method = type.getMethod(candidate);
+                    if (method.getReturnType() != void.class && !Modifier.isStatic(method.getModifiers())) {
+                        return method;
+                    }
+                } catch (NoSuchMethodException e) {
+                    // next naming convention
+                }
+            }
+            return null;
+        }
+
+        private Field findField(String name) {
+            for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+                try {
+                    return c.getDeclaredField(name);
+                } catch (NoSuchFieldException e) {
+                    // declared by a superclass
+                }
+            }
+            throw new IllegalArgumentException(type.getName() + " has no field nor getter " + name);
+        }
+    }
+
+    private abstract static class Check {
+
+        final String name;
+        final MethodHandle getter;
+
+        Check(String name, MethodHandle getter) {
+            this.name = name;
+            this.getter = getter;
+        }
+
+        abstract List<ExceptionDetail> run(Object target, Path path, List<ExceptionDetail> details) throws Throwable;
+    }
+
+    private static final class ObjectCheck extends Check {
+
+        final Rule<Object> rule;
+
+        @SuppressWarnings("unchecked")
+        ObjectCheck(String name, MethodHandle getter, Rule<?> rule) {
+            super(name, getter);
+            this.rule = (Rule<Object>) rule;
+        }
+
+        @Override
+        List<ExceptionDetail> run(Object target, Path path, List<ExceptionDetail> details) throws Throwable {
+            Object value = getter.invokeExact(target);
+            return rule.test(value) ? details : add(details, path, name, rule.getMessage());
+        }
+    }
+
+    private static final class LongCheck extends Check {
+
+        final LongRule rule;
+
+        LongCheck(String name, MethodHandle getter, LongRule rule) {
+            super(name, getter);
+            this.rule = rule;
+        }
+
+        @Override
+        List<ExceptionDetail> run(Object target, Path path, List<ExceptionDetail> details) throws Throwable {
+            long value = (long) getter.invokeExact(target);
+            return rule.test(value) ? details : add(details, path, name, rule.getMessage());
+        }
+    }
+
+    private static final class NestedCheck extends Check {
+
+        final Validator<?> validator;
+
+        NestedCheck(String name, MethodHandle getter, Validator<?> validator) {
+            super(name, getter);
+            this.validator = validator;
+        }
+
+        @Override
+        List<ExceptionDetail> run(Object target, Path path, List<ExceptionDetail> details) throws Throwable {
+            Object value = getter.invokeExact(target);
+            if (value == null) {
+                return details;
+            }
+            path.push(name);
+            try {
+                return validator.validate(value, path, details);
+            } finally {
+                path.pop();
+            }
+        }
+    }
+
+    private static final class EachCheck extends Check {
+
+        final Validator<?> validator;
+
+        EachCheck(String name, MethodHandle getter, Validator<?> validator) {
+            super(name, getter);
+            this.validator = validator;
+        }
+
+        @Override
+        List<ExceptionDetail> run(Object target, Path path, List<ExceptionDetail> details) throws Throwable {
+            var values = (List<?>) (Object) getter.invokeExact(target);
+            if (values == null) {
+                return details;
+            }
+            path.push(name);
+            try {
+                if (values.size() < PARALLEL_THRESHOLD) {
+                    return validator.validateRange(values, path, 0, values.size(), details);
+                }
+                return merge(details, new RangeTask<>(validator, values, 0, values.size(), path.copy()).invoke());
+            } finally {
+                path.pop();
+            }
+        }
+
+        private static List<ExceptionDetail> merge(List<ExceptionDetail> details, List<ExceptionDetail> merged) {
+            if (merged == null) {
+                return details;
+            }
+            if (details == null) {
+                return merged;
+            }
+            details.addAll(merged);
+            return details;
+        }
+    }
+
+    /**
+     * Splits a list in halves until they are under the threshold, the left details come first.
+     */
+    private static final class RangeTask<T> extends RecursiveTask<List<ExceptionDetail>> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Validator<T> validator;
+        private final List<?> targets;
+        private final int from;
+        private final int to;
+        // each task gets its own copy, the path is mutated while descending
+        private final Path path;
+
+        RangeTask(Validator<T> validator, List<?> targets, int from, int to, Path path) {
+            this.validator = validator;
+            this.targets = targets;
+            this.from = from;
+            this.to = to;
+            this.path = path;
+        }
+
+        @Override
+        protected List<ExceptionDetail> compute() {
+            if (to - from <= PARALLEL_THRESHOLD / 2) {
+                return validator.validateRange(targets, path, from, to, null);
+            }
+            int middle = (from + to) >>> 1;
+            var right = new RangeTask<>(validator, targets, middle, to, path.copy());
+            right.fork();
+            var left = new RangeTask<>(validator, targets, from, middle, path).compute();
+            var rightDetails = right.join();
+            if (left == null) {
+                return rightDetails;
+            }
+            if (rightDetails != null) {
+                left.addAll(rightDetails);
+            }
+            return left;
+        }
+    }
+
+    /**
+     * Where the validation is in the object graph, names are only built when a rule fails.
+     */
+    static final class Path {
+
+        private String[] names = new String[8];
+        private int[] indexes = new int[8];
+        private int depth;
+
+        Path() {
+            reset();
+        }
+
+        void reset() {
+            // the root segment, indexed when validating a list
+            depth = 1;
+            names[0] = "";
+            indexes[0] = -1;
+        }
+
+        void push(String name) {
+            if (depth == names.length) {
+                names = Arrays.copyOf(names, depth * 2);
+                indexes = Arrays.copyOf(indexes, depth * 2);
+            }
+            names[depth] = name;
+            indexes[depth] = -1;
+            depth++;
+        }
+
+        void pop() {
+            depth--;
+        }
+
+        void index(int index) {
+            indexes[depth - 1] = index;
+        }
+
+        Path copy() {
+            var copy = new Path();
+            copy.names = names.clone();
+            copy.indexes = indexes.clone();
+            copy.depth = depth;
+            return copy;
+        }
+
+        String name(String field) {
+            var name = new StringBuilder();
+            for (int i = 0; i < depth; i++) {
+                if (!names[i].isEmpty()) {
+                    name.append(name.length() == 0 ? "" : ".").append(names[i]);
+                }
+                if (indexes[i] >= 0) {
+                    name.append('[').append(indexes[i]).append(']');
+                }
+            }
+            return name.append(name.length() == 0 ? "" : ".").append(field).toString();
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package tech.becoming.common.exceptions;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AsyncLogHandlerTest {
+
+    @Test
+    void writesTheRecordsInOrder() {
+        var delegate = new Recording();
+        var handler = AsyncLogHandler.of(delegate);
+        for (int i = 0; i < 100; i++) {
+            handler.publish(new LogRecord(Level.INFO, "record " + i));
+        }
+        handler.flush();
+        assertEquals(100, delegate.records.size());
+        int i = 0;
+        for (var record : delegate.records) {
+            assertEquals("record " + i++, record.getMessage());
+        }
+        assertEquals(0, handler.size());
+        handler.close();
+        assertTrue(delegate.closed);
+
+        handler.publish(new LogRecord(Level.SEVERE, "after close"));
+        assertEquals(100, delegate.records.size());
+    }
+
+    @Test
+    void reportsTheDroppedRecords() throws Exception {
+        var release = new CountDownLatch(1);
+        var delegate = new Recording() {
+            @Override
+            public void publish(LogRecord record) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.publish(record);
+            }
+        };
+        var handler = AsyncLogHandler.of(4, 16, AsyncLogHandler.Overflow.DROP, 1, delegate);
+        for (int i = 0; i < 100; i++) {
+            handler.publish(new LogRecord(Level.INFO, "record"));
+        }
+        assertTrue(handler.getDropped() > 0);
+        release.countDown();
+        handler.close();
+
+        long written = delegate.records.stream().filter(record -> record.getMessage().equals("record")).count();
+        assertEquals(100, written + handler.getDropped());
+        assertTrue(delegate.records.stream().anyMatch(record -> record.getMessage().endsWith("were dropped")));
+    }
+
+    @Test
+    void sampleKeepsSevereRecords() {
+        var release = new CountDownLatch(1);
+        var delegate = new Recording() {
+            @Override
+            public void publish(LogRecord record) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.publish(record);
+            }
+        };
+        var handler = AsyncLogHandler.of(64, 16, AsyncLogHandler.Overflow.SAMPLE, 1_000, delegate);
+        for (int i = 0; i < 40; i++) {
+            handler.publish(new LogRecord(Level.INFO, "info"));
+        }
+        for (int i = 0; i < 10; i++) {
+            handler.publish(new LogRecord(Level.SEVERE, "severe"));
+        }
+        release.countDown();
+        handler.close();
+        assertEquals(10, delegate.records.stream().filter(record -> record.getMessage().equals("severe")).count());
+        assertTrue(delegate.records.stream().filter(record -> record.getMessage().equals("info")).count() < 40);
+    }
+
+    @Test
+    void installDoesNotCloseTheRootHandlers() {
+        var root = Logger.getLogger("");
+        var logger = AbstractRuntimeException.LOGGER;
+        var rootHandlers = root.getHandlers();
+        var loggerHandlers = logger.getHandlers();
+        boolean useParentHandlers = logger.getUseParentHandlers();
+        var shared = new Recording();
+        try {
+            for (var existing : rootHandlers) {
+                root.removeHandler(existing);
+            }
+            // no root handler, a console handler owned by the installed handler
+            var fallback = AsyncLogHandler.install();
+            assertArrayEquals(new Handler[]{fallback}, logger.getHandlers());
+            assertFalse(logger.getUseParentHandlers());
+            fallback.close();
+
+            root.addHandler(shared);
+            var handler = AsyncLogHandler.install();
+            logger.severe("installed");
+            handler.close();
+            assertEquals("installed", shared.records.peek().getMessage());
+            assertFalse(shared.closed);
+        } finally {
+            root.removeHandler(shared);
+            for (var existing : rootHandlers) {
+                root.addHandler(existing);
+            }
+            for (var existing : logger.getHandlers()) {
+                logger.removeHandler(existing);
+            }
+            for (var existing : loggerHandlers) {
+                logger.addHandler(existing);
+            }
+            logger.setUseParentHandlers(useParentHandlers);
+        }
+    }
+
+    @Test
+    void rejectsInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, AsyncLogHandler::of);
+        assertThrows(IllegalArgumentException.class,
+                () -> AsyncLogHandler.of(1, 16, AsyncLogHandler.Overflow.DROP, 1, new Recording()));
+        assertThrows(IllegalArgumentException.class,
+                () -> AsyncLogHandler.of(16, 0, AsyncLogHandler.Overflow.DROP, 1, new Recording()));
+    }
+
+    @Test
+    void concurrentPublishersLoseNoRecord() throws Exception {
+        int threads = 8;
+        int perThread = 5_000;
+        var delegate = new Recording();
+        var handler = AsyncLogHandler.of(1 << 16, 256, AsyncLogHandler.Overflow.DROP, 1, delegate);
+        var pool = Executors.newFixedThreadPool(threads);
+        var start = new CountDownLatch(1);
+        try {
+            var futures = new ArrayList<Future<?>>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < perThread; i++) {
+                        handler.publish(new LogRecord(Level.INFO, "record"));
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (var future : futures) {
+                future.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        handler.close();
+        assertEquals(0, handler.getDropped());
+        assertEquals(threads * perThread, delegate.records.size());
+    }
+
+    private static class Recording extends Handler {
+
+        final ConcurrentLinkedQueue<LogRecord> records = new ConcurrentLinkedQueue<>();
+        volatile boolean closed;
+
+        @Override
+        public void publish(LogRecord record) {
+            records.add(record);
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
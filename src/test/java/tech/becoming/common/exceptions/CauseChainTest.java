@@ -0,0 +1,62 @@
+package tech.becoming.common.exceptions;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CauseChainTest {
+
+    @Test
+    void writesTheChainOutermostFirst() {
+        var chain = new IllegalStateException("outer", new RuntimeException("inner", new IllegalArgumentException()));
+        assertEquals("java.lang.IllegalStateException: outer; caused by java.lang.RuntimeException: inner"
+                + "; caused by java.lang.IllegalArgumentException", CauseChain.DEFAULT.summarize(chain));
+        assertEquals("outer; inner",
+                CauseChain.MESSAGES.summarize(new IllegalStateException("outer", new RuntimeException("inner"))));
+    }
+
+    @Test
+    void truncatedCausesUseTheSeparatorOfTheMode() {
+        var chain = new RuntimeException("a", new RuntimeException("b", new RuntimeException("c")));
+        assertEquals("a; b; ...", CauseChain.of(2, 100, false).summarize(chain));
+        assertEquals("java.lang.RuntimeException: a; caused by java.lang.RuntimeException: b; caused by ...",
+                CauseChain.of(2, 200, true).summarize(chain));
+        // room is kept for the mark, the smallest budget only fits it
+        assertEquals("...", CauseChain.of(1, 3, false).summarize(new RuntimeException("a")));
+    }
+
+    @Test
+    void boundsTheSizeInUtf8Bytes() {
+        var message = "é".repeat(100);
+        var summary = CauseChain.of(4, 11, false).summarize(new RuntimeException(message));
+        assertEquals("éééé...", summary);
+        assertTrue(summary.getBytes(StandardCharsets.UTF_8).length <= 11);
+
+        var buffer = ByteBuffer.allocate(64);
+        int written = CauseChain.of(4, 11, false).summarize(new RuntimeException(message), buffer);
+        assertEquals(11, written);
+        assertEquals(summary, new String(buffer.array(), 0, written, StandardCharsets.UTF_8));
+
+        var emoji = "😀".repeat(10);
+        assertEquals("😀...", CauseChain.of(4, 8, false).summarize(new RuntimeException(emoji)));
+    }
+
+    @Test
+    void endsCyclicChains() {
+        var first = new RuntimeException("first");
+        var second = new RuntimeException("second", first);
+        first.initCause(second);
+        assertEquals("first; second [cycle]", CauseChain.MESSAGES.summarize(first));
+    }
+
+    @Test
+    void rejectsInvalidBudgets() {
+        assertThrows(IllegalArgumentException.class, () -> CauseChain.of(0, 100, true));
+        assertThrows(IllegalArgumentException.class, () -> CauseChain.of(1, 2, true));
+    }
+}
@@ -0,0 +1,158 @@
+package tech.becoming.common.exceptions;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ErrorAggregatorTest {
+
+    private final ConcurrentLinkedQueue<LogRecord> records = new ConcurrentLinkedQueue<>();
+    private final Logger logger = logger();
+
+    @Test
+    void logsOnPowersOfTwo() {
+        var aggregator = ErrorAggregator.of(64, 0, logger);
+        var logged = new ArrayList<Integer>();
+        for (int i = 1; i <= 100; i++) {
+            if (aggregator.record(notFound("A"))) {
+                logged.add(i);
+            }
+        }
+        assertEquals(List.of(1, 2, 4, 8, 16, 32, 64), logged);
+        assertEquals(100, aggregator.count(notFound("A")));
+        assertEquals(0, aggregator.count(notFound("B")));
+        assertEquals(7, records.size());
+        assertEquals(Level.WARNING, records.peek().getLevel());
+
+        var entries = aggregator.snapshot();
+        assertEquals(1, entries.size());
+        assertEquals(100, entries.get(0).getCount());
+        assertNotNull(entries.get(0).getSample());
+    }
+
+    @Test
+    void fingerprintsTheDetailCodes() {
+        assertEquals(ErrorAggregator.fingerprint(notFound("A"), 0), ErrorAggregator.fingerprint(notFound("A"), 0));
+        assertNotEquals(ErrorAggregator.fingerprint(notFound("A"), 0), ErrorAggregator.fingerprint(notFound("B"), 0));
+        assertNotEquals(ErrorAggregator.fingerprint(notFound("A"), 0),
+                ErrorAggregator.fingerprint(new BadRequestException(detail("A")), 0));
+        assertNotEquals(0, ErrorAggregator.fingerprint(new RuntimeException(), 5));
+    }
+
+    @Test
+    void countsUntrackedFingerprintsOnceFull() {
+        // 16 slots, every probe of the 17th fingerprint is in use
+        var aggregator = ErrorAggregator.of(16, 0, Duration.ofHours(1), logger);
+        for (int i = 0; i < 16; i++) {
+            assertTrue(aggregator.record(notFound("T" + i)));
+        }
+        assertEquals(0, aggregator.untracked());
+
+        assertTrue(aggregator.record(notFound("U")));
+        assertTrue(aggregator.record(notFound("U")));
+        // third untracked occurrence, not a power of two and already seen during the generation
+        assertFalse(aggregator.record(notFound("U")));
+        assertEquals(3, aggregator.untracked());
+        assertEquals(0, aggregator.count(notFound("U")));
+
+        aggregator.reset();
+        assertEquals(0, aggregator.untracked());
+        assertTrue(aggregator.snapshot().isEmpty());
+        assertTrue(aggregator.record(notFound("U")));
+        assertEquals(1, aggregator.count(notFound("U")));
+    }
+
+    @Test
+    void rejectsInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> ErrorAggregator.of(0, 0, logger));
+        assertThrows(IllegalArgumentException.class, () -> ErrorAggregator.of(16, -1, logger));
+        assertThrows(IllegalArgumentException.class, () -> ErrorAggregator.of(16, 0, Duration.ZERO, logger));
+    }
+
+    @Test
+    void countsEveryConcurrentOccurrence() throws Exception {
+        int threads = 8;
+        int occurrences = 20_000;
+        int fingerprints = 40;
+        var aggregator = ErrorAggregator.of(16, 0, Duration.ofHours(1), logger);
+        var exceptions = new ArrayList<NotFoundException>();
+        for (int i = 0; i < fingerprints; i++) {
+            exceptions.add(notFound("C" + i));
+        }
+        var pool = Executors.newFixedThreadPool(threads);
+        var start = new CountDownLatch(1);
+        try {
+            var tasks = new ArrayList<Callable<Void>>();
+            for (int t = 0; t < threads; t++) {
+                int offset = t;
+                tasks.add(() -> {
+                    start.await();
+                    for (int i = 0; i < occurrences; i++) {
+                        aggregator.record(exceptions.get((i + offset) % fingerprints));
+                    }
+                    return null;
+                });
+            }
+            var futures = new ArrayList<Future<Void>>();
+            for (var task : tasks) {
+                futures.add(pool.submit(task));
+            }
+            start.countDown();
+            for (var future : futures) {
+                future.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        long tracked = aggregator.snapshot().stream().mapToLong(ErrorAggregator.Entry::getCount).sum();
+        assertEquals((long) threads * occurrences, tracked + aggregator.untracked());
+        assertTrue(aggregator.snapshot().size() <= 16);
+    }
+
+    private static NotFoundException notFound(String codeId) {
+        return new NotFoundException(detail(codeId));
+    }
+
+    private static ExceptionDetail detail(String codeId) {
+        return ExceptionDetail.builder().codeId(codeId).build();
+    }
+
+    private Logger logger() {
+        var logger = Logger.getAnonymousLogger();
+        logger.setUseParentHandlers(false);
+        logger.addHandler(new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                records.add(record);
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+        return logger;
+    }
+}
@@ -0,0 +1,103 @@
+package tech.becoming.common.exceptions;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ErrorCodeTest {
+
+    @Test
+    void returnsTheSameDefinitionForTheSameValues() {
+        var code = ErrorCode.define("9001", "TEST_SAME", "id", "User {} was not found");
+        assertSame(code, ErrorCode.define("9001", "TEST_SAME", "id", "User {} was not found"));
+        assertSame(code, ErrorCode.byCodeId("TEST_SAME"));
+        assertSame(code, ErrorCode.byId(code.getId()));
+        assertNull(ErrorCode.byId(-1));
+        assertNull(ErrorCode.byId(Integer.MAX_VALUE));
+    }
+
+    @Test
+    void rejectsConflictingDefinitions() {
+        ErrorCode.define("9002", "TEST_CONFLICT", "id", "Conflict {}");
+        assertThrows(IllegalStateException.class, () -> ErrorCode.define("9003", "TEST_CONFLICT", "id", "Conflict {}"));
+        assertThrows(IllegalStateException.class, () -> ErrorCode.define("9002", "TEST_CONFLICT", null, "Conflict {}"));
+        assertThrows(IllegalStateException.class, () -> ErrorCode.define("9002", "TEST_CONFLICT", "id", "Other {}"));
+    }
+
+    @Test
+    void rejectsNullCodeIdAndTemplate() {
+        assertThrows(IllegalArgumentException.class, () -> ErrorCode.define("9004", null, "id", "Missing"));
+        assertThrows(IllegalArgumentException.class, () -> ErrorCode.define("9004", "TEST_NULL_TEMPLATE", "id", null));
+        assertNull(ErrorCode.byCodeId("TEST_NULL_TEMPLATE"));
+    }
+
+    @Test
+    void formatsTheArgumentsOfTheDetail() throws Exception {
+        var code = ErrorCode.define("9005", "TEST_FORMAT", "range", "Between {} and {}");
+        assertEquals("Between 1 and 2", code.detail(1, 2).getMessage());
+        assertEquals("Between 1 and {}", code.detail(1).getMessage());
+        assertEquals("No placeholder", ErrorCode.define("9006", "TEST_PLAIN", null, "No placeholder").format(null));
+
+        var out = new ByteArrayOutputStream();
+        code.detail("a\"b", 2).writeJson(out);
+        assertEquals("{\"codeNumber\":\"9005\",\"codeId\":\"TEST_FORMAT\",\"name\":\"range\","
+                + "\"message\":\"Between a\\\"b and 2\"}", out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void concurrentDefinitionsGetDenseIds() throws Exception {
+        int threads = 8;
+        int codes = 200;
+        var before = ErrorCode.count();
+        var pool = Executors.newFixedThreadPool(threads);
+        var start = new CountDownLatch(1);
+        try {
+            var tasks = new ArrayList<Callable<ErrorCode[]>>();
+            for (int t = 0; t < threads; t++) {
+                tasks.add(() -> {
+                    start.await();
+                    var defined = new ErrorCode[codes];
+                    for (int i = 0; i < codes; i++) {
+                        defined[i] = ErrorCode.define("9" + i, "TEST_CONCURRENT_" + i, null, "Code " + i);
+                    }
+                    return defined;
+                });
+            }
+            var futures = new ArrayList<Future<ErrorCode[]>>();
+            for (var task : tasks) {
+                futures.add(pool.submit(task));
+            }
+            start.countDown();
+            var first = futures.get(0).get();
+            var ids = new HashSet<Integer>();
+            for (var future : futures) {
+                var defined = future.get();
+                for (int i = 0; i < codes; i++) {
+                    assertSame(first[i], defined[i]);
+                    ids.add(defined[i].getId());
+                }
+            }
+            assertEquals(codes, ids.size());
+            assertEquals(before + codes, ErrorCode.count());
+            for (var id : ids) {
+                assertTrue(id >= before && id < before + codes);
+                assertSame(ErrorCode.byCodeId(ErrorCode.byId(id).getCodeId()), ErrorCode.byId(id));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package tech.becoming.common.exceptions;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NotFoundExceptionTest {
+
+    @Test
+    void checksSingleValues() {
+        assertEquals("x", NotFoundException.throwIfEmpty(Optional.of("x")));
+        assertThrows(NotFoundException.class, () -> NotFoundException.throwIfEmpty(Optional.empty()));
+        assertTrue(NotFoundException.throwIfFalse(true));
+        var e = assertThrows(NotFoundException.class, () -> NotFoundException.throwIfFalse(false));
+        assertEquals(404, e.getHttpCode());
+    }
+
+    @Test
+    void loadsEveryIdInOneQuery() {
+        var queries = new AtomicInteger();
+        var entities = NotFoundException.throwIfEmpty(Set.of(1, 2, 3), ids -> {
+            queries.incrementAndGet();
+            return List.copyOf(ids);
+        }, id -> id);
+        assertEquals(3, entities.size());
+        assertEquals(1, queries.get());
+        assertTrue(NotFoundException.throwIfFalse(Set.of(), ids -> List.of()));
+    }
+
+    @Test
+    void reportsEveryMissingIdInOneException() {
+        var ids = new LinkedHashSet<>(List.of(1, 2, 3, 4));
+        var e = assertThrows(NotFoundException.class,
+                () -> NotFoundException.throwIfEmpty(ids, found -> List.of("2", "4"), Integer::valueOf));
+        assertEquals(List.of("1", "3"), messages(e));
+        assertTrue(e.getDetails().stream().allMatch(detail -> NotFoundException.ID.equals(detail.getName())));
+
+        // an existing id list that is not a set
+        e = assertThrows(NotFoundException.class,
+                () -> NotFoundException.throwIfFalse(ids, found -> List.of(1, 2, 3)));
+        assertEquals(List.of("4"), messages(e));
+    }
+
+    private static List<String> messages(NotFoundException e) {
+        return e.getDetails().stream().map(ExceptionDetail::getMessage).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,92 @@
+package tech.becoming.common.exceptions;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResultTest {
+
+    private static final ExceptionDetail DETAIL = ExceptionDetail.ofNameAndMessage("email", "Invalid");
+
+    @Test
+    void passesFailuresAlong() {
+        var success = Result.success(2).map(i -> i * 2);
+        assertTrue(success.isSuccess());
+        assertEquals(200, success.getHttpCode());
+        assertEquals(4, success.orElse(0));
+        assertThrows(IllegalStateException.class, success::toException);
+
+        Result<Integer> failure = Result.ofOptional(Optional.empty());
+        assertTrue(failure.isFailure());
+        assertEquals(404, failure.map(i -> i * 2).flatMap(Result::success).getHttpCode());
+        assertEquals(7, failure.orElseGet(() -> 7));
+        assertThrows(NotFoundException.class, failure::orElseThrow);
+
+        assertEquals(400, Result.ofValid(false).getHttpCode());
+        assertEquals(400, Result.ofDetails("x", List.of(DETAIL)).getHttpCode());
+        assertTrue(Result.ofExists(true).isSuccess());
+        assertThrows(IllegalArgumentException.class, () -> Result.failure(302));
+    }
+
+    @Test
+    void snapshotsTheDetailsOfAnException() {
+        var exception = new BadRequestException(new ArrayList<>(List.of(DETAIL)));
+        var result = Result.<String>failure(exception);
+        exception.getDetails().add(ExceptionDetail.ofNameAndMessage("name", "Required"));
+
+        assertEquals(1, result.getDetails().size());
+        assertThrows(UnsupportedOperationException.class, () -> result.getDetails().clear());
+        // the exception it was created from is thrown again
+        assertSame(exception, result.toException());
+    }
+
+    @Test
+    void snapshotsTheDetailsOfAFailure() {
+        var details = new ArrayList<>(List.of(DETAIL));
+        var result = Result.failure(409, details);
+        details.clear();
+        assertEquals(1, result.getDetails().size());
+
+        // the exception gets its own mutable copy
+        var exception = result.toException();
+        exception.getDetails().clear();
+        assertEquals(1, result.getDetails().size());
+    }
+
+    @Test
+    void mapsEveryCodeToTheLibraryException() {
+        List<AbstractRuntimeException> exceptions = List.of(
+                new BadRequestException(),
+                new UnauthenticatedException(),
+                new NotFoundException(),
+                new RequestTimeoutException(),
+                new ConflictException(),
+                new PayloadTooLargeException(),
+                new TooEarlyException(),
+                new TooManyRequestsException(),
+                new NotImplementedException(),
+                new ServiceUnavailableException(),
+                new GatewayTimeoutException());
+        for (var exception : exceptions) {
+            var converted = Result.failure(exception.getHttpCode(), DETAIL).toException();
+            assertSame(exception.getClass(), converted.getClass());
+            assertEquals(List.of(DETAIL), converted.getDetails());
+        }
+
+        var other = Result.failure(418).toException();
+        assertInstanceOf(HttpStatusException.class, other);
+        assertEquals(418, other.getHttpCode());
+        assertInstanceOf(UnauthenticatedException.class, Result.failure(new UnauthorizedException().getHttpCode())
+                .toException());
+        assertNotSame(Result.failure(500).toException(), Result.failure(500).toException());
+    }
+}
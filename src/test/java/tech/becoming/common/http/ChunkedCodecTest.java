@@ -0,0 +1,196 @@
+package tech.becoming.common.http;
+
+import org.junit.jupiter.api.Test;
+import tech.becoming.common.exceptions.BadRequestException;
+import tech.becoming.common.exceptions.PayloadTooLargeException;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChunkedCodecTest {
+
+    @Test
+    void encodesChunksAndTrailers() throws Exception {
+        var channel = new Channel(Integer.MAX_VALUE);
+        var encoder = new ChunkedEncoder(channel);
+        encoder.write(ascii("hello"));
+        encoder.write(ByteBuffer.allocate(0));
+        encoder.write(ByteBuffer.wrap(new byte[1024]));
+        encoder.finish(Map.of("Server-Timing", "db;dur=53"));
+
+        var wire = channel.toString();
+        assertTrue(wire.startsWith("5\r\nhello\r\n400\r\n"));
+        assertTrue(wire.endsWith("0\r\nServer-Timing: db;dur=53\r\n\r\n"));
+        assertTrue(encoder.isFinished());
+        assertThrows(IllegalStateException.class, () -> encoder.write(ascii("late")));
+    }
+
+    @Test
+    void rejectsTrailerInjection() {
+        var encoder = new ChunkedEncoder(new Channel(Integer.MAX_VALUE));
+        assertThrows(IllegalArgumentException.class, () -> encoder.finish(Map.of("X-A", "1\r\nSet-Cookie: a=b")));
+        assertThrows(IllegalArgumentException.class, () -> encoder.finish(Map.of("X A", "1")));
+        assertFalse(encoder.isFinished());
+    }
+
+    @Test
+    void waitsForAStalledChannel() throws Exception {
+        // accepts 3 bytes every other call, 0 otherwise
+        var channel = new Channel(3);
+        var encoder = new ChunkedEncoder(channel);
+        encoder.write(ascii("stalled body"));
+        encoder.finish();
+        assertEquals("c\r\nstalled body\r\n0\r\n\r\n", channel.toString());
+    }
+
+    @Test
+    void roundTripsByteByByte() throws Exception {
+        var channel = new Channel(Integer.MAX_VALUE);
+        var encoder = new ChunkedEncoder(channel);
+        for (int size : new int[]{1, 15, 16, 255, 4096, 5000}) {
+            encoder.write(ByteBuffer.wrap(new byte[size]));
+        }
+        encoder.finish(Map.of("X-Checksum", "abc"));
+
+        var body = new ByteArrayOutputStream();
+        var trailers = new LinkedHashMap<String, String>();
+        var decoder = new ChunkedDecoder(listener(body, trailers), 1 << 20);
+        var wire = channel.bytes();
+        for (int i = 0; i < wire.length; i++) {
+            assertEquals(i == wire.length - 1, decoder.decode(ByteBuffer.wrap(wire, i, 1)));
+        }
+        assertEquals(1 + 15 + 16 + 255 + 4096 + 5000, body.size());
+        assertEquals(body.size(), decoder.getBodySize());
+        assertEquals(Map.of("X-Checksum", "abc"), trailers);
+    }
+
+    @Test
+    void leavesTheNextMessageInTheBuffer() {
+        var body = new ByteArrayOutputStream();
+        var decoder = new ChunkedDecoder(listener(body, new LinkedHashMap<>()), 100);
+        var input = ascii("3;name=value\r\nabc\r\n0\r\n\r\nGET /");
+        assertTrue(decoder.decode(input));
+        assertEquals("abc", body.toString(StandardCharsets.ISO_8859_1));
+        assertEquals(5, input.remaining());
+    }
+
+    @Test
+    void rejectsBareLineEnds() {
+        for (var wire : new String[]{"3\nabc\r\n0\r\n\r\n", "3\r\nabc\n0\r\n\r\n", "3;x\nabc\r\n", "3\rabc",
+                "0\r\nX: 1\n\r\n", "zz\r\n"}) {
+            var decoder = new ChunkedDecoder(data -> {
+            }, 100);
+            assertThrows(BadRequestException.class, () -> decoder.decode(ascii(wire)), wire);
+        }
+    }
+
+    @Test
+    void boundsTheBodyTheSizeLineAndTheTrailers() {
+        assertThrows(PayloadTooLargeException.class,
+                () -> new ChunkedDecoder(data -> {
+                }, 10).decode(ascii("b\r\n")));
+        var extension = "1;" + "x".repeat(ChunkedDecoder.MAX_SIZE_LINE) + "\r\n";
+        assertThrows(PayloadTooLargeException.class,
+                () -> new ChunkedDecoder(data -> {
+                }, 10).decode(ascii(extension)));
+        var trailer = "0\r\nX: " + "y".repeat(100) + "\r\n\r\n";
+        assertThrows(PayloadTooLargeException.class,
+                () -> new ChunkedDecoder(data -> {
+                }, 10, 32).decode(ascii(trailer)));
+    }
+
+    @Test
+    void acceptsTrailersOnlyWhenAnnounced() {
+        assertTrue(ChunkedEncoder.acceptsTrailers("deflate, trailers"));
+        assertTrue(ChunkedEncoder.acceptsTrailers("trailers;q=1"));
+        assertFalse(ChunkedEncoder.acceptsTrailers("deflate"));
+        assertFalse(ChunkedEncoder.acceptsTrailers(null));
+        assertEquals("Server-Timing, X-A", ChunkedEncoder.trailerHeader("Server-Timing", "X-A"));
+    }
+
+    private static ChunkedDecoder.Listener listener(ByteArrayOutputStream body, Map<String, String> trailers) {
+        return new ChunkedDecoder.Listener() {
+            @Override
+            public void onData(ByteBuffer data) {
+                while (data.hasRemaining()) {
+                    body.write(data.get());
+                }
+            }
+
+            @Override
+            public void onTrailer(String name, String value) {
+                trailers.put(name, value);
+            }
+        };
+    }
+
+    private static ByteBuffer ascii(String value) {
+        return ByteBuffer.wrap(value.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    /**
+     * Writes to memory, at most {@code maxWrite} bytes per call and nothing every other call when bounded.
+     */
+    private static final class Channel implements GatheringByteChannel {
+
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        private final int maxWrite;
+        private boolean stall;
+
+        Channel(int maxWrite) {
+            this.maxWrite = maxWrite;
+        }
+
+        @Override
+        public long write(ByteBuffer[] sources, int offset, int length) {
+            if (maxWrite != Integer.MAX_VALUE && (stall = !stall)) {
+                return 0;
+            }
+            long written = 0;
+            for (int i = offset; i < offset + length && written < maxWrite; i++) {
+                while (sources[i].hasRemaining() && written < maxWrite) {
+                    out.write(sources[i].get());
+                    written++;
+                }
+            }
+            return written;
+        }
+
+        @Override
+        public long write(ByteBuffer[] sources) {
+            return write(sources, 0, sources.length);
+        }
+
+        @Override
+        public int write(ByteBuffer source) {
+            return (int) write(new ByteBuffer[]{source});
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+
+        byte[] bytes() {
+            return out.toByteArray();
+        }
+
+        @Override
+        public String toString() {
+            return out.toString(StandardCharsets.ISO_8859_1);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package tech.becoming.common.http;
+
+import org.junit.jupiter.api.Test;
+import tech.becoming.common.exceptions.BadRequestException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompressionStageTest {
+
+    private static final byte[] JSON = "{\"name\":\"value\",\"items\":[1,2,3,4,5,6,7,8,9]}".repeat(100)
+            .getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    void roundTripsEveryCoding() {
+        try (var stage = CompressionStage.of()) {
+            for (var coding : ContentCoding.values()) {
+                var compressed = stage.compress(coding, JSON);
+                assertArrayEquals(JSON, stage.decompress(coding, compressed, JSON.length));
+            }
+        }
+    }
+
+    @Test
+    void gzipIsReadableByTheJdk() throws Exception {
+        try (var stage = CompressionStage.of();
+             var in = new GZIPInputStream(new ByteArrayInputStream(stage.compress(ContentCoding.GZIP, JSON)))) {
+            assertArrayEquals(JSON, in.readAllBytes());
+        }
+    }
+
+    @Test
+    void streamsThroughSmallChunks() throws Exception {
+        try (var stage = CompressionStage.of(6, 0, 16, 1)) {
+            var out = new ByteArrayOutputStream();
+            stage.compress(ContentCoding.DEFLATE, new ByteArrayInputStream(JSON), out);
+            assertArrayEquals(JSON, stage.decompress(ContentCoding.DEFLATE, out.toByteArray(), JSON.length));
+        }
+    }
+
+    @Test
+    void passesThroughSmallAndCompressedBodies() {
+        try (var stage = CompressionStage.of()) {
+            assertEquals(ContentCoding.IDENTITY, stage.apply("gzip", "text/plain", null, new byte[10]).getCoding());
+            assertEquals(ContentCoding.IDENTITY, stage.apply("gzip", "image/png", null, JSON).getCoding());
+            assertEquals(ContentCoding.IDENTITY, stage.apply("gzip", "text/plain", "br", JSON).getCoding());
+            assertEquals(ContentCoding.IDENTITY, stage.apply(null, "text/plain", null, JSON).getCoding());
+            assertEquals(ContentCoding.GZIP, stage.apply("gzip", "application/json", null, JSON).getCoding());
+        }
+    }
+
+    @Test
+    void rejectsBodiesInflatingPastTheLimit() {
+        try (var stage = CompressionStage.of()) {
+            var bomb = stage.compress(ContentCoding.GZIP, new byte[1 << 20]);
+            assertThrows(BadRequestException.class, () -> stage.decompress(ContentCoding.GZIP, bomb, 1024));
+            assertEquals(1 << 20, stage.decompress(ContentCoding.GZIP, bomb, 1 << 20).length);
+        }
+    }
+
+    @Test
+    void rejectsTruncatedAndCorruptedBodies() {
+        try (var stage = CompressionStage.of()) {
+            var gzip = stage.compress(ContentCoding.GZIP, JSON);
+            for (int length : new int[]{0, 3, 10, 20, gzip.length - 4, gzip.length - 1}) {
+                var truncated = Arrays.copyOf(gzip, length);
+                assertThrows(BadRequestException.class, () -> stage.decompress(ContentCoding.GZIP, truncated, 1 << 20));
+            }
+            var corrupted = gzip.clone();
+            corrupted[corrupted.length - 5] ^= 1;
+            assertThrows(BadRequestException.class, () -> stage.decompress(ContentCoding.GZIP, corrupted, 1 << 20));
+        }
+    }
+
+    @Test
+    void rejectsTruncatedOptionalHeaderFields() {
+        try (var stage = CompressionStage.of()) {
+            // FEXTRA with a length past the end, FNAME without its terminator, FHCRC missing
+            byte[][] headers = {
+                    {0x1f, (byte) 0x8b, 8, 4, 0, 0, 0, 0, 0, 0, (byte) 0xff, 0x7f},
+                    {0x1f, (byte) 0x8b, 8, 8, 0, 0, 0, 0, 0, 0, 'a', 'b'},
+                    {0x1f, (byte) 0x8b, 8, 16, 0, 0, 0, 0, 0, 0, 'c'},
+                    {0x1f, (byte) 0x8b, 8, 2, 0, 0, 0, 0, 0, 0, 1},
+            };
+            for (var header : headers) {
+                assertThrows(BadRequestException.class, () -> stage.decompress(ContentCoding.GZIP, header, 1024));
+            }
+        }
+    }
+
+    @Test
+    void stillWorksAfterClose() {
+        var stage = CompressionStage.of();
+        stage.close();
+        var compressed = stage.compress(ContentCoding.GZIP, JSON);
+        assertArrayEquals(JSON, stage.decompress(ContentCoding.GZIP, compressed, JSON.length));
+    }
+
+    @Test
+    void concurrentCompressionsShareTheBoundedPool() throws Exception {
+        var pool = Executors.newFixedThreadPool(16);
+        try (var stage = CompressionStage.of(6, 0, 512, 2)) {
+            var tasks = new ArrayList<Callable<Boolean>>();
+            for (int t = 0; t < 16; t++) {
+                var body = Arrays.copyOf(JSON, JSON.length - t);
+                tasks.add(() -> {
+                    for (int i = 0; i < 200; i++) {
+                        var coding = i % 2 == 0 ? ContentCoding.GZIP : ContentCoding.DEFLATE;
+                        var compressed = stage.compress(coding, body);
+                        if (!Arrays.equals(body, stage.decompress(coding, compressed, body.length))) {
+                            return false;
+                        }
+                    }
+                    return true;
+                });
+            }
+            for (Future<Boolean> result : pool.invokeAll(tasks, 60, TimeUnit.SECONDS)) {
+                assertTrue(result.get());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void precompressedAssetsFallBackToTheNextAcceptedCoding() {
+        try (var stage = CompressionStage.of(6, 0, 8 * 1024)) {
+            // deflate frames 6 bytes, gzip 18: find a body only the deflate variant is smaller than
+            var random = new Random(42);
+            byte[] body = null;
+            for (int zeros = 0; zeros < 64 && body == null; zeros++) {
+                var candidate = new byte[512 + zeros];
+                random.nextBytes(candidate);
+                Arrays.fill(candidate, 512, candidate.length, (byte) 0);
+                if (stage.compress(ContentCoding.DEFLATE, candidate).length < candidate.length
+                        && stage.compress(ContentCoding.GZIP, candidate).length >= candidate.length) {
+                    body = candidate;
+                }
+            }
+            assertNotNull(body);
+
+            var assets = stage.precompress(Map.of("/app.js", body), Map.of());
+            assertEquals(ContentCoding.DEFLATE, assets.get("/app.js", "gzip, deflate;q=0.5").getCoding());
+            assertEquals(ContentCoding.IDENTITY, assets.get("/app.js", "gzip").getCoding());
+            assertEquals(ContentCoding.IDENTITY, assets.get("/app.js", null).getCoding());
+            assertFalse(assets.contains("/missing.js"));
+        }
+    }
+}
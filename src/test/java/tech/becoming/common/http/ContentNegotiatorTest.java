@@ -0,0 +1,90 @@
+package tech.becoming.common.http;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ContentNegotiatorTest {
+
+    private final ContentNegotiator media = ContentNegotiator.of(ContentNegotiator.Type.MEDIA_TYPE,
+            List.of("application/json", "text/html"));
+    private final ContentNegotiator encoding = ContentNegotiator.of(ContentNegotiator.Type.ENCODING,
+            List.of("br", "gzip", "identity"));
+
+    @Test
+    void selectsTheHighestQuality() {
+        assertEquals("text/html", media.negotiate("text/html;q=0.9, */*;q=0.1").getValue());
+        assertEquals("application/json", media.negotiate("text/html;q=0.5, application/*").getValue());
+    }
+
+    @Test
+    void prefersTheServerOrderOnEqualQuality() {
+        assertEquals("application/json", media.negotiate("text/html, application/json").getValue());
+    }
+
+    @Test
+    void missingHeaderAcceptsAnything() {
+        assertEquals("application/json", media.negotiate(null).getValue());
+        assertEquals("application/json", media.negotiate("").getValue());
+        assertEquals("br", encoding.negotiate(null).getValue());
+    }
+
+    @Test
+    void emptyAcceptEncodingOnlyAcceptsIdentity() {
+        assertEquals("identity", encoding.negotiate("").getValue());
+        var gzipOnly = ContentNegotiator.of(ContentNegotiator.Type.ENCODING, List.of("gzip"));
+        assertFalse(gzipOnly.negotiate("").isAcceptable());
+    }
+
+    @Test
+    void zeroQualityExcludes() {
+        assertEquals("gzip", encoding.negotiate("br;q=0, gzip").getValue());
+        assertSame(Negotiation.NOT_ACCEPTABLE_RESULT, media.negotiate("image/png"));
+    }
+
+    @Test
+    void cacheStaysBounded() {
+        var negotiator = ContentNegotiator.of(ContentNegotiator.Type.LANGUAGE, List.of("en"), 4);
+        for (int i = 0; i < 100; i++) {
+            negotiator.negotiate("x-" + i + ", en;q=0.5");
+        }
+        assertTrue(negotiator.cachedEntries() <= 4);
+    }
+
+    @Test
+    void concurrentNegotiationsAgreeAndStayBounded() throws Exception {
+        var negotiator = ContentNegotiator.of(ContentNegotiator.Type.LANGUAGE, List.of("en", "fr"), 16);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            var futures = new ArrayList<Future<Boolean>>();
+            for (int t = 0; t < 8; t++) {
+                int seed = t;
+                futures.add(pool.submit(() -> {
+                    for (int i = 0; i < 5_000; i++) {
+                        var header = "x-" + (i + seed) % 64 + ", fr;q=0.9, en;q=0.8";
+                        if (!"fr".equals(negotiator.negotiate(header).getValue())) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }));
+            }
+            for (var future : futures) {
+                assertTrue(future.get(30, TimeUnit.SECONDS));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertTrue(negotiator.cachedEntries() <= 16 + 8);
+    }
+}
@@ -0,0 +1,65 @@
+package tech.becoming.common.http;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CookiesTest {
+
+    @Test
+    void findsCookiesByExactName() {
+        var header = "theme=dark; SESSION=abc123;  lang = en ;xSESSION=no";
+        assertEquals("abc123", Cookies.get(header, "SESSION"));
+        assertEquals("dark", Cookies.get(header, "theme"));
+        assertEquals("en", Cookies.get(header, "lang"));
+        assertNull(Cookies.get(header, "SESS"));
+        assertNull(Cookies.get(null, "SESSION"));
+        assertTrue(Cookies.contains(header, "xSESSION"));
+        assertFalse(Cookies.contains("", "theme"));
+    }
+
+    @Test
+    void iteratesPairs() {
+        var names = new ArrayList<String>();
+        var cursor = Cookies.cursor("a=1; b=2;c=3");
+        while (cursor.next()) {
+            names.add(cursor.name() + "=" + cursor.value());
+        }
+        assertEquals(List.of("a=1", "b=2", "c=3"), names);
+        assertFalse(Cookies.cursor(null).next());
+    }
+
+    @Test
+    void formatsPreEncodedAttributes() {
+        var cookie = SetCookie.builder().name("SESSION").domain("example.com").path("/").maxAge(1800L)
+                .secure(true).httpOnly(true).sameSite(SetCookie.SameSite.LAX).build();
+        assertEquals("SESSION=abc; Max-Age=1800; Domain=example.com; Path=/; Secure; HttpOnly; SameSite=Lax",
+                cookie.format("abc"));
+        assertEquals("SESSION=; Max-Age=0; Domain=example.com; Path=/; Secure; HttpOnly; SameSite=Lax",
+                cookie.expire());
+        assertEquals("id=1", SetCookie.builder().name("id").build().format("1"));
+    }
+
+    @Test
+    void rejectsInvalidNamesValuesAndAttributes() {
+        assertThrows(IllegalArgumentException.class, () -> SetCookie.builder().name("a b").build());
+        assertThrows(IllegalArgumentException.class, () -> SetCookie.builder().name("").build());
+        var cookie = SetCookie.builder().name("id").build();
+        assertThrows(IllegalArgumentException.class, () -> cookie.format("a;b"));
+        assertThrows(IllegalArgumentException.class, () -> cookie.format("a\r\nb"));
+        assertThrows(IllegalArgumentException.class,
+                () -> SetCookie.builder().name("id").domain("example.com; HttpOnly").build());
+        assertThrows(IllegalArgumentException.class,
+                () -> SetCookie.builder().name("id").path("/\r\nSet-Cookie: admin=1").build());
+        assertThrows(IllegalArgumentException.class, () -> SetCookie.builder().name("id").path("").build());
+        assertThrows(IllegalArgumentException.class,
+                () -> SetCookie.builder().name("id").sameSite(SetCookie.SameSite.NONE).build());
+    }
+}
@@ -0,0 +1,98 @@
+package tech.becoming.common.http;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static tech.becoming.common.constants.HttpHeader.ACCESS_CONTROL_ALLOW_ORIGIN;
+import static tech.becoming.common.constants.HttpHeader.VARY;
+import static tech.becoming.common.constants.HttpMethod.GET;
+import static tech.becoming.common.constants.HttpMethod.POST;
+import static tech.becoming.common.constants.HttpMethod.PUT;
+import static tech.becoming.common.constants.HttpStatusCode.FORBIDDEN_403;
+import static tech.becoming.common.constants.HttpStatusCode.NO_CONTENT_204;
+
+class CorsPolicyTest {
+
+    private static final CorsPolicy POLICY = CorsPolicy.builder()
+            .allowedOrigin("https://app.example.com")
+            .allowedOrigin("https://*.example.org")
+            .allowedMethod(GET).allowedMethod(POST)
+            .allowedHeader("Content-Type").allowedHeader("authorization")
+            .allowCredentials(true)
+            .maxAge(600L)
+            .build();
+
+    @Test
+    void allowsExactAndWildcardOrigins() {
+        assertTrue(POLICY.isOriginAllowed("https://app.example.com"));
+        assertTrue(POLICY.isOriginAllowed("HTTPS://APP.EXAMPLE.COM"));
+        assertTrue(POLICY.isOriginAllowed("https://api.example.org"));
+        assertFalse(POLICY.isOriginAllowed("https://example.org.evil.com"));
+        assertFalse(POLICY.isOriginAllowed("https://other.example.com"));
+        assertFalse(POLICY.isOriginAllowed(null));
+    }
+
+    @Test
+    void matchesRequestHeadersCaseInsensitively() {
+        assertTrue(POLICY.areHeadersAllowed("content-type, Authorization"));
+        assertTrue(POLICY.areHeadersAllowed(" CONTENT-TYPE ,,"));
+        assertTrue(POLICY.areHeadersAllowed(null));
+        assertTrue(POLICY.areHeadersAllowed(""));
+        assertFalse(POLICY.areHeadersAllowed("content-type, x-custom"));
+        assertFalse(POLICY.areHeadersAllowed("content-typ"));
+        // answered from the cache the second time
+        assertFalse(POLICY.areHeadersAllowed("content-type, x-custom"));
+    }
+
+    @Test
+    void answersPreflights() {
+        var allowed = headers(POLICY.preflight("https://app.example.com", POST, "Content-Type"));
+        assertEquals("https://app.example.com", allowed.get(ACCESS_CONTROL_ALLOW_ORIGIN));
+        assertEquals("true", allowed.get("Access-Control-Allow-Credentials"));
+        assertEquals("600", allowed.get("Access-Control-Max-Age"));
+        assertEquals("Origin", allowed.get(VARY));
+        assertEquals(NO_CONTENT_204, POLICY.preflight("https://app.example.com", POST, null).getStatus());
+
+        assertSame(CorsResponse.DENIED, POLICY.preflight("https://app.example.com", PUT, null));
+        assertSame(CorsResponse.DENIED, POLICY.preflight("https://app.example.com", GET, "x-custom"));
+        assertSame(CorsResponse.DENIED, POLICY.preflight("https://evil.com", GET, null));
+    }
+
+    @Test
+    void deniesWithVaryOnOrigin() {
+        var denied = POLICY.actual("https://evil.com");
+        assertFalse(denied.isAllowed());
+        assertEquals(FORBIDDEN_403, denied.getStatus());
+        assertEquals("Origin", headers(denied).get(VARY));
+    }
+
+    @Test
+    void anyOriginDoesNotVary() {
+        var policy = CorsPolicy.builder().allowedOrigin(CorsPolicy.ANY).allowedHeader(CorsPolicy.ANY).build();
+        var headers = headers(policy.actual("https://whatever.com"));
+        assertEquals("*", headers.get(ACCESS_CONTROL_ALLOW_ORIGIN));
+        assertFalse(headers.containsKey(VARY));
+        assertTrue(policy.areHeadersAllowed("x-anything"));
+    }
+
+    @Test
+    void rejectsInvalidPolicies() {
+        assertThrows(IllegalArgumentException.class, () -> CorsPolicy.builder()
+                .allowedOrigin(CorsPolicy.ANY).allowCredentials(true).build());
+        assertThrows(IllegalArgumentException.class, () -> CorsPolicy.builder()
+                .allowedMethod("FETCH").build());
+    }
+
+    private static Map<String, String> headers(CorsResponse response) {
+        var headers = new HashMap<String, String>();
+        response.forEachHeader(headers::put);
+        return headers;
+    }
+}
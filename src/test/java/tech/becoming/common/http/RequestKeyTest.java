@@ -0,0 +1,46 @@
+package tech.becoming.common.http;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RequestKeyTest {
+
+    @Test
+    void normalizesEquivalentSpellings() {
+        assertEquals("http://example.com/a/b?x=1&y=2", RequestKey.normalizeUri("HTTP://Example.com:80/a/./b?y=2&x=1#top"));
+        assertEquals("https://example.com/", RequestKey.normalizeUri("https://EXAMPLE.com:443"));
+        assertEquals("https://example.com:8443/", RequestKey.normalizeUri("https://example.com:8443/"));
+        assertEquals("/a/", RequestKey.normalizeUri("/a/b/.."));
+        assertEquals("/c", RequestKey.normalizeUri("/a/../../c"));
+        assertEquals("/~a%2Fb", RequestKey.normalizeUri("/%7ea%2fb"));
+        assertEquals("/a", RequestKey.normalizeUri("/a?"));
+    }
+
+    @Test
+    void sortsQueryParametersByTheirDecodedName() {
+        assertEquals("/?a=2&b=1", RequestKey.normalizeUri("/?b=1&%61=2"));
+        assertEquals(RequestKey.normalizeUri("/?%61=1&b=2"), RequestKey.normalizeUri("/?b=2&a=1"));
+        // repeated parameters keep their order, empty ones are dropped
+        assertEquals("/?a=2&a=1&b", RequestKey.normalizeUri("/?b&&a=2&a=1"));
+    }
+
+    @Test
+    void appendsTheVaryHeaders() {
+        var headers = Map.of("Accept", " application/json ", "Accept-Encoding", "gzip");
+        assertEquals("GET /p\naccept:application/json\naccept-encoding:gzip\naccept-language:",
+                RequestKey.of("GET", "/p", headers::get, "Accept", "Accept-Encoding", "Accept-Language"));
+    }
+
+    @Test
+    void detectsCredentials() {
+        assertTrue(RequestKey.hasCredentials(Map.of("Authorization", "Bearer x")::get));
+        assertTrue(RequestKey.hasCredentials(Map.of("Cookie", "SESSION=1")::get));
+        assertTrue(RequestKey.hasCredentials(Map.of("Proxy-Authorization", "Basic x")::get));
+        assertFalse(RequestKey.hasCredentials(Map.of("Accept", "*/*")::get));
+    }
+}
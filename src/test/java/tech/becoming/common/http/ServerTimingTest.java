@@ -0,0 +1,79 @@
+package tech.becoming.common.http;
+
+import org.junit.jupiter.api.Test;
+import tech.becoming.common.metrics.HttpMetrics;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static tech.becoming.common.constants.HttpHeader.SERVER_TIMING;
+
+class ServerTimingTest {
+
+    @Test
+    void writesDurationsInMilliseconds() {
+        var timing = ServerTiming.of(8);
+        timing.record("queue", 4_000_000);
+        timing.record("db", 53_021_400);
+        timing.record("auth", 1_250_000);
+        timing.record("parse", 50_000);
+        timing.record("cache", 400);
+        timing.record("clock", -5);
+        assertEquals("queue;dur=4, db;dur=53.021, auth;dur=1.25, parse;dur=0.05, cache;dur=0, clock;dur=0",
+                timing.toHeaderValue());
+        assertEquals(Map.of(SERVER_TIMING, timing.toHeaderValue()), timing.trailers());
+    }
+
+    @Test
+    void writesOnlyTheStoppedSpans() {
+        var timing = ServerTiming.of();
+        int handler = timing.start("handler");
+        int serialize = timing.start("serialize");
+        assertEquals(-1, timing.duration(handler));
+        assertEquals("", timing.toHeaderValue());
+        assertEquals(Map.of(), timing.trailers());
+
+        timing.stop(serialize);
+        long duration = timing.duration(serialize);
+        assertTrue(duration >= 0);
+        timing.stop(serialize);
+        assertEquals(duration, timing.duration(serialize));
+        assertTrue(timing.toHeaderValue().startsWith("serialize;dur="));
+
+        // unknown spans are ignored
+        timing.stop(-1);
+        timing.stop(42);
+        assertEquals(-1, timing.duration(42));
+    }
+
+    @Test
+    void ignoresSpansPastTheCapacity() {
+        var timing = ServerTiming.of(2);
+        assertEquals(0, timing.start("a"));
+        timing.record("b", 1_000_000);
+        assertEquals(-1, timing.start("c"));
+        timing.record("d", 1_000_000);
+        assertEquals(2, timing.size());
+
+        timing.reset();
+        assertEquals(0, timing.size());
+        assertEquals(0, timing.start("e"));
+        assertThrows(IllegalArgumentException.class, () -> ServerTiming.of(0));
+    }
+
+    @Test
+    void recordsTheStoppedSpansAsPhases() {
+        var metrics = HttpMetrics.of(4);
+        var timing = ServerTiming.of(4);
+        timing.record("db", 2_000_000);
+        timing.start("never stopped");
+        timing.recordTo(metrics.route("/users/{id}"));
+
+        var phases = metrics.route("/users/{id}").phases(false);
+        assertEquals(1, phases.size());
+        assertEquals(1, phases.get("db").getCount());
+        assertEquals(2_000_000, phases.get("db").getMax());
+    }
+}
@@ -0,0 +1,103 @@
+package tech.becoming.common.http;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TrustedProxyResolverTest {
+
+    private static final TrustedProxyResolver PROXIES = TrustedProxyResolver.of("10.0.0.0/8", "fd00::/8");
+
+    @Test
+    void matchesCidrBoundaries() {
+        var trie = new CidrTrie().add("192.168.1.0/24").add("2001:db8::/32");
+        assertTrue(trie.contains("192.168.1.0"));
+        assertTrue(trie.contains("192.168.1.255"));
+        assertFalse(trie.contains("192.168.2.0"));
+        assertFalse(trie.contains("192.168.0.255"));
+        assertTrue(trie.contains("2001:db8:ffff::1"));
+        assertFalse(trie.contains("2001:db9::1"));
+        assertTrue(trie.contains("::ffff:192.168.1.7"));
+        assertFalse(trie.contains("not an address"));
+        assertFalse(trie.contains(null));
+        assertThrows(IllegalArgumentException.class, () -> new CidrTrie().add("10.0.0.0/33"));
+        assertThrows(IllegalArgumentException.class, () -> new CidrTrie().add("10.0.0"));
+    }
+
+    @Test
+    void ignoresForwardingHeadersFromUntrustedPeers() {
+        var client = PROXIES.resolve("203.0.113.9", headers("X-Forwarded-For", "1.2.3.4"));
+        assertEquals("203.0.113.9", client.getAddress());
+        assertEquals(0, client.getTrustedHops());
+    }
+
+    @Test
+    void unknownPeerIsNotTrusted() {
+        var client = PROXIES.resolve(null, headers("Forwarded", "for=1.2.3.4"));
+        assertNull(client.getAddress());
+        assertEquals(0, client.getTrustedHops());
+    }
+
+    @Test
+    void walksForwardedForFromTheRight() {
+        var client = PROXIES.resolve("10.0.0.1", headers(
+                "X-Forwarded-For", "6.6.6.6, 198.51.100.7, 10.1.1.1",
+                "X-Forwarded-Proto", "http, https, http",
+                "X-Forwarded-Host", "a.example, b.example, c.example"));
+        assertEquals("198.51.100.7", client.getAddress());
+        assertEquals("https", client.getProto());
+        assertEquals("b.example", client.getHost());
+        assertEquals(2, client.getTrustedHops());
+    }
+
+    @Test
+    void parsesForwardedElements() {
+        var client = PROXIES.resolve("10.0.0.1", headers(
+                "Forwarded", "for=6.6.6.6, for=\"[2001:db8::17]:4711\";proto=https;host=shop.example, for=10.2.2.2",
+                "Via", "1.1 a, 1.1 b"));
+        assertEquals("2001:db8::17", client.getAddress());
+        assertEquals("https", client.getProto());
+        assertEquals("shop.example", client.getHost());
+        assertEquals(2, client.getTrustedHops());
+        assertEquals(2, client.getViaHops());
+    }
+
+    @Test
+    void honorsQuotedStringsInForwarded() {
+        var client = PROXIES.resolve("10.0.0.1", headers(
+                "Forwarded", "for=192.0.2.60;host=\"a,b;c\";proto=\"ht\\\"tp\", for=10.3.3.3"));
+        assertEquals("192.0.2.60", client.getAddress());
+        assertEquals("a,b;c", client.getHost());
+        assertEquals("ht\"tp", client.getProto());
+        assertEquals(2, client.getTrustedHops());
+    }
+
+    @Test
+    void keepsTheLastTrustedHopWhenTheClientIsHidden() {
+        var client = PROXIES.resolve("10.0.0.1", headers("Forwarded", "for=_hidden, for=10.4.4.4"));
+        assertEquals("_hidden", client.getAddress());
+
+        client = PROXIES.resolve("10.0.0.1", headers("Forwarded", "proto=https, for=10.4.4.4"));
+        assertEquals("10.4.4.4", client.getAddress());
+    }
+
+    private static Map<String, String> map(String... pairs) {
+        var map = new HashMap<String, String>();
+        for (int i = 0; i < pairs.length; i += 2) {
+            map.put(pairs[i], pairs[i + 1]);
+        }
+        return map;
+    }
+
+    private static Function<String, String> headers(String... pairs) {
+        return map(pairs)::get;
+    }
+}
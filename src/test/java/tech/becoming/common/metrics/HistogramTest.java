@@ -0,0 +1,117 @@
+package tech.becoming.common.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HistogramTest {
+
+    @Test
+    void bucketsHaveABoundedRelativeError() {
+        assertEquals(0, Histogram.index(0));
+        assertEquals(15, Histogram.index(15));
+        assertEquals(16, Histogram.index(16));
+        assertEquals(Histogram.BUCKETS - 1, Histogram.index(Long.MAX_VALUE));
+        assertEquals(Histogram.BUCKETS - 1, Histogram.index((1L << 42) - 1));
+        for (long value = 1; value < 1L << 42; value = value * 3 + 1) {
+            int index = Histogram.index(value);
+            long highest = Histogram.highestValue(index);
+            assertTrue(highest >= value, "bucket " + index + " of " + value);
+            assertTrue(highest - value <= value / 16, "bucket " + index + " of " + value);
+            assertEquals(index, Histogram.index(highest));
+            assertEquals(index + 1, Histogram.index(highest + 1));
+        }
+    }
+
+    @Test
+    void computesPercentilesCappedByTheMax() {
+        var histogram = new Histogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i * 1_000_000L);
+        }
+        histogram.record(-5);
+        var snapshot = histogram.snapshot();
+        assertEquals(101, snapshot.getCount());
+        assertEquals(5_050_000_000L, snapshot.getSum());
+        assertEquals(100_000_000L, snapshot.getMax());
+        assertEquals(0, snapshot.percentile(0));
+        assertEquals(100_000_000L, snapshot.percentile(1));
+        long p50 = snapshot.percentile(0.5);
+        assertTrue(p50 >= 50_000_000L && p50 <= 53_125_000L, "p50 " + p50);
+        assertThrows(IllegalArgumentException.class, () -> snapshot.percentile(1.5));
+        assertEquals(0, Histogram.Snapshot.EMPTY.percentile(0.99));
+    }
+
+    @Test
+    void mergesAndResets() {
+        var first = new Histogram();
+        var second = new Histogram();
+        first.record(10);
+        second.record(1_000);
+        second.record(1_000);
+
+        var merged = first.snapshot().merge(second.snapshot());
+        assertEquals(3, merged.getCount());
+        assertEquals(2_010, merged.getSum());
+        assertEquals(1_000, merged.getMax());
+        var empty = new Histogram().snapshot();
+        assertSame(merged, merged.merge(empty));
+        assertSame(merged, empty.merge(merged));
+
+        assertEquals(2, second.snapshotAndReset().getCount());
+        assertEquals(0, second.snapshot().getCount());
+        assertEquals(0, second.snapshot().getMax());
+    }
+
+    @Test
+    void stripesRoundTheCoresUp() {
+        assertEquals(1, Histogram.stripes(1));
+        assertEquals(2, Histogram.stripes(2));
+        assertEquals(4, Histogram.stripes(3));
+        assertEquals(8, Histogram.stripes(8));
+        assertEquals(Histogram.MAX_STRIPES, Histogram.stripes(64));
+    }
+
+    @Test
+    void concurrentRecordsOfTheSameValueAreAllCounted() throws Exception {
+        int threads = 8;
+        int perThread = 100_000;
+        var histogram = new Histogram();
+        var pool = Executors.newFixedThreadPool(threads);
+        var start = new CountDownLatch(1);
+        long resetCount = 0;
+        try {
+            var futures = new ArrayList<Future<?>>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < perThread; i++) {
+                        histogram.record(2_000_000);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            // resets racing with the records, each value lands in exactly one snapshot
+            for (int i = 0; i < 10; i++) {
+                resetCount += histogram.snapshotAndReset().getCount();
+            }
+            for (var future : futures) {
+                future.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        var snapshot = histogram.snapshot();
+        assertEquals((long) threads * perThread, resetCount + snapshot.getCount());
+        assertEquals(snapshot.getCount(), snapshot.bucket(Histogram.index(2_000_000)));
+    }
+}
@@ -0,0 +1,134 @@
+package tech.becoming.common.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HttpMetricsTest {
+
+    @Test
+    void writesEachFamilyOnceAfterItsType() {
+        var metrics = HttpMetrics.of(16);
+        metrics.record("/users/{id}", "GET", 200, 1_000_000);
+        metrics.record("/users/{id}", "GET", 404, 2_000_000);
+        metrics.record("/orders", "POST", 201, 3_000_000);
+        metrics.record("/orders", "POST", 999, 3_000_000);
+        metrics.route("/orders").recordPhase("db", 500_000);
+
+        var lines = metrics.writeText(new StringBuilder(), false).toString().split("\n");
+        var families = new ArrayList<String>();
+        String current = null;
+        for (var line : lines) {
+            if (line.startsWith("# TYPE ")) {
+                current = line.split(" ")[2];
+                assertFalse(families.contains(current), "family " + current + " written twice");
+                families.add(current);
+                continue;
+            }
+            var name = line.substring(0, line.indexOf('{'));
+            assertTrue(name.equals(current) || name.equals(current + "_sum") || name.equals(current + "_count"),
+                    line + " outside of its family " + current);
+        }
+        assertEquals(List.of("http_requests_total", "http_request_duration_seconds", "http_requests_class_total",
+                "http_request_phase_seconds", "http_requests_invalid_status_total"), families);
+
+        var text = String.join("\n", lines);
+        assertTrue(text.contains("# TYPE http_request_duration_seconds summary"));
+        assertTrue(text.contains("http_requests_total{route=\"/users/{id}\",method=\"GET\",status=\"404\"} 1"));
+        assertTrue(text.contains("http_requests_class_total{route=\"/users/{id}\",class=\"4xx\"} 1"));
+        assertTrue(text.contains("http_request_phase_seconds_count{route=\"/orders\",phase=\"db\"} 1"));
+        assertTrue(text.contains("http_requests_invalid_status_total{route=\"/orders\"} 1"));
+    }
+
+    @Test
+    void leavesOutFamiliesWithoutSamples() {
+        var metrics = HttpMetrics.of(16);
+        assertEquals("", metrics.writeText(new StringBuilder(), false).toString());
+
+        metrics.record("/a\"b", "GET", 200, 1);
+        var text = metrics.writeText(new StringBuilder(), true).toString();
+        assertTrue(text.contains("route=\"/a\\\"b\""));
+        assertFalse(text.contains("phase"));
+        assertFalse(text.contains("invalid"));
+
+        // reset by the previous write, the series stays with a zero count
+        text = metrics.writeText(new StringBuilder(), false).toString();
+        assertTrue(text.contains("http_requests_total{route=\"/a\\\"b\",method=\"GET\",status=\"200\"} 0\n"));
+        assertFalse(text.contains("http_requests_class_total"));
+    }
+
+    @Test
+    void recordsPastTheMaximumOnOther() {
+        var metrics = HttpMetrics.of(2);
+        metrics.record("/a", "GET", 200, 1);
+        metrics.record("/b", "GET", 200, 1);
+        metrics.record("/c", "GET", 200, 1);
+        metrics.record("/d", "GET", 200, 1);
+        assertSame(metrics.route(HttpMetrics.OTHER), metrics.route("/e"));
+        assertEquals(2, metrics.route("/e").count("GET", 200));
+
+        var routes = new LinkedHashSet<>(metrics.snapshot(false).keySet());
+        assertEquals(3, routes.size());
+        assertTrue(routes.contains(HttpMetrics.OTHER));
+
+        metrics.reset();
+        assertEquals(0, metrics.route("/a").count("GET", 200));
+        assertThrows(IllegalArgumentException.class, () -> HttpMetrics.of(0));
+    }
+
+    @Test
+    void writesTheFullHistogramsInBinary() throws Exception {
+        var metrics = HttpMetrics.of(4);
+        metrics.record("/users/{id}", "GET", 200, 1_000);
+        metrics.record("/users/{id}", "GET", 200, 1_000);
+        metrics.record("/users/{id}", "GET", 200, 2_000_000);
+        metrics.route("/users/{id}").recordPhase("db", 500);
+
+        var bytes = new ByteArrayOutputStream();
+        metrics.writeBinary(new DataOutputStream(bytes), true);
+        var in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        assertEquals(HttpMetrics.BINARY_MAGIC, in.readInt());
+        assertEquals(2, in.readByte());
+        // the route, then other
+        assertEquals(2, in.readInt());
+
+        assertEquals("/users/{id}", in.readUTF());
+        assertEquals(1, in.readInt());
+        assertEquals("GET", in.readUTF());
+        assertEquals(200, in.readShort());
+        assertEquals(2_002_000, in.readLong());
+        assertEquals(2_000_000, in.readLong());
+        assertEquals(2, in.readShort());
+        assertEquals(Histogram.index(1_000), in.readShort());
+        assertEquals(2, in.readLong());
+        assertEquals(Histogram.index(2_000_000), in.readShort());
+        assertEquals(1, in.readLong());
+        assertEquals(1, in.readInt());
+        assertEquals("db", in.readUTF());
+        assertEquals(500, in.readLong());
+        assertEquals(500, in.readLong());
+        assertEquals(1, in.readShort());
+        assertEquals(Histogram.index(500), in.readShort());
+        assertEquals(1, in.readLong());
+
+        assertEquals(HttpMetrics.OTHER, in.readUTF());
+        assertEquals(0, in.readInt());
+        assertEquals(0, in.readInt());
+        assertEquals(-1, in.read());
+
+        // reset by the write
+        assertEquals(0, metrics.route("/users/{id}").count("GET", 200));
+    }
+}
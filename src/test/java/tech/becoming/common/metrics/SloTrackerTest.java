@@ -0,0 +1,142 @@
+package tech.becoming.common.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeout;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SloTrackerTest {
+
+    private static final long START = 1_000_000_000L;
+
+    private final AtomicLong clock = new AtomicLong(START);
+
+    @Test
+    void countsTheRequestsOfTheWindow() {
+        var tracker = SloTracker.of(0.9, clock::get);
+        assertEquals(0, tracker.successes(Duration.ofMinutes(1)));
+        assertEquals(1, tracker.remainingBudget(Duration.ofDays(30)));
+
+        for (int i = 0; i < 10; i++) {
+            clock.set(START + i * 1000L);
+            tracker.record(200);
+            if (i >= 8) {
+                tracker.record(503);
+            }
+        }
+        tracker.record(42);
+        clock.set(START + 9_500);
+
+        assertEquals(5, tracker.successes(Duration.ofSeconds(5)));
+        assertEquals(2, tracker.failures(Duration.ofSeconds(5)));
+        assertEquals(10, tracker.successes(Duration.ofHours(1)));
+        assertEquals(10, tracker.successes(Duration.ofDays(30)));
+        assertEquals(2.0 / 7, tracker.errorRate(Duration.ofSeconds(5)), 1e-9);
+        assertEquals(2.0 / 7 / 0.1, tracker.burnRate(Duration.ofSeconds(5)), 1e-9);
+        assertTrue(tracker.isBurning(Duration.ofMinutes(1), Duration.ofSeconds(5), 1));
+        assertEquals(1 - 2 / (0.1 * 12), tracker.remainingBudget(Duration.ofHours(1)), 1e-9);
+        assertEquals(1, tracker.invalid());
+    }
+
+    @Test
+    void forgetsTheSlicesOverwrittenWhileIdle() {
+        var tracker = SloTracker.of(0.999, clock::get);
+        tracker.record(false);
+        clock.addAndGet(Duration.ofHours(2).toMillis());
+        assertEquals(0, tracker.failures(Duration.ofHours(1)));
+        assertEquals(1, tracker.failures(Duration.ofHours(3)));
+
+        tracker.record(true);
+        assertEquals(0, tracker.failures(Duration.ofHours(1)));
+        assertEquals(1, tracker.successes(Duration.ofSeconds(1)));
+    }
+
+    @Test
+    void skipsTheSlicesNeverStarted() {
+        // a clock starting at 0, the windows start before the first slice
+        clock.set(0);
+        var tracker = SloTracker.of(0.999, clock::get);
+        tracker.record(true);
+        clock.set(Duration.ofMinutes(59).toMillis());
+        tracker.record(true);
+        assertTimeout(Duration.ofSeconds(2), () -> {
+            for (int i = 0; i < 2_000; i++) {
+                assertEquals(2, tracker.successes(Duration.ofHours(1)));
+                assertEquals(2, tracker.successes(Duration.ofDays(30)));
+            }
+        });
+    }
+
+    @Test
+    void rejectsInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> SloTracker.of(1));
+        assertThrows(IllegalArgumentException.class, () -> SloTracker.of(0));
+        var tracker = SloTracker.of(0.99, clock::get);
+        assertThrows(IllegalArgumentException.class, () -> tracker.successes(Duration.ZERO));
+        assertThrows(IllegalArgumentException.class, () -> tracker.successes(Duration.ofDays(31)));
+    }
+
+    @Test
+    void readsConsistentCountsWhileSlicesAreStarted() throws Exception {
+        var tracker = SloTracker.of(0.999, clock::get);
+        int writers = 4;
+        int readers = 4;
+        int perWriter = 50_000;
+        var recorded = new AtomicLong();
+        var done = new AtomicBoolean();
+        var pool = Executors.newFixedThreadPool(writers + readers);
+        var start = new CountDownLatch(1);
+        try {
+            var futures = new ArrayList<Future<?>>();
+            for (int w = 0; w < writers; w++) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < perWriter; i++) {
+                        // every few records a new second, the ring wraps several times
+                        if (i % 8 == 0) {
+                            clock.addAndGet(1000);
+                        }
+                        tracker.record(true);
+                        recorded.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            var reads = new ArrayList<Future<?>>();
+            for (int r = 0; r < readers; r++) {
+                reads.add(pool.submit(() -> {
+                    start.await();
+                    while (!done.get()) {
+                        long count = tracker.successes(Duration.ofSeconds(30));
+                        // each writer may have one record counted by the tracker and not yet by the test
+                        assertTrue(count >= 0 && count <= recorded.get() + writers, "count " + count);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (var future : futures) {
+                future.get();
+            }
+            done.set(true);
+            for (var read : reads) {
+                read.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals((long) writers * perWriter, tracker.successes(Duration.ofDays(30)));
+        assertFalse(tracker.isBurning(Duration.ofHours(1), Duration.ofMinutes(5), 1));
+    }
+}
@@ -0,0 +1,205 @@
+package tech.becoming.common.resilience;
+
+import org.junit.jupiter.api.Test;
+import tech.becoming.common.exceptions.BadRequestException;
+import tech.becoming.common.exceptions.ServiceUnavailableException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static tech.becoming.common.resilience.CircuitBreaker.REJECTED;
+import static tech.becoming.common.resilience.CircuitBreaker.State.CLOSED;
+import static tech.becoming.common.resilience.CircuitBreaker.State.HALF_OPEN;
+import static tech.becoming.common.resilience.CircuitBreaker.State.OPEN;
+
+class CircuitBreakerTest {
+
+    private static final Duration OPEN_FOR = Duration.ofMillis(50);
+
+    @Test
+    void opensAtTheThresholdOnceHalfTheWindowIsRecorded() {
+        var breaker = CircuitBreaker.of(10, 0.5, Duration.ofMinutes(1));
+        for (int i = 0; i < 4; i++) {
+            breaker.onResult(breaker.tryAcquire(), 503);
+        }
+        // 4 failures out of 4, but fewer than the minimum of 5 calls
+        assertEquals(CLOSED, breaker.getState());
+        breaker.onResult(breaker.tryAcquire(), 502);
+        assertEquals(OPEN, breaker.getState());
+        assertEquals(REJECTED, breaker.tryAcquire());
+        assertThrows(ServiceUnavailableException.class, breaker::acquireOrThrow);
+    }
+
+    @Test
+    void clientErrorsAreSuccesses() {
+        var breaker = CircuitBreaker.of(4, 0.5, Duration.ofMinutes(1));
+        breaker.onResult(breaker.tryAcquire(), 404);
+        breaker.onError(breaker.tryAcquire(), new BadRequestException());
+        breaker.onResult(breaker.tryAcquire(), 503);
+        assertEquals(CLOSED, breaker.getState());
+        assertEquals(1.0 / 3, breaker.getFailureRate(), 1e-9);
+        breaker.onError(breaker.tryAcquire(), new TimeoutException());
+        assertEquals(OPEN, breaker.getState());
+    }
+
+    @Test
+    void slidesTheWindow() {
+        var breaker = CircuitBreaker.of(4, 0.75, Duration.ofMinutes(1));
+        breaker.onSuccess(breaker.tryAcquire());
+        breaker.onSuccess(breaker.tryAcquire());
+        breaker.onFailure(breaker.tryAcquire());
+        breaker.onFailure(breaker.tryAcquire());
+        assertEquals(0.5, breaker.getFailureRate());
+        // the oldest outcomes are overwritten first, then the two failures
+        breaker.onSuccess(breaker.tryAcquire());
+        breaker.onSuccess(breaker.tryAcquire());
+        assertEquals(0.5, breaker.getFailureRate());
+        breaker.onSuccess(breaker.tryAcquire());
+        breaker.onSuccess(breaker.tryAcquire());
+        assertEquals(0, breaker.getFailureRate());
+        assertEquals(CLOSED, breaker.getState());
+    }
+
+    @Test
+    void ignoresOutcomesOfPermitsFromAPreviousState() throws Exception {
+        var breaker = CircuitBreaker.of(2, 0.5, OPEN_FOR, 1, CircuitBreaker::isFailureStatus);
+        long stale = breaker.tryAcquire();
+        breaker.onFailure(breaker.tryAcquire());
+        assertEquals(OPEN, breaker.getState());
+
+        Thread.sleep(OPEN_FOR.toMillis() + 10);
+        long probe = breaker.tryAcquire();
+        assertEquals(HALF_OPEN, breaker.getState());
+        // a late failure of a call admitted while closed doesn't reopen the breaker
+        breaker.onFailure(stale);
+        breaker.onFailure(REJECTED);
+        assertEquals(HALF_OPEN, breaker.getState());
+        breaker.onSuccess(probe);
+        assertEquals(CLOSED, breaker.getState());
+        assertEquals(0, breaker.getFailureRate());
+    }
+
+    @Test
+    void probesCloseOrReopen() throws Exception {
+        var breaker = CircuitBreaker.of(2, 0.5, OPEN_FOR, 2, CircuitBreaker::isFailureStatus);
+        breaker.onFailure(breaker.tryAcquire());
+        Thread.sleep(OPEN_FOR.toMillis() + 10);
+
+        long first = breaker.tryAcquire();
+        long second = breaker.tryAcquire();
+        assertNotEquals(REJECTED, first);
+        assertNotEquals(REJECTED, second);
+        assertEquals(REJECTED, breaker.tryAcquire());
+        breaker.onSuccess(first);
+        assertEquals(HALF_OPEN, breaker.getState());
+        breaker.onResult(second, 504);
+        assertEquals(OPEN, breaker.getState());
+
+        Thread.sleep(OPEN_FOR.toMillis() + 10);
+        breaker.onSuccess(breaker.tryAcquire());
+        breaker.onSuccess(breaker.tryAcquire());
+        assertEquals(CLOSED, breaker.getState());
+    }
+
+    @Test
+    void reopensWhenProbesAreNeverAnswered() throws Exception {
+        var breaker = CircuitBreaker.of(2, 0.5, OPEN_FOR, 1, CircuitBreaker::isFailureStatus);
+        breaker.onFailure(breaker.tryAcquire());
+        Thread.sleep(OPEN_FOR.toMillis() + 10);
+        long lost = breaker.tryAcquire();
+        assertNotEquals(REJECTED, lost);
+
+        Thread.sleep(OPEN_FOR.toMillis() + 10);
+        assertEquals(REJECTED, breaker.tryAcquire());
+        assertEquals(OPEN, breaker.getState());
+        breaker.onSuccess(lost);
+        assertEquals(OPEN, breaker.getState());
+    }
+
+    @Test
+    void rejectsInvalidSettings() {
+        assertThrows(IllegalArgumentException.class, () -> CircuitBreaker.of(0, 0.5, OPEN_FOR));
+        assertThrows(IllegalArgumentException.class, () -> CircuitBreaker.of(10, 0, OPEN_FOR));
+        assertThrows(IllegalArgumentException.class, () -> CircuitBreaker.of(10, 1.5, OPEN_FOR));
+        assertThrows(IllegalArgumentException.class,
+                () -> CircuitBreaker.of(10, 0.5, OPEN_FOR, 0, CircuitBreaker::isFailureStatus));
+    }
+
+    @Test
+    void letsExactlyTheConfiguredProbesThroughConcurrently() throws Exception {
+        int probes = 3;
+        var executor = Executors.newFixedThreadPool(8);
+        try {
+            for (int round = 0; round < 5; round++) {
+                var breaker = CircuitBreaker.of(2, 0.5, Duration.ofMillis(100), probes, CircuitBreaker::isFailureStatus);
+                breaker.onFailure(breaker.tryAcquire());
+                Thread.sleep(110);
+
+                var start = new CountDownLatch(1);
+                var futures = new ArrayList<Future<Integer>>();
+                for (int t = 0; t < 8; t++) {
+                    futures.add(executor.submit(() -> {
+                        start.await();
+                        int admitted = 0;
+                        for (int i = 0; i < 100; i++) {
+                            if (breaker.tryAcquire() != REJECTED) {
+                                admitted++;
+                            }
+                        }
+                        return admitted;
+                    }));
+                }
+                start.countDown();
+                int admitted = 0;
+                for (var future : futures) {
+                    admitted += future.get();
+                }
+                // the probes are never answered within the test, no more than them are handed out
+                assertEquals(probes, admitted);
+                assertEquals(HALF_OPEN, breaker.getState());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void keepsTheFailureCountConsistentUnderConcurrentOutcomes() throws Exception {
+        // a threshold that is never reached, so every outcome lands in the window
+        var breaker = CircuitBreaker.of(64, 1.0, Duration.ofMinutes(1));
+        var executor = Executors.newFixedThreadPool(8);
+        try {
+            var tasks = new ArrayList<Callable<Void>>();
+            for (int t = 0; t < 8; t++) {
+                tasks.add(() -> {
+                    for (int i = 0; i < 10_000; i++) {
+                        long permit = breaker.tryAcquire();
+                        if (i % 2 == 0) {
+                            breaker.onSuccess(permit);
+                        } else {
+                            breaker.onFailure(permit);
+                        }
+                    }
+                    return null;
+                });
+            }
+            for (var future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(CLOSED, breaker.getState());
+        double rate = breaker.getFailureRate();
+        assertTrue(rate > 0 && rate < 1, "rate " + rate);
+    }
+}
@@ -0,0 +1,123 @@
+package tech.becoming.common.resilience;
+
+import org.junit.jupiter.api.Test;
+import tech.becoming.common.exceptions.ServiceUnavailableException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConcurrencyLimiterTest {
+
+    private static final LimitAlgorithm FIXED = (limit, rttNanos, inFlight, dropped) -> limit;
+
+    @Test
+    void roundsRetryAfterUpToWholeSeconds() {
+        assertEquals("1", retryAfter(Duration.ofSeconds(1)));
+        assertEquals("2", retryAfter(Duration.ofMillis(1500)));
+        assertEquals("1", retryAfter(Duration.ofMillis(1)));
+        assertEquals("1", retryAfter(Duration.ZERO));
+        assertEquals("3", retryAfter(Duration.ofSeconds(2).plusNanos(1)));
+    }
+
+    @Test
+    void shedsLowerPrioritiesFirst() {
+        var limiter = ConcurrencyLimiter.of(FIXED, 10, 10);
+        for (int i = 0; i < 5; i++) {
+            assertNotEquals(ConcurrencyLimiter.REJECTED, limiter.tryAcquire(Priority.LOW));
+        }
+        assertEquals(ConcurrencyLimiter.REJECTED, limiter.tryAcquire(Priority.LOW));
+        for (int i = 0; i < 4; i++) {
+            assertNotEquals(ConcurrencyLimiter.REJECTED, limiter.tryAcquire(Priority.NORMAL));
+        }
+        assertEquals(ConcurrencyLimiter.REJECTED, limiter.tryAcquire(Priority.NORMAL));
+        assertNotEquals(ConcurrencyLimiter.REJECTED, limiter.tryAcquire(Priority.HIGH));
+        assertEquals(ConcurrencyLimiter.REJECTED, limiter.tryAcquire(Priority.HIGH));
+        assertThrows(ServiceUnavailableException.class, () -> limiter.acquireOrThrow(Priority.HIGH));
+        // never shed
+        assertNotEquals(ConcurrencyLimiter.REJECTED, limiter.tryAcquire(Priority.CRITICAL));
+        assertEquals(11, limiter.getInFlight());
+    }
+
+    @Test
+    void backsOffOnDropsWithinBounds() {
+        var limiter = ConcurrencyLimiter.of(LimitAlgorithm.aimd(Duration.ofSeconds(10), 0.5), 4, 8);
+        var permits = new ArrayList<Long>();
+        for (int i = 0; i < 4; i++) {
+            permits.add(limiter.tryAcquire(Priority.HIGH));
+        }
+        for (int i = 0; i < 4; i++) {
+            limiter.release(permits.get(i), false);
+        }
+        assertEquals(6, limiter.getLimit());
+
+        limiter.release(limiter.tryAcquire(Priority.HIGH), true);
+        assertEquals(4, limiter.getLimit());
+        limiter.release(ConcurrencyLimiter.REJECTED, true);
+        limiter.ignore(ConcurrencyLimiter.REJECTED);
+        assertEquals(0, limiter.getInFlight());
+        assertThrows(IllegalArgumentException.class, () -> ConcurrencyLimiter.of(FIXED, 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> ConcurrencyLimiter.of(FIXED, 2, 1));
+    }
+
+    @Test
+    void appliesEveryDropAndNeverExceedsTheLimitConcurrently() throws Exception {
+        var drops = new AtomicInteger();
+        LimitAlgorithm counting = (limit, rttNanos, inFlight, dropped) -> {
+            if (dropped) {
+                drops.incrementAndGet();
+            }
+            return limit;
+        };
+        var limiter = ConcurrencyLimiter.of(counting, 10, 10);
+        int threads = 8;
+        int iterations = 5_000;
+        var executor = Executors.newFixedThreadPool(threads);
+        try {
+            var tasks = new ArrayList<Callable<Integer>>();
+            for (int t = 0; t < threads; t++) {
+                tasks.add(() -> {
+                    int dropped = 0;
+                    for (int i = 0; i < iterations; i++) {
+                        long permit = limiter.tryAcquire(Priority.NORMAL);
+                        if (permit == ConcurrencyLimiter.REJECTED) {
+                            continue;
+                        }
+                        assertTrue(limiter.getInFlight() <= 9);
+                        boolean drop = i % 3 == 0;
+                        limiter.release(permit, drop);
+                        if (drop) {
+                            dropped++;
+                        }
+                    }
+                    return dropped;
+                });
+            }
+            int dropped = 0;
+            for (var future : executor.invokeAll(tasks)) {
+                dropped += future.get();
+            }
+            assertEquals(dropped, drops.get());
+            assertEquals(0, limiter.getInFlight());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static String retryAfter(Duration duration) {
+        var response = ConcurrencyLimiter.of(FIXED, 1, 1, duration).rejection();
+        for (int i = 0; i < response.headerCount(); i++) {
+            if ("Retry-After".equals(response.headerName(i))) {
+                return response.headerValue(i);
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,174 @@
+package tech.becoming.common.resilience;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import tech.becoming.common.exceptions.GatewayTimeoutException;
+import tech.becoming.common.exceptions.RequestTimeoutException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DeadlineTest {
+
+    private final TimerWheel timer = new TimerWheel(Duration.ofMillis(1), 64, "deadline-test");
+
+    @AfterEach
+    void stop() {
+        timer.stop();
+    }
+
+    @Test
+    void failsBoundCallsWithAGatewayTimeout() throws Exception {
+        var deadline = Deadline.after(Duration.ofMillis(20), timer);
+        var call = new CompletableFuture<String>();
+        var bound = deadline.bind(call);
+
+        var error = assertThrows(ExecutionException.class, () -> bound.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(GatewayTimeoutException.class, error.getCause());
+        // the call is cancelled by the timer thread right after failing the bound future
+        long limit = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!call.isCancelled() && System.nanoTime() < limit) {
+            Thread.sleep(1);
+        }
+        assertTrue(call.isCancelled());
+        assertTrue(deadline.isExpired());
+        assertEquals(Duration.ZERO, deadline.remaining());
+        assertThrows(RequestTimeoutException.class, deadline::throwIfExpired);
+    }
+
+    @Test
+    void passesResultsThroughBeforeTheDeadline() throws Exception {
+        try (var deadline = Deadline.after(Duration.ofSeconds(10), timer)) {
+            assertEquals("ok", deadline.bind(CompletableFuture.completedFuture("ok")).get());
+            assertFalse(deadline.isExpired());
+            assertTrue(deadline.remaining(TimeUnit.SECONDS) > 0);
+            deadline.throwIfExpired();
+        }
+    }
+
+    @Test
+    void closedDeadlinesNeverRunTheirListeners() throws Exception {
+        var ran = new AtomicInteger();
+        var deadline = Deadline.after(Duration.ofMillis(10), timer);
+        deadline.onExpiry(ran::incrementAndGet);
+        deadline.close();
+        deadline.onExpiry(ran::incrementAndGet);
+        Thread.sleep(40);
+        assertEquals(0, ran.get());
+    }
+
+    @Test
+    void runsLateListenersRightAway() throws Exception {
+        var deadline = Deadline.after(Duration.ZERO, timer);
+        var expired = new CountDownLatch(1);
+        deadline.onExpiry(expired::countDown);
+        assertTrue(expired.await(5, TimeUnit.SECONDS));
+
+        var ran = new AtomicInteger();
+        deadline.onExpiry(ran::incrementAndGet);
+        assertEquals(1, ran.get());
+    }
+
+    @Test
+    void childrenNeverOutliveTheirParent() throws Exception {
+        var parent = Deadline.after(Duration.ofMillis(30), timer);
+        var longer = parent.child(Duration.ofSeconds(10));
+        var shorter = parent.child(Duration.ofMillis(5));
+        assertTrue(longer.remaining().compareTo(Duration.ofMillis(30)) <= 0);
+
+        var shorterExpired = new CountDownLatch(1);
+        shorter.onExpiry(shorterExpired::countDown);
+        var longerExpired = new CountDownLatch(1);
+        longer.onExpiry(longerExpired::countDown);
+        assertTrue(shorterExpired.await(5, TimeUnit.SECONDS));
+        assertFalse(parent.isExpired());
+        assertTrue(longerExpired.await(5, TimeUnit.SECONDS));
+        assertTrue(parent.isExpired());
+    }
+
+    @Test
+    void closingTheParentClosesItsChildren() throws Exception {
+        var parent = Deadline.after(Duration.ofSeconds(10), timer);
+        var child = parent.child(Duration.ofMillis(10));
+        var ran = new AtomicInteger();
+        child.onExpiry(ran::incrementAndGet);
+        parent.close();
+        Thread.sleep(40);
+        assertEquals(0, ran.get());
+
+        // a child of a closed deadline is closed at once
+        var orphan = parent.child(Duration.ofMillis(1));
+        orphan.onExpiry(ran::incrementAndGet);
+        Thread.sleep(20);
+        assertEquals(0, ran.get());
+    }
+
+    @Test
+    void interruptsSubtasksOnExpiry() throws Exception {
+        var executor = Executors.newSingleThreadExecutor();
+        try {
+            var deadline = Deadline.after(Duration.ofMillis(20), timer);
+            var interrupted = new CountDownLatch(1);
+            var subtask = deadline.supplyAsync(() -> {
+                try {
+                    Thread.sleep(10_000);
+                    return "late";
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                    throw new IllegalStateException(e);
+                }
+            }, executor);
+            var error = assertThrows(ExecutionException.class, () -> subtask.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(RequestTimeoutException.class, error.getCause());
+            assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+
+            // the interrupt doesn't leak to the next task of the thread
+            assertFalse(executor.submit(() -> Thread.currentThread().isInterrupted()).get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void runsEveryListenerOnceWhenRegistrationsRaceTheExpiry() throws Exception {
+        var executor = Executors.newFixedThreadPool(8);
+        try {
+            for (int round = 0; round < 20; round++) {
+                var deadline = Deadline.after(Duration.ofMillis(2), timer);
+                var ran = new AtomicInteger();
+                var tasks = new ArrayList<Callable<Void>>();
+                for (int t = 0; t < 8; t++) {
+                    tasks.add(() -> {
+                        for (int i = 0; i < 500; i++) {
+                            deadline.onExpiry(ran::incrementAndGet);
+                        }
+                        return null;
+                    });
+                }
+                for (var future : executor.invokeAll(tasks)) {
+                    future.get();
+                }
+                long limit = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+                while (ran.get() < 8 * 500 && System.nanoTime() < limit) {
+                    Thread.sleep(1);
+                }
+                assertEquals(8 * 500, ran.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
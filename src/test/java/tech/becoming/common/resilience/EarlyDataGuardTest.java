@@ -0,0 +1,88 @@
+package tech.becoming.common.resilience;
+
+import org.junit.jupiter.api.Test;
+import tech.becoming.common.exceptions.TooEarlyException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static tech.becoming.common.constants.HttpMethod.GET;
+import static tech.becoming.common.constants.HttpMethod.POST;
+
+class EarlyDataGuardTest {
+
+    @Test
+    void onlyLetsSafeRequestsThroughOnce() {
+        var guard = EarlyDataGuard.of(1_000, Duration.ofMinutes(1));
+        assertTrue(EarlyDataGuard.isEarlyData(" 1 "));
+        assertFalse(EarlyDataGuard.isEarlyData("0"));
+        assertFalse(EarlyDataGuard.isEarlyData(null));
+
+        assertNull(guard.check(POST, null, 1));
+        assertSame(guard.rejection(), guard.check(POST, "1", 1));
+        assertEquals(425, guard.rejection().getStatus());
+
+        assertNull(guard.check(GET, "1", 2));
+        assertSame(guard.rejection(), guard.check(GET, "1", 2));
+        // after the handshake the same request is processed
+        assertNull(guard.check(GET, null, 2));
+        assertThrows(TooEarlyException.class, () -> guard.checkOrThrow(GET, "1", 2));
+        guard.checkOrThrow(GET, "1", 3);
+    }
+
+    @Test
+    void remembersRequestsForTheReplayWindowOnly() throws Exception {
+        var guard = EarlyDataGuard.of(1_000, Duration.ofMillis(100));
+        assertFalse(guard.isReplay(10));
+        assertFalse(guard.isReplay(11));
+
+        // the next epoch still checks the previous one
+        Thread.sleep(120);
+        assertTrue(guard.isReplay(10));
+
+        // two epochs later the filter was rotated out
+        Thread.sleep(230);
+        assertFalse(guard.isReplay(11));
+    }
+
+    @Test
+    void detectsEveryReplayUnderConcurrentRequests() throws Exception {
+        var guard = EarlyDataGuard.of(100_000, Duration.ofSeconds(10));
+        int threads = 8;
+        int perThread = 2_000;
+        var executor = Executors.newFixedThreadPool(threads);
+        try {
+            var tasks = new ArrayList<Callable<Integer>>();
+            for (int t = 0; t < threads; t++) {
+                long base = (long) t * perThread;
+                tasks.add(() -> {
+                    int falsePositives = 0;
+                    for (int i = 0; i < perThread; i++) {
+                        if (guard.isReplay((base + i) * 0x9E3779B97F4A7C15L)) {
+                            falsePositives++;
+                        }
+                    }
+                    for (int i = 0; i < perThread; i++) {
+                        assertTrue(guard.isReplay((base + i) * 0x9E3779B97F4A7C15L));
+                    }
+                    return falsePositives;
+                });
+            }
+            int falsePositives = 0;
+            for (var future : executor.invokeAll(tasks)) {
+                falsePositives += future.get();
+            }
+            assertTrue(falsePositives < threads * perThread / 100, "false positives " + falsePositives);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
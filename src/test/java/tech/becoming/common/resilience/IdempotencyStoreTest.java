@@ -0,0 +1,147 @@
+package tech.becoming.common.resilience;
+
+import org.junit.jupiter.api.Test;
+import tech.becoming.common.exceptions.BadRequestException;
+import tech.becoming.common.exceptions.ConflictException;
+import tech.becoming.common.exceptions.ServiceUnavailableException;
+import tech.becoming.common.http.PreparedResponse;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IdempotencyStoreTest {
+
+    private static final PreparedResponse CREATED = PreparedResponse.of(201, "Created");
+    private static final PreparedResponse UNAVAILABLE = PreparedResponse.of(503, "Service Unavailable");
+    private static final long FINGERPRINT = IdempotencyStore.fingerprint("POST", "/orders", new byte[]{1, 2});
+
+    @Test
+    void replaysTheRecordedResponse() {
+        var store = IdempotencyStore.of(Duration.ofMinutes(1));
+        var first = store.begin("k", FINGERPRINT);
+        assertTrue(first.isReserved());
+        assertNull(first.getResponse());
+        assertEquals("k", first.getKey());
+
+        assertEquals(409, store.begin("k", FINGERPRINT).getResponse().getStatus());
+        assertEquals(400, store.begin("k", FINGERPRINT + 1).getResponse().getStatus());
+
+        assertTrue(store.complete(first, CREATED));
+        var retry = store.begin("k", FINGERPRINT);
+        assertFalse(retry.isReserved());
+        assertSame(CREATED, retry.getResponse());
+        // a replayed response can't be completed again
+        assertFalse(store.complete(retry, CREATED));
+    }
+
+    @Test
+    void fingerprintsTellRequestsApart() {
+        assertEquals(FINGERPRINT, IdempotencyStore.fingerprint("POST", "/orders", new byte[]{1, 2}));
+        assertTrue(FINGERPRINT != IdempotencyStore.fingerprint("POST", "/orders", new byte[]{2, 1}));
+        assertTrue(FINGERPRINT != IdempotencyStore.fingerprint("PATCH", "/orders", new byte[]{1, 2}));
+    }
+
+    @Test
+    void releasesTheKeyOnServerErrors() {
+        var store = IdempotencyStore.of(Duration.ofMinutes(1));
+        assertFalse(store.complete(store.begin("k", FINGERPRINT), UNAVAILABLE));
+        assertTrue(store.begin("k", FINGERPRINT).isReserved());
+    }
+
+    @Test
+    void ignoresExpiredReservations() throws Exception {
+        var store = IdempotencyStore.of(Duration.ofMinutes(1), Duration.ofMillis(20), 1);
+        var stale = store.begin("k", FINGERPRINT);
+        Thread.sleep(40);
+
+        var takeover = store.begin("k", FINGERPRINT);
+        assertTrue(takeover.isReserved());
+        // the first request completes late, it must not record its response nor drop the new reservation
+        assertFalse(store.complete(stale, CREATED));
+        store.release(stale);
+        assertEquals(409, store.begin("k", FINGERPRINT).getResponse().getStatus());
+
+        var other = PreparedResponse.of(202, "Accepted");
+        assertTrue(store.complete(takeover, other));
+        assertSame(other, store.begin("k", FINGERPRINT).getResponse());
+
+        var expired = store.begin("late", FINGERPRINT);
+        Thread.sleep(40);
+        assertFalse(store.complete(expired, CREATED));
+    }
+
+    @Test
+    void evictsRecordedResponsesButNeverReservations() {
+        var store = IdempotencyStore.of(Duration.ofMinutes(1), Duration.ofMinutes(1), 1, 2);
+        var a = store.begin("a", FINGERPRINT);
+        store.begin("b", FINGERPRINT);
+        assertEquals(503, store.begin("c", FINGERPRINT).getResponse().getStatus());
+
+        store.complete(a, CREATED);
+        assertTrue(store.begin("c", FINGERPRINT).isReserved());
+        assertEquals(2, store.size());
+        // a was evicted to make room, b and c in flight fill the store again
+        assertEquals(503, store.begin("a", FINGERPRINT).getResponse().getStatus());
+    }
+
+    @Test
+    void throwsTheLibraryExceptions() {
+        var store = IdempotencyStore.of(Duration.ofMinutes(1), Duration.ofMinutes(1), 1, 1);
+        assertTrue(store.beginOrThrow("k", FINGERPRINT).isReserved());
+        assertThrows(ConflictException.class, () -> store.beginOrThrow("k", FINGERPRINT));
+        assertThrows(BadRequestException.class, () -> store.beginOrThrow("k", 42));
+        assertThrows(ServiceUnavailableException.class, () -> store.beginOrThrow("other", FINGERPRINT));
+        assertThrows(IllegalArgumentException.class, () -> IdempotencyStore.of(Duration.ZERO));
+    }
+
+    @Test
+    void reservesAKeyOnceUnderConcurrentRetries() throws Exception {
+        var store = IdempotencyStore.of(Duration.ofMinutes(1), Duration.ofMinutes(1), 4);
+        int threads = 8;
+        var executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (int round = 0; round < 50; round++) {
+                var key = "key-" + round;
+                var start = new CountDownLatch(1);
+                var tasks = new ArrayList<Callable<Boolean>>();
+                for (int t = 0; t < threads; t++) {
+                    tasks.add(() -> {
+                        start.await();
+                        var reservation = store.begin(key, FINGERPRINT);
+                        if (reservation.isReserved()) {
+                            store.complete(reservation, CREATED);
+                            return true;
+                        }
+                        var status = reservation.getResponse().getStatus();
+                        assertTrue(status == 409 || status == 201, "status " + status);
+                        return false;
+                    });
+                }
+                var futures = new ArrayList<Future<Boolean>>();
+                for (var task : tasks) {
+                    futures.add(executor.submit(task));
+                }
+                start.countDown();
+                int reserved = 0;
+                for (var future : futures) {
+                    reserved += future.get() ? 1 : 0;
+                }
+                assertEquals(1, reserved);
+                assertSame(CREATED, store.begin(key, FINGERPRINT).getResponse());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
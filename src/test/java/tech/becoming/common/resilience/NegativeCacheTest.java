@@ -0,0 +1,114 @@
+package tech.becoming.common.resilience;
+
+import org.junit.jupiter.api.Test;
+import tech.becoming.common.exceptions.NotFoundException;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NegativeCacheTest {
+
+    @Test
+    void answersRepeatedMissesWithoutAQuery() {
+        var cache = NegativeCache.<Long>of(100, Duration.ofMinutes(1));
+        var queries = new AtomicInteger();
+        for (int i = 0; i < 3; i++) {
+            assertThrows(NotFoundException.class, () -> cache.throwIfEmpty(1L, () -> {
+                queries.incrementAndGet();
+                return Optional.empty();
+            }));
+        }
+        assertEquals(1, queries.get());
+        assertTrue(cache.isKnownMissing(1L));
+        assertEquals(404, cache.notFound().getStatus());
+    }
+
+    @Test
+    void queriesKeysNeverLookedUp() {
+        var cache = NegativeCache.<Long>of(100, Duration.ofMinutes(1));
+        assertFalse(cache.isKnownMissing(7L));
+        assertEquals("found", cache.throwIfEmpty(7L, () -> Optional.of("found")));
+        assertTrue(cache.throwIfFalse(8L, () -> true));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void forgetsInsertedAndExpiredKeys() throws Exception {
+        var cache = NegativeCache.<Long>of(100, Duration.ofMillis(30));
+        assertThrows(NotFoundException.class, () -> cache.throwIfFalse(1L, () -> false));
+        cache.markMissing(2L);
+        assertTrue(cache.isKnownMissing(1L));
+        cache.onInsert(1L);
+        assertFalse(cache.isKnownMissing(1L));
+
+        Thread.sleep(40);
+        assertFalse(cache.isKnownMissing(2L));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void doesNotCacheAMissRacingAnInsert() {
+        var cache = NegativeCache.<Long>of(100, Duration.ofMinutes(1));
+        assertThrows(NotFoundException.class, () -> cache.throwIfEmpty(1L, () -> {
+            // inserted by another request while this lookup runs
+            cache.onInsert(1L);
+            return Optional.empty();
+        }));
+        assertFalse(cache.isKnownMissing(1L));
+    }
+
+    @Test
+    void staysWithinItsSize() throws Exception {
+        var cache = NegativeCache.<Long>of(2, Duration.ofMillis(20));
+        cache.markMissing(1L);
+        cache.markMissing(2L);
+        cache.markMissing(3L);
+        assertEquals(2, cache.size());
+        assertFalse(cache.isKnownMissing(3L));
+
+        // room is made by sweeping the expired keys
+        Thread.sleep(30);
+        cache.markMissing(3L);
+        assertTrue(cache.isKnownMissing(3L));
+        assertEquals(1, cache.size());
+        assertThrows(IllegalArgumentException.class, () -> NegativeCache.of(0, Duration.ofMinutes(1)));
+    }
+
+    @Test
+    void neverAnswersA404AfterTheInsertCompletedConcurrently() throws Exception {
+        var executor = Executors.newFixedThreadPool(4);
+        try {
+            for (int round = 0; round < 200; round++) {
+                var cache = NegativeCache.<Long>of(100, Duration.ofMinutes(1));
+                var exists = new AtomicBoolean();
+                Future<?> lookups = executor.submit(() -> {
+                    for (int i = 0; i < 100 && !exists.get(); i++) {
+                        try {
+                            cache.throwIfFalse(1L, exists::get);
+                        } catch (NotFoundException e) {
+                            // expected until the insert
+                        }
+                    }
+                });
+                Future<?> insert = executor.submit(() -> {
+                    exists.set(true);
+                    cache.onInsert(1L);
+                });
+                insert.get();
+                lookups.get();
+                assertFalse(cache.isKnownMissing(1L), "round " + round);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package tech.becoming.common.resilience;
+
+import org.junit.jupiter.api.Test;
+import tech.becoming.common.exceptions.TooManyRequestsException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RateLimiterTest {
+
+    private static final Duration DAY = Duration.ofDays(1);
+
+    @Test
+    void tokenBucketAllowsTheBurstThenWaits() {
+        var limiter = RateLimiter.tokenBucket(3, 1, Duration.ofSeconds(10));
+        for (int i = 0; i < 3; i++) {
+            assertEquals(RateLimiter.ALLOWED, limiter.tryAcquire("client"));
+        }
+        long wait = limiter.tryAcquire("client");
+        assertTrue(wait > 9_000 && wait <= 10_000, "waited " + wait);
+        assertEquals(RateLimiter.ALLOWED, limiter.tryAcquire("other"));
+        assertThrows(TooManyRequestsException.class, () -> limiter.acquireOrThrow("client"));
+    }
+
+    @Test
+    void slidingWindowCountsPermits() {
+        var limiter = RateLimiter.slidingWindow(5, DAY);
+        assertEquals(RateLimiter.ALLOWED, limiter.tryAcquire("client", 5));
+        assertTrue(limiter.tryAcquire("client", 1) > 0);
+        assertEquals(RateLimiter.ALLOWED, limiter.tryAcquire("other", 5));
+    }
+
+    @Test
+    void rejectsInvalidArguments() {
+        var limiter = RateLimiter.tokenBucket(3, 1, DAY);
+        assertThrows(IllegalArgumentException.class, () -> limiter.tryAcquire("client", 0));
+        assertThrows(IllegalArgumentException.class, () -> limiter.tryAcquire("client", 4));
+        assertThrows(IllegalArgumentException.class, () -> RateLimiter.tokenBucket(3, 1, DAY, 3));
+        assertThrows(IllegalArgumentException.class, () -> RateLimiter.tokenBucket(70_000, 1, DAY));
+        assertThrows(IllegalArgumentException.class, () -> RateLimiter.slidingWindow(1 << 20, DAY));
+        assertThrows(IllegalArgumentException.class, () -> RateLimiter.slidingWindow(1, Duration.ZERO));
+    }
+
+    @Test
+    void newKeysShareAnOverflowBucketWhenTheTableIsBusy() {
+        var limiter = RateLimiter.tokenBucket(2, 1, DAY, 1);
+        assertEquals(RateLimiter.ALLOWED, limiter.tryAcquire("tracked"));
+
+        // the only slot is held by a key with requests counted, the new keys are not rejected outright
+        assertEquals(RateLimiter.ALLOWED, limiter.tryAcquire("new-1"));
+        assertEquals(RateLimiter.ALLOWED, limiter.tryAcquire("new-2"));
+        // but they share one budget
+        assertTrue(limiter.tryAcquire("new-3") > 0);
+        // and the tracked key keeps its own, it was not evicted
+        assertEquals(RateLimiter.ALLOWED, limiter.tryAcquire("tracked"));
+        assertTrue(limiter.tryAcquire("tracked") > 0);
+    }
+
+    @Test
+    void neverAllowsMoreThanTheCapacityConcurrently() throws Exception {
+        assertExactlyAllowed(RateLimiter.tokenBucket(1000, 1, DAY), 1000);
+        assertExactlyAllowed(RateLimiter.slidingWindow(1000, DAY), 1000);
+    }
+
+    private static void assertExactlyAllowed(RateLimiter limiter, int expected) throws Exception {
+        int threads = 8;
+        var executor = Executors.newFixedThreadPool(threads);
+        try {
+            var start = new CountDownLatch(1);
+            var tasks = new ArrayList<Callable<Integer>>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                tasks.add(() -> {
+                    start.await();
+                    int allowed = 0;
+                    for (int i = 0; i < 500; i++) {
+                        // a shared key and a key per thread, to race on the slot claims too
+                        if (limiter.tryAcquire("shared") == RateLimiter.ALLOWED) {
+                            allowed++;
+                        }
+                        limiter.tryAcquire("thread-" + thread + "-" + i);
+                    }
+                    return allowed;
+                });
+            }
+            var futures = new ArrayList<Future<Integer>>();
+            for (var task : tasks) {
+                futures.add(executor.submit(task));
+            }
+            start.countDown();
+            int allowed = 0;
+            for (var future : futures) {
+                allowed += future.get();
+            }
+            assertEquals(expected, allowed);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
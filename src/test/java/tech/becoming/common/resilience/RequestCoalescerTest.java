@@ -0,0 +1,119 @@
+package tech.becoming.common.resilience;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static tech.becoming.common.constants.HttpMethod.GET;
+import static tech.becoming.common.constants.HttpMethod.POST;
+
+class RequestCoalescerTest {
+
+    private static final Function<String, String> NO_HEADERS = name -> null;
+    private static final String[] NO_VARY = new String[0];
+
+    @Test
+    void sharesOneCallBetweenIdenticalRequests() throws Exception {
+        var coalescer = new RequestCoalescer<String>();
+        var calls = new AtomicInteger();
+        var upstream = new CompletableFuture<String>();
+
+        var first = coalescer.execute(GET, "/p?b=1&a=2", NO_HEADERS, NO_VARY, () -> {
+            calls.incrementAndGet();
+            return upstream;
+        });
+        var second = coalescer.execute(GET, "/p?a=2&b=1", NO_HEADERS, NO_VARY, () -> {
+            calls.incrementAndGet();
+            return upstream;
+        });
+        assertEquals(1, coalescer.size());
+
+        // cancelling a copy doesn't cancel the shared call
+        second.cancel(true);
+        assertFalse(upstream.isCancelled());
+        upstream.complete("page");
+        assertEquals("page", first.get());
+        assertEquals(1, calls.get());
+        assertEquals(0, coalescer.size());
+    }
+
+    @Test
+    void neverCoalescesUnsafeOrCredentialedRequests() {
+        var coalescer = new RequestCoalescer<String>();
+        var calls = new AtomicInteger();
+        var pending = new CompletableFuture<String>();
+        Function<String, String> credentialed = Map.of("Authorization", "Bearer a")::get;
+
+        coalescer.execute(POST, "/p", NO_HEADERS, NO_VARY, () -> count(calls, pending));
+        coalescer.execute(POST, "/p", NO_HEADERS, NO_VARY, () -> count(calls, pending));
+        coalescer.execute(GET, "/p", credentialed, NO_VARY, () -> count(calls, pending));
+        coalescer.execute(GET, "/p", Map.of("Cookie", "SESSION=b")::get, NO_VARY, () -> count(calls, pending));
+        assertEquals(4, calls.get());
+        assertEquals(0, coalescer.size());
+    }
+
+    @Test
+    void sharesFailuresAndReleasesTheKey() {
+        var coalescer = new RequestCoalescer<String>();
+        var failure = new IllegalStateException("down");
+        var result = coalescer.execute("key", () -> {
+            throw failure;
+        });
+        var error = assertThrows(ExecutionException.class, result::get);
+        assertSame(failure, error.getCause());
+
+        var missing = coalescer.execute("key", () -> null);
+        assertTrue(missing.isCompletedExceptionally());
+        assertEquals(0, coalescer.size());
+    }
+
+    @Test
+    void runsOneCallPerKeyUnderConcurrentRequests() throws Exception {
+        var coalescer = new RequestCoalescer<String>();
+        var calls = new AtomicInteger();
+        var upstream = new CompletableFuture<String>();
+        int threads = 8;
+        var executor = Executors.newFixedThreadPool(threads);
+        try {
+            var start = new CountDownLatch(1);
+            var futures = new ArrayList<Future<CompletableFuture<String>>>();
+            for (int t = 0; t < threads * 50; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return coalescer.execute(GET, "/hot", NO_HEADERS, NO_VARY, () -> count(calls, upstream));
+                }));
+            }
+            start.countDown();
+            var results = new ArrayList<CompletableFuture<String>>();
+            for (var future : futures) {
+                results.add(future.get(5, TimeUnit.SECONDS));
+            }
+            upstream.complete("hot");
+            for (var result : results) {
+                assertEquals("hot", result.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, calls.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static CompletableFuture<String> count(AtomicInteger calls, CompletableFuture<String> future) {
+        calls.incrementAndGet();
+        return future;
+    }
+}
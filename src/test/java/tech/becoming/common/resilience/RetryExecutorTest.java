@@ -0,0 +1,136 @@
+package tech.becoming.common.resilience;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import tech.becoming.common.exceptions.BadRequestException;
+import tech.becoming.common.exceptions.ServiceUnavailableException;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static tech.becoming.common.constants.HttpMethod.GET;
+import static tech.becoming.common.constants.HttpMethod.POST;
+import static tech.becoming.common.constants.HttpMethod.PUT;
+
+class RetryExecutorTest {
+
+    private static final RetryExecutor.Outcome<Integer> STATUS = RetryExecutor.Outcome.of(status -> status, status -> null);
+
+    private final TimerWheel timer = new TimerWheel(Duration.ofMillis(1), 64, "retry-executor-test");
+    private final RetryExecutor retries = RetryExecutor.of(3, Duration.ofMillis(1), Duration.ofMillis(20),
+            RetryBudget.of(1, 100), timer, Runnable::run);
+
+    @AfterEach
+    void stop() {
+        timer.stop();
+    }
+
+    @Test
+    void onlyRetriesRequestsSafeToRepeat() {
+        assertTrue(RetryExecutor.isRetryable(GET, null));
+        assertTrue(RetryExecutor.isRetryable(PUT, null));
+        assertFalse(RetryExecutor.isRetryable(POST, null));
+        assertFalse(RetryExecutor.isRetryable(POST, " "));
+        assertTrue(RetryExecutor.isRetryable(POST, "8e03978e"));
+    }
+
+    @Test
+    void classifiesStatusesAndErrors() {
+        assertTrue(RetryExecutor.isRetryableStatus(503));
+        assertTrue(RetryExecutor.isRetryableStatus(429));
+        assertFalse(RetryExecutor.isRetryableStatus(500));
+        assertFalse(RetryExecutor.isRetryableStatus(404));
+        assertTrue(RetryExecutor.isRetryableError(new CompletionException(new IOException())));
+        assertTrue(RetryExecutor.isRetryableError(new ExecutionException(new TimeoutException())));
+        assertFalse(RetryExecutor.isRetryableError(new NullPointerException()));
+    }
+
+    @Test
+    void retriesUntilTheAttemptsRunOut() throws Exception {
+        var attempts = new AtomicInteger();
+        var result = retries.execute(GET, null, () -> CompletableFuture.completedFuture(
+                attempts.incrementAndGet() < 3 ? 503 : 200), STATUS);
+        assertEquals(200, result.get(5, TimeUnit.SECONDS));
+        assertEquals(3, attempts.get());
+
+        attempts.set(0);
+        result = retries.execute(GET, null, () -> {
+            attempts.incrementAndGet();
+            return CompletableFuture.completedFuture(502);
+        }, STATUS);
+        assertEquals(502, result.get(5, TimeUnit.SECONDS));
+        assertEquals(3, attempts.get());
+    }
+
+    @Test
+    void sendsUnsafeRequestsOnce() throws Exception {
+        var attempts = new AtomicInteger();
+        var result = retries.execute(POST, null, () -> {
+            attempts.incrementAndGet();
+            return CompletableFuture.completedFuture(503);
+        }, STATUS);
+        assertEquals(503, result.get(5, TimeUnit.SECONDS));
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    void doesNotWaitForARetryAfterBeyondTheMaximumDelay() throws Exception {
+        var attempts = new AtomicInteger();
+        var result = retries.execute(GET, null, () -> {
+            attempts.incrementAndGet();
+            return CompletableFuture.completedFuture(429);
+        }, RetryExecutor.Outcome.of(status -> status, status -> "120"));
+        assertEquals(429, result.get(5, TimeUnit.SECONDS));
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    void retriesLibraryExceptionsByTheirCode() throws Exception {
+        var attempts = new AtomicInteger();
+        var result = retries.execute(GET, null, () -> attempts.incrementAndGet() < 2
+                ? CompletableFuture.failedFuture(new IOException("reset"))
+                : CompletableFuture.completedFuture("ok"));
+        assertEquals("ok", result.get(5, TimeUnit.SECONDS));
+
+        attempts.set(0);
+        var failed = retries.execute(GET, null, () -> {
+            attempts.incrementAndGet();
+            throw new BadRequestException();
+        });
+        var error = assertThrows(ExecutionException.class, () -> failed.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(BadRequestException.class, error.getCause());
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    void stopsWhenTheBudgetIsSpent() throws Exception {
+        var stingy = RetryExecutor.of(3, Duration.ofMillis(1), Duration.ofMillis(20), RetryBudget.of(0, 0),
+                timer, Runnable::run);
+        var attempts = new AtomicInteger();
+        var result = stingy.execute(GET, null, () -> {
+            attempts.incrementAndGet();
+            return CompletableFuture.failedFuture(new ServiceUnavailableException());
+        });
+        var error = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(ServiceUnavailableException.class, error.getCause());
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    void rejectsInvalidSettings() {
+        assertThrows(IllegalArgumentException.class, () -> RetryExecutor.of(0, Duration.ZERO, Duration.ZERO));
+        assertThrows(IllegalArgumentException.class,
+                () -> RetryExecutor.of(1, Duration.ofSeconds(2), Duration.ofSeconds(1)));
+    }
+}
@@ -0,0 +1,117 @@
+package tech.becoming.common.resilience;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimerWheelTest {
+
+    private final TimerWheel timer = new TimerWheel(Duration.ofMillis(1), 8, "timer-wheel-test");
+
+    @AfterEach
+    void stop() {
+        timer.stop();
+    }
+
+    @Test
+    void firesAfterTheDelay() throws Exception {
+        var fired = new CountDownLatch(1);
+        long start = System.nanoTime();
+        var timeout = timer.schedule(fired::countDown, 30, TimeUnit.MILLISECONDS);
+        assertTrue(fired.await(5, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(30));
+        assertTrue(timeout.isExpired());
+        assertFalse(timeout.cancel());
+    }
+
+    @Test
+    void firesTimeoutsSeveralRoundsAway() throws Exception {
+        // 8 buckets of 1 ms, a 20 ms delay goes around the wheel more than twice
+        var fired = new CountDownLatch(2);
+        timer.schedule(fired::countDown, Duration.ofMillis(20));
+        timer.schedule(fired::countDown, Duration.ofMillis(3));
+        assertTrue(fired.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void cancelledTasksNeverRun() throws Exception {
+        var ran = new AtomicInteger();
+        var timeout = timer.schedule(ran::incrementAndGet, 20, TimeUnit.MILLISECONDS);
+        assertTrue(timeout.cancel());
+        assertTrue(timeout.isCancelled());
+        assertFalse(timeout.cancel());
+
+        var fired = new CountDownLatch(1);
+        timer.schedule(fired::countDown, 40, TimeUnit.MILLISECONDS);
+        assertTrue(fired.await(5, TimeUnit.SECONDS));
+        assertEquals(0, ran.get());
+    }
+
+    @Test
+    void aFailingTaskDoesNotStopTheOthers() throws Exception {
+        var fired = new CountDownLatch(1);
+        timer.schedule(() -> {
+            throw new IllegalStateException("expected by the test");
+        }, 1, TimeUnit.MILLISECONDS);
+        timer.schedule(fired::countDown, 1, TimeUnit.MILLISECONDS);
+        assertTrue(fired.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void rejectsInvalidSettingsAndSchedulingAfterStop() {
+        assertThrows(IllegalArgumentException.class, () -> new TimerWheel(Duration.ZERO, 8, "invalid"));
+        assertThrows(IllegalArgumentException.class, () -> new TimerWheel(Duration.ofMillis(1), 0, "invalid"));
+        timer.stop();
+        assertThrows(IllegalStateException.class, () -> timer.schedule(() -> {
+        }, 1, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void runsEveryTaskNotCancelledUnderConcurrentScheduling() throws Exception {
+        int threads = 8;
+        int perThread = 2_000;
+        var ran = new AtomicInteger();
+        var executor = Executors.newFixedThreadPool(threads);
+        int cancelled = 0;
+        try {
+            var tasks = new ArrayList<Callable<Integer>>();
+            for (int t = 0; t < threads; t++) {
+                tasks.add(() -> {
+                    int prevented = 0;
+                    for (int i = 0; i < perThread; i++) {
+                        var timeout = timer.schedule(ran::incrementAndGet, i % 20, TimeUnit.MILLISECONDS);
+                        if (i % 2 == 0 && timeout.cancel()) {
+                            prevented++;
+                        }
+                    }
+                    return prevented;
+                });
+            }
+            for (var future : executor.invokeAll(tasks)) {
+                cancelled += future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        int expected = threads * perThread - cancelled;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (ran.get() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        Thread.sleep(30);
+        assertEquals(expected, ran.get());
+    }
+}
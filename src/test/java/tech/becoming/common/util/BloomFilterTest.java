@@ -0,0 +1,32 @@
+package tech.becoming.common.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BloomFilterTest {
+
+    @Test
+    void hasNoFalseNegatives() {
+        var filter = BloomFilter.of(1_000, 0.01);
+        assertTrue(filter.bitSize() >= 1_000 * 9);
+        for (long hash = 0; hash < 1_000; hash++) {
+            filter.put(hash * 0x9E3779B97F4A7C15L);
+        }
+        int falsePositives = 0;
+        for (long hash = 0; hash < 1_000; hash++) {
+            assertTrue(filter.mightContain(hash * 0x9E3779B97F4A7C15L));
+            assertFalse(filter.put(hash * 0x9E3779B97F4A7C15L));
+            if (filter.mightContain(~hash * 0xC2B2AE3D27D4EB4FL)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 50, "false positives " + falsePositives);
+        filter.clear();
+        assertFalse(filter.mightContain(0x9E3779B97F4A7C15L));
+        assertThrows(IllegalArgumentException.class, () -> BloomFilter.of(0, 0.01));
+        assertThrows(IllegalArgumentException.class, () -> BloomFilter.of(10, 1));
+    }
+}
@@ -0,0 +1,138 @@
+package tech.becoming.common.validation;
+
+import org.junit.jupiter.api.Test;
+import tech.becoming.common.exceptions.BadRequestException;
+import tech.becoming.common.exceptions.ExceptionDetail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ValidatorTest {
+
+    static final class Address {
+        private final String street;
+
+        Address(String street) {
+            this.street = street;
+        }
+
+        public String getStreet() {
+            return street;
+        }
+    }
+
+    static final class Line {
+        private final String sku;
+        private final int quantity;
+
+        Line(String sku, int quantity) {
+            this.sku = sku;
+            this.quantity = quantity;
+        }
+    }
+
+    static final class Order {
+        private final String customer;
+        private final Address address;
+        private final List<Line> lines;
+
+        Order(String customer, Address address, List<Line> lines) {
+            this.customer = customer;
+            this.address = address;
+            this.lines = lines;
+        }
+    }
+
+    private static final Validator<Address> ADDRESS = Validator.of(Address.class)
+            .field("street", Rule.notBlank())
+            .build();
+
+    private static final Validator<Line> LINE = Validator.of(Line.class)
+            .field("sku", Rule.notBlank())
+            .field("quantity", LongRule.range(1, 1000))
+            .build();
+
+    private static final Validator<Order> ORDER = Validator.of(Order.class)
+            .field("customer", Rule.length(1, 5))
+            .field("lines", Rule.size(1, 10_000))
+            .nested("address", ADDRESS)
+            .each("lines", LINE)
+            .build();
+
+    @Test
+    void validObjectHasNoDetails() {
+        var order = new Order("bob", new Address("main"), List.of(new Line("a", 1), new Line("b", 1000)));
+        assertTrue(ORDER.validate(order).isEmpty());
+        ORDER.validateOrThrow(order);
+    }
+
+    @Test
+    void namesTheDetailsAfterThePath() {
+        var order = new Order("too long", new Address(" "), List.of(new Line("a", 1), new Line("", 0)));
+        assertEquals(List.of("customer", "address.street", "lines[1].sku", "lines[1].quantity"),
+                names(ORDER.validate(order)));
+        assertThrows(BadRequestException.class, () -> ORDER.validateOrThrow(order));
+    }
+
+    @Test
+    void nullNestedValuesAreSkipped() {
+        assertEquals(List.of("lines"), names(ORDER.validate(new Order("bob", null, List.of()))));
+        assertTrue(ORDER.validate(new Order("bob", null, null)).isEmpty());
+    }
+
+    @Test
+    void boundsOfLongRulesAreInclusive() {
+        assertTrue(LINE.validate(new Line("a", 1)).isEmpty());
+        assertTrue(LINE.validate(new Line("a", 1000)).isEmpty());
+        assertEquals(List.of("quantity"), names(LINE.validate(new Line("a", 1001))));
+    }
+
+    @Test
+    void rejectsRulesOfAnotherTypeWhenBuilt() {
+        var builder = Validator.of(Line.class);
+        assertThrows(IllegalArgumentException.class, () -> builder.field("quantity", Rule.notBlank()));
+        assertThrows(IllegalArgumentException.class, () -> builder.field("sku", Rule.size(0, 1)));
+        assertThrows(IllegalArgumentException.class, () -> builder.field("sku", LongRule.min(0)));
+        assertThrows(IllegalArgumentException.class,
+                () -> builder.field("sku", Rule.of(Integer.class, i -> i > 0, "positive")));
+        assertThrows(IllegalArgumentException.class, () -> builder.field("missing", Rule.notNull()));
+
+        var orders = Validator.of(Order.class);
+        assertThrows(IllegalArgumentException.class, () -> orders.nested("address", LINE));
+        assertThrows(IllegalArgumentException.class, () -> orders.each("lines", ADDRESS));
+        assertThrows(IllegalArgumentException.class, () -> orders.each("customer", LINE));
+
+        // boxed primitives and untyped rules are accepted
+        builder.field("quantity", Rule.of(Integer.class, i -> i > 0, "positive"));
+        builder.field("quantity", Rule.notNull());
+        assertTrue(builder.build().validate(new Line("a", 1)).isEmpty());
+    }
+
+    @Test
+    void validatesLargeListsInParallelInOrder() {
+        var lines = new ArrayList<Line>();
+        for (int i = 0; i < Validator.PARALLEL_THRESHOLD * 4; i++) {
+            lines.add(new Line(i % 1000 == 0 ? "" : "a", 1));
+        }
+        var expected = new ArrayList<String>();
+        for (int i = 0; i < lines.size(); i += 1000) {
+            expected.add("[" + i + "].sku");
+        }
+        assertEquals(expected, names(LINE.validateAll(lines)));
+
+        // the size rule fails first, the list holds more than 10 000 lines
+        var nested = names(ORDER.validate(new Order("bob", null, lines)));
+        assertEquals("lines", nested.get(0));
+        assertEquals(expected.stream().map(name -> "lines" + name).collect(Collectors.toList()),
+                nested.subList(1, nested.size()));
+    }
+
+    private static List<String> names(List<ExceptionDetail> details) {
+        return details.stream().map(ExceptionDetail::getName).collect(Collectors.toList());
+    }
+}